@@ -0,0 +1,47 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/* Entry point of benchmarks.jar. It takes the usual JMH command line
+ * (a benchmark name pattern, -p intersections=1000, -f, -wi, -i, ...),
+ * but unless told otherwise it runs one fork of three warmup and five
+ * measured one-second iterations, and always writes the results as JSON
+ * (to jmh-result.json, or the file given with -rff) so that runs from
+ * different commits can be compared.
+ *
+ * Usage: java -jar benchmarks/target/benchmarks.jar [JMH options] [pattern] */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions command = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(command);
+		if (!command.getForkCount().hasValue()) {
+			options.forks(1);
+		}
+		if (!command.getWarmupIterations().hasValue()) {
+			options.warmupIterations(3);
+		}
+		if (!command.getWarmupTime().hasValue()) {
+			options.warmupTime(TimeValue.seconds(1));
+		}
+		if (!command.getMeasurementIterations().hasValue()) {
+			options.measurementIterations(5);
+		}
+		if (!command.getMeasurementTime().hasValue()) {
+			options.measurementTime(TimeValue.seconds(1));
+		}
+		if (!command.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,24 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import streetmapping.UndirectedGraph;
+
+// Times loading a map file into an UndirectedGraph (reading, title lookups and building the adjacency arrays)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GraphLoadBenchmark {
+
+	@Benchmark
+	public UndirectedGraph load(SyntheticMap map) throws IOException {
+		return new UndirectedGraph(map.file);
+	}
+}
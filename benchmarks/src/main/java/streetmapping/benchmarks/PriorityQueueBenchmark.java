@@ -0,0 +1,88 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import streetmapping.DoubleIndexMinPriorityQueue;
+import streetmapping.IndexMinPriorityQueue;
+
+/* Times a queue's worth of operations the way a shortest path search
+ * uses them: every index inserted with a random key, a quarter of them
+ * lowered once, then all removed in order. The generic
+ * IndexMinPriorityQueue (with boxed Double keys) and the specialized
+ * DoubleIndexMinPriorityQueue that the searches actually use run the
+ * same operations, over the same sizes as the synthetic maps */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class PriorityQueueBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int size;		// number of indices in the queue
+
+	private double[] keys;		// keys[i] is the key index i is inserted with
+	private double[] lowered;	// lowered[i] is the smaller key index i is changed to
+	private int[] decreases;	// indices whose keys are lowered
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		keys = new double[size];
+		lowered = new double[size];
+		for (int i = 0; i < size; ++i) {
+			keys[i] = random.nextDouble();
+			lowered[i] = keys[i] * random.nextDouble();
+		}
+		decreases = new int[size / 4];
+		for (int k = 0; k < decreases.length; ++k) {
+			decreases[k] = random.nextInt(size);
+		}
+	}
+
+	@Benchmark
+	public int generic() {
+		IndexMinPriorityQueue<Double> pq = new IndexMinPriorityQueue<Double>(size);
+		for (int i = 0; i < size; ++i) {
+			pq.insert(i, keys[i]);
+		}
+		for (int i : decreases) {
+			if (lowered[i] < pq.keyOf(i)) {
+				pq.changeKey(i, lowered[i]);
+			}
+		}
+		int last = -1;
+		while (!pq.isEmpty()) {
+			last = pq.delMin();
+		}
+		return last;
+	}
+
+	@Benchmark
+	public int specialized() {
+		DoubleIndexMinPriorityQueue pq = new DoubleIndexMinPriorityQueue(size);
+		for (int i = 0; i < size; ++i) {
+			pq.insert(i, keys[i]);
+		}
+		for (int i : decreases) {
+			if (lowered[i] < pq.keyOf(i)) {
+				pq.decreaseKey(i, lowered[i]);
+			}
+		}
+		int last = -1;
+		while (!pq.isEmpty()) {
+			last = pq.delMin();
+		}
+		return last;
+	}
+}
@@ -0,0 +1,62 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import streetmapping.DijkstraShortestPath;
+
+/* Times DijkstraShortestPath on the synthetic maps, both searching the
+ * whole map from one intersection and stopping once one destination is
+ * settled. Each call takes the next of a fixed list of random pairs, so
+ * every run sees the same queries */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShortestPathBenchmark {
+
+	private static final int PAIRS = 64; // random origin-destination pairs cycled through
+
+	// Per-thread position in the list of pairs
+	@State(Scope.Thread)
+	public static class Pairs {
+		String[] from = new String[PAIRS];	// from[p] is the start of pair p
+		String[] to = new String[PAIRS];	// to[p] is the end of pair p
+		int next = 0;						// index of the next pair to use
+
+		@Setup
+		public void setUp(SyntheticMap map) {
+			Random random = new Random(42);
+			for (int p = 0; p < PAIRS; ++p) {
+				from[p] = map.titles[random.nextInt(map.titles.length)];
+				to[p] = map.titles[random.nextInt(map.titles.length)];
+			}
+		}
+
+		int nextPair() {
+			int p = next;
+			next = (next + 1) % PAIRS;
+			return p;
+		}
+	}
+
+	@Benchmark
+	public DijkstraShortestPath oneToAll(SyntheticMap map, Pairs pairs) {
+		return new DijkstraShortestPath(map.graph, pairs.from[pairs.nextPair()]);
+	}
+
+	@Benchmark
+	public double pointToPoint(SyntheticMap map, Pairs pairs) {
+		int p = pairs.nextPair();
+		DijkstraShortestPath search = new DijkstraShortestPath(map.graph, pairs.from[p], pairs.to[p]);
+		return search.distanceTo(map.graph, pairs.to[p]);
+	}
+}
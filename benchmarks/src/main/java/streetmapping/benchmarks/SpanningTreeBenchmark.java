@@ -0,0 +1,23 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import streetmapping.MapMST;
+
+// Times finding the minimum spanning tree of the synthetic maps with MapMST (Prim's algorithm)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SpanningTreeBenchmark {
+
+	@Benchmark
+	public int[] mapMST(SyntheticMap map) {
+		return new MapMST(map.graph).edgeNumbers();
+	}
+}
@@ -0,0 +1,55 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping.benchmarks;
+
+import java.io.*;
+import java.nio.file.Files;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import streetmapping.MapGenerator;
+import streetmapping.UndirectedGraph;
+
+/* Benchmark state holding a synthetic map of a given size, a
+ * MapGenerator grid city written to a temporary file in the same i/r
+ * format as ur.txt and then loaded. Grid cities are always connected,
+ * so every map has a minimum spanning tree.
+ *
+ * Each benchmark that uses it runs once per size in 'intersections' */
+@State(Scope.Benchmark)
+public class SyntheticMap {
+
+	private static final long SEED = 42;	// the same map is written for every run
+
+	@Param({"1000", "10000", "100000"})
+	public int intersections;		// number of intersections in the map (rounded up to whole rows)
+
+	public File file;				// map file the graph was loaded from
+	public String[] titles;			// titles of every intersection in the map
+	public UndirectedGraph graph;	// the loaded map
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		file = File.createTempFile("synthetic-" + intersections + "-", ".txt");
+		int columns = (int) Math.ceil(Math.sqrt(intersections));
+		int rows = (intersections + columns - 1) / columns;
+		try (Writer out = new BufferedWriter(new FileWriter(file))) {
+			new MapGenerator(out, SEED).grid("i", rows, columns, 43.0, -77.7);
+		}
+		titles = new String[rows * columns];
+		for (int v = 0; v < titles.length; ++v) {
+			titles[v] = MapGenerator.gridTitle("i", v / columns, v % columns, columns);
+		}
+		graph = new UndirectedGraph(file);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file.toPath());
+	}
+}
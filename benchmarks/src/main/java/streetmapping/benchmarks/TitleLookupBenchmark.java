@@ -0,0 +1,56 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping.benchmarks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import streetmapping.TitleIndex;
+
+/* Times hashing an intersection title (what hashTitle() used to do, now
+ * TitleIndex.hash()) and looking a title up in a loaded graph. Titles
+ * are taken in a shuffled order so the lookups do not walk the table in
+ * sequence */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TitleLookupBenchmark {
+
+	// Per-thread position in a shuffled list of the map's titles
+	@State(Scope.Thread)
+	public static class Cursor {
+		String[] titles;	// the map's titles, shuffled
+		int next = 0;		// index of the next title to use
+
+		@Setup
+		public void setUp(SyntheticMap map) {
+			titles = map.titles.clone();
+			Collections.shuffle(Arrays.asList(titles), new Random(7));
+		}
+
+		String nextTitle() {
+			String title = titles[next];
+			next = (next + 1 == titles.length) ? 0 : next + 1;
+			return title;
+		}
+	}
+
+	@Benchmark
+	public int hashTitle(Cursor cursor) {
+		return TitleIndex.hash(cursor.nextTitle());
+	}
+
+	@Benchmark
+	public int intersectionNo(SyntheticMap map, Cursor cursor) {
+		return map.graph.intersectionNo(cursor.nextTitle());
+	}
+}
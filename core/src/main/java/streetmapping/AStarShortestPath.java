@@ -0,0 +1,156 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+/* Class used to compute the shortest path between one starting and
+ * one ending intersection with the A* algorithm. It works like the
+ * point-to-point version of DijkstraShortestPath, except the queue is
+ * ordered by the distance from the start plus a lower bound on the
+ * distance still left to the end, which steers the search toward the
+ * end instead of letting it grow evenly in every direction.
+ *
+ * The lower bound is the great-circle distance to the end computed by
+ * UndirectedGraph.calcDistanceMiles(). Every edge weight is the same
+ * great-circle distance between its two intersections, so no path can
+ * be shorter than it and the first time the end is settled its distance
+ * is final. The bound is scaled down a hair so that rounding in the
+ * haversine formula can never push it past the true distance.
+ *
+ * Given a LandmarkTable the search also uses the landmarks' triangle
+ * inequality bound (ALT), taking whichever of the two bounds is larger;
+ * both are lower bounds, so their maximum is one too. Tables computed
+ * for a different version of a LiveGraph are ignored, since they are not
+ * bounds on this one; LiveGraph keeps every weight at least the
+ * great-circle distance, so that bound holds in every version */
+public class AStarShortestPath {
+
+	private static final double SAFETY = 0.999999; // scale that keeps the bound from overestimating through rounding
+
+	protected int start;						// intersection number the path starts at
+	protected int end;							// intersection number the path ends at
+	protected LandmarkTable landmarks;			// landmark distances that tighten the bound (null for great-circle only)
+	protected double endLatitude;				// latitude of the ending intersection
+	protected double endLongitude;				// longitude of the ending intersection
+
+	protected double distance = Double.POSITIVE_INFINITY;	// length of the shortest path (infinity if none)
+	protected int[] edges;									// edge numbers of the shortest path in travel order (null if none)
+	protected int settledCount = 0;							// number of intersections settled before reaching the end
+
+	// Constructor that computes the shortest path between the two titled intersections
+	public AStarShortestPath(UndirectedGraph graph, String startInterTitle, String endInterTitle) {
+		this(graph, null, startInterTitle, endInterTitle);
+	}
+
+	/* Constructor that computes the shortest path between the two titled
+	 * intersections, also bounding the distance left with the landmarks.
+	 * The search runs in this thread's forward QueryWorkspace, where each
+	 * intersection's estimate is kept as its potential once reached */
+	public AStarShortestPath(UndirectedGraph graph, LandmarkTable landmarks, String startInterTitle, String endInterTitle) {
+		this(graph, landmarks, graph.intersectionNo(startInterTitle), graph.intersectionNo(endInterTitle));
+	}
+
+	// Constructor that computes the shortest path between two intersection numbers, as above
+	public AStarShortestPath(UndirectedGraph graph, LandmarkTable landmarks, int start, int end) {
+
+		this.landmarks = (landmarks != null && landmarks.describes(graph)) ? landmarks : null; // tables of another version are dropped
+		this.start = start;
+		this.end = end;
+		endLatitude = graph.intersection(end).latitude;
+		endLongitude = graph.intersection(end).longitude;
+
+		QueryWorkspace search = QueryWorkspace.forward(graph.V());
+
+		/* An infinite bound (only possible with landmarks) means the
+		 * end cannot be reached from there, so it is never queued */
+		double startEstimate = estimate(graph, start);
+		if (startEstimate != Double.POSITIVE_INFINITY) {
+			search.reach(start, 0.0, -1);
+			search.potential[start] = startEstimate;
+			search.pq.insert(start, startEstimate);
+		}
+
+		/* Settle the intersection whose path through it looks
+		 * shortest until the end itself has been settled */
+		while (!search.pq.isEmpty()) {
+			int v = search.pq.delMin();
+			search.settle(v);
+			++settledCount;
+			if (v == end) {
+				break;
+			}
+			relax(graph, search, v);
+		}
+
+		// Copy the result out of the workspace before it is reused
+		if (search.settled(end)) {
+			distance = search.distance[end];
+			int length = 0;
+			for (int v = end; search.edgeTo(v) != -1; v = other(graph, search.edgeTo(v), v)) {
+				++length;
+			}
+			edges = new int[length];
+			for (int v = end; search.edgeTo(v) != -1; v = other(graph, search.edgeTo(v), v)) {
+				edges[--length] = search.edgeTo(v);
+			}
+		}
+	}
+
+	// Relaxes every edge leaving intersection v
+	private void relax(UndirectedGraph graph, QueryWorkspace search, int v) {
+		for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; ++k) {
+			int w = graph.targets[k];
+			if (search.settled(w)) {
+				continue;
+			}
+
+			double newDistance = search.distance[v] + graph.weights[k];
+			if (newDistance < search.distance(w)) {
+				if (search.pq.contains(w)) {
+					search.reach(w, newDistance, graph.edgeIds[k]);
+					search.pq.decreaseKey(w, newDistance + search.potential[w]);
+				}
+				else {
+					double estimate = estimate(graph, w);
+					if (estimate == Double.POSITIVE_INFINITY) {
+						continue;
+					}
+					search.reach(w, newDistance, graph.edgeIds[k]);
+					search.potential[w] = estimate;
+					search.pq.insert(w, newDistance + estimate);
+				}
+			}
+		}
+	}
+
+	// Returns the lower bound on the distance from v to the end
+	private double estimate(UndirectedGraph graph, int v) {
+		Intersection inter = graph.intersection(v);
+		double estimate = SAFETY * UndirectedGraph.calcDistanceMiles(inter.latitude, inter.longitude, endLatitude, endLongitude);
+		if (landmarks != null) {
+			estimate = Math.max(estimate, landmarks.lowerBound(v, end));
+		}
+		return estimate;
+	}
+
+	public boolean hasPath() { return edges != null; }				// Returns true if the two intersections are connected
+	public double distance() { return distance; }					// Returns the length of the shortest path (infinity if none)
+	public int settledCount() { return settledCount; }				// Returns number of intersections the search settled
+	public int[] edgeNumbers() { return edges; }					// Returns the edge numbers of the path in travel order (null if none)
+
+	// Returns the shortest path as a Route, or null if no path exists
+	public Route route() {
+		return hasPath() ? new Route(start, end, distance, edges) : null;
+	}
+
+	/* Returns the edges of the shortest path as a stack whose top is the
+	 * edge leaving the start, or null if no path exists */
+	public EdgeStack path(UndirectedGraph graph) {
+		return hasPath() ? route().toStack(graph) : null;
+	}
+
+	// Returns the intersection number at the other end of edge number e from v
+	private int other(UndirectedGraph graph, int e, int v) {
+		StreetEdge edge = graph.edgeList[e];
+		return (edge.v.intersectionNo == v) ? edge.w.intersectionNo : edge.v.intersectionNo;
+	}
+}
@@ -1,5 +1,7 @@
 /* Code & Commentary by Grayson Westfall */
 
+package streetmapping;
+
 import java.util.Iterator;
 
 public class Bag<Item> implements Iterable<Item> {
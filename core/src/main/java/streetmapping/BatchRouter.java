@@ -0,0 +1,355 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/* Answers directions for a whole stream of origin/destination pairs in
+ * one run, so a job of millions of routes pays for starting the JVM and
+ * loading the map once rather than once per route. Pairs are read one
+ * per line ("from to", or "from,to" when the line has no spaces), from
+ * a file or standard input, and handed to a pool of worker threads as
+ * they are read. Routes go through a RouteCache, so origins that come
+ * up again and again get their whole shortest path tree kept.
+ *
+ * Results are streamed to a buffered output as they are found, in one
+ * of three formats:
+ *
+ * - text:   the lines -directions prints, one block per pair, with the
+ *           start added to each heading
+ * - csv:    pair,from,to,distance,streets (street names joined by ';',
+ *           distance empty when there is no path)
+ * - binary: after the 4 byte magic "SMBR" and a version int, one record
+ *           per pair of its pair number (long), its distance (double, NaN
+ *           if there is no path), its edge count (int, -1 if there is no
+ *           path) and its edge numbers (ints, in travel order), all big
+ *           endian as DataOutputStream writes them
+ *
+ * In order mode the results come out in the order the pairs were read,
+ * and a slow route only holds up the writer, not the workers. In
+ * completed mode each result is written the moment its route is found,
+ * and the pair number tells them apart. Either way only
+ * WINDOW_PER_THREAD pairs per worker are ever outstanding, so a stream
+ * of any length runs in bounded memory. Pairs with a title the map does
+ * not have are reported as having no path (with a note on standard
+ * error) rather than stopping the batch; any other failure of a worker
+ * stops it and is thrown from run().
+ *
+ * Pairs the cache misses are searched from both ends, or over a
+ * contraction hierarchy or with landmark tables saved by [-contract] or
+ * [-landmarks] if their files are given.
+ *
+ * Usage: java streetmapping.BatchRouter map_file [pairs_file|-] [output_file|-] [text|csv|binary] [ordered|completed] [threads]
+ *        [hierarchy_file|-] [landmark_file|-] */
+public class BatchRouter {
+
+	public static final int TEXT = 0;		// output formats
+	public static final int CSV = 1;
+	public static final int BINARY = 2;
+	private static final String[] FORMATS = {"text", "csv", "binary"};
+
+	protected static final int MAGIC = 0x534D4252;		// "SMBR", first bytes of a binary result file
+	protected static final int VERSION = 2;				// version of the binary record layout (2: long pair numbers)
+	protected static final int WINDOW_PER_THREAD = 256;	// pairs allowed outstanding per worker thread
+	protected static final long CACHE_BYTES = 64L << 20;	// memory budget of each RouteCache tier
+
+	protected UndirectedGraph graph;	// map the routes are found on
+	protected RouteCache cache;			// cache the routes go through
+	protected ForkJoinPool pool;		// worker threads
+	protected int format;				// TEXT, CSV or BINARY
+	protected boolean ordered;			// true to write results in input order, false as they complete
+
+	protected long pairs = 0;			// pairs read so far
+	protected long unreachable = 0;		// pairs that had no path (or an unknown title)
+
+	// Constructor for a batch of the given output format and order, run on the given number of threads
+	public BatchRouter(UndirectedGraph graph, int format, boolean ordered, int threads) {
+		this(graph, null, null, format, ordered, threads);
+	}
+
+	/* Constructor that also searches over a saved contraction hierarchy or
+	 * with landmark tables (either may be null), as RouteCache does */
+	public BatchRouter(UndirectedGraph graph, ContractionHierarchy hierarchy, LandmarkTable landmarks, int format, boolean ordered, int threads) {
+		if (format < TEXT || format > BINARY) {
+			throw new IllegalArgumentException("Unknown output format " + format + ".");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("There must be at least one thread.");
+		}
+		this.graph = graph;
+		this.format = format;
+		this.ordered = ordered;
+		cache = new RouteCache(graph, hierarchy, landmarks, CACHE_BYTES, CACHE_BYTES);
+		pool = new ForkJoinPool(threads);
+	}
+
+	public long pairs() { return pairs; }				// Returns number of pairs answered by the last run
+	public long unreachable() { return unreachable; }	// Returns number of those with no path
+	public RouteCache cache() { return cache; }			// Returns the cache the routes went through
+
+	// One answered pair: its number, titles and route (null if none), already formatted unless binary
+	private static class Result {
+		long pair;
+		String from;
+		String to;
+		Route route;
+		byte[] text;	// formatted result (text and csv only)
+	}
+
+	/* Reads every pair from the input, answers them on the pool and
+	 * writes the results to the output, returning once all are written.
+	 * Neither stream is closed, but the output is flushed */
+	public void run(Reader input, OutputStream output) throws IOException {
+		BufferedReader in = (input instanceof BufferedReader) ? (BufferedReader) input : new BufferedReader(input, 1 << 16);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+		int window = WINDOW_PER_THREAD * pool.getParallelism();
+		pairs = 0;
+		unreachable = 0;
+
+		if (format == BINARY) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+		}
+		else if (format == CSV) {
+			out.write("pair,from,to,distance,streets\n".getBytes(StandardCharsets.UTF_8));
+		}
+
+		ArrayDeque<CompletableFuture<Result>> pending = new ArrayDeque<CompletableFuture<Result>>();	// ordered mode
+		Semaphore slots = new Semaphore(window);	// completed mode
+		AtomicReference<IOException> failure = new AtomicReference<IOException>();	// first error of a worker (completed mode)
+
+		try {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String[] pair = pair(line);
+				if (pair == null) {
+					continue;
+				}
+				if (pair.length != 2) {
+					throw new IOException("Line " + (pairs + 1) + " is not a pair of titles: " + line);
+				}
+				long number = pairs++;
+
+				if (ordered) {
+					// Write results off the front of the window until there is room for this pair
+					while (pending.size() >= window) {
+						write(pending.poll().join(), out);
+					}
+					pending.add(CompletableFuture.supplyAsync(() -> answer(number, pair[0], pair[1]), pool));
+				}
+				else {
+					// Whichever worker finishes writes its own result
+					slots.acquireUninterruptibly();
+					CompletableFuture.runAsync(() -> {
+						try {
+							Result result = answer(number, pair[0], pair[1]);
+							synchronized (out) {
+								if (failure.get() == null) {
+									write(result, out);
+								}
+							}
+						}
+						catch (IOException excpt) {
+							failure.compareAndSet(null, excpt);
+						}
+						catch (RuntimeException excpt) {
+							failure.compareAndSet(null, new IOException("Pair " + number + " could not be routed: " + excpt, excpt));
+						}
+						finally {
+							slots.release();
+						}
+					}, pool);
+					if (failure.get() != null) {
+						throw failure.get();
+					}
+				}
+			}
+
+			while (!pending.isEmpty()) {
+				write(pending.poll().join(), out);
+			}
+		}
+		finally {
+			slots.acquireUninterruptibly(window); // every result written (or abandoned) before returning
+			slots.release(window);
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		out.flush();
+	}
+
+	/* Returns the titles on a line of input, or null if it is blank. Titles
+	 * are separated by whitespace; a line with none is split at commas
+	 * instead, keeping each "@latitude,longitude" title whole */
+	private static String[] pair(String line) {
+		String trimmed = line.trim();
+		if (trimmed.isEmpty()) {
+			return null;
+		}
+		String[] fields = trimmed.split("\\s+");
+		if (fields.length > 1) {
+			return fields;
+		}
+		String[] parts = trimmed.split(",");
+		ArrayList<String> titles = new ArrayList<String>();
+		for (int i = 0; i < parts.length; ++i) {
+			if (parts[i].startsWith("@") && i + 1 < parts.length) {
+				titles.add(parts[i] + "," + parts[++i]);
+			}
+			else {
+				titles.add(parts[i]);
+			}
+		}
+		return titles.toArray(new String[0]);
+	}
+
+	// Finds the route for one pair, formatting it in the worker unless the output is binary
+	private Result answer(long number, String from, String to) {
+		Result result = new Result();
+		result.pair = number;
+		result.from = from;
+		result.to = to;
+		try {
+			result.route = cache.route(from, to);
+		}
+		catch (IllegalArgumentException excpt) {
+			System.err.println("Pair " + number + ": " + excpt.getMessage());
+		}
+		if (format != BINARY) {
+			StringBuilder text = new StringBuilder(64 + 32 * ((result.route == null) ? 0 : result.route.size()));
+			if (format == TEXT) {
+				formatText(result, text);
+			}
+			else {
+				formatCsv(result, text);
+			}
+			result.text = text.toString().getBytes(StandardCharsets.UTF_8);
+		}
+		return result;
+	}
+
+	// Writes one result (called by one thread at a time)
+	private void write(Result result, DataOutputStream out) throws IOException {
+		if (result.route == null) {
+			++unreachable;
+		}
+		if (format != BINARY) {
+			out.write(result.text);
+			return;
+		}
+		out.writeLong(result.pair);
+		if (result.route == null) {
+			out.writeDouble(Double.NaN);
+			out.writeInt(-1);
+			return;
+		}
+		out.writeDouble(result.route.distance());
+		out.writeInt(result.route.size());
+		for (int i = 0; i < result.route.size(); ++i) {
+			out.writeInt(result.route.edge(i));
+		}
+	}
+
+	// Formats a result as the lines -directions prints
+	private void formatText(Result result, StringBuilder text) {
+		if (result.route == null) {
+			text.append("No path to ").append(result.to).append(" exists.\n");
+			return;
+		}
+		text.append("Shortest path to ").append(result.to).append(" from ").append(result.from).append(":\n");
+		for (int i = 0; i < result.route.size(); ++i) {
+			StreetEdge street = graph.edgeList[result.route.edge(i)];
+			text.append('\t').append(street.edgeName).append(": ");
+			appendMiles(text, street.weight);
+			text.append(" miles\n");
+		}
+		text.append("\tTotal distance: ");
+		appendMiles(text, result.route.distance());
+		text.append(" miles\n");
+	}
+
+	// Formats a result as one CSV row
+	private void formatCsv(Result result, StringBuilder text) {
+		text.append(result.pair).append(',');
+		csvField(text, result.from).append(',');
+		csvField(text, result.to).append(',');
+		if (result.route == null) {
+			text.append(",\n");
+			return;
+		}
+		text.append(result.route.distance()).append(',');
+		StringBuilder streets = new StringBuilder();
+		for (int i = 0; i < result.route.size(); ++i) {
+			streets.append((i > 0) ? ";" : "").append(graph.edgeList[result.route.edge(i)].edgeName);
+		}
+		csvField(text, streets.toString()).append('\n');
+	}
+
+	// Appends a CSV field, quoted only if it needs to be
+	private static StringBuilder csvField(StringBuilder text, String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+			return text.append(field);
+		}
+		return text.append('"').append(field.replace("\"", "\"\"")).append('"');
+	}
+
+	// Appends miles to four decimal places, as %.4f would, without going through String.format
+	protected static StringBuilder appendMiles(StringBuilder text, double miles) {
+		if (miles < 0 || Double.isInfinite(miles) || Double.isNaN(miles)) {
+			return text.append(String.format("%.4f", miles));
+		}
+		long tenThousandths = Math.round(miles * 10000);
+		text.append(tenThousandths / 10000).append('.');
+		String fraction = Long.toString(tenThousandths % 10000);
+		for (int pad = fraction.length(); pad < 4; ++pad) {
+			text.append('0');
+		}
+		return text.append(fraction);
+	}
+
+	public static void main(String[] args) throws IOException {
+		UndirectedGraph graph = new UndirectedGraph(new File(args[0]));
+		String input = (args.length > 1) ? args[1] : "-";
+		String output = (args.length > 2) ? args[2] : "-";
+		String formatName = (args.length > 3) ? args[3] : "text";
+		boolean ordered = (args.length <= 4) || !args[4].equals("completed");
+		int threads = (args.length > 5) ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+		ContractionHierarchy hierarchy = (args.length > 6 && !args[6].equals("-")) ? ContractionHierarchy.load(new File(args[6]), graph) : null;
+		LandmarkTable landmarks = (args.length > 7 && !args[7].equals("-")) ? LandmarkTable.load(new File(args[7]), graph) : null;
+
+		int format = -1;
+		for (int f = 0; f < FORMATS.length; ++f) {
+			if (FORMATS[f].equals(formatName)) {
+				format = f;
+			}
+		}
+		if (format < 0) {
+			System.err.println("The output format must be text, csv or binary.");
+			return;
+		}
+
+		BatchRouter batch = new BatchRouter(graph, hierarchy, landmarks, format, ordered, threads);
+		long start = System.nanoTime();
+		OutputStream out = output.equals("-") ? System.out : new FileOutputStream(output);
+		try (Reader in = input.equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+				: new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8)) {
+			batch.run(in, out);
+		}
+		finally {
+			if (out != System.out) {
+				out.close();
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf("%d pairs (%d with no path) in %.2f s: %.0f routes/sec on %d threads\n", batch.pairs(), batch.unreachable(),
+				seconds, batch.pairs() / seconds, threads);
+		System.err.println("\tCache: " + batch.cache().stats());
+	}
+}
@@ -0,0 +1,180 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+/* Class used to compute the shortest path between one starting and one
+ * ending intersection by running Dijkstra's algorithm from both ends at
+ * once. Each step advances whichever search has the closer frontier, and
+ * the two stop once the best path found through a vertex reached by both
+ * (mu) can no longer be beaten: that is, once the smallest distances left
+ * in the two queues add up to at least mu. On road networks each side only
+ * has to cover about a disk of half the radius, so far fewer intersections
+ * are settled than by a one-sided search. With metrics on (see
+ * SearchMetrics), every search is counted and timed */
+public class BidirectionalDijkstra {
+
+	protected int start;						// intersection number the path starts at
+	protected int end;							// intersection number the path ends at
+	protected double mu = Double.POSITIVE_INFINITY;	// length of the shortest path found so far
+	protected int meet = -1;						// intersection number where that path crosses between searches
+	protected int settled = 0;						// number of intersections settled by both searches together
+	protected int[] edges;							// edge numbers of the shortest path in travel order (null if none)
+
+	/* Constructor that computes the shortest path between the two titled
+	 * intersections, searching in this thread's QueryWorkspaces */
+	public BidirectionalDijkstra(UndirectedGraph graph, String startInterTitle, String endInterTitle) {
+
+		SearchMetrics.Probe probe = SearchMetrics.ENABLED ? SearchMetrics.BIDIRECTIONAL.probe(DoubleIndexMinPriorityQueue.DEFAULT_ARITY) : null;
+		start = graph.intersectionNo(startInterTitle);
+		end = graph.intersectionNo(endInterTitle);
+		search(graph, probe);
+	}
+
+	// Constructor that computes the shortest path between two intersection numbers, as above
+	public BidirectionalDijkstra(UndirectedGraph graph, int start, int end) {
+		SearchMetrics.Probe probe = SearchMetrics.ENABLED ? SearchMetrics.BIDIRECTIONAL.probe(DoubleIndexMinPriorityQueue.DEFAULT_ARITY) : null;
+		this.start = start;
+		this.end = end;
+		search(graph, probe);
+	}
+
+	// Runs the two searches from start and end, counting into the probe if metrics are on
+	private void search(UndirectedGraph graph, SearchMetrics.Probe probe) {
+		if (SearchMetrics.ENABLED) {
+			probe.lookedUp();
+		}
+
+		QueryWorkspace from = QueryWorkspace.forward(graph.V());
+		QueryWorkspace back = QueryWorkspace.backward(graph.V());
+		from.reach(start, 0.0, -1);
+		back.reach(end, 0.0, -1);
+		from.pq.insert(start, 0.0);
+		back.pq.insert(end, 0.0);
+		if (SearchMetrics.ENABLED) {
+			probe.inserted(from.pq.size());
+			probe.inserted(back.pq.size());
+		}
+
+		if (start == end) {
+			mu = 0.0;
+			meet = start;
+		}
+
+		/* Keep advancing the search whose next intersection is closer
+		 * until neither can improve on the best meeting found so far */
+		while (!from.pq.isEmpty() && !back.pq.isEmpty()) {
+			if (from.pq.minKey() + back.pq.minKey() >= mu) {
+				break;
+			}
+			if (from.pq.minKey() <= back.pq.minKey()) {
+				step(graph, from, back, probe);
+			}
+			else {
+				step(graph, back, from, probe);
+			}
+		}
+		if (SearchMetrics.ENABLED) {
+			probe.settled = settled;
+			probe.delMins = settled;
+			probe.searched();
+		}
+
+		if (hasPath()) {
+			edges = collectPath(graph, from, back);
+		}
+		if (SearchMetrics.ENABLED) {
+			probe.pathBuilt();
+			probe.finish(start, end);
+		}
+	}
+
+	/* Settles the closest intersection of one search, relaxing its edges
+	 * and checking whether any of them complete a shorter path by reaching
+	 * an intersection the other search has already seen (counting into the
+	 * probe if metrics are on) */
+	private void step(UndirectedGraph graph, QueryWorkspace search, QueryWorkspace other, SearchMetrics.Probe probe) {
+
+		int v = search.pq.delMin();
+		search.settle(v);
+		++settled;
+
+		for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; ++k) {
+			int w = graph.targets[k];
+			if (search.settled(w)) {
+				continue;
+			}
+
+			double newDistance = search.distance[v] + graph.weights[k];
+			if (newDistance < search.distance(w)) {
+				if (search.pq.contains(w)) {
+					search.pq.decreaseKey(w, newDistance);
+					if (SearchMetrics.ENABLED) {
+						++probe.decreaseKeys;
+					}
+				}
+				else {
+					search.pq.insert(w, newDistance);
+					if (SearchMetrics.ENABLED) {
+						probe.inserted(search.pq.size());
+					}
+				}
+				search.reach(w, newDistance, graph.edgeIds[k]);
+			}
+
+			// A path through w joins the two searches
+			if (search.distance(w) + other.distance(w) < mu) {
+				mu = search.distance(w) + other.distance(w);
+				meet = w;
+			}
+		}
+		if (SearchMetrics.ENABLED) {
+			probe.relaxations += graph.offsets[v + 1] - graph.offsets[v];
+		}
+	}
+
+	/* Gathers the edge numbers of the path out of the workspaces before
+	 * they are reused: start to meeting point, then meeting point to end */
+	private int[] collectPath(UndirectedGraph graph, QueryWorkspace from, QueryWorkspace back) {
+		int length = 0;
+		for (int v = meet; from.edgeTo(v) != -1; v = other(graph, from.edgeTo(v), v)) {
+			++length;
+		}
+		int half = length;
+		for (int v = meet; back.edgeTo(v) != -1; v = other(graph, back.edgeTo(v), v)) {
+			++length;
+		}
+
+		int[] path = new int[length];
+		int i = half;
+		for (int v = meet; from.edgeTo(v) != -1; v = other(graph, from.edgeTo(v), v)) {
+			path[--i] = from.edgeTo(v);
+		}
+		i = half;
+		for (int v = meet; back.edgeTo(v) != -1; v = other(graph, back.edgeTo(v), v)) {
+			path[i++] = back.edgeTo(v);
+		}
+		return path;
+	}
+
+	public boolean hasPath() { return meet != -1; }		// Returns true if the two intersections are connected
+	public double distance() { return mu; }				// Returns the length of the shortest path (infinity if none)
+	public int settledCount() { return settled; }		// Returns number of intersections the two searches settled
+	public int[] edgeNumbers() { return edges; }		// Returns the edge numbers of the path in travel order (null if none)
+
+	// Returns the shortest path as a Route, or null if no path exists
+	public Route route() {
+		return hasPath() ? new Route(start, end, mu, edges) : null;
+	}
+
+	/* Returns the edges of the shortest path as a stack whose top is the
+	 * edge leaving the start, or null if no path exists */
+	public EdgeStack path(UndirectedGraph graph) {
+		return hasPath() ? route().toStack(graph) : null;
+	}
+
+	// Returns the intersection number at the other end of edge number e from v
+	private int other(UndirectedGraph graph, int e, int v) {
+		StreetEdge edge = graph.edgeList[e];
+		return (edge.v.intersectionNo == v) ? edge.w.intersectionNo : edge.v.intersectionNo;
+	}
+}
@@ -0,0 +1,191 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/* Class used to find a minimum spanning forest of a graph with Boruvka's
+ * algorithm, spread across all cores. Unlike MapMST it also works when
+ * the map is not connected: the result has one tree per connected part,
+ * each with its own total length.
+ *
+ * Every round, each part of the forest so far picks the cheapest edge
+ * leaving it, all of these edges are added at once, and the parts they
+ * join are merged. Each round at least halves the number of parts, so
+ * there are at most log V rounds, and both the search for cheapest edges
+ * and the merging run in parallel over a primitive copy of the edge list.
+ * Edges whose ends end up in the same part are dropped after each round.
+ *
+ * The parts are tracked by a union-find whose parent links are changed
+ * by compare-and-set, so merges from many threads never lose a link. Ties
+ * between equal weights are broken by edge number; with that strict order
+ * the cheapest edges of a round can never close a cycle */
+public class BoruvkaMST {
+
+	protected int[] edgeV;					// edgeV[e] is one intersection number of edge number e
+	protected int[] edgeW;					// edgeW[e] is the other intersection number of edge number e
+	protected double[] weight;				// weight[e] is the weight of edge number e
+	protected AtomicIntegerArray parent;	// union-find parent links; a root is its own parent
+
+	protected int[] forest;					// edge numbers of the minimum spanning forest
+	protected int[] component;				// component[v] is the part of the map intersection v belongs to
+	protected double[] componentWeight;		// componentWeight[c] is the total length of the tree of part c
+	protected int[] componentSize;			// componentSize[c] is the number of intersections in part c
+	protected int rounds = 0;				// number of Boruvka rounds run
+
+	// Constructor that finds the minimum spanning forest when called
+	public BoruvkaMST(UndirectedGraph graph) {
+		int V = graph.V();
+		int E = graph.E();
+
+		// Primitive copy of the edge list, indexed by edge number
+		edgeV = new int[E];
+		edgeW = new int[E];
+		weight = new double[E];
+		for (StreetEdge e : graph.edgeList) {
+			edgeV[e.edgeNo] = e.v.intersectionNo;
+			edgeW[e.edgeNo] = e.w.intersectionNo;
+			weight[e.edgeNo] = e.weight;
+		}
+
+		parent = new AtomicIntegerArray(V);
+		for (int v = 0; v < V; ++v) {
+			parent.set(v, v);
+		}
+
+		AtomicIntegerArray cheapest = new AtomicIntegerArray(V);	// cheapest[root] is the cheapest edge leaving that part
+		boolean[] inForest = new boolean[E];
+		int[] live = IntStream.range(0, E).filter(e -> edgeV[e] != edgeW[e]).toArray();
+
+		while (live.length > 0) {
+			++rounds;
+			for (int v = 0; v < V; ++v) {
+				cheapest.set(v, -1);
+			}
+
+			// Every edge between two parts offers itself to both of them
+			final int[] edges = live;
+			IntStream.range(0, edges.length).parallel().forEach(i -> {
+				int e = edges[i];
+				offer(cheapest, find(edgeV[e]), e);
+				offer(cheapest, find(edgeW[e]), e);
+			});
+
+			// Every part adds its cheapest edge, merging with the part across it
+			IntStream.range(0, V).parallel().forEach(root -> {
+				int e = cheapest.get(root);
+				if (e != -1 && union(edgeV[e], edgeW[e])) {
+					inForest[e] = true;
+				}
+			});
+
+			// Drop the edges that now lie within one part
+			live = Arrays.stream(edges).parallel().filter(e -> find(edgeV[e]) != find(edgeW[e])).toArray();
+		}
+
+		forest = IntStream.range(0, E).filter(e -> inForest[e]).toArray();
+		summarize(V);
+	}
+
+	/* Makes edge e the cheapest edge of the part rooted at root if it beats
+	 * the current one; retried until no other thread got in between */
+	private void offer(AtomicIntegerArray cheapest, int root, int e) {
+		while (true) {
+			int current = cheapest.get(root);
+			if (current != -1 && !lighter(e, current)) {
+				return;
+			}
+			if (cheapest.compareAndSet(root, current, e)) {
+				return;
+			}
+		}
+	}
+
+	// Returns true if edge a comes before edge b in (weight, edge number) order
+	private boolean lighter(int a, int b) {
+		return weight[a] < weight[b] || (weight[a] == weight[b] && a < b);
+	}
+
+	// Returns the root of v's part, halving the path to it along the way
+	private int find(int v) {
+		while (true) {
+			int p = parent.get(v);
+			if (p == v) {
+				return v;
+			}
+			int grandparent = parent.get(p);
+			parent.compareAndSet(v, p, grandparent);
+			v = grandparent;
+		}
+	}
+
+	/* Merges the parts of a and b, returning false if they were already
+	 * one part. The smaller root is always linked under the larger one,
+	 * so concurrent merges can never form a loop of parent links */
+	private boolean union(int a, int b) {
+		while (true) {
+			a = find(a);
+			b = find(b);
+			if (a == b) {
+				return false;
+			}
+			if (a > b) {
+				int t = a; a = b; b = t;
+			}
+			if (parent.compareAndSet(a, a, b)) {
+				return true;
+			}
+		}
+	}
+
+	// Numbers the parts and totals the length and size of each
+	private void summarize(int V) {
+		component = new int[V];
+		int[] number = new int[V];
+		Arrays.fill(number, -1);
+		int count = 0;
+		for (int v = 0; v < V; ++v) {
+			int root = find(v);
+			if (number[root] == -1) {
+				number[root] = count++;
+			}
+			component[v] = number[root];
+		}
+
+		componentWeight = new double[count];
+		componentSize = new int[count];
+		for (int v = 0; v < V; ++v) {
+			++componentSize[component[v]];
+		}
+		for (int e : forest) {
+			componentWeight[component[edgeV[e]]] += weight[e];
+		}
+	}
+
+	public int components() { return componentSize.length; }				// Returns number of connected parts (trees in the forest)
+	public int component(int v) { return component[v]; }					// Returns the part intersection number v belongs to
+	public double componentWeight(int c) { return componentWeight[c]; }	// Returns total length of the tree of part c
+	public int componentSize(int c) { return componentSize[c]; }			// Returns number of intersections in part c
+	public int rounds() { return rounds; }									// Returns number of Boruvka rounds run
+	public int[] edgeNumbers() { return forest.clone(); }					// Returns edge numbers of the forest
+
+	// Returns the total length of the whole forest
+	public double weight() {
+		double total = 0.0;
+		for (double w : componentWeight) {
+			total += w;
+		}
+		return total;
+	}
+
+	// Returns all edges in the minimum spanning forest
+	public Iterable<StreetEdge> edges(UndirectedGraph graph) {
+		Bag<StreetEdge> MSF = new Bag<StreetEdge>();
+		for (int e : forest) {
+			MSF.add(graph.edgeList[e]);
+		}
+		return MSF;
+	}
+}
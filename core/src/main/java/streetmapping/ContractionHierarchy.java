@@ -0,0 +1,568 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/* Contraction Hierarchies preprocessing for an UndirectedGraph.
+ *
+ * Intersections are contracted one by one in order of importance: removing
+ * an intersection v adds a shortcut between two of its neighbors u and w
+ * whenever u-v-w is the only shortest way between them (a "witness search"
+ * from u that avoids v looks for another path at least as short). Every
+ * intersection's rank is the order in which it was contracted, and after
+ * preprocessing a shortest path always climbs to higher ranks and then
+ * descends again, so HierarchyShortestPath only has to search "upward"
+ * from both ends.
+ *
+ * The order is chosen by the edge difference heuristic: contracting the
+ * intersection that adds the fewest shortcuts compared to the edges it
+ * removes, plus the number of its neighbors already contracted so the
+ * contraction spreads evenly over the map. Each round contracts a set of
+ * intersections that beat all of their remaining neighbors at once, and
+ * the witness searches for that set run in parallel across cores. Since
+ * intersections of the same round may serve as witnesses for each other,
+ * a witness must be strictly shorter than the path through v: a chain of
+ * skipped shortcuts then gets strictly shorter at every step and can never
+ * lead back to itself, so every distance is still kept by some shortcut.
+ *
+ * Both original edges and shortcuts are stored as "arcs". A shortcut
+ * remembers the two arcs it replaces, so a path over the hierarchy can be
+ * unpacked back into the original StreetEdges. */
+public class ContractionHierarchy {
+
+	protected static final int MAGIC = 0x53434831;	// "SCH1"
+	protected static final int VERSION = 1;			// bumped whenever the file layout changes
+
+	private static final int WITNESS_SETTLE_LIMIT = 100;	// intersections a witness search may settle before giving up
+	private static final int SIMULATE_SETTLE_LIMIT = 20;	// smaller budget used when only estimating priorities
+
+	protected int V;			// number of intersections of the graph
+	protected int E;			// number of edges of the graph
+	protected int[] rank;		// rank[v] is the order in which intersection v was contracted
+
+	/* Arcs: arcA[a] and arcB[a] are the arc's two intersections. For an
+	 * original edge arcMiddle[a] is -1 and arcFirst[a] is its edge number;
+	 * for a shortcut arcMiddle[a] is the contracted intersection it skips,
+	 * arcFirst[a] is the arc from arcA[a] to it and arcSecond[a] the arc
+	 * from it to arcB[a] */
+	protected int arcs = 0;
+	protected int[] arcA;
+	protected int[] arcB;
+	protected double[] arcWeight;
+	protected int[] arcMiddle;
+	protected int[] arcFirst;
+	protected int[] arcSecond;
+
+	/* Upward graph in CSR form: the arcs from intersection v to higher ranked
+	 * intersections occupy [upOffsets[v], upOffsets[v+1]) of the other arrays */
+	protected int[] upOffsets;
+	protected int[] upTargets;
+	protected double[] upWeights;
+	protected int[] upArcs;
+
+	protected long preprocessingMillis;	// time taken to build the hierarchy
+
+	// Use build() or load() to create instances
+	private ContractionHierarchy() {
+	}
+
+	/* Contracts every intersection of the graph and returns the resulting
+	 * hierarchy; the work of each round is spread across all cores */
+	public static ContractionHierarchy build(UndirectedGraph graph) {
+		long start = System.currentTimeMillis();
+		ContractionHierarchy ch = new ContractionHierarchy();
+		new Builder(graph, ch).contractAll();
+		ch.buildUpwardGraph();
+		ch.preprocessingMillis = System.currentTimeMillis() - start;
+		return ch;
+	}
+
+	public int V() { return V; }									// Returns number of intersections
+	public int shortcuts() { return arcs - E; }						// Returns number of shortcut arcs added
+	public long preprocessingMillis() { return preprocessingMillis; }	// Returns time taken by build()
+
+	// Adds an arc, growing the arc arrays as needed, and returns its number
+	private int addArc(int a, int b, double weight, int middle, int first, int second) {
+		if (arcs == arcA.length) {
+			int capacity = 2 * arcs;
+			arcA = Arrays.copyOf(arcA, capacity);
+			arcB = Arrays.copyOf(arcB, capacity);
+			arcWeight = Arrays.copyOf(arcWeight, capacity);
+			arcMiddle = Arrays.copyOf(arcMiddle, capacity);
+			arcFirst = Arrays.copyOf(arcFirst, capacity);
+			arcSecond = Arrays.copyOf(arcSecond, capacity);
+		}
+		arcA[arcs] = a;
+		arcB[arcs] = b;
+		arcWeight[arcs] = weight;
+		arcMiddle[arcs] = middle;
+		arcFirst[arcs] = first;
+		arcSecond[arcs] = second;
+		return arcs++;
+	}
+
+	// Orients every arc from its lower ranked end to its higher ranked end
+	private void buildUpwardGraph() {
+		arcA = Arrays.copyOf(arcA, arcs);
+		arcB = Arrays.copyOf(arcB, arcs);
+		arcWeight = Arrays.copyOf(arcWeight, arcs);
+		arcMiddle = Arrays.copyOf(arcMiddle, arcs);
+		arcFirst = Arrays.copyOf(arcFirst, arcs);
+		arcSecond = Arrays.copyOf(arcSecond, arcs);
+
+		upOffsets = new int[V + 1];
+		for (int a = 0; a < arcs; ++a) {
+			++upOffsets[lower(a) + 1];
+		}
+		for (int v = 0; v < V; ++v) {
+			upOffsets[v + 1] += upOffsets[v];
+		}
+
+		upTargets = new int[arcs];
+		upWeights = new double[arcs];
+		upArcs = new int[arcs];
+		int[] next = Arrays.copyOf(upOffsets, V);
+		for (int a = 0; a < arcs; ++a) {
+			int k = next[lower(a)]++;
+			upTargets[k] = higher(a);
+			upWeights[k] = arcWeight[a];
+			upArcs[k] = a;
+		}
+	}
+
+	// Returns the lower ranked intersection of arc a
+	private int lower(int a) {
+		return (rank[arcA[a]] < rank[arcB[a]]) ? arcA[a] : arcB[a];
+	}
+
+	// Returns the higher ranked intersection of arc a
+	private int higher(int a) {
+		return (rank[arcA[a]] < rank[arcB[a]]) ? arcB[a] : arcA[a];
+	}
+
+	// Writes the hierarchy to a file so it can be loaded instead of rebuilt
+	public void save(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(V);
+			out.writeInt(E);
+			out.writeInt(arcs);
+			writeInts(out, rank);
+			writeInts(out, arcA);
+			writeInts(out, arcB);
+			for (double weight : arcWeight) {
+				out.writeDouble(weight);
+			}
+			writeInts(out, arcMiddle);
+			writeInts(out, arcFirst);
+			writeInts(out, arcSecond);
+		}
+	}
+
+	/* Loads a hierarchy saved by save(), checking that it was
+	 * built for a graph of the same size as the one given */
+	public static ContractionHierarchy load(File file, UndirectedGraph graph) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file.getName() + " is not a contraction hierarchy.");
+			}
+			if (in.readInt() != VERSION) {
+				throw new IOException(file.getName() + " was written by a different version.");
+			}
+			ContractionHierarchy ch = new ContractionHierarchy();
+			ch.V = in.readInt();
+			ch.E = in.readInt();
+			if (ch.V != graph.V() || ch.E != graph.E()) {
+				throw new IOException(file.getName() + " was built for a different map.");
+			}
+			ch.arcs = in.readInt();
+			ch.rank = readInts(in, ch.V);
+			ch.arcA = readInts(in, ch.arcs);
+			ch.arcB = readInts(in, ch.arcs);
+			ch.arcWeight = new double[ch.arcs];
+			for (int a = 0; a < ch.arcs; ++a) {
+				ch.arcWeight[a] = in.readDouble();
+			}
+			ch.arcMiddle = readInts(in, ch.arcs);
+			ch.arcFirst = readInts(in, ch.arcs);
+			ch.arcSecond = readInts(in, ch.arcs);
+			ch.buildUpwardGraph();
+			return ch;
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in, int n) throws IOException {
+		int[] values = new int[n];
+		for (int i = 0; i < n; ++i) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	/* Helper that holds the state only needed while contracting:
+	 * per-intersection lists of arcs to still uncontracted neighbors,
+	 * priorities, and one witness search workspace per thread */
+	private static class Builder {
+
+		private final ContractionHierarchy ch;
+		private final int V;
+		private int[][] adj;				// adj[v] lists the arcs from v to uncontracted intersections
+		private int[] degree;				// degree[v] is the number of arcs in adj[v]
+		private int[] priority;				// priority[v] is v's current edge difference priority
+		private int[] contractedNeighbors;	// contractedNeighbors[v] counts v's neighbors already contracted
+		private boolean[] contracted;		// contracted[v] is true once v has been contracted
+		private boolean[] seen;				// scratch marks used while collecting neighbors
+		private final ThreadLocal<Witness> witness;
+
+		Builder(UndirectedGraph graph, ContractionHierarchy ch) {
+			this.ch = ch;
+			V = graph.V();
+			ch.V = V;
+			ch.E = graph.E();
+			ch.rank = new int[V];
+			int capacity = Math.max(16, 2 * graph.E());
+			ch.arcA = new int[capacity];
+			ch.arcB = new int[capacity];
+			ch.arcWeight = new double[capacity];
+			ch.arcMiddle = new int[capacity];
+			ch.arcFirst = new int[capacity];
+			ch.arcSecond = new int[capacity];
+
+			adj = new int[V][];
+			degree = new int[V];
+			priority = new int[V];
+			contractedNeighbors = new int[V];
+			contracted = new boolean[V];
+			seen = new boolean[V];
+			for (int v = 0; v < V; ++v) {
+				adj[v] = new int[graph.offsets[v + 1] - graph.offsets[v]];
+			}
+
+			// Every original edge becomes an arc (self loops can never be on a shortest path)
+			for (int e = 0; e < graph.E(); ++e) {
+				StreetEdge edge = graph.edgeList[e];
+				int a = edge.v.intersectionNo;
+				int b = edge.w.intersectionNo;
+				if (a != b) {
+					int arc = ch.addArc(a, b, edge.weight, -1, e, -1);
+					addToAdj(a, arc);
+					addToAdj(b, arc);
+				}
+			}
+
+			witness = ThreadLocal.withInitial(() -> new Witness(V));
+		}
+
+		private void addToAdj(int v, int arc) {
+			if (degree[v] == adj[v].length) {
+				adj[v] = Arrays.copyOf(adj[v], Math.max(4, 2 * degree[v]));
+			}
+			adj[v][degree[v]++] = arc;
+		}
+
+		// Returns the intersection at the other end of arc a from v
+		private int other(int a, int v) {
+			return (ch.arcA[a] == v) ? ch.arcB[a] : ch.arcA[a];
+		}
+
+		// Contracts intersections round by round until none are left
+		void contractAll() {
+			IntStream.range(0, V).parallel().forEach(v -> priority[v] = computePriority(v));
+
+			int[] remaining = new int[V];
+			for (int v = 0; v < V; ++v) {
+				remaining[v] = v;
+			}
+			int remainingCount = V;
+			int nextRank = 0;
+
+			while (remainingCount > 0) {
+
+				// Pick every remaining intersection that beats all of its remaining neighbors
+				final int[] candidates = remaining;
+				final int count = remainingCount;
+				int[] round = IntStream.range(0, count).parallel()
+						.map(i -> candidates[i]).filter(this::isLocalMinimum).toArray();
+
+				// Find the shortcuts each of them needs, in parallel
+				int[][] shortcuts = new int[round.length][];
+				IntStream.range(0, round.length).parallel()
+						.forEach(i -> shortcuts[i] = witness.get().shortcuts(this, round[i]));
+
+				// Apply the contractions one after another
+				for (int i = 0; i < round.length; ++i) {
+					contract(round[i], shortcuts[i]);
+					ch.rank[round[i]] = nextRank++;
+				}
+
+				// Drop the contracted intersections from the remaining list
+				int kept = 0;
+				for (int i = 0; i < remainingCount; ++i) {
+					if (!contracted[remaining[i]]) {
+						remaining[kept++] = remaining[i];
+					}
+				}
+				remainingCount = kept;
+
+				// Neighbors of contracted intersections need fresh priorities
+				int[] touched = neighborsOf(round);
+				IntStream.range(0, touched.length).parallel().forEach(i -> priority[touched[i]] = computePriority(touched[i]));
+			}
+		}
+
+		/* Returns true if v's priority (ties broken by intersection
+		 * number) is below that of every uncontracted neighbor */
+		private boolean isLocalMinimum(int v) {
+			for (int i = 0; i < degree[v]; ++i) {
+				int u = other(adj[v][i], v);
+				if (priority[u] < priority[v] || (priority[u] == priority[v] && u < v)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// Returns each uncontracted neighbor of the given intersections once
+		private int[] neighborsOf(int[] round) {
+			int[] result = new int[16];
+			int n = 0;
+			for (int v : round) {
+				for (int i = 0; i < degree[v]; ++i) {
+					int u = other(adj[v][i], v);
+					if (!contracted[u] && !seen[u]) {
+						seen[u] = true;
+						if (n == result.length) {
+							result = Arrays.copyOf(result, 2 * n);
+						}
+						result[n++] = u;
+					}
+				}
+				degree[v] = 0;
+				adj[v] = null;
+			}
+			for (int i = 0; i < n; ++i) {
+				seen[result[i]] = false;
+			}
+			return Arrays.copyOf(result, n);
+		}
+
+		// Edge difference plus contracted neighbors, from a simulated contraction
+		private int computePriority(int v) {
+			return witness.get().countShortcuts(this, v) - degree[v] + contractedNeighbors[v];
+		}
+
+		/* Removes v: adds the shortcuts found for it (pairs of the
+		 * arc from u to v and the arc from v to w) and drops its
+		 * arcs from the neighbors' lists */
+		private void contract(int v, int[] shortcuts) {
+			contracted[v] = true;
+
+			for (int s = 0; s < shortcuts.length; s += 2) {
+				int first = shortcuts[s];
+				int second = shortcuts[s + 1];
+				int u = other(first, v);
+				int w = other(second, v);
+				double weight = ch.arcWeight[first] + ch.arcWeight[second];
+				
+				// Another round's intersection may already have linked u and w
+				if (!replaceLonger(u, w, weight)) {
+					continue;
+				}
+				int arc = ch.addArc(u, w, weight, v, first, second);
+				addToAdj(u, arc);
+				addToAdj(w, arc);
+			}
+
+			for (int i = 0; i < degree[v]; ++i) {
+				int u = other(adj[v][i], v);
+				removeFromAdj(u, v);
+				++contractedNeighbors[u];
+			}
+		}
+
+		/* Returns false if u already has an arc to w no longer than weight;
+		 * otherwise drops any longer arcs between them from both lists
+		 * (they stay in the hierarchy but are no longer contracted over) */
+		private boolean replaceLonger(int u, int w, double weight) {
+			for (int i = 0; i < degree[u]; ++i) {
+				int arc = adj[u][i];
+				if (other(arc, u) == w && ch.arcWeight[arc] <= weight) {
+					return false;
+				}
+			}
+			removeFromAdj(u, w);
+			removeFromAdj(w, u);
+			return true;
+		}
+
+		// Removes every arc between u and v from u's list
+		private void removeFromAdj(int u, int v) {
+			int kept = 0;
+			for (int i = 0; i < degree[u]; ++i) {
+				if (other(adj[u][i], u) != v) {
+					adj[u][kept++] = adj[u][i];
+				}
+			}
+			degree[u] = kept;
+		}
+	}
+
+	/* Per-thread workspace for witness searches: a bounded Dijkstra over
+	 * uncontracted intersections whose distances are reset lazily by
+	 * remembering which entries it touched */
+	private static class Witness {
+
+		private final double[] distance;
+		private final boolean[] target;			// target[y] is true while y's distance is still wanted
+		private final int[] touched;
+		private int touchedCount = 0;
+		private final DoubleIndexMinPriorityQueue pq;
+
+		private int[] neighbors = new int[16];		// distinct uncontracted neighbors of the intersection
+		private int[] bestArc = new int[16];		// bestArc[i] is the shortest arc to neighbors[i]
+		private int[] result = new int[32];		// pairs of arcs found by the last call to find()
+
+		Witness(int V) {
+			distance = new double[V];
+			target = new boolean[V];
+			touched = new int[V];
+			Arrays.fill(distance, Double.POSITIVE_INFINITY);
+			pq = new DoubleIndexMinPriorityQueue(V);
+		}
+
+		// Returns the shortcuts contracting v needs as pairs (arc from u to v, arc from v to w)
+		int[] shortcuts(Builder b, int v) {
+			int count = find(b, v, WITNESS_SETTLE_LIMIT); // may grow result[], so run it first
+			return Arrays.copyOf(result, 2 * count);
+		}
+
+		// Returns the number of shortcuts contracting v would need
+		int countShortcuts(Builder b, int v) {
+			return find(b, v, SIMULATE_SETTLE_LIMIT);
+		}
+
+		/* Runs a witness search from each neighbor of v, each settling at
+		 * most settleLimit intersections, and records in result[] every
+		 * pair of neighbors whose only shortest connection is through v;
+		 * returns the number of such pairs */
+		private int find(Builder b, int v, int settleLimit) {
+			ContractionHierarchy ch = b.ch;
+
+			// Collect v's distinct neighbors with the shortest arc to each
+			int n = 0;
+			for (int i = 0; i < b.degree[v]; ++i) {
+				int arc = b.adj[v][i];
+				int u = b.other(arc, v);
+				int j = 0;
+				while (j < n && neighbors[j] != u) {
+					++j;
+				}
+				if (j == n) {
+					if (n == neighbors.length) {
+						neighbors = Arrays.copyOf(neighbors, 2 * n);
+						bestArc = Arrays.copyOf(bestArc, 2 * n);
+					}
+					neighbors[n] = u;
+					bestArc[n] = arc;
+					++n;
+				}
+				else if (ch.arcWeight[arc] < ch.arcWeight[bestArc[j]]) {
+					bestArc[j] = arc;
+				}
+			}
+
+			double maxOut = 0.0;
+			for (int j = 0; j < n; ++j) {
+				maxOut = Math.max(maxOut, ch.arcWeight[bestArc[j]]);
+			}
+
+			int count = 0;
+			for (int i = 0; i < n; ++i) {
+				double viaFirst = ch.arcWeight[bestArc[i]];
+				search(b, neighbors[i], v, viaFirst + maxOut, i + 1, n, settleLimit);
+
+				// Each pair is handled once, from the neighbor listed first
+				for (int j = i + 1; j < n; ++j) {
+					double via = viaFirst + ch.arcWeight[bestArc[j]];
+					if (distance[neighbors[j]] >= via) {
+						if (2 * count + 2 > result.length) {
+							result = Arrays.copyOf(result, 2 * result.length);
+						}
+						result[2 * count] = bestArc[i];
+						result[2 * count + 1] = bestArc[j];
+						++count;
+					}
+				}
+				reset();
+			}
+			return count;
+		}
+
+		/* Dijkstra from source that avoids v and contracted intersections,
+		 * stopping once every neighbor of v after index first is settled,
+		 * limit is exceeded or settleLimit intersections have been settled */
+		private void search(Builder b, int source, int v, double limit, int first, int n, int settleLimit) {
+			ContractionHierarchy ch = b.ch;
+			distance[source] = 0.0;
+			touched[touchedCount++] = source;
+			pq.insert(source, 0.0);
+
+			// Mark the neighbors whose distances this search must find
+			int targets = n - first;
+			for (int j = first; j < n; ++j) {
+				target[neighbors[j]] = true;
+			}
+
+			int settled = 0;
+			while (!pq.isEmpty() && pq.minKey() <= limit && settled < settleLimit && targets > 0) {
+				int x = pq.delMin();
+				++settled;
+				if (target[x]) {
+					--targets;
+				}
+				for (int i = 0; i < b.degree[x]; ++i) {
+					int arc = b.adj[x][i];
+					int y = b.other(arc, x);
+					if (y == v || b.contracted[y]) {
+						continue;
+					}
+					double newDistance = distance[x] + ch.arcWeight[arc];
+					if (newDistance < distance[y]) {
+						if (distance[y] == Double.POSITIVE_INFINITY) {
+							touched[touchedCount++] = y;
+						}
+						distance[y] = newDistance;
+						if (pq.contains(y)) {
+							pq.decreaseKey(y, newDistance);
+						}
+						else {
+							pq.insert(y, newDistance);
+						}
+					}
+				}
+			}
+			pq.clear();
+			for (int j = first; j < n; ++j) {
+				target[neighbors[j]] = false;
+			}
+		}
+
+		// Puts every touched distance back to infinity
+		private void reset() {
+			for (int i = 0; i < touchedCount; ++i) {
+				distance[touched[i]] = Double.POSITIVE_INFINITY;
+			}
+			touchedCount = 0;
+		}
+	}
+}
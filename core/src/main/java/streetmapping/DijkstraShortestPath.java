@@ -0,0 +1,321 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+/* Class used to compute all shortest paths from a given starting
+ * intersection, or just the one to a given ending intersection. With
+ * metrics on (see SearchMetrics), every search is counted and timed */
+public class DijkstraShortestPath {
+	
+	protected StreetEdge[] edgeTo;				// edgeTo[i] is the edge leading to intersection number i on the shortest path to it
+	protected double[] distanceTo;				// distanceTo[i] is the distance of the shortest path from the start to intersection number i
+	protected DoubleIndexMinPriorityQueue pq;   // priority queue used in algorithm to calculate shortest paths
+	protected int start;						// intersection number the search started from
+	protected int settled = 0;					// number of intersections removed from the queue and relaxed
+	
+	/* A point-to-point search runs in a pooled QueryWorkspace instead of
+	 * the arrays above (which stay null) and keeps only its own result */
+	protected int end = -1;						// intersection number of the end of a point-to-point search
+	protected double endDistance;				// distance of the shortest path to the end
+	protected int[] endPath;					// edge numbers of that path in travel order (null if none)
+	
+	// Constructor that calculates all shortest paths when called
+	public DijkstraShortestPath(UndirectedGraph graph, String startInterTitle) {
+		this(graph, startInterTitle, DoubleIndexMinPriorityQueue.DEFAULT_ARITY);
+	}
+	
+	// Constructor that calculates all shortest paths using a priority queue of the given arity
+	public DijkstraShortestPath(UndirectedGraph graph, String startInterTitle, int arity) {
+		SearchMetrics.Probe probe = SearchMetrics.ENABLED ? SearchMetrics.DIJKSTRA.probe(arity) : null;
+		start = graph.intersectionNo(startInterTitle);
+		searchAll(graph, arity, probe);
+	}
+	
+	// Constructor that calculates all shortest paths from intersection number start
+	public DijkstraShortestPath(UndirectedGraph graph, int start) {
+		SearchMetrics.Probe probe = SearchMetrics.ENABLED ? SearchMetrics.DIJKSTRA.probe(DoubleIndexMinPriorityQueue.DEFAULT_ARITY) : null;
+		this.start = start;
+		searchAll(graph, DoubleIndexMinPriorityQueue.DEFAULT_ARITY, probe);
+	}
+	
+	// Runs the full search from start once it is known, timing it if metrics are on
+	private void searchAll(UndirectedGraph graph, int arity, SearchMetrics.Probe probe) {
+		if (SearchMetrics.ENABLED) {
+			probe.lookedUp();
+		}
+		search(graph, start, arity, probe);
+		if (SearchMetrics.ENABLED) {
+			probe.searched();
+			probe.finish(start, -1);
+		}
+	}
+	
+	/* Point-to-point constructor that stops as soon as the ending
+	 * intersection is settled. It searches in this thread's forward
+	 * QueryWorkspace, so its cost depends on the area searched rather
+	 * than the size of the map, and only the path and distance to the
+	 * ending intersection can be asked for afterwards */
+	public DijkstraShortestPath(UndirectedGraph graph, String startInterTitle, String endInterTitle) {
+		SearchMetrics.Probe probe = SearchMetrics.ENABLED ? SearchMetrics.DIJKSTRA.probe(DoubleIndexMinPriorityQueue.DEFAULT_ARITY) : null;
+		start = graph.intersectionNo(startInterTitle);
+		end = graph.intersectionNo(endInterTitle);
+		if (SearchMetrics.ENABLED) {
+			probe.lookedUp();
+		}
+		
+		QueryWorkspace search = QueryWorkspace.forward(graph.V());
+		search.reach(start, 0.0, -1);
+		search.pq.insert(start, 0.0);
+		if (SearchMetrics.ENABLED) {
+			probe.inserted(search.pq.size());
+		}
+		while (!search.pq.isEmpty()) {
+			int v = search.pq.delMin();
+			++settled;
+			if (v == end) {
+				break;
+			}
+			for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; ++k) {
+				int w = graph.targets[k];
+				double newDistance = search.distance[v] + graph.weights[k];
+				if (search.distance(w) > newDistance) {
+					if (search.pq.contains(w)) {
+						search.pq.decreaseKey(w, newDistance);
+						if (SearchMetrics.ENABLED) {
+							++probe.decreaseKeys;
+						}
+					}
+					else {
+						search.pq.insert(w, newDistance);
+						if (SearchMetrics.ENABLED) {
+							probe.inserted(search.pq.size());
+						}
+					}
+					search.reach(w, newDistance, graph.edgeIds[k]);
+				}
+			}
+			if (SearchMetrics.ENABLED) {
+				probe.relaxations += graph.offsets[v + 1] - graph.offsets[v];
+			}
+		}
+		if (SearchMetrics.ENABLED) {
+			probe.settled = settled;
+			probe.delMins = settled;
+			probe.searched();
+		}
+		
+		// Copy the result out of the workspace before it is reused
+		endDistance = search.distance(end);
+		if (endDistance < Double.POSITIVE_INFINITY) {
+			int length = 0;
+			for (int v = end; search.edgeTo(v) != -1; v = graph.edgeList[search.edgeTo(v)].other(graph.intersection(v)).intersectionNo) {
+				++length;
+			}
+			endPath = new int[length];
+			for (int v = end; search.edgeTo(v) != -1; v = graph.edgeList[search.edgeTo(v)].other(graph.intersection(v)).intersectionNo) {
+				endPath[--length] = search.edgeTo(v);
+			}
+		}
+		if (SearchMetrics.ENABLED) {
+			probe.pathBuilt();
+			probe.finish(start, end);
+		}
+	}
+	
+	// Runs the algorithm from intersection number start to every intersection, counting into the probe if metrics are on
+	private void search(UndirectedGraph graph, int start, int arity, SearchMetrics.Probe probe) {
+
+		// Initialize fields to proper sizes
+		edgeTo = new StreetEdge[graph.V()];
+		distanceTo = new double[graph.V()];
+		pq = new DoubleIndexMinPriorityQueue(graph.V(), arity);
+		
+		// Initialize all distances to infinity
+		for (int v = 0; v < graph.V(); ++v) {
+			distanceTo[v] = Double.POSITIVE_INFINITY;
+		}
+		
+		distanceTo[start] = 0.0; // Set distance to starting intersection to 0
+		
+		pq.insert(start, 0.0); // Put the starting intersection into the queue
+		if (SearchMetrics.ENABLED) {
+			probe.inserted(pq.size());
+		}
+		
+		/* Continue relaxing vertex with the lowest
+		 * distanceTo[] value on the queue until
+		 * no vertices are left to relax */
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			++settled;
+			relax(graph, v, probe);
+		}
+		if (SearchMetrics.ENABLED) {
+			probe.settled = settled;
+			probe.delMins = settled;
+		}
+	}
+	
+	public int settledCount() { return settled; } // Returns number of intersections the search settled
+	
+	// Returns the distance to a particular intersection from the start
+	public double distanceTo(UndirectedGraph graph, String endInterTitle) {
+		
+		// Look up the corresponding intersection number
+		int v = graph.intersectionNo(endInterTitle);
+		if (distanceTo == null) {
+			checkEnd(graph, v);
+			return endDistance;
+		}
+		return distanceTo[v];
+	}
+	
+	// Returns true if there is a path from the start to the end intersection title argument
+	public boolean hasPathTo(UndirectedGraph graph, String endInterTitle) {
+		int v = graph.intersectionNo(endInterTitle);
+		if (distanceTo == null) {
+			checkEnd(graph, v);
+			return endPath != null;
+		}
+		return hasPathTo(v);
+	}
+	
+	// Method that returns the sequence of edges to the specified ending intersection
+	public EdgeStack pathTo(UndirectedGraph graph, String endInterTitle) {
+		
+		// Look up the corresponding intersection number
+		int v = graph.intersectionNo(endInterTitle);
+		
+		// Return null if no such path exists
+		if (!hasPathTo(graph, endInterTitle)) {
+			return null;
+		}
+		
+		// Create a new stack of edges to hold the path
+		EdgeStack path = new EdgeStack();
+		
+		// A point-to-point search already kept its path in travel order
+		if (distanceTo == null) {
+			for (int i = endPath.length - 1; i >= 0; --i) {
+				path.push(graph.edgeList[endPath[i]]);
+			}
+			return path;
+		}
+		
+		// Start with the edge to the end intersection
+		long began = SearchMetrics.ENABLED ? System.nanoTime() : 0;
+		StreetEdge e = edgeTo[v];
+		while (e != null) {
+
+			path.push(e); // Push it onto the stack
+			
+			Intersection edgeInter1 = e.either(); // Get one intersection of the edge
+			
+			/* If the intersection we just got is not the one we just
+			 * dealt with, assign e with the edge to this new intersection,
+			 * also reassigning v with the new intersection's number */
+			if (edgeInter1.intersectionNo != v) {
+				e = edgeTo[edgeInter1.intersectionNo];
+				v = edgeInter1.intersectionNo;
+			}
+			
+			/* If e.either() returned the edge we already addressed,
+			 * then we need to get the other intersection and then 
+			 * reassign e with the edge to that intersection, also
+			 * reassigning v with the new intersection's number */
+			else {
+				Intersection edgeInter2 = e.other(edgeInter1);
+				e = edgeTo[edgeInter2.intersectionNo];
+				v = edgeInter2.intersectionNo;
+			}
+			
+		}
+		if (SearchMetrics.ENABLED) {
+			SearchMetrics.DIJKSTRA.pathBuilt(System.nanoTime() - began);
+		}
+
+		return path; // Return the stack of edges we created
+	}
+	
+	/* Returns the path to the ending intersection as a Route,
+	 * or null if no such path exists */
+	public Route routeTo(UndirectedGraph graph, String endInterTitle) {
+		if (!hasPathTo(graph, endInterTitle)) {
+			return null;
+		}
+		int v = graph.intersectionNo(endInterTitle);
+		if (distanceTo == null) {
+			return new Route(start, end, endDistance, endPath);
+		}
+		
+		// Walk back from the end counting edges, then fill them in travel order
+		long began = SearchMetrics.ENABLED ? System.nanoTime() : 0;
+		int length = 0;
+		for (int u = v; edgeTo[u] != null; u = edgeTo[u].other(graph.intersection(u)).intersectionNo) {
+			++length;
+		}
+		int[] edges = new int[length];
+		for (int u = v; edgeTo[u] != null; u = edgeTo[u].other(graph.intersection(u)).intersectionNo) {
+			edges[--length] = edgeTo[u].edgeNo;
+		}
+		if (SearchMetrics.ENABLED) {
+			SearchMetrics.DIJKSTRA.pathBuilt(System.nanoTime() - began);
+		}
+		return new Route(start, v, distanceTo[v], edges);
+	}
+	
+	/* The relaxation method that does the
+	 * main portion of the algorithm */
+	private void relax(UndirectedGraph graph, int curInterNo, SearchMetrics.Probe probe) {
+		
+		// Perform for each edge slot in the intersection's CSR slice
+		for (int k = graph.offsets[curInterNo]; k < graph.offsets[curInterNo + 1]; ++k) {
+			
+			// Get the intersection number on the other end of the edge
+			int otherInterNo = graph.targets[k];
+			double newDistance = distanceTo[curInterNo] + graph.weights[k];
+			
+			/* If the current distance value to the other intersection
+			 * is greater than it would be using the current edge,
+			 * then reassign the distance value using this new edge */
+			if (distanceTo[otherInterNo] > newDistance) {
+				distanceTo[otherInterNo] = newDistance;
+				edgeTo[otherInterNo] = graph.edgeList[graph.edgeIds[k]];
+				
+				/* If the other intersection is already in the priority queue,
+				 * then change its priority value to the newly assigned distance */
+				if (pq.contains(otherInterNo)) {
+					pq.decreaseKey(otherInterNo, newDistance);
+					if (SearchMetrics.ENABLED) {
+						++probe.decreaseKeys;
+					}
+				}
+				
+				// Otherwise, add it in to the queue to be relaxed later
+				else {
+					pq.insert(otherInterNo, newDistance);
+					if (SearchMetrics.ENABLED) {
+						probe.inserted(pq.size());
+					}
+				}
+			}
+			
+		}
+		if (SearchMetrics.ENABLED) {
+			probe.relaxations += graph.offsets[curInterNo + 1] - graph.offsets[curInterNo];
+		}
+		
+	}
+	
+	// Makes sure a point-to-point search is only asked about its own end
+	private void checkEnd(UndirectedGraph graph, int v) {
+		if (v != end) {
+			throw new IllegalArgumentException("Only the path to " + graph.intersection(end).title + " was computed.");
+		}
+	}
+	
+	// Helper hasPathTo() method with different argument used in pathTo() method
+	private boolean hasPathTo(int v) {
+		return distanceTo[v] < Double.POSITIVE_INFINITY;
+	}
+}
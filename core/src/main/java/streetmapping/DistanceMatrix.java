@@ -0,0 +1,116 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.util.stream.IntStream;
+
+/* Many-to-many shortest distances: given lists of origin and destination
+ * intersection titles, computes the distance from every origin to every
+ * destination. Each origin gets one Dijkstra search that stops as soon
+ * as all destinations are settled, and the searches are spread over the
+ * common ForkJoin pool.
+ *
+ * Every worker thread searches in its own QueryWorkspace, sized to the
+ * graph once and reused for every search it runs, so a search that stays
+ * local does not pay for the whole map. The graph itself is only read,
+ * so one DistanceMatrix can be shared by any number of callers */
+public class DistanceMatrix {
+
+	/* Receives the rows of a streamed matrix as they finish. Rows may
+	 * arrive in any order and from several threads at once */
+	public interface RowListener {
+		void row(int origin, double[] distances);
+	}
+
+	protected UndirectedGraph graph;	// graph being searched
+
+	public DistanceMatrix(UndirectedGraph graph) {
+		this.graph = graph;
+	}
+
+	/* Returns the distances as a dense row-major matrix: the distance from
+	 * origins[i] to destinations[j] is at index i * destinations.length + j
+	 * (infinity if there is no path) */
+	public double[] compute(String[] origins, String[] destinations) {
+		int[] from = resolve(origins);
+		Targets to = new Targets(resolve(destinations), graph.V());
+		int M = to.destinations.length;
+		double[] matrix = new double[from.length * M];
+		IntStream.range(0, from.length).parallel().forEach(i -> search(from[i], to, matrix, i * M));
+		return matrix;
+	}
+
+	/* Computes the same distances as compute(), but hands each row to the
+	 * listener as soon as its search finishes instead of holding the whole
+	 * matrix in memory. Returns once every row has been delivered */
+	public void stream(String[] origins, String[] destinations, RowListener listener) {
+		int[] from = resolve(origins);
+		Targets to = new Targets(resolve(destinations), graph.V());
+		IntStream.range(0, from.length).parallel().forEach(i -> {
+			double[] row = new double[to.destinations.length];
+			search(from[i], to, row, 0);
+			listener.row(i, row);
+		});
+	}
+
+	// Looks up the intersection number of every title up front
+	private int[] resolve(String[] titles) {
+		int[] numbers = new int[titles.length];
+		for (int i = 0; i < titles.length; ++i) {
+			numbers[i] = graph.intersectionNo(titles[i]);
+		}
+		return numbers;
+	}
+
+	/* Runs Dijkstra's algorithm from origin in this thread's workspace
+	 * until every destination is settled, writing their distances into
+	 * out starting at offset */
+	private void search(int origin, Targets to, double[] out, int offset) {
+		QueryWorkspace search = QueryWorkspace.forward(graph.V());
+		search.reach(origin, 0.0, -1);
+		search.pq.insert(origin, 0.0);
+
+		int remaining = to.distinct;
+		while (!search.pq.isEmpty() && remaining > 0) {
+			int v = search.pq.delMin();
+			if (to.isTarget[v]) {
+				--remaining;
+			}
+			for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; ++k) {
+				int w = graph.targets[k];
+				double newDistance = search.distance[v] + graph.weights[k];
+				if (newDistance < search.distance(w)) {
+					if (search.pq.contains(w)) {
+						search.pq.decreaseKey(w, newDistance);
+					}
+					else {
+						search.pq.insert(w, newDistance);
+					}
+					search.reach(w, newDistance, graph.edgeIds[k]);
+				}
+			}
+		}
+
+		for (int j = 0; j < to.destinations.length; ++j) {
+			out[offset + j] = search.distance(to.destinations[j]);
+		}
+	}
+
+	// Destination intersections of a matrix, shared read-only by all searches
+	private static class Targets {
+		int[] destinations;		// intersection number of each destination column
+		boolean[] isTarget;		// isTarget[v] is true if v is some destination
+		int distinct;			// number of different destination intersections
+
+		Targets(int[] destinations, int V) {
+			this.destinations = destinations;
+			isTarget = new boolean[V];
+			for (int v : destinations) {
+				if (!isTarget[v]) {
+					isTarget[v] = true;
+					++distinct;
+				}
+			}
+		}
+	}
+}
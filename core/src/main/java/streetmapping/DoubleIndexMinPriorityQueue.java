@@ -0,0 +1,174 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+/* Index minimum priority queue specialized for double priorities.
+ * Unlike IndexMinPriorityQueue<Double> nothing is boxed and no
+ * compareTo() is called: priorities live in a double[] kept in heap
+ * order right next to the items, so comparing a node's children reads
+ * one contiguous run of memory. The heap is d-ary, with d (the arity)
+ * chosen at construction from 2, 4 or 8; wider heaps are shallower,
+ * which makes insert and decreaseKey cheaper at the cost of more
+ * comparisons per level in delMin */
+public class DoubleIndexMinPriorityQueue {
+
+	public static final int DEFAULT_ARITY = 4; // arity used when none is given
+
+	/* pq: pq[k] is the item at heap position k (positions start at 0)
+	 * qp: qp[i] is the heap position of item i (-1 if not in the queue)
+	 * keys: keys[k] is the priority of the item at heap position k */
+	protected int[] pq;
+	protected int[] qp;
+	protected double[] keys;
+
+	protected int shift;	// log2 of the arity, so children of k start at (k << shift) + 1
+	protected int maxN;		// Maximum number of items in the queue
+	protected int N = 0;	// Number of items in the queue
+
+	// Constructor that takes the array size as a parameter and uses the default arity
+	public DoubleIndexMinPriorityQueue(int maxN) {
+		this(maxN, DEFAULT_ARITY);
+	}
+
+	// Constructor that takes the array size and the arity (2, 4 or 8) as parameters
+	public DoubleIndexMinPriorityQueue(int maxN, int arity) {
+		if (arity != 2 && arity != 4 && arity != 8) {
+			throw new IllegalArgumentException("Arity must be 2, 4 or 8.");
+		}
+		this.maxN = maxN;
+		shift = Integer.numberOfTrailingZeros(arity);
+
+		pq = new int[maxN];
+		qp = new int[maxN];
+		keys = new double[maxN];
+
+		/* Initializes array of indices to -1
+		 * (-1 indicates the index number is
+		 *  not in the queue) */
+		for (int i = 0; i < maxN; ++i) {
+			qp[i] = -1;
+		}
+	}
+
+	public int arity() { return 1 << shift; }		// Returns the arity of the heap
+	public boolean isEmpty() { return N == 0; }		// Returns true if no items are in queue
+	public int size() { return N; }					// Returns number of items in queue
+
+	/* Returns true if the index exists
+	 * where that number is (is not -1) */
+	public boolean contains(int i) {
+		return qp[i] != -1;
+	}
+
+	/* Puts an item at the end of the
+	 * queue then moves it up as necessary */
+	public void insert(int i, double key) {
+		swim(N++, i, key);
+	}
+
+	// Returns the item with lowest priority in the queue
+	public int minIndex() {
+		return pq[0];
+	}
+
+	// Returns the lowest priority that is in the current queue
+	public double minKey() {
+		return keys[0];
+	}
+
+	/* Deletes and returns the item with minimum priority,
+	 * sinking the last item of the heap into its place */
+	public int delMin() {
+		int min = pq[0];
+		qp[min] = -1;
+		--N;
+		if (N > 0) {
+			sink(0, pq[N], keys[N]);
+		}
+		return min;
+	}
+
+	// Returns priority of item i (NaN if it is not in the queue)
+	public double keyOf(int i) {
+		return contains(i) ? keys[qp[i]] : Double.NaN;
+	}
+
+	/* Fast path for the only change Dijkstra and Prim ever make:
+	 * lowering an item's priority can only move it up the heap */
+	public void decreaseKey(int i, double key) {
+		swim(qp[i], i, key);
+	}
+
+	/* Change the priority of item i to the new
+	 * value, moving it up or down as needed */
+	public void changeKey(int i, double key) {
+		if (contains(i)) {
+			int k = qp[i];
+			if (key < keys[k]) {
+				swim(k, i, key);
+			}
+			else {
+				sink(k, i, key);
+			}
+		}
+	}
+
+	/* Removes every item still in the queue in time proportional
+	 * to their number, so the queue can be reused for another search */
+	public void clear() {
+		for (int k = 0; k < N; ++k) {
+			qp[pq[k]] = -1;
+		}
+		N = 0;
+	}
+
+	/* Moves item i with priority key up from position k, shifting
+	 * larger parents down into the hole instead of swapping */
+	private void swim(int k, int i, double key) {
+		while (k > 0) {
+			int parent = (k - 1) >> shift;
+			if (keys[parent] <= key) {
+				break;
+			}
+			place(k, pq[parent], keys[parent]);
+			k = parent;
+		}
+		place(k, i, key);
+	}
+
+	/* Moves item i with priority key down from position k, shifting
+	 * the smallest child up into the hole while it is smaller */
+	private void sink(int k, int i, double key) {
+		while (true) {
+			int first = (k << shift) + 1;
+			if (first >= N) {
+				break;
+			}
+			int last = Math.min(first + (1 << shift), N);
+
+			// Find the child with the smallest priority
+			int min = first;
+			double minKey = keys[first];
+			for (int c = first + 1; c < last; ++c) {
+				if (keys[c] < minKey) {
+					min = c;
+					minKey = keys[c];
+				}
+			}
+
+			if (minKey >= key) {
+				break;
+			}
+			place(k, pq[min], minKey);
+			k = min;
+		}
+		place(k, i, key);
+	}
+
+	// Stores item i with priority key at heap position k
+	private void place(int k, int i, double key) {
+		pq[k] = i;
+		keys[k] = key;
+		qp[i] = k;
+	}
+}
@@ -0,0 +1,170 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+/* Tool that replays a random stream of road updates (new roads, closures
+ * and reweightings) through DynamicSpanningForest, and compares the time
+ * against finding the minimum spanning forest again from scratch after
+ * every update. Recomputing after every single update would take far too
+ * long on big maps, so the full recomputation (Kruskal's algorithm over
+ * the current roads) is only run at a number of checkpoints; its average
+ * time is scaled up to the whole stream, and at each checkpoint its total
+ * weight must match the dynamic forest's.
+ *
+ * Usage: java DynamicForestBenchmark map_file [updates] [checkpoints] */
+public class DynamicForestBenchmark {
+
+	private static final double TOLERANCE = 1e-9; // relative difference allowed between the two weights
+
+	public static void main(String[] args) throws IOException {
+
+		UndirectedGraph graph = new UndirectedGraph(new File(args[0]));
+		int updates = (args.length > 1) ? Integer.parseInt(args[1]) : 100000;
+		int checkpoints = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+
+		long time = System.nanoTime();
+		DynamicSpanningForest forest = new DynamicSpanningForest(graph);
+		long buildNanos = System.nanoTime() - time;
+		System.out.printf("%d intersections, %d streets: initial forest of %d edges (%.4f miles) in %.1f ms\n",
+				graph.V(), graph.E(), forest.size(), forest.weight(), buildNanos / 1e6);
+
+		// The roads as they stand after each update, for the full recomputations
+		int capacity = graph.E() + updates;
+		int[] edgeV = new int[capacity];
+		int[] edgeW = new int[capacity];
+		double[] weight = new double[capacity];
+		int[] live = new int[capacity];		// ids of the roads still open
+		int[] position = new int[capacity];	// position[e] is the index of road e in live
+		int liveCount = 0;
+		for (StreetEdge e : graph.edgeList) {
+			edgeV[e.edgeNo] = e.v.intersectionNo;
+			edgeW[e.edgeNo] = e.w.intersectionNo;
+			weight[e.edgeNo] = e.weight;
+			position[e.edgeNo] = liveCount;
+			live[liveCount++] = e.edgeNo;
+		}
+		int nextId = graph.E();
+
+		Random random = new Random(42);
+		long dynamicNanos = 0;
+		long recomputeNanos = 0;
+		int recomputations = 0;
+		int mismatches = 0;
+		int inserts = 0, deletes = 0, reweights = 0;
+		int interval = Math.max(1, updates / Math.max(1, checkpoints));
+
+		for (int u = 1; u <= updates; ++u) {
+			int kind = random.nextInt(3);
+			if (liveCount == 0) {
+				kind = 0;
+			}
+
+			if (kind == 0) {
+
+				// A new road to an intersection a few blocks away
+				int v = random.nextInt(graph.V());
+				int w = v;
+				for (int step = 1 + random.nextInt(3); step > 0; --step) {
+					int degree = graph.offsets[w + 1] - graph.offsets[w];
+					if (degree > 0) {
+						w = graph.targets[graph.offsets[w] + random.nextInt(degree)];
+					}
+				}
+				Intersection a = graph.vertices[v];
+				Intersection b = graph.vertices[w];
+				int e = nextId++;
+				edgeV[e] = v;
+				edgeW[e] = w;
+				weight[e] = UndirectedGraph.calcDistanceMiles(a.latitude, a.longitude, b.latitude, b.longitude);
+				position[e] = liveCount;
+				live[liveCount++] = e;
+
+				time = System.nanoTime();
+				forest.insert(e, v, w, weight[e]);
+				dynamicNanos += System.nanoTime() - time;
+				++inserts;
+			}
+			else if (kind == 1) {
+
+				// A road closure
+				int e = live[random.nextInt(liveCount)];
+				int last = live[--liveCount];
+				live[position[e]] = last;
+				position[last] = position[e];
+
+				time = System.nanoTime();
+				forest.delete(e);
+				dynamicNanos += System.nanoTime() - time;
+				++deletes;
+			}
+			else {
+
+				// Traffic makes a road anywhere from half to twice as long to travel
+				int e = live[random.nextInt(liveCount)];
+				weight[e] *= 0.5 + 1.5 * random.nextDouble();
+
+				time = System.nanoTime();
+				forest.reweight(e, weight[e]);
+				dynamicNanos += System.nanoTime() - time;
+				++reweights;
+			}
+
+			if (u % interval == 0 || u == updates) {
+				time = System.nanoTime();
+				double expected = kruskalWeight(graph.V(), edgeV, edgeW, weight, Arrays.copyOf(live, liveCount));
+				recomputeNanos += System.nanoTime() - time;
+				++recomputations;
+				if (Math.abs(expected - forest.weight()) > TOLERANCE * Math.max(1.0, expected)) {
+					++mismatches;
+					System.out.printf("MISMATCH after %d updates: dynamic %.6f vs recomputed %.6f\n", u, forest.weight(), expected);
+				}
+			}
+		}
+
+		double recomputeEach = (double) recomputeNanos / recomputations;
+		System.out.printf("%d updates (%d new roads, %d closures, %d reweightings): %d edges, %d trees, %.4f miles\n",
+				updates, inserts, deletes, reweights, forest.size(), forest.components(), forest.weight());
+		System.out.printf("\tDynamic forest:     %10.1f ms total, %8.2f us per update\n",
+				dynamicNanos / 1e6, dynamicNanos / 1e3 / updates);
+		System.out.printf("\tFull recomputation: %10.1f ms each, est. %.1f s for every update, %.0fx slower\n",
+				recomputeEach / 1e6, recomputeEach * updates / 1e9, recomputeEach * updates / dynamicNanos);
+		System.out.println("\t" + mismatches + " weight mismatches in " + recomputations + " checkpoints");
+	}
+
+	// Returns the weight of the minimum spanning forest of the given roads by Kruskal's algorithm
+	private static double kruskalWeight(int V, int[] edgeV, int[] edgeW, double[] weight, int[] edges) {
+		Integer[] sorted = new Integer[edges.length];
+		for (int i = 0; i < edges.length; ++i) {
+			sorted[i] = edges[i];
+		}
+		Arrays.sort(sorted, (a, b) -> Double.compare(weight[a], weight[b]));
+
+		int[] parent = new int[V];
+		for (int v = 0; v < V; ++v) {
+			parent[v] = v;
+		}
+		double total = 0.0;
+		for (int e : sorted) {
+			int a = find(parent, edgeV[e]);
+			int b = find(parent, edgeW[e]);
+			if (a != b) {
+				parent[a] = b;
+				total += weight[e];
+			}
+		}
+		return total;
+	}
+
+	// Returns the root of v, halving the path to it along the way
+	private static int find(int[] parent, int v) {
+		while (parent[v] != v) {
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+}
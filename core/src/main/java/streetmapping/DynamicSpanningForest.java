@@ -0,0 +1,494 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.util.Arrays;
+
+/* Minimum spanning forest that is kept up to date as roads are inserted,
+ * closed or reweighted, instead of recomputing MapMST from scratch.
+ *
+ * The forest lives in a link-cut tree, where every tree edge is a node of
+ * its own carrying its weight, so the heaviest edge on the tree path
+ * between any two intersections can be found in O(log V) amortized time:
+ *
+ * - Inserting (or making lighter) an edge u-w: if u and w are in
+ *   different trees the edge joins them. Otherwise it closes a cycle, and
+ *   it replaces the heaviest edge on the tree path from u to w if it is
+ *   lighter (the cycle property).
+ * - Deleting (or making heavier) a tree edge splits its tree in two, and
+ *   the cheapest remaining edge across the split must take its place (the
+ *   cut property). Searching the two halves from both ends at once, one
+ *   step each in turn, finds the smaller half in time proportional to its
+ *   size, and only the edges touching that half have to be checked.
+ *   Deleting a non-tree edge changes nothing.
+ *
+ * On road maps almost every tree edge has a small half on one side, so
+ * updates cost far less than the O(E log V) of a full recomputation. The
+ * structure is not thread-safe; callers apply updates from one thread */
+public class DynamicSpanningForest {
+
+	protected int V;					// number of intersections
+	protected int[] edgeV;				// edgeV[e] is one intersection of edge id e
+	protected int[] edgeW;				// edgeW[e] is the other intersection of edge id e
+	protected double[] weight;			// weight[e] is the current weight of edge id e
+	protected boolean[] present;		// present[e] is true while edge id e is in the map
+	protected boolean[] inTree;			// inTree[e] is true while edge id e is in the forest
+	protected int[] edgeNode;			// edgeNode[e] is the link-cut node standing for tree edge id e
+
+	protected int[][] incident;			// incident[v] lists the present edge ids touching v
+	protected int[] degree;				// degree[v] is the number of entries used in incident[v]
+
+	protected LinkCutTree lct;			// the forest: nodes 0..V-1 are intersections, the rest tree edges
+	protected int[] nodeEdge;			// nodeEdge[n] is the edge id of link-cut node n
+	protected int[] freeNodes;			// link-cut nodes not standing for any edge
+	protected int freeCount;			// number of entries used in freeNodes
+
+	protected int treeEdges = 0;		// number of edges in the forest
+	protected double totalWeight = 0.0;	// total weight of the forest
+
+	// Scratch space for finding the smaller half of a split tree
+	private int[] mark;
+	private int generation = 0;
+	private int[] queueA;
+	private int[] queueB;
+
+	// Constructor that starts from the minimum spanning forest of a loaded graph
+	public DynamicSpanningForest(UndirectedGraph graph) {
+		V = graph.V();
+		int capacity = Math.max(16, graph.E());
+		edgeV = new int[capacity];
+		edgeW = new int[capacity];
+		weight = new double[capacity];
+		present = new boolean[capacity];
+		inTree = new boolean[capacity];
+		edgeNode = new int[capacity];
+
+		incident = new int[V][];
+		degree = new int[V];
+		for (int v = 0; v < V; ++v) {
+			int size = graph.offsets[v + 1] - graph.offsets[v];
+			incident[v] = new int[Math.max(2, size)];
+		}
+
+		// A forest has at most V - 1 edges, so 2V nodes are always enough
+		lct = new LinkCutTree(2 * V);
+		nodeEdge = new int[2 * V];
+		freeNodes = new int[V];
+		for (int n = 2 * V - 1; n >= V; --n) {
+			freeNodes[freeCount++] = n;
+		}
+
+		mark = new int[V];
+		queueA = new int[V];
+		queueB = new int[V];
+
+		for (StreetEdge e : graph.edgeList) {
+			addEdge(e.edgeNo, e.v.intersectionNo, e.w.intersectionNo, e.weight);
+		}
+		for (int e : new BoruvkaMST(graph).edgeNumbers()) {
+			makeTreeEdge(e);
+		}
+	}
+
+	public double weight() { return totalWeight; }			// Returns the total weight of the forest
+	public int size() { return treeEdges; }					// Returns the number of edges in the forest
+	public int components() { return V - treeEdges; }		// Returns the number of trees in the forest
+	public boolean contains(int e) { return e < inTree.length && inTree[e]; }	// Returns true if edge id e is in the forest
+
+	// Returns the edge ids currently in the forest
+	public int[] edgeNumbers() {
+		int[] edges = new int[treeEdges];
+		int count = 0;
+		for (int e = 0; e < inTree.length; ++e) {
+			if (inTree[e]) {
+				edges[count++] = e;
+			}
+		}
+		return edges;
+	}
+
+	public void insert(StreetEdge e) { insert(e.edgeNo, e.v.intersectionNo, e.w.intersectionNo, e.weight); }	// Inserts a StreetEdge
+	public void delete(StreetEdge e) { delete(e.edgeNo); }												// Closes a StreetEdge
+
+	// Inserts a new edge with an unused id between intersections v and w
+	public void insert(int e, int v, int w, double edgeWeight) {
+		if (e < present.length && present[e]) {
+			throw new IllegalArgumentException("Edge " + e + " is already in the map.");
+		}
+		addEdge(e, v, w, edgeWeight);
+		offer(e);
+	}
+
+	// Removes edge id e from the map, replacing it in the forest if needed
+	public void delete(int e) {
+		checkPresent(e);
+		boolean wasTree = inTree[e];
+		if (wasTree) {
+			removeTreeEdge(e);
+		}
+		present[e] = false;
+		removeIncident(edgeV[e], e);
+		removeIncident(edgeW[e], e);
+		if (wasTree) {
+			reconnect(edgeV[e], edgeW[e]);
+		}
+	}
+
+	// Changes the weight of edge id e, swapping forest edges as needed
+	public void reweight(int e, double edgeWeight) {
+		checkPresent(e);
+		double old = weight[e];
+		if (!inTree[e]) {
+			weight[e] = edgeWeight;
+			if (edgeWeight < old) {
+				offer(e);
+			}
+		}
+		else if (edgeWeight <= old) {
+
+			// A tree edge that gets lighter stays in the tree
+			totalWeight += edgeWeight - old;
+			weight[e] = edgeWeight;
+			lct.setValue(edgeNode[e], edgeWeight);
+		}
+		else {
+
+			// A tree edge that gets heavier competes with every edge across its cut
+			removeTreeEdge(e);
+			weight[e] = edgeWeight;
+			reconnect(edgeV[e], edgeW[e]);
+		}
+	}
+
+	/* Tries a non-tree edge against the forest: it joins two trees, or
+	 * replaces the heaviest edge of the cycle it closes if lighter */
+	private void offer(int e) {
+		int a = edgeV[e];
+		int b = edgeW[e];
+		if (a == b) {
+			return;
+		}
+		if (lct.findRoot(a) != lct.findRoot(b)) {
+			makeTreeEdge(e);
+			return;
+		}
+		int heaviest = nodeEdge[lct.pathMax(a, b)];
+		if (weight[heaviest] > weight[e]) {
+			removeTreeEdge(heaviest);
+			makeTreeEdge(e);
+		}
+	}
+
+	/* After the tree edge between a and b has left the forest, adds the
+	 * cheapest remaining edge between the two halves, if there is one */
+	private void reconnect(int a, int b) {
+		if (a == b) {
+			return;
+		}
+
+		/* Search both halves one vertex at a time in turn; whichever
+		 * runs out first is the smaller half */
+		int gA = ++generation;
+		int gB = ++generation;
+		mark[a] = gA;
+		mark[b] = gB;
+		queueA[0] = a;
+		queueB[0] = b;
+		int headA = 0, tailA = 1, headB = 0, tailB = 1;
+		int[] side;
+		int sideSize;
+		int sideMark;
+		while (true) {
+			if (headA == tailA) {
+				side = queueA; sideSize = tailA; sideMark = gA;
+				break;
+			}
+			tailA = expand(queueA[headA++], queueA, tailA, gA);
+			if (headB == tailB) {
+				side = queueB; sideSize = tailB; sideMark = gB;
+				break;
+			}
+			tailB = expand(queueB[headB++], queueB, tailB, gB);
+		}
+
+		// The cheapest edge leaving the smaller half reconnects the tree
+		int best = -1;
+		for (int i = 0; i < sideSize; ++i) {
+			int v = side[i];
+			for (int k = 0; k < degree[v]; ++k) {
+				int e = incident[v][k];
+				if (!inTree[e] && mark[other(e, v)] != sideMark && (best == -1 || weight[e] < weight[best])) {
+					best = e;
+				}
+			}
+		}
+		if (best != -1) {
+			makeTreeEdge(best);
+		}
+	}
+
+	// Queues the unmarked forest neighbors of v, returning the new queue length
+	private int expand(int v, int[] queue, int tail, int g) {
+		for (int k = 0; k < degree[v]; ++k) {
+			int e = incident[v][k];
+			if (inTree[e]) {
+				int w = other(e, v);
+				if (mark[w] != g) {
+					mark[w] = g;
+					queue[tail++] = w;
+				}
+			}
+		}
+		return tail;
+	}
+
+	// Records a present edge and adds it to both of its intersections' lists
+	private void addEdge(int e, int v, int w, double edgeWeight) {
+		if (v < 0 || v >= V || w < 0 || w >= V) {
+			throw new IllegalArgumentException("Edge " + e + " names an unknown intersection.");
+		}
+		if (e >= present.length) {
+			int capacity = Math.max(e + 1, 2 * present.length);
+			edgeV = Arrays.copyOf(edgeV, capacity);
+			edgeW = Arrays.copyOf(edgeW, capacity);
+			weight = Arrays.copyOf(weight, capacity);
+			present = Arrays.copyOf(present, capacity);
+			inTree = Arrays.copyOf(inTree, capacity);
+			edgeNode = Arrays.copyOf(edgeNode, capacity);
+		}
+		edgeV[e] = v;
+		edgeW[e] = w;
+		weight[e] = edgeWeight;
+		present[e] = true;
+		inTree[e] = false;
+		addIncident(v, e);
+		if (w != v) {
+			addIncident(w, e);
+		}
+	}
+
+	// Links edge id e into the forest through a link-cut node of its own
+	private void makeTreeEdge(int e) {
+		int node = freeNodes[--freeCount];
+		nodeEdge[node] = e;
+		edgeNode[e] = node;
+		lct.reset(node, weight[e]);
+		lct.link(edgeV[e], node);
+		lct.link(node, edgeW[e]);
+		inTree[e] = true;
+		++treeEdges;
+		totalWeight += weight[e];
+	}
+
+	// Cuts tree edge id e out of the forest
+	private void removeTreeEdge(int e) {
+		int node = edgeNode[e];
+		lct.cut(edgeV[e], node);
+		lct.cut(node, edgeW[e]);
+		freeNodes[freeCount++] = node;
+		inTree[e] = false;
+		--treeEdges;
+		totalWeight -= weight[e];
+	}
+
+	private void addIncident(int v, int e) {
+		if (degree[v] == incident[v].length) {
+			incident[v] = Arrays.copyOf(incident[v], 2 * degree[v]);
+		}
+		incident[v][degree[v]++] = e;
+	}
+
+	private void removeIncident(int v, int e) {
+		for (int k = 0; k < degree[v]; ++k) {
+			if (incident[v][k] == e) {
+				incident[v][k] = incident[v][--degree[v]];
+				return;
+			}
+		}
+	}
+
+	// Returns the intersection at the other end of edge id e from v
+	private int other(int e, int v) {
+		return (edgeV[e] == v) ? edgeW[e] : edgeV[e];
+	}
+
+	private void checkPresent(int e) {
+		if (e < 0 || e >= present.length || !present[e]) {
+			throw new IllegalArgumentException("Edge " + e + " is not in the map.");
+		}
+	}
+
+	/* Link-cut tree over array-backed splay trees. Each preferred path of
+	 * the forest is a splay tree ordered by depth; flip marks a subtree
+	 * whose left and right still need swapping (used to re-root), and
+	 * best[n] is the node of largest value within n's splay subtree.
+	 * Intersection nodes have value negative infinity, so the largest
+	 * value on a path is always its heaviest edge */
+	protected static class LinkCutTree {
+		private final int[] left;
+		private final int[] right;
+		private final int[] parent;		// splay parent, or path parent for the root of a splay tree
+		private final boolean[] flip;
+		private final double[] value;
+		private final int[] best;
+		private int[] stack;
+
+		LinkCutTree(int n) {
+			left = new int[n];
+			right = new int[n];
+			parent = new int[n];
+			flip = new boolean[n];
+			value = new double[n];
+			best = new int[n];
+			stack = new int[64];
+			for (int x = 0; x < n; ++x) {
+				reset(x, Double.NEGATIVE_INFINITY);
+			}
+		}
+
+		// Makes x a lone node with the given value
+		void reset(int x, double v) {
+			left[x] = -1;
+			right[x] = -1;
+			parent[x] = -1;
+			flip[x] = false;
+			value[x] = v;
+			best[x] = x;
+		}
+
+		// Changes the value of x
+		void setValue(int x, double v) {
+			access(x);
+			value[x] = v;
+			pull(x);
+		}
+
+		// Links the root of x's tree (made x) under y; x and y must be in different trees
+		void link(int x, int y) {
+			makeRoot(x);
+			parent[x] = y;
+		}
+
+		// Removes the tree edge between x and y
+		void cut(int x, int y) {
+			makeRoot(x);
+			access(y);
+			left[y] = -1;
+			parent[x] = -1;
+			pull(y);
+		}
+
+		// Returns the root of x's tree
+		int findRoot(int x) {
+			access(x);
+			while (true) {
+				push(x);
+				if (left[x] == -1) {
+					break;
+				}
+				x = left[x];
+			}
+			splay(x);
+			return x;
+		}
+
+		// Returns the node of largest value on the path from x to y
+		int pathMax(int x, int y) {
+			makeRoot(x);
+			access(y);
+			return best[y];
+		}
+
+		private void makeRoot(int x) {
+			access(x);
+			flip[x] = !flip[x];
+		}
+
+		// Makes the path from x's tree root to x preferred, with x at the top of its splay tree
+		private void access(int x) {
+			int last = -1;
+			for (int y = x; y != -1; y = parent[y]) {
+				splay(y);
+				right[y] = last;
+				pull(y);
+				last = y;
+			}
+			splay(x);
+		}
+
+		private boolean isRoot(int x) {
+			int p = parent[x];
+			return p == -1 || (left[p] != x && right[p] != x);
+		}
+
+		private void pull(int x) {
+			int b = x;
+			if (left[x] != -1 && value[best[left[x]]] > value[b]) {
+				b = best[left[x]];
+			}
+			if (right[x] != -1 && value[best[right[x]]] > value[b]) {
+				b = best[right[x]];
+			}
+			best[x] = b;
+		}
+
+		private void push(int x) {
+			if (flip[x]) {
+				int t = left[x]; left[x] = right[x]; right[x] = t;
+				if (left[x] != -1) flip[left[x]] = !flip[left[x]];
+				if (right[x] != -1) flip[right[x]] = !flip[right[x]];
+				flip[x] = false;
+			}
+		}
+
+		private void rotate(int x) {
+			int p = parent[x];
+			int g = parent[p];
+			if (!isRoot(p)) {
+				if (left[g] == p) left[g] = x;
+				else right[g] = x;
+			}
+			parent[x] = g;
+			if (left[p] == x) {
+				left[p] = right[x];
+				if (right[x] != -1) parent[right[x]] = p;
+				right[x] = p;
+			}
+			else {
+				right[p] = left[x];
+				if (left[x] != -1) parent[left[x]] = p;
+				left[x] = p;
+			}
+			parent[p] = x;
+			pull(p);
+			pull(x);
+		}
+
+		private void splay(int x) {
+
+			// Push pending flips down from the top of the splay tree first
+			int top = 0;
+			for (int y = x; ; y = parent[y]) {
+				if (top == stack.length) {
+					stack = Arrays.copyOf(stack, 2 * top);
+				}
+				stack[top++] = y;
+				if (isRoot(y)) {
+					break;
+				}
+			}
+			while (top > 0) {
+				push(stack[--top]);
+			}
+
+			while (!isRoot(x)) {
+				int p = parent[x];
+				if (!isRoot(p)) {
+					int g = parent[p];
+					rotate(((left[g] == p) == (left[p] == x)) ? p : x);
+				}
+				rotate(x);
+			}
+		}
+	}
+}
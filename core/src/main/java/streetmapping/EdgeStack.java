@@ -1,5 +1,7 @@
 /* Code & Commentary by Grayson Westfall */
 
+package streetmapping;
+
 /* A stack of edges that extends LinkedList
  * used to trace the shortest path */
 public class EdgeStack extends LinkedList<StreetEdge> {
@@ -0,0 +1,68 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+/* Benchmark that times one-to-all DijkstraShortestPath searches on a
+ * map file with each arity of DoubleIndexMinPriorityQueue, to show
+ * which heap layout is fastest on real road networks.
+ *
+ * Usage: java HeapArityBenchmark map_file [queries] [rounds] */
+public class HeapArityBenchmark {
+
+	private static final int[] ARITIES = {2, 4, 8};
+
+	public static void main(String[] args) throws IOException {
+
+		UndirectedGraph graph = new UndirectedGraph(new File(args[0]));
+		int queries = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+		int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+		// Every arity searches from the same random starting intersections
+		Random random = new Random(42);
+		String[] starts = new String[queries];
+		for (int q = 0; q < queries; ++q) {
+			starts[q] = graph.intersection(random.nextInt(graph.V())).title;
+		}
+
+		System.out.println(graph.V() + " intersections, " + graph.E() + " streets, " + queries + " searches per round");
+
+		// One untimed round per arity lets the JIT compile every variant first
+		for (int arity : ARITIES) {
+			runRound(graph, starts, arity);
+		}
+
+		/* Rounds alternate between arities so that drift in machine
+		 * load affects all of them alike; the median round is reported */
+		long[][] nanos = new long[ARITIES.length][rounds];
+		for (int r = 0; r < rounds; ++r) {
+			for (int a = 0; a < ARITIES.length; ++a) {
+				nanos[a][r] = runRound(graph, starts, ARITIES[a]);
+			}
+		}
+
+		for (int a = 0; a < ARITIES.length; ++a) {
+			Arrays.sort(nanos[a]);
+			double msPerSearch = nanos[a][rounds / 2] / 1e6 / queries;
+			System.out.printf("\t%d-ary heap: %.3f ms per search\n", ARITIES[a], msPerSearch);
+		}
+	}
+
+	// Runs one search from every start and returns the total time taken
+	private static long runRound(UndirectedGraph graph, String[] starts, int arity) {
+		long start = System.nanoTime();
+		double checksum = 0.0;
+		for (String title : starts) {
+			DijkstraShortestPath paths = new DijkstraShortestPath(graph, title, arity);
+			checksum += paths.distanceTo[paths.distanceTo.length - 1];
+		}
+		long elapsed = System.nanoTime() - start;
+		if (checksum == -1.0) {
+			System.out.println(); // keeps the searches from being optimized away
+		}
+		return elapsed;
+	}
+}
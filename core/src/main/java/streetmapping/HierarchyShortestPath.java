@@ -0,0 +1,189 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.util.Arrays;
+
+/* Class used to compute the shortest path between one starting and one
+ * ending intersection over a ContractionHierarchy. Two Dijkstra searches,
+ * one from each end, only follow arcs to higher ranked intersections; the
+ * shortest path is the best sum of distances at an intersection both
+ * reached. Each side can stop once its queue's smallest distance reaches
+ * that best sum. The arcs of the result (some of them shortcuts) are then
+ * unpacked back into the original StreetEdges */
+public class HierarchyShortestPath {
+
+	protected ContractionHierarchy ch;			// hierarchy being searched
+	protected int start;						// intersection number the path starts at
+	protected int end;							// intersection number the path ends at
+
+	protected double mu = Double.POSITIVE_INFINITY;	// length of the shortest path found so far
+	protected int meet = -1;						// highest intersection of that path
+	protected int settled = 0;						// number of intersections settled by both searches together
+
+	protected int[] arcs;		// arcs of the path over the hierarchy in travel order (null if none)
+	protected int[] from;		// from[i] is the intersection arcs[i] is walked from
+
+	/* Constructor that computes the shortest path between the two titled
+	 * intersections, searching in this thread's QueryWorkspaces (whose
+	 * edgeTo entries hold arc numbers here) */
+	public HierarchyShortestPath(ContractionHierarchy ch, UndirectedGraph graph, String startInterTitle, String endInterTitle) {
+		this(ch, graph, graph.intersectionNo(startInterTitle), graph.intersectionNo(endInterTitle));
+	}
+
+	// Constructor that computes the shortest path between two intersection numbers, as above
+	public HierarchyShortestPath(ContractionHierarchy ch, UndirectedGraph graph, int start, int end) {
+		this.ch = ch;
+		this.start = start;
+		this.end = end;
+
+		QueryWorkspace up = QueryWorkspace.forward(ch.V());
+		QueryWorkspace down = QueryWorkspace.backward(ch.V());
+		up.reach(start, 0.0, -1);
+		down.reach(end, 0.0, -1);
+		up.pq.insert(start, 0.0);
+		down.pq.insert(end, 0.0);
+
+		/* Alternate between the two searches; a side is finished once it
+		 * is empty or its closest intersection is no nearer than mu */
+		boolean forward = true;
+		while (true) {
+			boolean upDone = up.pq.isEmpty() || up.pq.minKey() >= mu;
+			boolean downDone = down.pq.isEmpty() || down.pq.minKey() >= mu;
+			if (upDone && downDone) {
+				break;
+			}
+			if ((forward && !upDone) || downDone) {
+				step(up, down);
+			}
+			else {
+				step(down, up);
+			}
+			forward = !forward;
+		}
+
+		if (hasPath()) {
+			collectArcs(up, down);
+		}
+	}
+
+	// Settles the closest intersection of one search and relaxes its upward arcs
+	private void step(QueryWorkspace search, QueryWorkspace other) {
+		int v = search.pq.delMin();
+		++settled;
+
+		// v may complete a path with the other search
+		if (search.distance[v] + other.distance(v) < mu) {
+			mu = search.distance[v] + other.distance(v);
+			meet = v;
+		}
+
+		for (int k = ch.upOffsets[v]; k < ch.upOffsets[v + 1]; ++k) {
+			int w = ch.upTargets[k];
+			double newDistance = search.distance[v] + ch.upWeights[k];
+			if (newDistance < search.distance(w)) {
+				if (search.pq.contains(w)) {
+					search.pq.decreaseKey(w, newDistance);
+				}
+				else {
+					search.pq.insert(w, newDistance);
+				}
+				search.reach(w, newDistance, ch.upArcs[k]);
+			}
+		}
+	}
+
+	/* Copies the arcs of the path out of the workspaces before they are
+	 * reused: up from the start to the meeting point, then down to the end */
+	private void collectArcs(QueryWorkspace up, QueryWorkspace down) {
+		int n = 0;
+		for (int v = meet; up.edgeTo(v) != -1; v = other(up.edgeTo(v), v)) {
+			++n;
+		}
+		int half = n;
+		for (int v = meet; down.edgeTo(v) != -1; v = other(down.edgeTo(v), v)) {
+			++n;
+		}
+
+		arcs = new int[n];
+		from = new int[n];
+		int i = half;
+		for (int v = meet; up.edgeTo(v) != -1; ) {
+			int u = other(up.edgeTo(v), v);
+			--i;
+			arcs[i] = up.edgeTo(v);
+			from[i] = u;
+			v = u;
+		}
+		i = half;
+		for (int v = meet; down.edgeTo(v) != -1; v = other(down.edgeTo(v), v)) {
+			arcs[i] = down.edgeTo(v);
+			from[i] = v;
+			++i;
+		}
+	}
+
+	public boolean hasPath() { return meet != -1; }		// Returns true if the two intersections are connected
+	public double distance() { return mu; }				// Returns the length of the shortest path (infinity if none)
+	public int settledCount() { return settled; }		// Returns number of intersections the two searches settled
+
+	/* Returns the edge numbers of the shortest path in travel order,
+	 * or null if no path exists */
+	public int[] edgeNumbers() {
+		if (!hasPath()) {
+			return null;
+		}
+		int n = arcs.length;
+
+		/* Unpack each arc with an explicit stack of (arc, intersection it
+		 * is walked from) pairs; a shortcut A-B skipping M becomes A-M then
+		 * M-B, or B-M then M-A when walked from B */
+		int[] path = new int[n];
+		int length = 0;
+		int[] stack = new int[16];
+		for (int i = 0; i < n; ++i) {
+			int top = 0;
+			stack[top++] = arcs[i];
+			stack[top++] = from[i];
+			while (top > 0) {
+				int v = stack[--top];
+				int a = stack[--top];
+				if (ch.arcMiddle[a] == -1) {
+					if (length == path.length) {
+						path = Arrays.copyOf(path, 2 * length);
+					}
+					path[length++] = ch.arcFirst[a];
+					continue;
+				}
+				if (top + 4 > stack.length) {
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				}
+				int first = (v == ch.arcA[a]) ? ch.arcFirst[a] : ch.arcSecond[a];
+				int second = (v == ch.arcA[a]) ? ch.arcSecond[a] : ch.arcFirst[a];
+
+				// Push the second half underneath so the first half is walked first
+				stack[top++] = second;
+				stack[top++] = ch.arcMiddle[a];
+				stack[top++] = first;
+				stack[top++] = v;
+			}
+		}
+		return Arrays.copyOf(path, length);
+	}
+
+	// Returns the shortest path as a Route, or null if no path exists
+	public Route route() {
+		return hasPath() ? new Route(start, end, mu, edgeNumbers()) : null;
+	}
+
+	/* Returns the edges of the shortest path as a stack whose top is the
+	 * edge leaving the start, or null if no path exists */
+	public EdgeStack path(UndirectedGraph graph) {
+		return hasPath() ? route().toStack(graph) : null;
+	}
+
+	// Returns the intersection at the other end of arc a from v
+	private int other(int a, int v) {
+		return (ch.arcA[a] == v) ? ch.arcB[a] : ch.arcA[a];
+	}
+}
@@ -1,5 +1,7 @@
 /* Code & Commentary by Grayson Westfall */
 
+package streetmapping;
+
 public class IndexMinPriorityQueue<Key extends Comparable<Key>> {
 		
 	/* keys: keys[i] is the priority of item i
@@ -82,9 +84,10 @@ public class IndexMinPriorityQueue<Key extends Comparable<Key>> {
 	}
 		
 	/* Returns priority
-	 * of item i */
+	 * of item i (null if
+	 * it is not queued) */
 	public Key keyOf(int i) {
-		if (!contains(i)) {
+		if (contains(i)) {
 			return keys[i];
 		}
 		else return null;
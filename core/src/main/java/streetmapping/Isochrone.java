@@ -0,0 +1,376 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/* Every intersection within one or more road distances of an origin,
+ * for service areas and delivery zones. Dijkstra's algorithm is run from
+ * the origin but never queues an intersection farther than the largest
+ * radius, so the search stops on its own once everything inside that
+ * radius is settled, and costs time proportional to the area covered
+ * rather than to the whole map. It runs in this thread's QueryWorkspace,
+ * so nothing V-sized is allocated for it.
+ *
+ * Intersections are settled in order of distance, so the ones within
+ * each smaller radius are just a prefix of the ones within the largest:
+ * any number of rings come out of the one search.
+ *
+ * Each ring can be drawn as isochrone polygons, grid based: the map
+ * around the origin is divided into square cells, every cell crossed by
+ * a reachable part of a street is filled in (a street leading out of
+ * the ring counts as far as its reachable fraction), holes are filled,
+ * and the outline of the filled cells is traced into closed polygons.
+ * There is one polygon per separate patch, and smaller cells follow the
+ * streets more closely.
+ *
+ * compute() finds the isochrones of many origins in parallel.
+ *
+ * Usage: java streetmapping.Isochrone map_file radius[,radius...] cell_miles origin [origin...]
+ * (writes the polygons to standard output as GeoJSON) */
+public class Isochrone {
+
+	protected static final int MAX_CELLS = 1 << 24;			// most cells a polygon grid may have
+
+	protected UndirectedGraph graph;	// graph searched
+	protected int origin;				// intersection number of the origin
+	protected double[] radii;			// radii of the rings, in increasing order
+	protected int[] ringSize;			// ringSize[r] is the number of intersections within radii[r]
+	protected int[] reached;			// intersection numbers within the largest radius, in order of distance
+	protected double[] distances;		// distances[i] is the distance to reached[i]
+
+	// Constructor that finds every intersection within the radii of the titled intersection
+	public Isochrone(UndirectedGraph graph, String originTitle, double... radii) {
+		this(graph, graph.intersectionNo(originTitle), radii);
+	}
+
+	// Constructor that finds every intersection within the radii (in miles) of the given intersection number
+	public Isochrone(UndirectedGraph graph, int origin, double... radii) {
+		if (radii.length == 0) {
+			throw new IllegalArgumentException("At least one radius must be given.");
+		}
+		this.graph = graph;
+		this.origin = origin;
+		this.radii = radii.clone();
+		Arrays.sort(this.radii); // (any NaN sorts to the end)
+		double limit = this.radii[this.radii.length - 1];
+		if (!(this.radii[0] >= 0) || Double.isNaN(limit) || Double.isInfinite(limit)) {
+			throw new IllegalArgumentException("Radii must be finite and not negative.");
+		}
+
+		QueryWorkspace search = QueryWorkspace.forward(graph.V());
+		search.reach(origin, 0.0, -1);
+		search.pq.insert(origin, 0.0);
+
+		int[] found = new int[16];
+		double[] foundDistances = new double[16];
+		int count = 0;
+		while (!search.pq.isEmpty()) {
+			int v = search.pq.delMin();
+			search.settle(v);
+			if (count == found.length) {
+				found = Arrays.copyOf(found, 2 * count);
+				foundDistances = Arrays.copyOf(foundDistances, 2 * count);
+			}
+			found[count] = v;
+			foundDistances[count++] = search.distance[v];
+
+			// Only intersections within the limit are ever queued, so the search ends at the limit
+			for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; ++k) {
+				int w = graph.targets[k];
+				double newDistance = search.distance[v] + graph.weights[k];
+				if (newDistance <= limit && newDistance < search.distance(w)) {
+					if (search.pq.contains(w)) {
+						search.pq.decreaseKey(w, newDistance);
+					}
+					else {
+						search.pq.insert(w, newDistance);
+					}
+					search.reach(w, newDistance, graph.edgeIds[k]);
+				}
+			}
+		}
+		reached = Arrays.copyOf(found, count);
+		distances = Arrays.copyOf(foundDistances, count);
+
+		// Settled in order of distance, so each ring is a prefix
+		ringSize = new int[this.radii.length];
+		int end = 0;
+		for (int r = 0; r < this.radii.length; ++r) {
+			while (end < count && distances[end] <= this.radii[r]) {
+				++end;
+			}
+			ringSize[r] = end;
+		}
+	}
+
+	/* Returns the isochrones of every titled origin for the same radii,
+	 * one per origin in the same order, searched in parallel on the
+	 * common ForkJoin pool */
+	public static Isochrone[] compute(UndirectedGraph graph, String[] originTitles, double... radii) {
+		int[] origins = new int[originTitles.length];
+		for (int i = 0; i < originTitles.length; ++i) {
+			origins[i] = graph.intersectionNo(originTitles[i]);
+		}
+		Isochrone[] isochrones = new Isochrone[origins.length];
+		IntStream.range(0, origins.length).parallel().forEach(i -> isochrones[i] = new Isochrone(graph, origins[i], radii));
+		return isochrones;
+	}
+
+	public int origin() { return origin; }							// Returns intersection number of the origin
+	public int rings() { return radii.length; }						// Returns number of rings
+	public double radius(int ring) { return radii[ring]; }			// Returns radius of a ring (rings in increasing order)
+	public int size() { return reached.length; }					// Returns number of intersections within the largest radius
+	public int size(int ring) { return ringSize[ring]; }			// Returns number of intersections within a ring's radius
+	public int intersection(int i) { return reached[i]; }			// Returns intersection number of the i-th closest intersection
+	public double distance(int i) { return distances[i]; }			// Returns distance to the i-th closest intersection
+
+	// Returns the intersection numbers within a ring's radius, closest first
+	public int[] reachable(int ring) {
+		return Arrays.copyOf(reached, ringSize[ring]);
+	}
+
+	// Returns the distances to the intersections reachable(ring) returns, in the same order
+	public double[] distances(int ring) {
+		return Arrays.copyOf(distances, ringSize[ring]);
+	}
+
+	/* Returns the isochrone polygons of a ring, traced on a grid of
+	 * square cells cellMiles across. Each polygon is one separate patch of
+	 * reachable area, given as its corners in counterclockwise order
+	 * {latitude0, longitude0, latitude1, longitude1, ...}; the last
+	 * corner joins back to the first */
+	public List<double[]> polygons(int ring, double cellMiles) {
+		List<double[]> polygons = new ArrayList<double[]>();
+		int n = ringSize[ring];
+		if (n == 0) {
+			return polygons;
+		}
+		if (!(cellMiles > 0)) {
+			throw new IllegalArgumentException("The cell size must be more than zero.");
+		}
+		double radius = radii[ring];
+
+		// The reachable part of every street leaving a reachable intersection, as latitude/longitude segments
+		double[] segments = new double[64];
+		int count = 0;
+		for (int i = 0; i < n; ++i) {
+			int v = reached[i];
+			Intersection from = graph.intersection(v);
+			for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; ++k) {
+				Intersection to = graph.intersection(graph.targets[k]);
+				double fraction = (graph.weights[k] > 0) ? Math.min(1.0, (radius - distances[i]) / graph.weights[k]) : 1.0;
+				if (count + 4 > segments.length) {
+					segments = Arrays.copyOf(segments, 2 * segments.length);
+				}
+				segments[count++] = from.latitude;
+				segments[count++] = from.longitude;
+				segments[count++] = from.latitude + fraction * (to.latitude - from.latitude);
+				segments[count++] = from.longitude + fraction * (to.longitude - from.longitude);
+			}
+			if (graph.offsets[v] == graph.offsets[v + 1]) { // an intersection with no streets still counts
+				if (count + 4 > segments.length) {
+					segments = Arrays.copyOf(segments, 2 * segments.length);
+				}
+				segments[count++] = from.latitude;
+				segments[count++] = from.longitude;
+				segments[count++] = from.latitude;
+				segments[count++] = from.longitude;
+			}
+		}
+
+		// A grid over the segments with an empty cell all around, so the outside is connected
+		double minLatitude = Double.POSITIVE_INFINITY, maxLatitude = Double.NEGATIVE_INFINITY;
+		double minLongitude = Double.POSITIVE_INFINITY, maxLongitude = Double.NEGATIVE_INFINITY;
+		for (int s = 0; s < count; s += 2) {
+			minLatitude = Math.min(minLatitude, segments[s]);
+			maxLatitude = Math.max(maxLatitude, segments[s]);
+			minLongitude = Math.min(minLongitude, segments[s + 1]);
+			maxLongitude = Math.max(maxLongitude, segments[s + 1]);
+		}
+		double cellLatitude = cellMiles / SpatialIndex.MILES_PER_DEGREE;
+		double cellLongitude = cellLatitude / Math.max(0.01, Math.cos(Math.toRadians((minLatitude + maxLatitude) / 2)));
+		double baseLatitude = minLatitude - cellLatitude;
+		double baseLongitude = minLongitude - cellLongitude;
+		long rowCount = (long) ((maxLatitude - minLatitude) / cellLatitude) + 3;
+		long columnCount = (long) ((maxLongitude - minLongitude) / cellLongitude) + 3;
+		if (rowCount * columnCount > MAX_CELLS) {
+			throw new IllegalArgumentException("Cells of " + cellMiles + " miles are too small for a radius of " + radius + " miles.");
+		}
+		int rows = (int) rowCount;
+		int columns = (int) columnCount;
+
+		// Fill in every cell a segment crosses, sampling each at least twice per cell
+		boolean[] filled = new boolean[rows * columns];
+		for (int s = 0; s < count; s += 4) {
+			double r0 = (segments[s] - baseLatitude) / cellLatitude;
+			double c0 = (segments[s + 1] - baseLongitude) / cellLongitude;
+			double r1 = (segments[s + 2] - baseLatitude) / cellLatitude;
+			double c1 = (segments[s + 3] - baseLongitude) / cellLongitude;
+			int steps = (int) Math.ceil(2 * Math.max(Math.abs(r1 - r0), Math.abs(c1 - c0)));
+			for (int t = 0; t <= steps; ++t) {
+				double along = (steps == 0) ? 0 : (double) t / steps;
+				int r = Math.max(1, Math.min(rows - 2, (int) (r0 + along * (r1 - r0))));		// (rounding must not reach the margin)
+				int c = Math.max(1, Math.min(columns - 2, (int) (c0 + along * (c1 - c0))));
+				filled[r * columns + c] = true;
+			}
+		}
+		fillHoles(filled, rows, columns);
+
+		/* Each side of a filled cell facing an empty one is a boundary
+		 * step, pointed so the filled cell is on its left. Steps start at
+		 * grid corners (rows + 1 by columns + 1), and bit d of corner[]
+		 * is set for a step going east (0), north (1), west (2) or south (3) */
+		int cornerColumns = columns + 1;
+		byte[] corner = new byte[(rows + 1) * cornerColumns];
+		for (int r = 1; r < rows - 1; ++r) {
+			for (int c = 1; c < columns - 1; ++c) {
+				if (!filled[r * columns + c]) {
+					continue;
+				}
+				if (!filled[(r - 1) * columns + c]) {
+					corner[r * cornerColumns + c] |= 1;							// bottom side, going east
+				}
+				if (!filled[r * columns + c + 1]) {
+					corner[r * cornerColumns + c + 1] |= 2;						// right side, going north
+				}
+				if (!filled[(r + 1) * columns + c]) {
+					corner[(r + 1) * cornerColumns + c + 1] |= 4;				// top side, going west
+				}
+				if (!filled[r * columns + c - 1]) {
+					corner[(r + 1) * cornerColumns + c] |= 8;					// left side, going south
+				}
+			}
+		}
+
+		/* Follow the steps around each patch, turning left first where two
+		 * patches touch at a corner so they are traced separately, and
+		 * keeping only the corners where the outline turns */
+		int[] rowStep = {0, 1, 0, -1};
+		int[] columnStep = {1, 0, -1, 0};
+		for (int start = 0; start < corner.length; ++start) {
+			while (corner[start] != 0) { // (twice where two patches touch at the start)
+				double[] outline = new double[16];
+				int size = 0;
+				int at = start;
+				int direction = Integer.numberOfTrailingZeros(corner[start]);
+				int previous = -1;
+				do {
+					if (direction != previous) {
+						if (size + 2 > outline.length) {
+							outline = Arrays.copyOf(outline, 2 * outline.length);
+						}
+						outline[size++] = baseLatitude + (at / cornerColumns) * cellLatitude;
+						outline[size++] = baseLongitude + (at % cornerColumns) * cellLongitude;
+					}
+					corner[at] &= ~(1 << direction);
+					at += rowStep[direction] * cornerColumns + columnStep[direction];
+					previous = direction;
+					for (int turn : new int[] {1, 0, 3}) {
+						if ((corner[at] & (1 << ((previous + turn) & 3))) != 0) {
+							direction = (previous + turn) & 3;
+							break;
+						}
+					}
+				} while (at != start);
+				polygons.add(Arrays.copyOf(outline, size));
+			}
+		}
+		return polygons;
+	}
+
+	// Fills every empty cell that cannot be reached from the grid's edge through other empty cells
+	private static void fillHoles(boolean[] filled, int rows, int columns) {
+		boolean[] outside = new boolean[filled.length];
+		int[] stack = new int[filled.length];
+		int top = 0;
+		stack[top++] = 0;
+		outside[0] = true;
+		while (top > 0) {
+			int cell = stack[--top];
+			int r = cell / columns;
+			int c = cell % columns;
+			int[] neighbours = {
+				(r > 0) ? cell - columns : -1, (r + 1 < rows) ? cell + columns : -1,
+				(c > 0) ? cell - 1 : -1, (c + 1 < columns) ? cell + 1 : -1
+			};
+			for (int next : neighbours) {
+				if (next >= 0 && !filled[next] && !outside[next]) {
+					outside[next] = true;
+					stack[top++] = next;
+				}
+			}
+		}
+		for (int cell = 0; cell < filled.length; ++cell) {
+			filled[cell] = !outside[cell];
+		}
+	}
+
+	/* Writes the polygons of every ring of every isochrone as a GeoJSON
+	 * FeatureCollection, one MultiPolygon feature per ring (largest ring
+	 * first, so smaller ones draw on top) */
+	public static void writeGeoJson(Isochrone[] isochrones, double cellMiles, Writer out) throws IOException {
+		out.write("{\"type\":\"FeatureCollection\",\"features\":[");
+		boolean first = true;
+		StringBuilder feature = new StringBuilder();
+		for (Isochrone isochrone : isochrones) {
+			for (int ring = isochrone.rings() - 1; ring >= 0; --ring) {
+				feature.setLength(0);
+				feature.append(first ? "\n" : ",\n");
+				first = false;
+				feature.append("{\"type\":\"Feature\",\"properties\":{\"origin\":\"")
+						.append(isochrone.graph.intersection(isochrone.origin).title.replace("\\", "\\\\").replace("\"", "\\\""))
+						.append("\",\"radius\":").append(isochrone.radius(ring)).append(",\"intersections\":").append(isochrone.size(ring))
+						.append("},\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":[");
+				List<double[]> polygons = isochrone.polygons(ring, cellMiles);
+				for (int p = 0; p < polygons.size(); ++p) {
+					double[] outline = polygons.get(p);
+					feature.append((p > 0) ? ",[[" : "[[");
+					for (int i = 0; i <= outline.length; i += 2) {
+						int j = i % outline.length; // GeoJSON repeats the first corner at the end
+						feature.append((i > 0) ? ",[" : "[").append(outline[j + 1]).append(',').append(outline[j]).append(']');
+					}
+					feature.append("]]");
+				}
+				feature.append("]}}");
+				out.append(feature);
+			}
+		}
+		out.write("\n]}\n");
+	}
+
+	public static void main(String[] args) throws IOException {
+		UndirectedGraph graph = new UndirectedGraph(new File(args[0]));
+		String[] radiusList = args[1].split(",");
+		double[] radii = new double[radiusList.length];
+		for (int r = 0; r < radii.length; ++r) {
+			radii[r] = Double.parseDouble(radiusList[r]);
+		}
+		double cellMiles = Double.parseDouble(args[2]);
+		String[] origins = Arrays.copyOfRange(args, 3, args.length);
+
+		long start = System.nanoTime();
+		Isochrone[] isochrones = compute(graph, origins, radii);
+		long searchNanos = System.nanoTime() - start;
+		long settled = 0;
+		for (Isochrone isochrone : isochrones) {
+			settled += isochrone.size();
+		}
+		System.err.printf("%d origins searched in %.1f ms, settling %.1f of %d intersections each\n",
+				origins.length, searchNanos / 1e6, (double) settled / Math.max(1, origins.length), graph.V());
+		for (int i = 0; i < isochrones.length; ++i) {
+			for (int ring = 0; ring < isochrones[i].rings(); ++ring) {
+				System.err.printf("\t%s within %.4f miles: %d intersections\n", origins[i], isochrones[i].radius(ring), isochrones[i].size(ring));
+			}
+		}
+
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+		writeGeoJson(isochrones, cellMiles, out);
+		out.flush();
+	}
+}
@@ -0,0 +1,290 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/* Precomputed distances from a handful of "landmark" intersections to
+ * every intersection, used by AStarShortestPath for ALT routing (A*,
+ * Landmarks, Triangle inequality).
+ *
+ * For any landmark L the triangle inequality gives
+ * d(v, t) >= |d(L, t) - d(L, v)|, so the largest of these over all
+ * landmarks is a lower bound on the distance still left to the end. A
+ * landmark "behind" the end as seen from v makes the bound nearly
+ * exact, so it is far tighter than the great-circle distance on maps
+ * with winding roads, rivers or sparse bridges.
+ *
+ * Landmarks are picked by the farthest strategy: each one is the
+ * intersection farthest from all landmarks picked so far, which spreads
+ * them around the edge of the map. Picking only needs the
+ * distance to the nearest landmark, so it is done with one search per
+ * landmark that stops wherever it cannot improve that distance. The full
+ * distance tables are then filled by one Dijkstra search per landmark,
+ * run in parallel across cores.
+ *
+ * Distances are stored as floats, landmarks of one intersection side by
+ * side, which halves the memory of doubles and keeps the values one
+ * bound needs in the same cache line. Bounds are reduced by the largest
+ * possible float rounding so they never overestimate. */
+public class LandmarkTable {
+
+	public static final int DEFAULT_LANDMARKS = 16;		// landmarks used when no count is given
+
+	protected static final int MAGIC = 0x534C4D31;		// "SLM1"
+	protected static final int VERSION = 1;				// bumped whenever the file layout changes
+
+	private static final double FLOAT_SLACK = 1.0 / (1 << 22);	// bound on relative rounding of a double stored as a float, with margin
+
+	protected int V;					// number of intersections of the graph
+	protected int E;					// number of edges of the graph
+	protected long version;				// LiveGraph version of the graph (0 if loaded from a file)
+	protected int[] landmarks;			// intersection numbers of the landmarks
+	protected float[] distance;			// distance[v * landmarks.length + i] is the distance from landmark i to v
+	protected long preprocessingMillis;	// time taken to pick landmarks and fill the tables
+
+	// Use build() or load() to create instances
+	private LandmarkTable() {
+	}
+
+	/* Picks k landmarks of the graph by the farthest strategy and computes
+	 * the distances from each of them to every intersection */
+	public static LandmarkTable build(UndirectedGraph graph, int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("At least one landmark is needed.");
+		}
+		long start = System.currentTimeMillis();
+		LandmarkTable table = new LandmarkTable();
+		table.V = graph.V();
+		table.E = graph.E();
+		table.version = graph.version();
+		table.landmarks = pickFarthest(graph, Math.min(k, graph.V()));
+
+		// One full search per landmark, each filling its own column of the table
+		int K = table.landmarks.length;
+		if (cells(table.V, K) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(K + " landmarks of " + table.V + " intersections are more distances than one table can hold.");
+		}
+		table.distance = new float[table.V * K];
+		IntStream.range(0, K).parallel().forEach(i -> {
+			DijkstraShortestPath search = new DijkstraShortestPath(graph, graph.intersection(table.landmarks[i]).title);
+			for (int v = 0; v < table.V; ++v) {
+				table.distance[v * K + i] = (float) search.distanceTo[v];
+			}
+		});
+
+		table.preprocessingMillis = System.currentTimeMillis() - start;
+		return table;
+	}
+
+	/* Returns up to k landmarks, each the intersection farthest from the
+	 * ones before it. A part of the map no landmark reaches yet comes
+	 * first, starting with the largest, and gets the intersection farthest
+	 * from one of its own; parts smaller than V/k intersections (other
+	 * than the largest) are skipped so islands do not use up landmarks */
+	private static int[] pickFarthest(UndirectedGraph graph, int k) {
+		int V = graph.V();
+		int[] component = new int[V];
+		int[] size = components(graph, component);
+		boolean[] eligible = new boolean[size.length];
+		int largest = 0;
+		for (int c = 0; c < size.length; ++c) {
+			eligible[c] = (long) size[c] * k >= V;
+			if (size[c] > size[largest]) {
+				largest = c;
+			}
+		}
+		eligible[largest] = true;
+
+		double[] nearest = new double[V];
+		double[] scratch = new double[V];
+		Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+		DoubleIndexMinPriorityQueue pq = new DoubleIndexMinPriorityQueue(V);
+
+		int[] picked = new int[k];
+		int count = 0;
+		while (count < k) {
+
+			// Unreached parts beat reached ones, larger parts beat smaller ones
+			int next = -1;
+			for (int v = 0; v < V; ++v) {
+				if (!eligible[component[v]] || nearest[v] == 0.0) {
+					continue;
+				}
+				if (next == -1 || nearest[v] > nearest[next]
+						|| (nearest[v] == Double.POSITIVE_INFINITY && nearest[next] == Double.POSITIVE_INFINITY
+							&& size[component[v]] > size[component[next]])) {
+					next = v;
+				}
+			}
+			if (next == -1) {
+				break;
+			}
+
+			// In a part with no landmark yet, move to the far edge of it
+			if (nearest[next] == Double.POSITIVE_INFINITY) {
+				Arrays.fill(scratch, Double.POSITIVE_INFINITY);
+				grow(graph, next, scratch, pq);
+				for (int v = 0; v < V; ++v) {
+					if (scratch[v] != Double.POSITIVE_INFINITY && scratch[v] > scratch[next]) {
+						next = v;
+					}
+				}
+			}
+
+			picked[count++] = next;
+			grow(graph, next, nearest, pq);
+		}
+		return Arrays.copyOf(picked, count);
+	}
+
+	/* Labels every intersection with the number of its connected part
+	 * of the map, returning the size of each part */
+	private static int[] components(UndirectedGraph graph, int[] component) {
+		Arrays.fill(component, -1);
+		int[] size = new int[16];
+		int[] stack = new int[graph.V()];
+		int count = 0;
+		for (int s = 0; s < graph.V(); ++s) {
+			if (component[s] != -1) {
+				continue;
+			}
+			if (count == size.length) {
+				size = Arrays.copyOf(size, 2 * count);
+			}
+			int top = 0;
+			stack[top++] = s;
+			component[s] = count;
+			while (top > 0) {
+				int v = stack[--top];
+				++size[count];
+				for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; ++k) {
+					int w = graph.targets[k];
+					if (component[w] == -1) {
+						component[w] = count;
+						stack[top++] = w;
+					}
+				}
+			}
+			++count;
+		}
+		return Arrays.copyOf(size, count);
+	}
+
+	/* Lowers nearest[] to the distance from source wherever that is
+	 * smaller, without searching past intersections it does not improve */
+	private static void grow(UndirectedGraph graph, int source, double[] nearest, DoubleIndexMinPriorityQueue pq) {
+		nearest[source] = 0.0;
+		pq.insert(source, 0.0);
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; ++k) {
+				int w = graph.targets[k];
+				double newDistance = nearest[v] + graph.weights[k];
+				if (newDistance < nearest[w]) {
+					nearest[w] = newDistance;
+					if (pq.contains(w)) {
+						pq.decreaseKey(w, newDistance);
+					}
+					else {
+						pq.insert(w, newDistance);
+					}
+				}
+			}
+		}
+	}
+
+	/* Returns a lower bound on the distance between intersections v and t:
+	 * infinity if some landmark reaches exactly one of them (so they are
+	 * not connected), otherwise the best triangle inequality bound */
+	public double lowerBound(int v, int t) {
+		int K = landmarks.length;
+		int fromV = v * K;
+		int fromT = t * K;
+		double best = 0.0;
+		for (int i = 0; i < K; ++i) {
+			float dv = distance[fromV + i];
+			float dt = distance[fromT + i];
+			if (dv == Float.POSITIVE_INFINITY || dt == Float.POSITIVE_INFINITY) {
+				if (dv != dt) {
+					return Double.POSITIVE_INFINITY;
+				}
+				continue;
+			}
+			double bound = Math.abs((double) dt - dv) - FLOAT_SLACK * ((double) dt + dv);
+			if (bound > best) {
+				best = bound;
+			}
+		}
+		return best;
+	}
+
+	public int landmarks() { return landmarks.length; }					// Returns number of landmarks
+	public int landmark(int i) { return landmarks[i]; }					// Returns intersection number of landmark i
+	public long memoryBytes() { return 4L * distance.length; }			// Returns size of the distance tables in bytes
+	public long preprocessingMillis() { return preprocessingMillis; }	// Returns time taken by build()
+
+	/* Returns true if these tables were computed for the given graph: same
+	 * size and same LiveGraph version. Distances of another version are not
+	 * lower bounds on this one (an edit may have lengthened a street) */
+	public boolean describes(UndirectedGraph graph) {
+		return V == graph.V() && E == graph.E() && version == graph.version();
+	}
+
+	// Writes the tables to a file so they can be loaded instead of recomputed
+	public void save(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(V);
+			out.writeInt(E);
+			out.writeInt(landmarks.length);
+			for (int landmark : landmarks) {
+				out.writeInt(landmark);
+			}
+			for (float d : distance) {
+				out.writeFloat(d);
+			}
+		}
+	}
+
+	/* Loads tables saved by save(), checking that they were
+	 * computed for a graph of the same size as the one given */
+	public static LandmarkTable load(File file, UndirectedGraph graph) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file.getName() + " is not a landmark table.");
+			}
+			if (in.readInt() != VERSION) {
+				throw new IOException(file.getName() + " was written by a different version.");
+			}
+			LandmarkTable table = new LandmarkTable();
+			table.V = in.readInt();
+			table.E = in.readInt();
+			if (table.V != graph.V() || table.E != graph.E()) {
+				throw new IOException(file.getName() + " was built for a different map.");
+			}
+			table.version = graph.version();
+			int K = in.readInt();
+			if (K < 1 || cells(table.V, K) > Integer.MAX_VALUE) {
+				throw new IOException(file.getName() + " does not hold a usable number of landmarks (" + K + ").");
+			}
+			table.landmarks = new int[K];
+			for (int i = 0; i < table.landmarks.length; ++i) {
+				table.landmarks[i] = in.readInt();
+			}
+			table.distance = new float[table.V * K];
+			for (int i = 0; i < table.distance.length; ++i) {
+				table.distance[i] = in.readFloat();
+			}
+			return table;
+		}
+	}
+
+	// Returns the number of distances in a table of K landmarks over V intersections, without overflowing
+	private static long cells(int V, int K) {
+		return (long) V * K;
+	}
+}
@@ -1,7 +1,9 @@
 /* Code & Commentary by Grayson Westfall */
 
-/* LinkedList class that gets extended to create the stack of StreetEdges 
- * and used in the implementation of the graph's hash table of vertices */
+package streetmapping;
+
+/* LinkedList class that gets extended
+ * to create the stack of StreetEdges */
 public class LinkedList<T> {
 	
 	protected class Node {
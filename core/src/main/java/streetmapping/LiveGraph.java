@@ -0,0 +1,420 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/* A map that can change while it is being used: intersections and streets
+ * can be added or removed and street weights changed without reloading
+ * the map file.
+ *
+ * Every version of the map is an ordinary UndirectedGraph that never
+ * changes once published, so all the existing searches work on it as
+ * they are. A reader calls snapshot() once and keeps using that graph for
+ * as long as it needs a consistent view, no matter what writers do in the
+ * meantime; an old version is freed by the garbage collector once the last
+ * reader lets go of it.
+ *
+ * Writers collect changes in an Edit and publish() them all at once. The
+ * new version is built copy-on-write beside the current one (only the
+ * intersections and streets that changed get new objects; the rest are
+ * shared) and then swapped in with a single atomic reference update, so
+ * readers see either none or all of an edit. Publishing still copies
+ * the CSR arrays, mostly in large blocks (about a tenth of a second for a
+ * million intersections, against seconds to reload the file), so busy
+ * writers should batch many changes into one edit. Removing an
+ * intersection is slower: it scans every street and packs the arrays
+ * from scratch.
+ *
+ * Numbers stay dense in every version: removing a street or intersection
+ * moves the last one into its number. Titles are the lasting names for
+ * intersections, and StreetEdge objects identify streets: an edit naming
+ * a street that has been removed or changed since it was read fails with
+ * ConcurrentModificationException when published, and nothing is applied.
+ * Structures built for one version (contraction hierarchies, landmark
+ * tables, caches) describe only that version.
+ *
+ * Every version keeps the invariant the loader starts with: no street is
+ * shorter than the great-circle distance between its two intersections.
+ * AStarShortestPath uses that distance as its lower bound, so a weight
+ * below it would make A* return wrong routes without any sign of it;
+ * setWeight() can lengthen a street (traffic, a detour) but an edit
+ * that would shorten one below the straight line is rejected when
+ * published */
+public class LiveGraph {
+
+	protected final AtomicReference<UndirectedGraph> current;	// the version readers are given
+
+	// Constructor that starts from an already loaded graph
+	public LiveGraph(UndirectedGraph graph) {
+		current = new AtomicReference<UndirectedGraph>(graph);
+	}
+
+	public UndirectedGraph snapshot() { return current.get(); }		// Returns the current version, which never changes
+	public long version() { return current.get().version; }			// Returns the number of edits published so far
+	public Edit edit() { return new Edit(); }						// Starts a new batch of changes
+
+	/* A batch of changes, applied in the order they were made when it is
+	 * published. Validation happens at publish time against the version
+	 * current then; if any change is invalid nothing is published */
+	public class Edit {
+
+		private final ArrayList<Consumer<Draft>> changes = new ArrayList<Consumer<Draft>>();
+
+		// Adds an intersection with a new title
+		public void addIntersection(String title, double latitude, double longitude) {
+			changes.add(draft -> draft.addIntersection(title, latitude, longitude));
+		}
+
+		// Removes an intersection along with every street touching it
+		public void removeIntersection(String title) {
+			changes.add(draft -> draft.removeIntersection(title));
+		}
+
+		// Adds a street between two titled intersections, weighted by the distance between them
+		public void addStreet(String edgeName, String title1, String title2) {
+			changes.add(draft -> draft.addStreet(edgeName, title1, title2));
+		}
+
+		// Removes a street read from an earlier snapshot
+		public void removeStreet(StreetEdge street) {
+			changes.add(draft -> draft.removeStreet(street));
+		}
+
+		/* Changes the weight of a street read from an earlier snapshot. The
+		 * weight may not be less than the great-circle distance between the
+		 * street's intersections (checked when published) */
+		public void setWeight(StreetEdge street, double weight) {
+			if (!(weight >= 0.0) || Double.isInfinite(weight)) {
+				throw new IllegalArgumentException("Street weights must be finite and non-negative.");
+			}
+			changes.add(draft -> draft.setWeight(street, weight));
+		}
+
+		public int size() { return changes.size(); }	// Returns the number of changes in the batch
+
+		/* Applies every change to a copy of the current version and makes
+		 * the copy current, returning it. Writers publish one at a time */
+		public UndirectedGraph publish() {
+			synchronized (LiveGraph.this) {
+				Draft draft = new Draft(current.get());
+				for (Consumer<Draft> change : changes) {
+					change.accept(draft);
+				}
+				UndirectedGraph next = draft.build();
+				current.set(next);
+				return next;
+			}
+		}
+	}
+
+	/* The next version while an edit is applied. Intersections and streets
+	 * shared with the base version are never changed; the first change to
+	 * one replaces it with a private copy (remembered in copies so later
+	 * changes naming the original find it), and private copies are changed
+	 * in place since no reader can see them yet */
+	private static class Draft {
+		UndirectedGraph base;
+		Intersection[] vertices;
+		StreetEdge[] edgeList;
+		TitleIndex titles;
+		int V;
+		int E;
+		IdentityHashMap<Object, Object> copies = new IdentityHashMap<Object, Object>();	// shared object -> its private copy
+		IdentityHashMap<Object, Boolean> fresh = new IdentityHashMap<Object, Boolean>();	// objects created by this draft
+		boolean verticesMoved = false;	// true once some intersection got a new number
+		boolean verticesRemoved = false;	// true once some intersection was removed
+
+		Draft(UndirectedGraph base) {
+			this.base = base;
+			vertices = base.vertices.clone();
+			edgeList = base.edgeList.clone();
+			titles = base.titles.copy();
+			V = base.V;
+			E = base.E;
+		}
+
+		void addIntersection(String title, double latitude, double longitude) {
+			if (titles.get(title) >= 0) {
+				throw new IllegalArgumentException("An intersection named " + title + " already exists.");
+			}
+			if (V == vertices.length) {
+				vertices = Arrays.copyOf(vertices, Math.max(16, 2 * V));
+			}
+			Intersection inter = new Intersection(title, latitude, longitude, V);
+			fresh.put(inter, Boolean.TRUE);
+			vertices[V] = inter;
+			titles.put(title, V);
+			++V;
+		}
+
+		void removeIntersection(String title) {
+			int x = vertexNo(title);
+			Intersection inter = vertices[x];
+
+			// Every street touching it goes first
+			for (int e = E - 1; e >= 0; --e) {
+				if (endpoint(edgeList[e].v) == inter || endpoint(edgeList[e].w) == inter) {
+					removeEdgeAt(e);
+				}
+			}
+
+			// The last intersection takes over its number
+			verticesRemoved = true;
+			titles.remove(title);
+			--V;
+			if (x != V) {
+				Intersection last = privateVertex(V);
+				last.intersectionNo = x;
+				vertices[x] = last;
+				titles.put(last.title, x);
+				verticesMoved = true;
+			}
+			vertices[V] = null;
+		}
+
+		void addStreet(String edgeName, String title1, String title2) {
+			Intersection inter1 = vertices[vertexNo(title1)];
+			Intersection inter2 = vertices[vertexNo(title2)];
+			double weight = UndirectedGraph.calcDistanceMiles(inter1.latitude, inter1.longitude, inter2.latitude, inter2.longitude);
+			if (E == edgeList.length) {
+				edgeList = Arrays.copyOf(edgeList, Math.max(16, 2 * E));
+			}
+			StreetEdge street = new StreetEdge(edgeName, inter1, inter2, weight, E);
+			fresh.put(street, Boolean.TRUE);
+			edgeList[E++] = street;
+		}
+
+		void removeStreet(StreetEdge street) {
+			removeEdgeAt(edgeNo(street));
+		}
+
+		void setWeight(StreetEdge street, double weight) {
+			int e = edgeNo(street);
+			Intersection v = endpoint(edgeList[e].v);
+			Intersection w = endpoint(edgeList[e].w);
+			double straightLine = UndirectedGraph.calcDistanceMiles(v.latitude, v.longitude, w.latitude, w.longitude);
+			if (weight < straightLine) {
+				throw new IllegalArgumentException("Street " + street.edgeName + " cannot be shorter than the "
+						+ straightLine + " miles between its intersections.");
+			}
+			privateEdge(e).weight = weight;
+		}
+
+		// Removes the street numbered e, moving the last street into its number
+		private void removeEdgeAt(int e) {
+			--E;
+			if (e != E) {
+				StreetEdge last = privateEdge(E);
+				last.edgeNo = e;
+				edgeList[e] = last;
+			}
+			edgeList[E] = null;
+		}
+
+		// Returns the number of the titled intersection in this draft
+		private int vertexNo(String title) {
+			int x = titles.get(title);
+			if (x < 0) {
+				throw new IllegalArgumentException("No intersection named " + title + ".");
+			}
+			return x;
+		}
+
+		/* Returns the number of a street read from some snapshot, throwing
+		 * if it has been removed or changed since that snapshot */
+		private int edgeNo(StreetEdge street) {
+			Object seen = copies.getOrDefault(street, street);
+			StreetEdge now = (StreetEdge) seen;
+			if (now.edgeNo < E && edgeList[now.edgeNo] == now) {
+				return now.edgeNo;
+			}
+			throw new ConcurrentModificationException("Street " + street.edgeName + " was removed or changed since it was read.");
+		}
+
+		// Returns the current form of an intersection an edge points to
+		private Intersection endpoint(Intersection inter) {
+			return (Intersection) copies.getOrDefault(inter, inter);
+		}
+
+		// Returns intersection x, first replacing it with a private copy if it is shared
+		private Intersection privateVertex(int x) {
+			Intersection inter = vertices[x];
+			if (!fresh.containsKey(inter)) {
+				Intersection copy = new Intersection(inter.title, inter.latitude, inter.longitude, inter.intersectionNo);
+				fresh.put(copy, Boolean.TRUE);
+				copies.put(inter, copy);
+				vertices[x] = copy;
+				inter = copy;
+			}
+			return inter;
+		}
+
+		// Returns street e, first replacing it with a private copy if it is shared
+		private StreetEdge privateEdge(int e) {
+			StreetEdge street = edgeList[e];
+			if (!fresh.containsKey(street)) {
+				StreetEdge copy = new StreetEdge(street.edgeName, street.v, street.w, street.weight, street.edgeNo);
+				fresh.put(copy, Boolean.TRUE);
+				copies.put(street, copy);
+				edgeList[e] = copy;
+				street = copy;
+			}
+			return street;
+		}
+
+		// Turns the draft into the next published version
+		UndirectedGraph build() {
+
+			// Streets must point at the intersections' current objects
+			if (verticesMoved) {
+				for (int e = 0; e < E; ++e) {
+					StreetEdge street = edgeList[e];
+					if (copies.containsKey(street.v) || copies.containsKey(street.w)) {
+						street = privateEdge(e);
+						street.v = endpoint(street.v);
+						street.w = endpoint(street.w);
+					}
+				}
+			}
+
+			UndirectedGraph next = new UndirectedGraph();
+			next.V = V;
+			next.E = E;
+			next.vertices = Arrays.copyOf(vertices, V);
+			next.edgeList = Arrays.copyOf(edgeList, E);
+			next.titles = titles;
+			next.version = base.version + 1;
+			if (verticesRemoved) {
+				next.packAdjacency();
+			}
+			else {
+				packChanges(next);
+			}
+			return next;
+		}
+
+		/* Lays out the CSR arrays of the next version by copying the base
+		 * version's slices, which is much faster than packing from scratch.
+		 * Only valid while every intersection keeps its number. A street
+		 * number holding the same object in both versions is unchanged;
+		 * any other street number is changed (added, removed, moved or
+		 * reweighted), and only intersections touching a changed street
+		 * have their slices rebuilt. Runs of untouched intersections are
+		 * copied in single blocks */
+		private void packChanges(UndirectedGraph next) {
+			int baseE = base.E;
+			boolean[] dirty = new boolean[V];
+			for (int v = base.V; v < V; ++v) {
+				dirty[v] = true;
+			}
+
+			// Find the changed street numbers, and for each intersection the changed streets now touching it
+			long[] touching = new long[16];		// (intersection << 32 | street number) pairs
+			int count = 0;
+			for (int e = Math.max(E, baseE) - 1; e >= 0; --e) {
+				StreetEdge old = (e < baseE) ? base.edgeList[e] : null;
+				StreetEdge now = (e < E) ? edgeList[e] : null;
+				if (old == now) {
+					continue;
+				}
+				if (old != null) {
+					dirty[old.v.intersectionNo] = true;
+					dirty[old.w.intersectionNo] = true;
+				}
+				if (now != null) {
+					dirty[now.v.intersectionNo] = true;
+					dirty[now.w.intersectionNo] = true;
+					if (count + 2 > touching.length) {
+						touching = Arrays.copyOf(touching, 2 * touching.length);
+					}
+					touching[count++] = ((long) now.v.intersectionNo << 32) | e;
+					touching[count++] = ((long) now.w.intersectionNo << 32) | e;	// a loop takes two slots, as in packAdjacency()
+				}
+			}
+			Arrays.sort(touching, 0, count);
+
+			// Slice sizes: unchanged streets kept from the base slice, plus changed streets
+			int[] offsets = new int[V + 1];
+			for (int v = 0, t = 0; v < V; ++v) {
+				int size = 0;
+				if (v < base.V) {
+					if (!dirty[v]) {
+						size = base.offsets[v + 1] - base.offsets[v];
+					}
+					else {
+						for (int k = base.offsets[v]; k < base.offsets[v + 1]; ++k) {
+							if (unchanged(base.edgeIds[k])) {
+								++size;
+							}
+						}
+					}
+				}
+				while (t < count && (int) (touching[t] >>> 32) == v) {
+					++size;
+					++t;
+				}
+				offsets[v + 1] = offsets[v] + size;
+			}
+
+			int slots = offsets[V];
+			int[] targets = new int[slots];
+			double[] weights = new double[slots];
+			int[] edgeIds = new int[slots];
+			int v = 0;
+			int t = 0;
+			while (v < V) {
+
+				// A run of untouched intersections is one block in both versions
+				if (!dirty[v]) {
+					int end = v;
+					while (end < V && !dirty[end]) {
+						++end;
+					}
+					int from = base.offsets[v];
+					int length = base.offsets[end] - from;
+					System.arraycopy(base.targets, from, targets, offsets[v], length);
+					System.arraycopy(base.weights, from, weights, offsets[v], length);
+					System.arraycopy(base.edgeIds, from, edgeIds, offsets[v], length);
+					v = end;
+					continue;
+				}
+
+				int k = offsets[v];
+				if (v < base.V) {
+					for (int b = base.offsets[v]; b < base.offsets[v + 1]; ++b) {
+						if (unchanged(base.edgeIds[b])) {
+							targets[k] = base.targets[b];
+							weights[k] = base.weights[b];
+							edgeIds[k] = base.edgeIds[b];
+							++k;
+						}
+					}
+				}
+				for (; t < count && (int) (touching[t] >>> 32) == v; ++t) {
+					StreetEdge street = edgeList[(int) touching[t]];
+					targets[k] = (street.v.intersectionNo == v) ? street.w.intersectionNo : street.v.intersectionNo;
+					weights[k] = street.weight;
+					edgeIds[k] = street.edgeNo;
+					++k;
+				}
+				++v;
+			}
+
+			next.offsets = offsets;
+			next.targets = targets;
+			next.weights = weights;
+			next.edgeIds = edgeIds;
+		}
+
+		// Returns true if base street number e holds the same street in the draft
+		private boolean unchanged(int e) {
+			return e < E && edgeList[e] == base.edgeList[e];
+		}
+	}
+}
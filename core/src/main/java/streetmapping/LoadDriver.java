@@ -0,0 +1,139 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Tool for load testing a map (such as one written by MapGenerator):
+ * it loads the map through UndirectedGraph, reporting how long that took
+ * and how much heap the loaded graph holds, then replays a random mix of
+ * the program's two queries from a fixed number of threads at once:
+ *
+ * - directions between two random intersections, answered the same way
+ *   as [-directions] (BidirectionalDijkstra)
+ * - the minimum spanning tree (or forest), answered the same way as
+ *   [-meridianmap] (MapMST, or BoruvkaMST for big or unconnected maps)
+ *
+ * Each thread takes the next query as soon as it finishes the last, so
+ * exactly 'concurrency' queries are always running. A tenth as many
+ * queries again are run first as a warmup and not counted. The time of
+ * every counted query is kept, and the 50th, 99th and 99.9th percentile
+ * times are reported for each kind along with the throughput.
+ *
+ * Usage: java streetmapping.LoadDriver map_file [queries] [concurrency] [mst_percent] [seed] */
+public class LoadDriver {
+
+	private static final String[] KINDS = {"directions", "meridianmap"};
+	private static final int DIRECTIONS = 0;
+	private static final int MERIDIAN_MAP = 1;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		File file = new File(args[0]);
+		int queries = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+		int concurrency = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		double mstPercent = (args.length > 3) ? Double.parseDouble(args[3]) : 1.0;
+		long seed = (args.length > 4) ? Long.parseLong(args[4]) : 42;
+		if (queries < 1 || concurrency < 1) {
+			throw new IllegalArgumentException("There must be at least one query and one thread.");
+		}
+
+		// Load the map, measuring the heap it takes once everything else is collected
+		long heapBefore = usedHeap();
+		long start = System.nanoTime();
+		UndirectedGraph graph = new UndirectedGraph(file);
+		long loadNanos = System.nanoTime() - start;
+		long heapBytes = usedHeap() - heapBefore;
+		System.out.printf("Loaded %s: %d intersections, %d streets in %.1f ms (%.0f lines/sec)\n",
+				file.getName(), graph.V(), graph.E(), loadNanos / 1e6, graph.linesPerSecond());
+		System.out.printf("\tHeap: %.1f MB (%.0f bytes per intersection or street)\n",
+				heapBytes / 1048576.0, (double) heapBytes / Math.max(1, graph.V() + graph.E()));
+		if (graph.V() == 0) {
+			return;
+		}
+
+		// The whole workload is chosen up front so every run of the same seed replays the same queries
+		int warmup = Math.max(1, queries / 10);
+		int total = warmup + queries;
+		Random random = new Random(seed);
+		int[] kind = new int[total];
+		String[] from = new String[total];
+		String[] to = new String[total];
+		for (int q = 0; q < total; ++q) {
+			kind[q] = (random.nextDouble() * 100 < mstPercent) ? MERIDIAN_MAP : DIRECTIONS;
+			from[q] = graph.intersection(random.nextInt(graph.V())).title;
+			to[q] = graph.intersection(random.nextInt(graph.V())).title;
+		}
+
+		long[] latency = new long[total];
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger unreachable = new AtomicInteger();
+		long[] phaseStart = new long[1];
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+		for (int t = 0; t < concurrency; ++t) {
+			pool.execute(() -> {
+				for (int q = next.getAndIncrement(); q < total; q = next.getAndIncrement()) {
+					if (q == warmup) {
+						phaseStart[0] = System.nanoTime();
+					}
+					long began = System.nanoTime();
+					if (kind[q] == DIRECTIONS) {
+						if (new BidirectionalDijkstra(graph, from[q], to[q]).route() == null) {
+							unreachable.incrementAndGet();
+						}
+					}
+					else {
+						UndirectedGraph.spanningEdges(graph);
+					}
+					latency[q] = System.nanoTime() - began;
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		long wallNanos = System.nanoTime() - phaseStart[0];
+
+		System.out.printf("%d queries on %d threads (after %d warmup queries): %.1f ms, %.1f queries/sec\n",
+				queries, concurrency, warmup, wallNanos / 1e6, queries / (wallNanos / 1e9));
+		for (int k = 0; k < KINDS.length; ++k) {
+			long[] times = new long[queries];
+			int count = 0;
+			for (int q = warmup; q < total; ++q) {
+				if (kind[q] == k) {
+					times[count++] = latency[q];
+				}
+			}
+			if (count == 0) {
+				continue;
+			}
+			Arrays.sort(times, 0, count);
+			System.out.printf("\t%-12s %7d queries   p50 %9.3f ms   p99 %9.3f ms   p999 %9.3f ms   max %9.3f ms\n", KINDS[k], count,
+					percentile(times, count, 0.50) / 1e6, percentile(times, count, 0.99) / 1e6,
+					percentile(times, count, 0.999) / 1e6, times[count - 1] / 1e6);
+		}
+		if (unreachable.get() > 0) {
+			System.out.println("\t(" + unreachable.get() + " directions queries had no path)");
+		}
+		System.out.print(SearchMetrics.summary()); // (empty unless run with -Dstreetmapping.metrics=true)
+	}
+
+	// Returns the q-th quantile of the first count sorted times
+	private static long percentile(long[] sorted, int count, double q) {
+		int i = (int) Math.ceil(q * count) - 1;
+		return sorted[Math.max(0, Math.min(count - 1, i))];
+	}
+
+	// Returns the bytes of heap in use after collecting garbage
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int k = 0; k < 3; ++k) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
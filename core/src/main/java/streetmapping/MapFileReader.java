@@ -0,0 +1,264 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/* Streaming tokenizer for the map file format that reads the
+ * tab-separated i / r records straight out of a FileChannel.
+ * Each record is split in place inside the read buffer, so
+ * stepping through a file allocates nothing per line; only
+ * string() (for titles and names that must be kept) and the
+ * rare slow path of number() create objects */
+public class MapFileReader implements Closeable {
+
+	private static final int MAX_TOKENS = 8;				// most tokens a record may have
+	private static final int MAX_FAST_DIGITS = 15;			// digits that always fit exactly in a double
+
+	// Exact powers of ten used by the fast path of number()
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	protected FileChannel channel;							// channel the file is read from
+	protected byte[] bytes = new byte[1 << 16];				// backing array of the read buffer
+	protected ByteBuffer buffer = ByteBuffer.wrap(bytes);	// buffer the channel reads into
+	protected int position = 0;								// index of the next unread byte in bytes[]
+	protected int limit = 0;								// index one past the last valid byte in bytes[]
+	protected boolean endOfFile = false;					// true once the channel has no more data
+
+	protected int[] tokenStart = new int[MAX_TOKENS];		// tokenStart[t] is where token t begins in bytes[]
+	protected int[] tokenEnd = new int[MAX_TOKENS];			// tokenEnd[t] is one past where token t ends
+	protected int tokens = 0;								// number of tokens in the current record
+
+	protected long lineNo = 0;								// number of lines read so far
+	protected long startNanos;								// time the reader was opened
+
+	// Constructor that opens the file for reading
+	public MapFileReader(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		startNanos = System.nanoTime();
+	}
+
+	/* Advances to the next non-blank line and splits it into tokens
+	 * on tabs and spaces; returns false once the file is exhausted */
+	public boolean next() throws IOException {
+		while (true) {
+
+			// Find the end of the current line, refilling the buffer as needed
+			int end = position;
+			while (true) {
+				while (end < limit && bytes[end] != '\n') {
+					++end;
+				}
+				if (end < limit || endOfFile) {
+					break;
+				}
+				end -= position;
+				fill();
+				end += position;
+			}
+
+			// Nothing left at all
+			if (position == limit && endOfFile) {
+				return false;
+			}
+
+			++lineNo;
+			int lineEnd = end;
+			if (lineEnd > position && bytes[lineEnd - 1] == '\r') {
+				--lineEnd; // tolerate Windows line endings
+			}
+
+			tokenize(position, lineEnd);
+			position = Math.min(end + 1, limit);
+
+			if (tokens > 0) {
+				return true;
+			}
+		}
+	}
+
+	// Splits bytes[from, to) into tokens on tabs and spaces
+	private void tokenize(int from, int to) throws IOException {
+		tokens = 0;
+		int i = from;
+		while (i < to) {
+			while (i < to && (bytes[i] == '\t' || bytes[i] == ' ')) {
+				++i;
+			}
+			if (i == to) {
+				break;
+			}
+			if (tokens == MAX_TOKENS) {
+				throw malformed("too many fields");
+			}
+			tokenStart[tokens] = i;
+			while (i < to && bytes[i] != '\t' && bytes[i] != ' ') {
+				++i;
+			}
+			tokenEnd[tokens] = i;
+			++tokens;
+		}
+	}
+
+	/* Moves the unread part of the buffer to the front and reads
+	 * more data behind it, doubling the buffer if one line fills it */
+	private void fill() throws IOException {
+		int remaining = limit - position;
+		if (remaining == bytes.length) {
+			byte[] larger = new byte[bytes.length * 2];
+			System.arraycopy(bytes, position, larger, 0, remaining);
+			bytes = larger;
+			buffer = ByteBuffer.wrap(bytes);
+		}
+		else {
+			System.arraycopy(bytes, position, bytes, 0, remaining);
+		}
+		position = 0;
+		limit = remaining;
+
+		buffer.clear();
+		buffer.position(limit);
+		int read = channel.read(buffer);
+		if (read < 0) {
+			endOfFile = true;
+		}
+		else {
+			limit += read;
+		}
+	}
+
+	public int tokens() { return tokens; }		// Returns number of tokens in the current record
+	public long lineNumber() { return lineNo; }	// Returns number of the current line
+
+	// Returns true if token t is exactly the single character c
+	public boolean tokenIs(int t, char c) {
+		return tokenEnd[t] - tokenStart[t] == 1 && bytes[tokenStart[t]] == c;
+	}
+
+	// Decodes token t as a UTF-8 string
+	public String string(int t) {
+		return new String(bytes, tokenStart[t], tokenEnd[t] - tokenStart[t], StandardCharsets.UTF_8);
+	}
+
+	// Looks up token t in a title index without decoding it to a String
+	public int lookup(int t, TitleIndex index) {
+		return index.get(bytes, tokenStart[t], tokenEnd[t]);
+	}
+
+	/* Parses token t as a decimal number without allocating; values
+	 * with more digits or a larger exponent than a double can represent
+	 * exactly fall back to Double.parseDouble to keep correct rounding */
+	public double number(int t) throws IOException {
+		int i = tokenStart[t];
+		int end = tokenEnd[t];
+
+		boolean negative = false;
+		if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+			negative = bytes[i] == '-';
+			++i;
+		}
+
+		long mantissa = 0;  // digits read so far, ignoring the decimal point
+		int digits = 0;     // number of significant digits in mantissa
+		int scale = 0;      // power of ten the mantissa must be multiplied by
+		boolean anyDigits = false;
+		boolean exact = true;
+
+		// Integer part
+		while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+			if (digits < MAX_FAST_DIGITS) {
+				mantissa = mantissa * 10 + (bytes[i] - '0');
+				if (mantissa != 0) {
+					++digits;
+				}
+			}
+			else {
+				exact = false;
+			}
+			anyDigits = true;
+			++i;
+		}
+
+		// Fractional part
+		if (i < end && bytes[i] == '.') {
+			++i;
+			while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+				if (digits < MAX_FAST_DIGITS) {
+					mantissa = mantissa * 10 + (bytes[i] - '0');
+					if (mantissa != 0) {
+						++digits;
+					}
+					--scale;
+				}
+				else {
+					exact = false;
+				}
+				anyDigits = true;
+				++i;
+			}
+		}
+
+		if (!anyDigits) {
+			throw malformed("expected a number but found \"" + string(t) + "\"");
+		}
+
+		// Optional exponent
+		if (i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+			++i;
+			boolean negativeExponent = false;
+			if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+				negativeExponent = bytes[i] == '-';
+				++i;
+			}
+			if (i == end) {
+				throw malformed("expected a number but found \"" + string(t) + "\"");
+			}
+			int exponent = 0;
+			while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+				exponent = Math.min(exponent * 10 + (bytes[i] - '0'), 100000);
+				++i;
+			}
+			scale += negativeExponent ? -exponent : exponent;
+		}
+
+		if (i != end) {
+			throw malformed("expected a number but found \"" + string(t) + "\"");
+		}
+
+		// Slow path for anything the fast path could round differently
+		if (!exact || scale < -22 || scale > 22) {
+			try {
+				return Double.parseDouble(string(t));
+			}
+			catch (NumberFormatException excpt) {
+				throw malformed("expected a number but found \"" + string(t) + "\"");
+			}
+		}
+
+		double value = (scale < 0) ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+		return negative ? -value : value;
+	}
+
+	// Creates the exception used to report a bad record
+	public IOException malformed(String reason) {
+		return new IOException("Malformed map record on line " + lineNo + ": " + reason);
+	}
+
+	// Returns the average number of lines read per second since opening
+	public double linesPerSecond() {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		return (seconds > 0) ? lineNo / seconds : 0.0;
+	}
+
+	// Closes the underlying channel
+	public void close() throws IOException {
+		channel.close();
+	}
+}
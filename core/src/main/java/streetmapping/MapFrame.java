@@ -0,0 +1,465 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import javax.swing.*;
+import java.util.Arrays;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+
+// JFrame subclass to display the graphed map visually
+public class MapFrame extends JFrame {
+
+	protected static final int PADDING = 10;			// pixels left around the map when it is fitted to the frame
+	protected static final double ZOOM_STEP = 1.25;		// zoom factor per mouse wheel notch
+	protected static final int MAX_LEVEL = 14;			// finest simplified level of detail (2^14 cells across)
+
+	protected MapComponent mapComponent; // Has a personal JPanel
+
+	/* Class that defines the personal JPanel. Drawing happens in two layers,
+	 * each kept in an offscreen BufferedImage so that repainting (say, when
+	 * the window is uncovered) just copies the images:
+	 *
+	 * - The street network, redrawn only when the view changes.
+	 * - The highlighted route or tree in red on a transparent layer on top,
+	 *   also redrawn when the highlighted streets change (see highlight()),
+	 *   without touching the network layer.
+	 *
+	 * When zoomed in, only the streets near the visible part of the map are
+	 * drawn, found through the graph's SpatialIndex grid. When zoomed out so
+	 * far that many streets share each pixel, a simplified copy of the
+	 * network is drawn instead: every intersection is snapped to a grid
+	 * of cells one or two pixels wide, and streets that shrink to a point or
+	 * duplicate another are dropped. Each such level of detail is built the
+	 * first time it is needed.
+	 *
+	 * The mouse wheel zooms about the pointer, dragging pans (the cached
+	 * image is just shifted until the drag ends), and a double click fits
+	 * the whole map to the frame again */
+	protected class MapComponent extends JPanel {
+
+		protected double minX = Double.POSITIVE_INFINITY; // The minimum current longitude value
+		protected double minY = Double.POSITIVE_INFINITY; // The minimum current latitude value
+		protected double maxX = Double.NEGATIVE_INFINITY; // The maximum current longitude value
+		protected double maxY = Double.NEGATIVE_INFINITY; // The maximum current latitude value
+
+		/* coordinates[4e .. 4e+3] are {longitude1, latitude1, longitude2, latitude2} of
+		 * edge number e, shifted so the minimums are 0 (NaN for streets not drawn) */
+		protected double[] coordinates;
+		protected int[] highlightedStreets;		// edge numbers to draw in red
+		protected boolean[] isHighlighted;		// isHighlighted[e] is true if edge number e is in highlightedStreets
+		protected UndirectedGraph graph;		// graph being drawn, for its spatial index
+
+		protected boolean fitted = true;		// true until the user zooms or pans
+		protected double scale;					// pixels per unit of map coordinates
+		protected double centerX;				// map coordinates at the middle of the panel
+		protected double centerY;
+
+		protected BufferedImage network;		// cached drawing of the street network
+		protected BufferedImage overlay;		// cached drawing of the highlighted streets
+		protected boolean overlayStale = true;	// true if the highlighted streets changed since overlay was drawn
+		protected double networkScale;			// view the cached drawings were made for
+		protected double networkCenterX;
+		protected double networkCenterY;
+		protected boolean dragging = false;		// true while the map is being dragged
+		protected int dragX;					// pointer position at the last drag event
+		protected int dragY;
+
+		protected double[][] levels = new double[MAX_LEVEL + 1][];				// levels[L] is the network simplified to 2^L cells across, built on demand
+		protected double[][] highlightLevels = new double[MAX_LEVEL + 1][];		// the same for just the highlighted streets
+		protected int drawnLevel;				// level of detail the network was last drawn at (-1 for the real streets)
+		protected int[] visibleStreets;			// edge numbers near the view when the real streets were last drawn
+
+		// Constructor calls addStreets with the graph's edges and the edge numbers to draw in red
+		public MapComponent(UndirectedGraph graph, int[] highlightedEdges) {
+			this.graph = graph;
+			addStreets(graph);
+			setHighlighted(highlightedEdges);
+
+			MouseAdapter mouse = new MouseAdapter() {
+				@Override
+				public void mousePressed(MouseEvent event) {
+					dragX = event.getX();
+					dragY = event.getY();
+				}
+
+				@Override
+				public void mouseDragged(MouseEvent event) {
+					dragging = true;
+					fitted = false;
+					centerX -= (event.getX() - dragX) / scale;
+					centerY += (event.getY() - dragY) / scale;
+					dragX = event.getX();
+					dragY = event.getY();
+					repaint();
+				}
+
+				@Override
+				public void mouseReleased(MouseEvent event) {
+					if (dragging) {
+						dragging = false;
+						repaint();
+					}
+				}
+
+				@Override
+				public void mouseClicked(MouseEvent event) {
+					if (event.getClickCount() == 2) {
+						fitted = true;
+						repaint();
+					}
+				}
+
+				@Override
+				public void mouseWheelMoved(MouseWheelEvent event) {
+					zoom(event.getX(), event.getY(), Math.pow(ZOOM_STEP, -event.getPreciseWheelRotation()));
+				}
+			};
+			addMouseListener(mouse);
+			addMouseMotionListener(mouse);
+			addMouseWheelListener(mouse);
+		}
+
+		// Replaces the streets drawn in red, redrawing only the highlighted layer
+		public void highlight(int[] highlightedEdges) {
+			setHighlighted(highlightedEdges);
+			overlayStale = true;
+			repaint();
+		}
+
+		private void setHighlighted(int[] highlightedEdges) {
+			highlightedStreets = highlightedEdges.clone();
+			isHighlighted = new boolean[coordinates.length / 4];
+			for (int e : highlightedStreets) {
+				isHighlighted[e] = true;
+			}
+			highlightLevels = new double[MAX_LEVEL + 1][];
+		}
+
+		@Override
+		// paintComponent redraws whichever cached layers are out of date, then copies both
+		public void paintComponent(Graphics g) {
+			if (fitted) {
+				fit();
+			}
+			if (!dragging) {
+				if (network == null || network.getWidth() != Math.max(1, getWidth()) || network.getHeight() != Math.max(1, getHeight())
+						|| networkScale != scale || networkCenterX != centerX || networkCenterY != centerY) {
+					drawStreets();
+					overlayStale = true;
+				}
+				if (overlayStale) {
+					drawHighlights();
+				}
+			}
+
+			// While dragging, the cached images are shifted by how far the view has moved
+			int shiftX = (int) Math.round((networkCenterX - centerX) * scale);
+			int shiftY = (int) Math.round((centerY - networkCenterY) * scale);
+			if (shiftX != 0 || shiftY != 0) {
+				g.setColor(getBackground());
+				g.fillRect(0, 0, getWidth(), getHeight());
+			}
+			g.drawImage(network, shiftX, shiftY, null);
+			g.drawImage(overlay, shiftX, shiftY, null);
+		}
+
+		// Fits the whole map in the panel, leaving PADDING pixels around it
+		protected void fit() {
+			double mapWidthRatio = (getWidth() - PADDING) / maxX;	// create ratio of image according to width of frame
+			double mapHeightRatio = (getHeight() - PADDING) / maxY; // create ratio of image according to height of frame
+
+			/* Take minimum of the two ratios to scale them equally
+			 * and still fit the entire image in the frame */
+			scale = Math.min(mapWidthRatio, mapHeightRatio);
+			if (!(scale > 0.0) || Double.isInfinite(scale)) {
+				scale = 1.0; // a map with no extent (or an empty one) still needs some scale
+			}
+			centerX = maxX / 2;
+			centerY = maxY / 2;
+		}
+
+		// Zooms by the given factor, keeping the map point under the pointer in place
+		protected void zoom(int pointerX, int pointerY, double factor) {
+			if (fitted) {
+				fit();
+			}
+			fitted = false;
+			double x = centerX + (pointerX - getWidth() / 2.0) / scale;
+			double y = centerY - (pointerY - getHeight() / 2.0) / scale;
+			scale *= factor;
+			centerX = x - (pointerX - getWidth() / 2.0) / scale;
+			centerY = y + (pointerY - getHeight() / 2.0) / scale;
+			repaint();
+		}
+
+		/* Draws the street network into the cached image for the current
+		 * view, from a simplified level of detail if one is coarse enough
+		 * to matter and otherwise only the streets near the visible area */
+		protected void drawStreets() {
+			int width = Math.max(1, getWidth());
+			int height = Math.max(1, getHeight());
+			if (network == null || network.getWidth() != width || network.getHeight() != height) {
+				network = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			}
+			networkScale = scale;
+			networkCenterX = centerX;
+			networkCenterY = centerY;
+
+			Graphics2D g = network.createGraphics();
+			g.setColor(getBackground());
+			g.fillRect(0, 0, width, height);
+			g.setColor(Color.BLACK);
+
+			drawnLevel = levelOfDetail();
+			visibleStreets = null;
+			if (drawnLevel >= 0) {
+				drawLines(g, levels[drawnLevel]);
+			}
+			else {
+
+				// Map coordinates of the panel's corners, turned back into degrees for the grid
+				double left = centerX - (width / 2.0) / scale + minX;
+				double right = centerX + (width / 2.0) / scale + minX;
+				double bottom = centerY - (height / 2.0) / scale + minY;
+				double top = centerY + (height / 2.0) / scale + minY;
+				visibleStreets = graph.spatialIndex().streetsInBox(latitudeRevert(bottom), Math.toDegrees(left), latitudeRevert(top), Math.toDegrees(right));
+				for (int e : visibleStreets) {
+					drawStreet(g, coordinates, 4 * e);
+				}
+			}
+			g.dispose();
+		}
+
+		/* Draws the highlighted streets in red onto the cleared overlay, for the
+		 * same view as the network. A large highlighted set (a spanning tree)
+		 * is drawn at the network's level of detail, or limited to the streets
+		 * near the view */
+		protected void drawHighlights() {
+			if (overlay == null || overlay.getWidth() != network.getWidth() || overlay.getHeight() != network.getHeight()) {
+				overlay = new BufferedImage(network.getWidth(), network.getHeight(), BufferedImage.TYPE_INT_ARGB);
+			}
+			Graphics2D g = overlay.createGraphics();
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, overlay.getWidth(), overlay.getHeight());
+			g.setComposite(AlphaComposite.SrcOver);
+			g.setColor(Color.RED);
+			if (drawnLevel >= 0 && highlightedStreets.length > coordinates.length / 8) {
+				if (highlightLevels[drawnLevel] == null) {
+					highlightLevels[drawnLevel] = simplify(drawnLevel, highlightedStreets);
+				}
+				drawLines(g, highlightLevels[drawnLevel]);
+			}
+			else if (visibleStreets != null && visibleStreets.length < highlightedStreets.length) {
+				for (int e : visibleStreets) {
+					if (isHighlighted[e]) {
+						drawStreet(g, coordinates, 4 * e);
+					}
+				}
+			}
+			else {
+				for (int e : highlightedStreets) {
+					drawStreet(g, coordinates, 4 * e);
+				}
+			}
+			g.dispose();
+			overlayStale = false;
+		}
+
+		/* Returns the coarsest level of detail whose cells are at most two
+		 * pixels wide, or -1 if drawing the real streets would be about as
+		 * cheap */
+		protected int levelOfDetail() {
+			double extent = Math.max(maxX, maxY);
+			int level = 0;
+			while (level <= MAX_LEVEL && (2 << level) < extent * scale) {
+				++level;
+			}
+
+			// With more cells than streets, snapping to cells cannot merge many streets
+			int streets = coordinates.length / 4;
+			if (level > MAX_LEVEL || (1L << (2 * level)) > streets) {
+				return -1;
+			}
+			if (levels[level] == null) {
+				levels[level] = simplify(level, null);
+			}
+
+			// A level that barely simplifies anything is not worth its memory
+			return (levels[level].length < coordinates.length / 2) ? level : -1;
+		}
+
+		/* Snaps the ends of the given streets (all of them if null) to a grid
+		 * 2^level cells across and keeps one copy of each street that still
+		 * joins two different cells */
+		protected double[] simplify(int level, int[] streets) {
+			int cells = 1 << level;
+			double cellSize = Math.max(maxX, maxY) / cells;
+			if (!(cellSize > 0.0)) {
+				return new double[0];
+			}
+
+			// Pack both ends' cells into one key per street, lower cell first
+			int total = (streets == null) ? coordinates.length / 4 : streets.length;
+			long[] keys = new long[total];
+			int count = 0;
+			for (int k = 0; k < total; ++k) {
+				int i = 4 * ((streets == null) ? k : streets[k]);
+				if (Double.isNaN(coordinates[i])) {
+					continue;
+				}
+				long a = cellKey(coordinates[i], coordinates[i + 1], cellSize, cells);
+				long b = cellKey(coordinates[i + 2], coordinates[i + 3], cellSize, cells);
+				if (a != b) {
+					keys[count++] = (Math.min(a, b) << 28) | Math.max(a, b);
+				}
+			}
+			Arrays.sort(keys, 0, count);
+
+			double[] simplified = new double[4 * count];
+			int kept = 0;
+			for (int i = 0; i < count; ++i) {
+				if (i > 0 && keys[i] == keys[i - 1]) {
+					continue;
+				}
+				long a = keys[i] >>> 28;
+				long b = keys[i] & ((1L << 28) - 1);
+				simplified[kept++] = ((a >>> 14) + 0.5) * cellSize;
+				simplified[kept++] = ((a & 0x3FFF) + 0.5) * cellSize;
+				simplified[kept++] = ((b >>> 14) + 0.5) * cellSize;
+				simplified[kept++] = ((b & 0x3FFF) + 0.5) * cellSize;
+			}
+			return Arrays.copyOf(simplified, kept);
+		}
+
+		// Returns the grid cell of a point as (column << 14 | row)
+		private long cellKey(double x, double y, double cellSize, int cells) {
+			long column = Math.min(cells - 1, (long) (x / cellSize));
+			long row = Math.min(cells - 1, (long) (y / cellSize));
+			return (column << 14) | row;
+		}
+
+		// Draws every line of a flat {x1, y1, x2, y2, ...} array in the current color
+		private void drawLines(Graphics g, double[] lines) {
+			for (int i = 0; i < lines.length; i += 4) {
+				drawStreet(g, lines, i);
+			}
+		}
+
+		/* Draws the street at lines[i .. i+3] in the current color using the
+		 * current view, skipping it if it lies entirely off one side */
+		private void drawStreet(Graphics g, double[] lines, int i) {
+			if (Double.isNaN(lines[i])) {
+				return;
+			}
+			int width = getWidth();
+			int height = getHeight();
+			double halfWidth = width / 2.0;
+			double halfHeight = height / 2.0;
+
+			// Create new X and Y values using the scale and the center of the view
+			int adjustedX1 = (int) (halfWidth + (lines[i] - centerX) * scale);
+			int adjustedY1 = (int) (halfHeight - (lines[i + 1] - centerY) * scale); // Subtract since the panel starts at top left
+			int adjustedX2 = (int) (halfWidth + (lines[i + 2] - centerX) * scale);
+			int adjustedY2 = (int) (halfHeight - (lines[i + 3] - centerY) * scale);
+			if ((adjustedX1 < 0 && adjustedX2 < 0) || (adjustedX1 > width && adjustedX2 > width)
+					|| (adjustedY1 < 0 && adjustedY2 < 0) || (adjustedY1 > height && adjustedY2 > height)) {
+				return;
+			}
+			g.drawLine(adjustedX1, adjustedY1, adjustedX2, adjustedY2);
+		}
+
+		/* Fills 'coordinates' with the converted end points of each street,
+		 * shifted so the smallest values are 0 */
+		protected void addStreets(UndirectedGraph graph) {
+
+			coordinates = new double[4 * graph.E()];
+
+			// For each edge of the graph
+			for (StreetEdge street : graph.edgeList) {
+				int i = 4 * street.edgeNo;
+
+				// Omits double edge mistake in input for ur.txt
+				if (street.edgeName.equals("r15")) {
+					Arrays.fill(coordinates, i, i + 4, Double.NaN);
+					continue;
+				}
+
+				// Call conversion function on each value to convert it to radians from degrees
+				coordinates[i] = longitudeConvert(street.v.longitude);
+				coordinates[i + 1] = latitudeConvert(street.v.latitude);
+				coordinates[i + 2] = longitudeConvert(street.w.longitude);
+				coordinates[i + 3] = latitudeConvert(street.w.latitude);
+
+				// Reassign minX and minY values using the new edge
+				minX = Math.min(minX, Math.min(coordinates[i], coordinates[i + 2]));
+				minY = Math.min(minY, Math.min(coordinates[i + 1], coordinates[i + 3]));
+			}
+
+			/* After converting all coordinates, rescale them using
+			 * the minimum values (this will set the minimum values
+			 * to 0 in the process); NaN entries stay NaN */
+			for (int i = 0; i < coordinates.length; i += 2) {
+				coordinates[i] = coordinates[i] - minX;
+				coordinates[i + 1] = coordinates[i + 1] - minY;
+
+				// Assign values for maxX and maxY to be used in scaling the image later
+				if (!Double.isNaN(coordinates[i])) {
+					maxX = Math.max(maxX, coordinates[i]);
+					maxY = Math.max(maxY, coordinates[i + 1]);
+				}
+			}
+		}
+	}
+
+	/* Convert longitude value argument from degrees to radians (shared
+	 * with TileRenderer, which draws the same projection without a frame) */
+	protected static double longitudeConvert(double longitude) {
+		longitude = longitude * (Math.PI / 180);
+		return longitude;
+	}
+
+	// Convert latitude value argument from degrees to its Mercator projection
+	protected static double latitudeConvert(double latitude) {
+		latitude = latitude * (Math.PI / 180);
+		latitude = Math.log(Math.tan((Math.PI/4) + 0.5 * latitude));
+		return latitude;
+	}
+
+	// Convert a Mercator projection value back to a latitude in degrees
+	protected static double latitudeRevert(double projected) {
+		return Math.toDegrees(2 * Math.atan(Math.exp(projected)) - Math.PI / 2);
+	}
+
+	// Replaces the streets drawn in red
+	public void highlight(int[] highlightedEdges) {
+		mapComponent.highlight(highlightedEdges);
+	}
+
+	// Constructor for a frame that shows the map with nothing highlighted
+	protected MapFrame(UndirectedGraph graph) {
+		this(graph, new int[0]);
+	}
+
+	/* Constructor initializes values
+	 * for the frame as well as creating
+	 * the personal mapComponent, drawing
+	 * the given edge numbers (a route or
+	 * an MST) in red. Highlighting lives
+	 * here rather than on the edges so the
+	 * graph itself is never changed */
+	protected MapFrame(UndirectedGraph graph, int[] highlightedEdges) {
+		setSize(500, 500);
+		setTitle("Street Mapping");
+		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		mapComponent = new MapComponent(graph, highlightedEdges);
+		add(mapComponent);
+	}
+
+}
@@ -0,0 +1,274 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/* Writes synthetic road networks in the same format as ur.txt, for
+ * trying the loader and the query engines on maps far bigger than the
+ * included ones. Three kinds of map can be made:
+ *
+ * - grid:   a city grid with every intersection nudged off its corner,
+ *           some north-south blocks missing and a few diagonal streets
+ * - radial: a city of rings around a center joined by spokes, the rings
+ *           spaced a block apart and the spokes about a block apart at
+ *           the edge of the city
+ * - region: several cities, grid and radial in turn, laid out in rows
+ *           with their centers joined by highways to the next city over
+ *
+ * Every map is connected. The lines are written as they are made, so
+ * only a few numbers are held no matter how big the map is (a region of
+ * 50 million lines writes the same way as one of ten thousand), and the
+ * same seed always writes the same map. Sizes are given in elements,
+ * the total of intersections and streets, which is about the number of
+ * lines in the file.
+ *
+ * Intersection titles are the city's prefix followed by a number, which
+ * gridTitle() and radialTitle() give for a known position.
+ *
+ * Usage: java streetmapping.MapGenerator grid|radial|region elements output_file [seed] */
+public class MapGenerator {
+
+	public static final double BLOCK = 0.001;			// degrees of latitude between neighbouring intersections (about 360 ft)
+	protected static final double LATITUDE = 43.13;		// latitude the maps are centered near (the same area as ur.txt)
+	protected static final double LONGITUDE = -77.63;	// longitude the maps are centered near
+	protected static final double JITTER = 0.3;			// largest nudge of an intersection, as a fraction of a block
+	protected static final double MISSING = 0.1;		// fraction of north-south blocks left out of a grid
+	protected static final double DIAGONALS = 0.03;		// fraction of grid blocks crossed by a diagonal street
+	protected static final int CITY_SPACING = 3;		// distance between city centers in a region, in city widths
+	protected static final double HIGHWAY_EXIT = 0.01;	// degrees between intersections along a highway
+
+	protected Writer out;				// where the lines are written
+	protected Random random;			// source of every random choice, seeded so maps can be written again
+	protected StringBuilder line = new StringBuilder(64);	// the line being written
+	protected long intersections = 0;	// number of intersection lines written so far
+	protected long streets = 0;			// number of street lines written so far
+
+	// Constructor that writes to the given output, making random choices from the seed
+	public MapGenerator(Writer out, long seed) {
+		this.out = out;
+		this.random = new Random(seed);
+	}
+
+	public long intersections() { return intersections; }	// Returns number of intersections written
+	public long streets() { return streets; }				// Returns number of streets written
+
+	/* Writes a grid city of the given rows and columns with its bottom
+	 * left corner at (latitude, longitude), returning the title of the
+	 * intersection nearest its middle. North-south blocks are only left
+	 * out away from the first column, so every row stays joined to the
+	 * first column and the grid stays connected */
+	public String grid(String prefix, int rows, int columns, double latitude, double longitude) throws IOException {
+		if (rows < 1 || columns < 1) {
+			throw new IllegalArgumentException("A grid needs at least one row and one column.");
+		}
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < columns; ++c) {
+				intersection(gridTitle(prefix, r, c, columns), latitude + (r + jitter()) * BLOCK, longitude + (c + jitter()) * BLOCK);
+			}
+		}
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < columns; ++c) {
+				String here = gridTitle(prefix, r, c, columns);
+				if (c + 1 < columns) {
+					street(prefix, here, gridTitle(prefix, r, c + 1, columns));
+				}
+				if (r + 1 < rows && (c == 0 || random.nextDouble() >= MISSING)) {
+					street(prefix, here, gridTitle(prefix, r + 1, c, columns));
+				}
+				if (r + 1 < rows && c + 1 < columns && random.nextDouble() < DIAGONALS) {
+					street(prefix, here, gridTitle(prefix, r + 1, c + 1, columns));
+				}
+			}
+		}
+		return gridTitle(prefix, rows / 2, columns / 2, columns);
+	}
+
+	/* Writes a radial city of the given rings and spokes around
+	 * (latitude, longitude), returning the title of its center. Each
+	 * ring is a loop of one intersection per spoke, and each spoke runs
+	 * from the center out through every ring */
+	public String radial(String prefix, int rings, int spokes, double latitude, double longitude) throws IOException {
+		if (rings < 1 || spokes < 3) {
+			throw new IllegalArgumentException("A radial city needs at least one ring and three spokes.");
+		}
+		double stretch = 1 / Math.cos(Math.toRadians(latitude)); // degrees of longitude are shorter than degrees of latitude
+		intersection(radialTitle(prefix, 0, 0, spokes), latitude, longitude);
+		for (int ring = 1; ring <= rings; ++ring) {
+			for (int spoke = 0; spoke < spokes; ++spoke) {
+				double radius = (ring + jitter() / 2) * BLOCK;
+				double angle = (spoke + jitter() / 2) * 2 * Math.PI / spokes;
+				intersection(radialTitle(prefix, ring, spoke, spokes), latitude + radius * Math.sin(angle),
+						longitude + radius * Math.cos(angle) * stretch);
+			}
+		}
+		String center = radialTitle(prefix, 0, 0, spokes);
+		for (int ring = 1; ring <= rings; ++ring) {
+			for (int spoke = 0; spoke < spokes; ++spoke) {
+				String here = radialTitle(prefix, ring, spoke, spokes);
+				street(prefix, here, radialTitle(prefix, ring, (spoke + 1) % spokes, spokes));
+				street(prefix, here, (ring == 1) ? center : radialTitle(prefix, ring - 1, spoke, spokes));
+			}
+		}
+		return center;
+	}
+
+	/* Writes a highway from one intersection to another, through a new
+	 * intersection every HIGHWAY_EXIT degrees along the way */
+	public void highway(String name, String from, double fromLatitude, double fromLongitude,
+			String to, double toLatitude, double toLongitude) throws IOException {
+		double length = Math.hypot(toLatitude - fromLatitude, toLongitude - fromLongitude);
+		int exits = (int) (length / HIGHWAY_EXIT);
+		String previous = from;
+		for (int k = 1; k <= exits; ++k) {
+			double along = (double) k / (exits + 1);
+			String exit = name + "-" + k;
+			intersection(exit, fromLatitude + along * (toLatitude - fromLatitude), fromLongitude + along * (toLongitude - fromLongitude));
+			street(name, previous, exit);
+			previous = exit;
+		}
+		street(name, previous, to);
+	}
+
+	/* Writes a grid city of about the given number of elements (three
+	 * per intersection, counting its streets), as square as possible */
+	public void grid(long elements) throws IOException {
+		int side = side(elements / 3);
+		grid("g", side, side, LATITUDE, LONGITUDE);
+	}
+
+	/* Writes a radial city of about the given number of elements (three
+	 * per intersection, counting its streets), with about 2 pi times as many
+	 * spokes as rings so the outermost blocks are about as long as they
+	 * are wide */
+	public void radial(long elements) throws IOException {
+		int rings = Math.max(1, (int) Math.round(Math.sqrt(elements / 3 / (2 * Math.PI))));
+		int spokes = Math.max(3, (int) Math.round(2 * Math.PI * rings));
+		radial("c", rings, spokes, LATITUDE, LONGITUDE);
+	}
+
+	/* Writes a region of about the given number of elements: a square of
+	 * cities of about 100,000 elements each (fewer for small regions, but
+	 * at least four cities), grids and radial cities in turn, each joined
+	 * by highway to the city to its east and the city to its north */
+	public void region(long elements) throws IOException {
+		int across = Math.max(2, side(elements / 100000));
+		long perCity = elements / ((long) across * across);
+		int gridSide = side(perCity / 3);
+		int rings = Math.max(1, (int) Math.round(Math.sqrt(perCity / 3 / (2 * Math.PI))));
+		int spokes = Math.max(3, (int) Math.round(2 * Math.PI * rings));
+		double spacing = CITY_SPACING * Math.max(gridSide, 2 * rings) * BLOCK;
+
+		String[] centers = new String[across * across];
+		double[] latitudes = new double[centers.length];
+		double[] longitudes = new double[centers.length];
+		for (int k = 0; k < centers.length; ++k) {
+			String prefix = "c" + k + "-";
+			double latitude = LATITUDE + (k / across) * spacing;
+			double longitude = LONGITUDE + (k % across) * spacing;
+			latitudes[k] = latitude + (gridSide / 2) * BLOCK;
+			longitudes[k] = longitude + (gridSide / 2) * BLOCK;
+			if (((k / across) + (k % across)) % 2 == 0) {
+				centers[k] = grid(prefix, gridSide, gridSide, latitude, longitude);
+			}
+			else {
+				centers[k] = radial(prefix, rings, spokes, latitudes[k], longitudes[k]);
+			}
+		}
+
+		// Highways to the next city east and north
+		for (int k = 0; k < centers.length; ++k) {
+			if (k % across + 1 < across) {
+				highway("h" + k + "e", centers[k], latitudes[k], longitudes[k], centers[k + 1], latitudes[k + 1], longitudes[k + 1]);
+			}
+			if (k + across < centers.length) {
+				highway("h" + k + "n", centers[k], latitudes[k], longitudes[k], centers[k + across], latitudes[k + across], longitudes[k + across]);
+			}
+		}
+	}
+
+	// Returns the title of the intersection in row r and column c of a grid city
+	public static String gridTitle(String prefix, int r, int c, int columns) {
+		return prefix + ((long) r * columns + c);
+	}
+
+	// Returns the title of the intersection on the given ring and spoke of a radial city (ring 0 is the center)
+	public static String radialTitle(String prefix, int ring, int spoke, int spokes) {
+		return prefix + ((ring == 0) ? 0 : (long) (ring - 1) * spokes + spoke + 1);
+	}
+
+	// Returns the width of the most nearly square grid of about n intersections
+	private static int side(long n) {
+		return (int) Math.max(1, Math.round(Math.sqrt(n)));
+	}
+
+	// Returns a random nudge of up to JITTER either way
+	private double jitter() {
+		return (2 * random.nextDouble() - 1) * JITTER;
+	}
+
+	// Writes an intersection line
+	private void intersection(String title, double latitude, double longitude) throws IOException {
+		line.setLength(0);
+		line.append("i\t").append(title).append('\t');
+		appendDegrees(latitude);
+		line.append('\t');
+		appendDegrees(longitude);
+		line.append('\n');
+		out.append(line);
+		++intersections;
+	}
+
+	// Writes a street line between two intersections, naming it after the city and its number
+	private void street(String prefix, String v, String w) throws IOException {
+		line.setLength(0);
+		line.append("r\t").append(prefix).append('r').append(streets).append('\t').append(v).append('\t').append(w).append('\n');
+		out.append(line);
+		++streets;
+	}
+
+	// Appends degrees to six decimal places, as in ur.txt, without going through String.format
+	private void appendDegrees(double degrees) {
+		long micro = Math.round(degrees * 1e6);
+		if (micro < 0) {
+			line.append('-');
+			micro = -micro;
+		}
+		line.append(micro / 1000000).append('.');
+		String fraction = Long.toString(micro % 1000000);
+		for (int pad = fraction.length(); pad < 6; ++pad) {
+			line.append('0');
+		}
+		line.append(fraction);
+	}
+
+	public static void main(String[] args) throws IOException {
+		String kind = args[0];
+		long elements = Long.parseLong(args[1]);
+		File file = new File(args[2]);
+		long seed = (args.length > 3) ? Long.parseLong(args[3]) : 42;
+
+		long start = System.currentTimeMillis();
+		MapGenerator generator;
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII), 1 << 16)) {
+			generator = new MapGenerator(out, seed);
+			if (kind.equals("grid")) {
+				generator.grid(elements);
+			}
+			else if (kind.equals("radial")) {
+				generator.radial(elements);
+			}
+			else if (kind.equals("region")) {
+				generator.region(elements);
+			}
+			else {
+				System.out.println("The kind of map must be grid, radial or region.");
+				return;
+			}
+		}
+		System.out.printf("Wrote %s: %d intersections, %d streets (%.1f MB) in %d ms\n", file.getName(), generator.intersections(),
+				generator.streets(), file.length() / 1e6, System.currentTimeMillis() - start);
+	}
+}
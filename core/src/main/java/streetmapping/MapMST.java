@@ -0,0 +1,132 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+/* Class used to find the minimum spanning
+ * tree of a given graph, if it exists (with
+ * metrics on, see SearchMetrics, each search
+ * is counted and timed: setting up the arrays
+ * counts as its lookup, and gathering edges()
+ * as building its path) */
+public class MapMST {
+	
+	protected StreetEdge[] edgeTo;				// edgeTo[i] is the edge that connects intersection number i to the MST
+	protected double[] distanceTo;				// distanceTo[i] is the distance of the edge that connects it to the MST
+	protected boolean[] marked;					// marked[i] is set to true if intersection number i has been visited by the algorithm already
+	protected DoubleIndexMinPriorityQueue pq;   // priority queue used in algorithm to find the MST
+	
+	// Constructor that finds the MST when called
+	public MapMST(UndirectedGraph graph) {
+		
+		// Initialize fields to proper values
+		edgeTo = new StreetEdge[graph.V()];
+		distanceTo = new double[graph.V()];
+		marked = new boolean[graph.V()];
+		pq = new DoubleIndexMinPriorityQueue(graph.V());
+		SearchMetrics.Probe probe = SearchMetrics.ENABLED ? SearchMetrics.PRIM.probe(pq.arity()) : null;
+		
+		// Initialize all distances to infinity
+		for (int i = 0; i < graph.V(); ++i) {
+			distanceTo[i] = Double.POSITIVE_INFINITY;
+		}
+		
+		distanceTo[0] = 0.0; // Set distance to starting intersection to 0
+		pq.insert(0, 0.0);   // Put the starting intersection into the queue
+		if (SearchMetrics.ENABLED) {
+			probe.lookedUp();
+			probe.inserted(pq.size());
+		}
+		
+		/* Continue visiting the closest intersection
+		 * to the MST on the priority queue until
+		 * there are no more vertices to visit */
+		while (!pq.isEmpty()) {
+			visit(graph, pq.delMin(), probe);
+		}
+		if (SearchMetrics.ENABLED) {
+			probe.searched();
+			probe.finish(0, -1);
+		}
+	}
+	
+	// Visitation method that performs the majority of the MST algorithm
+	private void visit(UndirectedGraph graph, int curInterNo, SearchMetrics.Probe probe) {
+		
+		marked[curInterNo] = true; // Mark the current intersection number as visited
+		if (SearchMetrics.ENABLED) {
+			++probe.settled;
+			++probe.delMins;
+			probe.relaxations += graph.offsets[curInterNo + 1] - graph.offsets[curInterNo];
+		}
+		
+		// For each edge slot in the current intersection's CSR slice
+		for (int k = graph.offsets[curInterNo]; k < graph.offsets[curInterNo + 1]; ++k) {
+			
+			// Get the other intersection's number and the edge's weight
+			int otherInterNo = graph.targets[k];
+			double weight = graph.weights[k];
+			
+			/* If the other intersection is already
+			 * marked then we don't need the edge to
+			 * connect it to the tree again */
+			if (marked[otherInterNo]) {
+				continue;
+			}
+			
+			/* Otherwise, if the current edge is the 
+			 * shortest connection to this new intersection */
+			if (weight < distanceTo[otherInterNo]) {
+				
+				edgeTo[otherInterNo] = graph.edgeList[graph.edgeIds[k]]; // This edge is the new edge to that intersection
+				
+				distanceTo[otherInterNo] = weight;
+				
+				/* If this intersection is in the queue already, change its 
+				 * priority according to the new edge, and if not, then add it */
+				if (pq.contains(otherInterNo)) {
+					pq.decreaseKey(otherInterNo, distanceTo[otherInterNo]);
+					if (SearchMetrics.ENABLED) {
+						++probe.decreaseKeys;
+					}
+				}
+				else {
+					pq.insert(otherInterNo, distanceTo[otherInterNo]);
+					if (SearchMetrics.ENABLED) {
+						probe.inserted(pq.size());
+					}
+				}
+			}
+		}
+		
+	}
+	
+	/* Returns all edges in the MST, throwing an exception if
+	 * the graph is not connected (so no spanning tree exists) */
+	public Iterable<StreetEdge> edges() {
+		
+		/* Create a bag to hold all the edges
+		 * and add all edges in the edgeTo[] array */
+		long began = SearchMetrics.ENABLED ? System.nanoTime() : 0;
+		Bag<StreetEdge> MST = new Bag<StreetEdge>();
+		for (int v = 1; v < edgeTo.length; ++v) {
+			if (edgeTo[v] == null) {
+				throw new RuntimeException("Graph is not connected.");
+			}
+			MST.add(edgeTo[v]);
+		}
+		if (SearchMetrics.ENABLED) {
+			SearchMetrics.PRIM.pathBuilt(System.nanoTime() - began);
+		}
+		return MST;
+	}
+	
+	// Returns the edge numbers of all edges in the MST (for highlighting in MapFrame)
+	public int[] edgeNumbers() {
+		int[] numbers = new int[Math.max(0, edgeTo.length - 1)];
+		int i = 0;
+		for (StreetEdge e : edges()) {
+			numbers[i++] = e.edgeNo;
+		}
+		return numbers;
+	}
+}
@@ -0,0 +1,456 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/* Read-only view of a graph stored in a versioned binary snapshot file.
+ * write() compiles a loaded UndirectedGraph into the snapshot (vertex
+ * coordinates, CSR adjacency, precomputed edge weights and a title
+ * dictionary with its own hash table), and open() maps the sections of
+ * that file back into memory; queries run directly over the mapped
+ * buffers, so opening a snapshot costs no parsing, no haversine math
+ * and no per-intersection or per-edge objects.
+ *
+ * Layout (little-endian, every section starts on an 8-byte boundary):
+ *   header      : magic, version, V, E, tableSize, 0, titleBytes, nameBytes
+ *   latitude    : double[V]
+ *   longitude   : double[V]
+ *   offsets     : int[V + 1]      CSR slice starts, as in UndirectedGraph
+ *   targets     : int[2E]
+ *   edgeIds     : int[2E]
+ *   weights     : double[2E]
+ *   edgeV/edgeW : int[E], int[E]  endpoints of each edge number
+ *   edgeWeight  : double[E]
+ *   titleTable  : int[tableSize]  intersectionNo + 1 per slot (0 if empty)
+ *   titleHashes : int[tableSize]  TitleIndex.hash() of the slot's title
+ *   titleStart  : int[V + 1]      where each title begins in titleBlob
+ *   titleBlob   : byte[titleBytes] UTF-8 titles back to back
+ *   nameStart   : int[E + 1]      where each edge name begins in nameBlob
+ *   nameBlob    : byte[nameBytes] UTF-8 edge names back to back */
+public class MappedGraph implements Closeable {
+
+	protected static final int MAGIC = 0x534D4150;	// "SMAP"
+	protected static final int VERSION = 1;			// bumped whenever the layout changes
+	protected static final int HEADER_BYTES = 64;	// header size, padded to keep sections aligned
+
+	protected FileChannel channel;		// channel the snapshot is mapped from
+	protected int V;					// number of intersections
+	protected int E;					// number of edges
+	protected int tableMask;			// title hash table length minus one
+
+	protected DoubleBuffer latitude;
+	protected DoubleBuffer longitude;
+	protected IntBuffer offsets;
+	protected IntBuffer targets;
+	protected IntBuffer edgeIds;
+	protected DoubleBuffer weights;
+	protected IntBuffer edgeV;
+	protected IntBuffer edgeW;
+	protected DoubleBuffer edgeWeight;
+	protected IntBuffer titleTable;
+	protected IntBuffer titleHashes;
+	protected IntBuffer titleStart;
+	protected ByteBuffer titleBlob;
+	protected IntBuffer nameStart;
+	protected ByteBuffer nameBlob;
+
+	// Use open() to create instances
+	private MappedGraph(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	/* Compiles the graph into a snapshot file, precomputing
+	 * everything a query needs so loading is just mapping */
+	public static void write(UndirectedGraph graph, File file) throws IOException {
+		int V = graph.V();
+		int E = graph.E();
+
+		// Encode every title and edge name once, noting where each starts
+		byte[][] titles = new byte[V][];
+		int[] titleStart = new int[V + 1];
+		for (int v = 0; v < V; ++v) {
+			titles[v] = graph.intersection(v).title.getBytes(StandardCharsets.UTF_8);
+			titleStart[v + 1] = titleStart[v] + titles[v].length;
+		}
+		byte[][] names = new byte[E][];
+		int[] nameStart = new int[E + 1];
+		for (int e = 0; e < E; ++e) {
+			names[e] = graph.edgeList[e].edgeName.getBytes(StandardCharsets.UTF_8);
+			nameStart[e + 1] = nameStart[e] + names[e].length;
+		}
+
+		/* Build the title hash table with the same hash function as TitleIndex,
+		 * and like TitleIndex.put() let a later intersection with the same
+		 * title replace an earlier one, so both resolve it the same way */
+		int tableSize = 16;
+		while (tableSize < 2 * V) {
+			tableSize *= 2;
+		}
+		int[] titleTable = new int[tableSize];
+		int[] titleHashes = new int[tableSize];
+		for (int v = 0; v < V; ++v) {
+			String title = graph.intersection(v).title;
+			int hash = TitleIndex.hash(title);
+			int slot = hash & (tableSize - 1);
+			while (titleTable[slot] != 0) {
+				if (titleHashes[slot] == hash && graph.intersection(titleTable[slot] - 1).title.equals(title)) {
+					break;
+				}
+				slot = (slot + 1) & (tableSize - 1);
+			}
+			titleTable[slot] = v + 1;
+			titleHashes[slot] = hash;
+		}
+
+		try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			SectionWriter writer = new SectionWriter(out);
+
+			writer.putInt(MAGIC);
+			writer.putInt(VERSION);
+			writer.putInt(V);
+			writer.putInt(E);
+			writer.putInt(tableSize);
+			writer.putInt(0);
+			writer.putLong(titleStart[V]);
+			writer.putLong(nameStart[E]);
+			while (writer.written < HEADER_BYTES) {
+				writer.putInt(0);
+			}
+
+			for (int v = 0; v < V; ++v) {
+				writer.putDouble(graph.intersection(v).latitude);
+			}
+			writer.align();
+			for (int v = 0; v < V; ++v) {
+				writer.putDouble(graph.intersection(v).longitude);
+			}
+			writer.align();
+			writer.putInts(graph.offsets);
+			writer.putInts(graph.targets);
+			writer.putInts(graph.edgeIds);
+			for (double weight : graph.weights) {
+				writer.putDouble(weight);
+			}
+			writer.align();
+			for (int e = 0; e < E; ++e) {
+				writer.putInt(graph.edgeList[e].v.intersectionNo);
+			}
+			writer.align();
+			for (int e = 0; e < E; ++e) {
+				writer.putInt(graph.edgeList[e].w.intersectionNo);
+			}
+			writer.align();
+			for (int e = 0; e < E; ++e) {
+				writer.putDouble(graph.edgeList[e].weight);
+			}
+			writer.align();
+			writer.putInts(titleTable);
+			writer.putInts(titleHashes);
+			writer.putInts(titleStart);
+			for (byte[] title : titles) {
+				writer.putBytes(title);
+			}
+			writer.align();
+			writer.putInts(nameStart);
+			for (byte[] name : names) {
+				writer.putBytes(name);
+			}
+			writer.align();
+			writer.flush();
+		}
+	}
+
+	// Returns true if the file starts with the snapshot magic number
+	public static boolean isSnapshot(File file) throws IOException {
+		try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			return in.read(magic, 0) == 4 && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/* Maps a snapshot file written by write(), checking its magic
+	 * number, version and length before trusting any section */
+	public static MappedGraph open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			MappedGraph graph = new MappedGraph(channel);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if (channel.read(header, 0) != HEADER_BYTES || header.getInt(0) != MAGIC) {
+				throw new IOException(file.getName() + " is not a graph snapshot.");
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IOException(file.getName() + " is snapshot version " + header.getInt(4) + " but version " + VERSION + " is required.");
+			}
+			int V = graph.V = header.getInt(8);
+			int E = graph.E = header.getInt(12);
+			int tableSize = header.getInt(16);
+			long titleBytes = header.getLong(24);
+			long nameBytes = header.getLong(32);
+			graph.tableMask = tableSize - 1;
+
+			long expected = HEADER_BYTES + 2 * align(8L * V) + align(4L * (V + 1)) + 2 * align(8L * E)
+					+ align(16L * E) + 2 * align(4L * E) + align(8L * E) + 2 * align(4L * tableSize)
+					+ align(4L * (V + 1)) + align(titleBytes) + align(4L * (E + 1)) + align(nameBytes);
+			if (channel.size() != expected) {
+				throw new IOException(file.getName() + " is truncated or corrupt.");
+			}
+
+			long position = HEADER_BYTES;
+			graph.latitude = graph.map(position, 8L * V).asDoubleBuffer();
+			position += align(8L * V);
+			graph.longitude = graph.map(position, 8L * V).asDoubleBuffer();
+			position += align(8L * V);
+			graph.offsets = graph.map(position, 4L * (V + 1)).asIntBuffer();
+			position += align(4L * (V + 1));
+			graph.targets = graph.map(position, 8L * E).asIntBuffer();
+			position += align(8L * E);
+			graph.edgeIds = graph.map(position, 8L * E).asIntBuffer();
+			position += align(8L * E);
+			graph.weights = graph.map(position, 16L * E).asDoubleBuffer();
+			position += align(16L * E);
+			graph.edgeV = graph.map(position, 4L * E).asIntBuffer();
+			position += align(4L * E);
+			graph.edgeW = graph.map(position, 4L * E).asIntBuffer();
+			position += align(4L * E);
+			graph.edgeWeight = graph.map(position, 8L * E).asDoubleBuffer();
+			position += align(8L * E);
+			graph.titleTable = graph.map(position, 4L * tableSize).asIntBuffer();
+			position += align(4L * tableSize);
+			graph.titleHashes = graph.map(position, 4L * tableSize).asIntBuffer();
+			position += align(4L * tableSize);
+			graph.titleStart = graph.map(position, 4L * (V + 1)).asIntBuffer();
+			position += align(4L * (V + 1));
+			graph.titleBlob = graph.map(position, titleBytes);
+			position += align(titleBytes);
+			graph.nameStart = graph.map(position, 4L * (E + 1)).asIntBuffer();
+			position += align(4L * (E + 1));
+			graph.nameBlob = graph.map(position, nameBytes);
+
+			return graph;
+		}
+		catch (IOException | RuntimeException excpt) {
+			channel.close();
+			throw excpt;
+		}
+	}
+
+	// Maps one section of the file as a little-endian buffer
+	private ByteBuffer map(long position, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	// Rounds a section length up to the next multiple of 8
+	private static long align(long length) {
+		return (length + 7) & ~7L;
+	}
+
+	public int V() { return V; } // Method to return number of vertices
+	public int E() { return E; } // Method to return number of edges
+
+	public double latitude(int v) { return latitude.get(v); }		// Returns latitude of intersection v
+	public double longitude(int v) { return longitude.get(v); }		// Returns longitude of intersection v
+	public double edgeWeight(int e) { return edgeWeight.get(e); }	// Returns weight of edge e
+
+	// Returns the title of intersection v
+	public String title(int v) {
+		return decode(titleBlob, titleStart.get(v), titleStart.get(v + 1));
+	}
+
+	// Returns the name of edge e
+	public String edgeName(int e) {
+		return decode(nameBlob, nameStart.get(e), nameStart.get(e + 1));
+	}
+
+	// Decodes blob[from, to) as a UTF-8 string
+	private static String decode(ByteBuffer blob, int from, int to) {
+		byte[] bytes = new byte[to - from];
+		blob.get(from, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/* Returns the intersection number of the intersection with the given
+	 * title by probing the mapped title table, throwing an exception if
+	 * no such intersection exists. As in UndirectedGraph, "@latitude,longitude"
+	 * names the nearest intersection; a snapshot answers only a query or
+	 * two, so it scans the mapped coordinates instead of building a grid */
+	public int intersectionNo(String title) {
+		byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+		int hash = TitleIndex.hash(title);
+		int slot = hash & tableMask;
+		int entry;
+		while ((entry = titleTable.get(slot)) != 0) {
+			if (titleHashes.get(slot) == hash && titleEquals(entry - 1, bytes)) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & tableMask;
+		}
+		if (title.startsWith("@") && V > 0) {
+			double[] point = SpatialIndex.parseCoordinates(title);
+			int best = 0;
+			double bestDistance = Double.POSITIVE_INFINITY;
+			for (int v = 0; v < V; ++v) {
+				double distance = UndirectedGraph.calcDistanceMiles(point[0], point[1], latitude.get(v), longitude.get(v));
+				if (distance < bestDistance) {
+					best = v;
+					bestDistance = distance;
+				}
+			}
+			return best;
+		}
+		throw new IllegalArgumentException("No intersection named " + title + ".");
+	}
+
+	// Returns true if the stored title of intersection v is exactly bytes
+	private boolean titleEquals(int v, byte[] bytes) {
+		int from = titleStart.get(v);
+		if (titleStart.get(v + 1) - from != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; ++i) {
+			if (titleBlob.get(from + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Runs Dijkstra's algorithm over the mapped adjacency from start,
+	 * stopping as soon as end is settled, and returns the edge numbers
+	 * of the shortest path in order (null if there is no path). It
+	 * searches in this thread's forward QueryWorkspace, like the other
+	 * engines, so a query does not allocate V-sized arrays */
+	public int[] route(int start, int end) {
+		QueryWorkspace search = QueryWorkspace.forward(V);
+		search.reach(start, 0.0, -1);
+		search.pq.insert(start, 0.0);
+
+		while (!search.pq.isEmpty()) {
+			int v = search.pq.delMin();
+			search.settle(v);
+			if (v == end) {
+				break;
+			}
+			for (int k = offsets.get(v); k < offsets.get(v + 1); ++k) {
+				int w = targets.get(k);
+				if (search.settled(w)) {
+					continue;
+				}
+				double newDistance = search.distance[v] + weights.get(k);
+				if (newDistance < search.distance(w)) {
+					if (search.pq.contains(w)) {
+						search.pq.decreaseKey(w, newDistance);
+					}
+					else {
+						search.pq.insert(w, newDistance);
+					}
+					search.reach(w, newDistance, edgeIds.get(k));
+				}
+			}
+		}
+
+		if (!search.reached(end)) {
+			return null;
+		}
+
+		// Count the path's edges, then walk edgeTo[] again to fill them in order
+		int length = 0;
+		for (int v = end; v != start; v = other(search.edgeTo(v), v)) {
+			++length;
+		}
+		int[] path = new int[length];
+		for (int v = end; v != start; v = other(search.edgeTo(v), v)) {
+			path[--length] = search.edgeTo(v);
+		}
+		return path;
+	}
+
+	// Returns the endpoint of edge e opposite intersection v
+	public int other(int e, int v) {
+		int a = edgeV.get(e);
+		return (a == v) ? edgeW.get(e) : a;
+	}
+
+	// Returns the total weight of a path of edge numbers
+	public double distance(int[] path) {
+		double total = 0.0;
+		for (int e : path) {
+			total += edgeWeight.get(e);
+		}
+		return total;
+	}
+
+	// Closes the file; the mapped buffers stay valid until collected
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/* Helper that streams primitive values into the snapshot
+	 * file through one reusable little-endian buffer */
+	private static class SectionWriter {
+
+		private FileChannel out;
+		private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		private long written = 0;
+
+		SectionWriter(FileChannel out) {
+			this.out = out;
+		}
+
+		// Makes room for n more bytes, writing out the buffer if needed
+		private void ensure(int n) throws IOException {
+			if (buffer.remaining() < n) {
+				flush();
+			}
+		}
+
+		void putInt(int value) throws IOException { ensure(4); buffer.putInt(value); written += 4; }
+		void putLong(long value) throws IOException { ensure(8); buffer.putLong(value); written += 8; }
+		void putDouble(double value) throws IOException { ensure(8); buffer.putDouble(value); written += 8; }
+
+		// Writes an int array followed by padding to the next section
+		void putInts(int[] values) throws IOException {
+			for (int value : values) {
+				putInt(value);
+			}
+			align();
+		}
+
+		void putBytes(byte[] bytes) throws IOException {
+			int i = 0;
+			while (i < bytes.length) {
+				ensure(1);
+				int n = Math.min(buffer.remaining(), bytes.length - i);
+				buffer.put(bytes, i, n);
+				i += n;
+				written += n;
+			}
+		}
+
+		// Pads with zeros up to the next 8-byte boundary
+		void align() throws IOException {
+			while ((written & 7) != 0) {
+				ensure(1);
+				buffer.put((byte) 0);
+				++written;
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
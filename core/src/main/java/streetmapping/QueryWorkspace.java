@@ -0,0 +1,97 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.util.Arrays;
+
+/* Scratch space for one shortest path search, kept per thread and reused
+ * from query to query instead of allocating and filling V-sized arrays
+ * every time.
+ *
+ * Rather than resetting the arrays after a search, every search gets a
+ * new generation number, and an entry only counts if its stamp matches
+ * the current generation; anything older reads as "unreached". Starting
+ * a search is then O(1) (plus emptying the queue), so a query that only
+ * touches a small area of a huge map costs time proportional to that
+ * area. The stamps are cleared for real only when the generation counter
+ * wraps around, once every two billion searches.
+ *
+ * Each thread has a forward and a backward workspace, so bidirectional
+ * searches can use both at once. A workspace belongs to its thread until
+ * that thread's next search on the same side, so engines copy out the
+ * results they keep (distance, path edges) before returning */
+public class QueryWorkspace {
+
+	private static final ThreadLocal<QueryWorkspace> FORWARD = new ThreadLocal<QueryWorkspace>();
+	private static final ThreadLocal<QueryWorkspace> BACKWARD = new ThreadLocal<QueryWorkspace>();
+
+	protected int generation = 0;				// stamp of the current search
+	protected int[] reachedStamp;				// reachedStamp[v] == generation if v was reached by the current search
+	protected int[] settledStamp;				// settledStamp[v] == generation if v was settled by the current search
+	protected double[] distance;				// distance[v] is the best known distance to v (valid only if reached)
+	protected int[] edgeTo;						// edgeTo[v] is the edge (or arc) number leading to v (valid only if reached)
+	protected double[] potential;				// potential[v] is a per-search value such as an A* estimate (valid only if reached)
+	protected DoubleIndexMinPriorityQueue pq;	// queue of the current search
+
+	private QueryWorkspace(int V) {
+		reachedStamp = new int[V];
+		settledStamp = new int[V];
+		distance = new double[V];
+		edgeTo = new int[V];
+		potential = new double[V];
+		pq = new DoubleIndexMinPriorityQueue(V);
+	}
+
+	// Returns this thread's forward workspace, ready for a new search over V intersections
+	public static QueryWorkspace forward(int V) {
+		return acquire(FORWARD, V);
+	}
+
+	// Returns this thread's backward workspace, ready for a new search over V intersections
+	public static QueryWorkspace backward(int V) {
+		return acquire(BACKWARD, V);
+	}
+
+	// Reuses the pooled workspace if it is large enough, otherwise replaces it
+	private static QueryWorkspace acquire(ThreadLocal<QueryWorkspace> pool, int V) {
+		QueryWorkspace workspace = pool.get();
+		if (workspace == null || workspace.distance.length < V) {
+			workspace = new QueryWorkspace(V);
+			pool.set(workspace);
+		}
+		workspace.begin();
+		return workspace;
+	}
+
+	// Starts a new search: every entry of the previous one becomes stale
+	private void begin() {
+		pq.clear();
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(reachedStamp, 0);
+			Arrays.fill(settledStamp, 0);
+			generation = 1;
+		}
+	}
+
+	// Returns true if v was reached by the current search
+	public boolean reached(int v) { return reachedStamp[v] == generation; }
+
+	// Returns true if v was settled by the current search
+	public boolean settled(int v) { return settledStamp[v] == generation; }
+
+	// Returns the best known distance to v, or infinity if it was not reached
+	public double distance(int v) { return (reachedStamp[v] == generation) ? distance[v] : Double.POSITIVE_INFINITY; }
+
+	// Returns the edge number leading to v (only meaningful if v was reached)
+	public int edgeTo(int v) { return edgeTo[v]; }
+
+	// Records a new best distance to v and the edge number it came over
+	public void reach(int v, double d, int edge) {
+		reachedStamp[v] = generation;
+		distance[v] = d;
+		edgeTo[v] = edge;
+	}
+
+	// Marks v as settled by the current search
+	public void settle(int v) { settledStamp[v] = generation; }
+}
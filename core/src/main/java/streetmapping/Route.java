@@ -0,0 +1,41 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+/* The result of a point-to-point query: the edge numbers of a shortest
+ * path in travel order along with its length. A Route is self-contained
+ * and never changes, so it can be handed between threads or kept after
+ * the search that produced it is gone, and computing one never touches
+ * the shared graph (highlighting a route is up to MapFrame) */
+public class Route {
+
+	private final int start;			// intersection number the route starts at
+	private final int end;				// intersection number the route ends at
+	private final double distance;		// total length of the route in miles
+	private final int[] edges;			// edge numbers of the route in travel order
+
+	// Constructor that keeps its own copy of the edge numbers
+	public Route(int start, int end, double distance, int[] edges) {
+		this.start = start;
+		this.end = end;
+		this.distance = distance;
+		this.edges = edges.clone();
+	}
+
+	public int start() { return start; }				// Returns intersection number of the start
+	public int end() { return end; }					// Returns intersection number of the end
+	public double distance() { return distance; }		// Returns total length of the route
+	public int size() { return edges.length; }			// Returns number of edges on the route
+	public int edge(int i) { return edges[i]; }			// Returns edge number of the i-th edge from the start
+	public int[] edgeNumbers() { return edges.clone(); }	// Returns a copy of the edge numbers in travel order
+
+	/* Returns the edges of the route as a stack whose
+	 * top is the edge leaving the start */
+	public EdgeStack toStack(UndirectedGraph graph) {
+		EdgeStack path = new EdgeStack();
+		for (int i = edges.length - 1; i >= 0; --i) {
+			path.push(graph.edgeList[edges[i]]);
+		}
+		return path;
+	}
+}
@@ -0,0 +1,305 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Caching layer in front of the shortest path searches, built for skewed
+ * traffic where a few depots and hubs start most of the requests.
+ *
+ * It has two tiers, each with its own memory budget:
+ *
+ * - Tree tier: whole shortest path trees (distance and edge arrays) for
+ *   hot sources. Any later query from such a source is answered by
+ *   walking its edge array back from the destination, with no search.
+ * - Route tier: single (source, destination) Routes.
+ *
+ * Both tiers evict least recently used entries, guarded by TinyLFU
+ * admission. A shared frequency sketch counts how often each source and
+ * each pair has been asked for. When a tier is full, a new entry only
+ * replaces the least recently used one if it has been asked for more
+ * often, so a burst of one-off queries cannot flush out the hubs. The
+ * sketch halves all of its counts now and then, so old popularity fades.
+ *
+ * Lookups and updates of each tier are synchronized on that tier, the
+ * frequency sketch is lock-free, and searches run outside any lock.
+ * Two threads missing the same entry at once may both search for it,
+ * which costs time but is still correct. Routes are immutable and trees
+ * are never changed once cached, so results can be shared freely
+ * between threads */
+public class RouteCache {
+
+	private static final int TREE_ADMIT_FREQUENCY = 4;	// requests from a source before its whole tree is worth computing
+	private static final long ROUTE_OVERHEAD = 64;		// approximate bytes of a cached Route besides its edge array
+	private static final long TREE_OVERHEAD = 64;		// approximate bytes of a cached tree besides its arrays
+	private static final Route NO_ROUTE = new Route(-1, -1, Double.POSITIVE_INFINITY, new int[0]);	// cached in place of a pair with no path
+
+	protected UndirectedGraph graph;				// graph being searched
+	protected ContractionHierarchy hierarchy;		// hierarchy missed pairs are searched over (null if none)
+	protected LandmarkTable landmarks;				// landmark tables for A* on missed pairs (null if none)
+	protected FrequencySketch sketch;				// request counts shared by both tiers
+	protected Tier<ShortestPathTree> trees;			// cached shortest path trees keyed by source
+	protected Tier<Route> routes;					// cached routes keyed by (source, destination)
+
+	protected LongAdder treeHits = new LongAdder();		// queries answered from a cached tree
+	protected LongAdder routeHits = new LongAdder();	// queries answered from a cached route
+	protected LongAdder misses = new LongAdder();		// queries that needed a search
+	protected LongAdder treesBuilt = new LongAdder();	// shortest path trees computed
+
+	// Constructor that sets the memory budget of each tier in bytes (0 turns a tier off)
+	public RouteCache(UndirectedGraph graph, long treeBudgetBytes, long routeBudgetBytes) {
+		this(graph, null, null, treeBudgetBytes, routeBudgetBytes);
+	}
+
+	/* Constructor that also searches missed pairs over a saved contraction
+	 * hierarchy or with landmark tables (either may be null), as
+	 * UndirectedGraph.findRoute() does */
+	public RouteCache(UndirectedGraph graph, ContractionHierarchy hierarchy, LandmarkTable landmarks,
+			long treeBudgetBytes, long routeBudgetBytes) {
+		this.graph = graph;
+		this.hierarchy = hierarchy;
+		this.landmarks = landmarks;
+		trees = new Tier<ShortestPathTree>(treeBudgetBytes);
+		routes = new Tier<Route>(routeBudgetBytes);
+
+		// About one sketch counter per route the route tier could hold
+		int width = 1024;
+		while (width < (1 << 22) && width < routeBudgetBytes / ROUTE_OVERHEAD) {
+			width <<= 1;
+		}
+		sketch = new FrequencySketch(width);
+	}
+
+	// Returns the shortest route between the two titled intersections, or null if none exists
+	public Route route(String startInterTitle, String endInterTitle) {
+		return route(graph.intersectionNo(startInterTitle), graph.intersectionNo(endInterTitle));
+	}
+
+	// Returns the shortest route between two intersection numbers, or null if none exists
+	public Route route(int start, int end) {
+		long treeKey = -1L - start;						// sources are negative keys,
+		long routeKey = ((long) start << 32) | end;		// pairs non-negative ones
+		int treeFrequency = sketch.increment(treeKey);
+		int routeFrequency = sketch.increment(routeKey);
+
+		// A cached tree answers any destination
+		ShortestPathTree tree = trees.get(treeKey);
+		if (tree != null) {
+			treeHits.increment();
+			return tree.routeTo(graph, end);
+		}
+
+		// Then a cached route for exactly this pair
+		Route cached = routes.get(routeKey);
+		if (cached != null) {
+			routeHits.increment();
+			return (cached == NO_ROUTE) ? null : cached;
+		}
+		misses.increment();
+
+		/* A source asked for often enough gets its whole tree, if the
+		 * tree tier would keep it; otherwise search for just this pair */
+		long treeBytes = TREE_OVERHEAD + 12L * graph.V();
+		if (treeFrequency >= TREE_ADMIT_FREQUENCY && trees.wouldAdmit(treeBytes, treeFrequency, sketch)) {
+			tree = new ShortestPathTree(graph, start);
+			treesBuilt.increment();
+			trees.offer(treeKey, tree, treeBytes, treeFrequency, sketch);
+			return tree.routeTo(graph, end);
+		}
+
+		Route route = UndirectedGraph.findRoute(graph, hierarchy, landmarks, start, end);
+		long routeBytes = ROUTE_OVERHEAD + ((route == null) ? 0 : 4L * route.size());
+		routes.offer(routeKey, (route == null) ? NO_ROUTE : route, routeBytes, routeFrequency, sketch);
+		return route;
+	}
+
+	public long treeHits() { return treeHits.sum(); }					// Returns queries answered from a cached tree
+	public long routeHits() { return routeHits.sum(); }				// Returns queries answered from a cached route
+	public long misses() { return misses.sum(); }						// Returns queries that needed a search
+	public long treesBuilt() { return treesBuilt.sum(); }				// Returns number of trees computed
+	public long treeEvictions() { return trees.evictions.sum(); }		// Returns trees evicted to make room
+	public long routeEvictions() { return routes.evictions.sum(); }	// Returns routes evicted to make room
+	public long treeBytes() { return trees.usedBytes(); }				// Returns bytes held by the tree tier
+	public long routeBytes() { return routes.usedBytes(); }			// Returns bytes held by the route tier
+
+	// Returns a one-line summary of the counters
+	public String stats() {
+		long total = treeHits() + routeHits() + misses();
+		return String.format("%d queries: %d tree hits, %d route hits, %d misses (%.1f%% hit rate); "
+				+ "%d trees built, %d/%d evicted; %.1f MB trees, %.1f MB routes",
+				total, treeHits(), routeHits(), misses(), (total == 0) ? 0.0 : 100.0 * (total - misses()) / total,
+				treesBuilt(), treeEvictions(), routeEvictions(), treeBytes() / 1e6, routeBytes() / 1e6);
+	}
+
+	/* A complete shortest path tree from one source: the distance to
+	 * every intersection and the edge number leading to it */
+	protected static class ShortestPathTree {
+		int source;			// intersection number the tree is rooted at
+		double[] distance;	// distance[v] is the shortest distance from the source to v
+		int[] edgeTo;		// edgeTo[v] is the edge number leading to v (-1 for the source or if unreached)
+
+		ShortestPathTree(UndirectedGraph graph, int source) {
+			this.source = source;
+			DijkstraShortestPath search = new DijkstraShortestPath(graph, source);
+			distance = search.distanceTo;
+			edgeTo = new int[graph.V()];
+			for (int v = 0; v < edgeTo.length; ++v) {
+				edgeTo[v] = (search.edgeTo[v] == null) ? -1 : search.edgeTo[v].edgeNo;
+			}
+		}
+
+		// Walks the tree back from end, returning the route to it or null if it is unreached
+		Route routeTo(UndirectedGraph graph, int end) {
+			if (distance[end] == Double.POSITIVE_INFINITY) {
+				return null;
+			}
+			int length = 0;
+			for (int v = end; edgeTo[v] != -1; v = other(graph, edgeTo[v], v)) {
+				++length;
+			}
+			int[] edges = new int[length];
+			for (int v = end; edgeTo[v] != -1; v = other(graph, edgeTo[v], v)) {
+				edges[--length] = edgeTo[v];
+			}
+			return new Route(source, end, distance[end], edges);
+		}
+
+		// Returns the intersection number at the other end of edge number e from v
+		private static int other(UndirectedGraph graph, int e, int v) {
+			StreetEdge edge = graph.edgeList[e];
+			return (edge.v.intersectionNo == v) ? edge.w.intersectionNo : edge.v.intersectionNo;
+		}
+	}
+
+	/* One tier of the cache: least recently used order with a byte budget,
+	 * where new entries must be more frequently requested than the entries
+	 * they would push out */
+	protected static class Tier<Value> {
+		private final LinkedHashMap<Long, Value> entries = new LinkedHashMap<Long, Value>(16, 0.75f, true);
+		private final LinkedHashMap<Long, Long> bytes = new LinkedHashMap<Long, Long>();
+		private final long budget;		// most bytes the tier may hold
+		private long used = 0;			// bytes the tier holds now
+		LongAdder evictions = new LongAdder();	// entries evicted to make room
+
+		Tier(long budget) {
+			this.budget = budget;
+		}
+
+		synchronized Value get(long key) { return entries.get(key); }
+		synchronized long usedBytes() { return used; }
+
+		/* Returns true if an entry of the given size and request frequency
+		 * would be kept: it fits in the free space plus the space of the
+		 * least recently used entries it is more popular than */
+		synchronized boolean wouldAdmit(long size, int frequency, FrequencySketch sketch) {
+			if (size > budget) {
+				return false;
+			}
+			long free = budget - used;
+			Iterator<Long> eldest = entries.keySet().iterator();
+			while (free < size) {
+				long victim = eldest.next();
+				if (sketch.frequency(victim) >= frequency) {
+					return false;
+				}
+				free += bytes.get(victim);
+			}
+			return true;
+		}
+
+		// Adds the entry if wouldAdmit() allows it, evicting what it beat
+		synchronized void offer(long key, Value value, long size, int frequency, FrequencySketch sketch) {
+			if (entries.containsKey(key) || !wouldAdmit(size, frequency, sketch)) {
+				return;
+			}
+			Iterator<Map.Entry<Long, Value>> eldest = entries.entrySet().iterator();
+			while (budget - used < size) {
+				long victim = eldest.next().getKey();
+				eldest.remove();
+				used -= bytes.remove(victim);
+				evictions.increment();
+			}
+			entries.put(key, value);
+			bytes.put(key, size);
+			used += size;
+		}
+	}
+
+	/* Count-min sketch of request frequencies: each key bumps one counter
+	 * in each of four rows, and its estimate is the smallest of those four
+	 * (never below the true count, rarely much above it). Once as many
+	 * increments as ten times the width have been counted, every counter
+	 * is halved so that popularity from long ago fades.
+	 *
+	 * Every lookup of the cache bumps the sketch, so it takes no lock:
+	 * counters are atomic, and the increment that completes a sample
+	 * triggers the halving. Only halving locks (against another halving);
+	 * an increment running at the same time may land just before or after
+	 * its counter is halved, which only nudges an estimate by one */
+	protected static class FrequencySketch {
+		private final AtomicIntegerArray[] counters;
+		private final int mask;
+		private final int sampleSize;
+		private final AtomicInteger additions = new AtomicInteger();
+
+		// Width must be a power of two
+		FrequencySketch(int width) {
+			counters = new AtomicIntegerArray[4];
+			for (int row = 0; row < 4; ++row) {
+				counters[row] = new AtomicIntegerArray(width);
+			}
+			mask = width - 1;
+			sampleSize = 10 * width;
+		}
+
+		// Counts one more request for the key, returning its new estimate
+		int increment(long key) {
+			int estimate = Integer.MAX_VALUE;
+			for (int row = 0; row < 4; ++row) {
+				estimate = Math.min(estimate, counters[row].incrementAndGet(index(key, row)));
+			}
+			/* Whichever increment first finds the sample full and takes half of
+			 * it back does the halving (increments landing meanwhile can carry
+			 * the count past sampleSize, so it is not enough to wait for it) */
+			int added = additions.incrementAndGet();
+			if (added >= sampleSize && additions.compareAndSet(added, added - sampleSize / 2)) {
+				halve();
+			}
+			return estimate;
+		}
+
+		// Halves every counter
+		private synchronized void halve() {
+			for (AtomicIntegerArray row : counters) {
+				for (int i = 0; i < row.length(); ++i) {
+					int count;
+					do {
+						count = row.get(i);
+					} while (!row.compareAndSet(i, count, count >>> 1));
+				}
+			}
+		}
+
+		// Returns the estimated number of requests for the key
+		int frequency(long key) {
+			int estimate = Integer.MAX_VALUE;
+			for (int row = 0; row < 4; ++row) {
+				estimate = Math.min(estimate, counters[row].get(index(key, row)));
+			}
+			return estimate;
+		}
+
+		// Hashes the key differently for each row
+		private int index(long key, int row) {
+			long h = (key + row) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+			h *= 0xBF58476D1CE4E5B9L + 2L * row;
+			return (int) (h >>> 40) & mask;
+		}
+	}
+}
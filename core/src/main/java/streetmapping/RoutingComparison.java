@@ -0,0 +1,131 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.util.Random;
+
+/* Tool that runs the same random origin-destination pairs through every
+ * point-to-point routing engine, checks each engine's distance (and that
+ * its path really has that length) against
+ * DijkstraShortestPath, and reports how many intersections each engine
+ * settled and how long it took on average, along with its speedup over
+ * DijkstraShortestPath.
+ *
+ * Usage: java RoutingComparison map_file [pairs] [landmarks] */
+public class RoutingComparison {
+
+	private static final double TOLERANCE = 1e-9; // relative difference allowed between engines
+
+	private static final String[] ENGINES = {"Dijkstra", "Bidirectional", "A*", "ALT", "CH"};
+
+	public static void main(String[] args) throws IOException {
+
+		UndirectedGraph graph = new UndirectedGraph(new File(args[0]));
+		int pairs = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+		int k = (args.length > 2) ? Integer.parseInt(args[2]) : LandmarkTable.DEFAULT_LANDMARKS;
+
+		LandmarkTable landmarks = LandmarkTable.build(graph, k);
+		System.out.printf("Landmark tables: %d landmarks, %.1f KB in %d ms\n",
+				landmarks.landmarks(), landmarks.memoryBytes() / 1024.0, landmarks.preprocessingMillis());
+
+		ContractionHierarchy ch = ContractionHierarchy.build(graph);
+		System.out.println("Contraction hierarchy: " + ch.shortcuts() + " shortcuts in " + ch.preprocessingMillis() + " ms");
+
+		long[] settled = new long[ENGINES.length];
+		long[] nanos = new long[ENGINES.length];
+		int mismatches = 0;
+
+		Random random = new Random(42);
+		for (int p = 0; p < pairs; ++p) {
+			String start = graph.intersection(random.nextInt(graph.V())).title;
+			String end = graph.intersection(random.nextInt(graph.V())).title;
+
+			double[] distance = new double[ENGINES.length];
+			int[][] path = new int[ENGINES.length][];
+
+			long time = System.nanoTime();
+			DijkstraShortestPath dijkstra = new DijkstraShortestPath(graph, start, end);
+			nanos[0] += System.nanoTime() - time;
+			settled[0] += dijkstra.settledCount();
+			distance[0] = dijkstra.distanceTo(graph, end);
+			path[0] = dijkstra.endPath;
+
+			time = System.nanoTime();
+			BidirectionalDijkstra bidirectional = new BidirectionalDijkstra(graph, start, end);
+			nanos[1] += System.nanoTime() - time;
+			settled[1] += bidirectional.settledCount();
+			distance[1] = bidirectional.distance();
+			path[1] = bidirectional.edgeNumbers();
+
+			time = System.nanoTime();
+			AStarShortestPath aStar = new AStarShortestPath(graph, start, end);
+			nanos[2] += System.nanoTime() - time;
+			settled[2] += aStar.settledCount();
+			distance[2] = aStar.distance();
+			path[2] = aStar.edgeNumbers();
+
+			time = System.nanoTime();
+			AStarShortestPath alt = new AStarShortestPath(graph, landmarks, start, end);
+			nanos[3] += System.nanoTime() - time;
+			settled[3] += alt.settledCount();
+			distance[3] = alt.distance();
+			path[3] = alt.edgeNumbers();
+
+			time = System.nanoTime();
+			HierarchyShortestPath hierarchy = new HierarchyShortestPath(ch, graph, start, end);
+			path[4] = hierarchy.edgeNumbers();
+			nanos[4] += System.nanoTime() - time;
+			settled[4] += hierarchy.settledCount();
+			distance[4] = hierarchy.distance();
+
+			// Every engine must agree with Dijkstra's algorithm and return a path of the length it reports
+			for (int e = 0; e < ENGINES.length; ++e) {
+				if (!agree(distance[0], distance[e])) {
+					++mismatches;
+					System.out.printf("MISMATCH %s %s -> %s: %.6f vs Dijkstra %.6f\n", ENGINES[e], start, end, distance[e], distance[0]);
+				}
+				else if (path[e] != null && !agree(distance[e], pathLength(graph, path[e], start))) {
+					++mismatches;
+					System.out.println("MISMATCH " + ENGINES[e] + " path " + start + " -> " + end + " is not a connected path of the right length");
+				}
+			}
+		}
+
+		System.out.println(graph.V() + " intersections, " + graph.E() + " streets, " + pairs + " random pairs");
+		for (int e = 0; e < ENGINES.length; ++e) {
+			System.out.printf("\t%-14s %10.1f settled per query, %8.3f ms per query, %6.1fx speedup\n",
+					ENGINES[e] + ":", (double) settled[e] / pairs, nanos[e] / 1e6 / pairs, (double) nanos[0] / nanos[e]);
+		}
+		System.out.println("\t" + mismatches + " distance mismatches");
+	}
+
+	/* Walks a path of edge numbers from the named start, returning its
+	 * length, or NaN if consecutive edges do not connect */
+	private static double pathLength(UndirectedGraph graph, int[] path, String start) {
+		int v = graph.intersectionNo(start);
+		double total = 0.0;
+		for (int e : path) {
+			StreetEdge edge = graph.edgeList[e];
+			if (edge.v.intersectionNo == v) {
+				v = edge.w.intersectionNo;
+			}
+			else if (edge.w.intersectionNo == v) {
+				v = edge.v.intersectionNo;
+			}
+			else {
+				return Double.NaN;
+			}
+			total += edge.weight;
+		}
+		return total;
+	}
+
+	// Returns true if two distances are equal up to rounding
+	private static boolean agree(double a, double b) {
+		if (Double.isInfinite(a) || Double.isInfinite(b)) {
+			return a == b;
+		}
+		return Math.abs(a - b) <= TOLERANCE * Math.max(1.0, Math.abs(a));
+	}
+}
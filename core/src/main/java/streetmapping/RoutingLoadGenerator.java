@@ -0,0 +1,120 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Load generator for a running RoutingService: it reads the same map
+ * file the service was started with (to have real titles to ask for),
+ * then sends /route requests between random intersections from a fixed
+ * number of threads for a number of seconds, each thread sending its
+ * next request as soon as the last is answered. Every second it prints
+ * the requests answered and turned away (503) in that second, and at the
+ * end the sustained requests per second and the 50th, 99th and 99.9th
+ * percentile times of the answered requests.
+ *
+ * Usage: java streetmapping.RoutingLoadGenerator map_file [url] [threads] [seconds] [seed] */
+public class RoutingLoadGenerator {
+
+	protected static final int MAX_SAMPLES = 1 << 22;	// most request times kept for the percentiles
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		UndirectedGraph graph = new UndirectedGraph(new File(args[0]));
+		String url = (args.length > 1) ? args[1] : "http://localhost:" + RoutingService.DEFAULT_PORT;
+		int threads = (args.length > 2) ? Integer.parseInt(args[2]) : 16;
+		int seconds = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+		long seed = (args.length > 4) ? Long.parseLong(args[4]) : 42;
+		if (graph.V() == 0 || threads < 1 || seconds < 1) {
+			throw new IllegalArgumentException("There must be intersections, at least one thread and at least one second.");
+		}
+
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+		LongAdder answered = new LongAdder();	// requests answered with 200 (or 400)
+		LongAdder rejected = new LongAdder();	// requests turned away with 503
+		LongAdder failed = new LongAdder();		// requests that got no answer at all
+		long[] samples = new long[MAX_SAMPLES];
+		AtomicLong sampleCount = new AtomicLong();
+		long end = System.nanoTime() + seconds * 1000000000L;
+
+		Thread[] senders = new Thread[threads];
+		for (int t = 0; t < threads; ++t) {
+			Random random = new Random(seed + t);
+			senders[t] = new Thread(() -> {
+				while (System.nanoTime() < end) {
+					String from = graph.intersection(random.nextInt(graph.V())).title;
+					String to = graph.intersection(random.nextInt(graph.V())).title;
+					HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/route?from=" + encode(from) + "&to=" + encode(to)))
+							.timeout(Duration.ofSeconds(30)).build();
+					long began = System.nanoTime();
+					try {
+						int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+						if (status == 503) {
+							rejected.increment();
+							continue;
+						}
+						answered.increment();
+						long s = sampleCount.getAndIncrement();
+						if (s < MAX_SAMPLES) {
+							samples[(int) s] = System.nanoTime() - began;
+						}
+					}
+					catch (IOException excpt) {
+						failed.increment();
+					}
+					catch (InterruptedException excpt) {
+						return;
+					}
+				}
+			});
+			senders[t].start();
+		}
+
+		// Report each second as it passes
+		long start = System.nanoTime();
+		long lastAnswered = 0;
+		long lastRejected = 0;
+		for (int second = 1; second <= seconds; ++second) {
+			Thread.sleep(Math.max(0, (start + second * 1000000000L - System.nanoTime()) / 1000000));
+			long nowAnswered = answered.sum();
+			long nowRejected = rejected.sum();
+			System.out.printf("%3d s: %7d requests/sec, %6d rejected\n", second, nowAnswered - lastAnswered, nowRejected - lastRejected);
+			lastAnswered = nowAnswered;
+			lastRejected = nowRejected;
+		}
+		for (Thread sender : senders) {
+			sender.join();
+		}
+		double wall = (System.nanoTime() - start) / 1e9;
+
+		int count = (int) Math.min(sampleCount.get(), MAX_SAMPLES);
+		Arrays.sort(samples, 0, count);
+		System.out.printf("%d requests answered in %.1f s on %d threads: %.1f requests/sec sustained; %d rejected (503), %d failed\n",
+				answered.sum(), wall, threads, answered.sum() / wall, rejected.sum(), failed.sum());
+		if (count > 0) {
+			System.out.printf("\tp50 %.3f ms   p99 %.3f ms   p999 %.3f ms   max %.3f ms\n", percentile(samples, count, 0.50) / 1e6,
+					percentile(samples, count, 0.99) / 1e6, percentile(samples, count, 0.999) / 1e6, samples[count - 1] / 1e6);
+		}
+	}
+
+	// Returns the q-th quantile of the first count sorted times
+	private static long percentile(long[] sorted, int count, double q) {
+		int i = (int) Math.ceil(q * count) - 1;
+		return sorted[Math.max(0, Math.min(count - 1, i))];
+	}
+
+	// Returns a title encoded for a query string
+	private static String encode(String title) {
+		return URLEncoder.encode(title, StandardCharsets.UTF_8);
+	}
+}
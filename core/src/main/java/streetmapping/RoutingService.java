@@ -0,0 +1,365 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/* Long-running routing service: loads the map once and answers queries
+ * over HTTP with the JDK's built-in HttpServer, so a route no longer
+ * costs a JVM launch and a map load. Every answer is JSON.
+ *
+ *   GET /route?from=A&to=B       the shortest route, street by street
+ *   GET /distance?from=A&to=B    just its length
+ *   GET /mst                     the minimum spanning tree (or forest)
+ *   GET /matrix?from=A&from=B&to=C&to=D   every origin to every destination
+ *   GET /stats                   requests served and rejected, cache counters
+ *
+ * Titles may be "@latitude,longitude" as everywhere else. /route and
+ * /distance take a batch of pairs at once, either by repeating from and
+ * to in the query (paired up in order) or as a POST body of one
+ * "from to" pair per line; a batch is answered in parallel and comes
+ * back as a list in the same order. Routes go through a RouteCache, and
+ * the spanning tree is found once, the first time it is asked for.
+ *
+ * Each request gets a thread of its own (from a cached pool, standing
+ * in for the virtual threads of newer JDKs), but at most maxInFlight
+ * requests are worked on at once. A request beyond that is turned away
+ * at once with 503 Service Unavailable and a Retry-After header instead
+ * of queueing, so a flood of requests slows nobody down and clients can
+ * back off. A request that fails for any reason but a bad title or
+ * request is answered with 500 and the error, like a 400 is.
+ *
+ * Routes the cache misses are searched from both ends, or over a
+ * contraction hierarchy or with landmark tables saved by [-contract] or
+ * [-landmarks] if their files are given, so a restarted server loads
+ * them instead of recomputing them.
+ *
+ * Usage: java streetmapping.RoutingService map_file [port] [max_in_flight] [hierarchy_file|-] [landmark_file|-] */
+public class RoutingService {
+
+	public static final int DEFAULT_PORT = 8080;			// port served on when none is given
+	protected static final int MAX_BATCH = 10000;			// most pairs one /route or /distance request may ask for
+	protected static final int MAX_MATRIX = 1000000;		// most cells one /matrix request may ask for
+	protected static final long CACHE_BYTES = 64L << 20;	// memory budget of each RouteCache tier
+
+	protected UndirectedGraph graph;		// map being served
+	protected RouteCache cache;				// cache the routes go through
+	protected DistanceMatrix matrix;		// answers /matrix
+	protected HttpServer server;			// the HTTP server
+	protected ExecutorService threads;		// runs each request on its own thread
+	protected Semaphore inFlight;			// one permit per request that may be worked on at once
+	protected int maxInFlight;				// number of those permits
+
+	protected int[] treeEdges;				// edge numbers of the spanning tree, found on first request
+	protected double treeWeight;			// total length of the spanning tree
+
+	protected LongAdder served = new LongAdder();		// requests answered (with any status but 503)
+	protected LongAdder rejected = new LongAdder();		// requests turned away for being over the in-flight limit
+
+	// Constructor that binds the server to the port (0 for any free one) without starting it
+	public RoutingService(UndirectedGraph graph, int port, int maxInFlight) throws IOException {
+		this(graph, null, null, port, maxInFlight);
+	}
+
+	/* Constructor that also routes over a saved contraction hierarchy or
+	 * with landmark tables (either may be null), as RouteCache does */
+	public RoutingService(UndirectedGraph graph, ContractionHierarchy hierarchy, LandmarkTable landmarks, int port, int maxInFlight)
+			throws IOException {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("At least one request must be allowed in flight.");
+		}
+		this.graph = graph;
+		this.maxInFlight = maxInFlight;
+		cache = new RouteCache(graph, hierarchy, landmarks, CACHE_BYTES, CACHE_BYTES);
+		matrix = new DistanceMatrix(graph);
+		inFlight = new Semaphore(maxInFlight);
+
+		AtomicInteger count = new AtomicInteger();
+		threads = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "routing-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.setExecutor(threads);
+		server.createContext("/route", exchange -> handle(exchange, () -> routes(exchange, true)));
+		server.createContext("/distance", exchange -> handle(exchange, () -> routes(exchange, false)));
+		server.createContext("/mst", exchange -> handle(exchange, this::spanningTree));
+		server.createContext("/matrix", exchange -> handle(exchange, () -> matrix(exchange)));
+		server.createContext("/stats", exchange -> handle(exchange, this::stats));
+	}
+
+	public void start() { server.start(); }									// Starts answering requests
+	public int port() { return server.getAddress().getPort(); }				// Returns the port being served on
+	public long served() { return served.sum(); }							// Returns number of requests answered
+	public long rejected() { return rejected.sum(); }						// Returns number of requests turned away
+
+	// Stops the server, giving requests in progress up to the given seconds to finish
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		threads.shutdown();
+		try {
+			threads.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException excpt) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Something that answers a request with JSON
+	private interface Answer {
+		String json() throws IOException;
+	}
+
+	/* Answers one request under the in-flight limit: 503 if over it, 400
+	 * for a bad title or request, 500 if answering it failed any other
+	 * way (so the client is told, not left with a closed connection),
+	 * otherwise 200 with the answer */
+	private void handle(HttpExchange exchange, Answer answer) throws IOException {
+		if (!inFlight.tryAcquire()) {
+			rejected.increment();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, 503, error("Too many requests in flight (limit " + maxInFlight + ")."));
+			return;
+		}
+		try {
+			int status = 200;
+			String json;
+			try {
+				json = answer.json();
+			}
+			catch (IllegalArgumentException excpt) {
+				status = 400;
+				json = error(excpt.getMessage());
+			}
+			catch (IOException | RuntimeException excpt) {
+				System.err.println("Could not answer " + exchange.getRequestURI() + ": " + excpt);
+				status = 500;
+				json = error((excpt.getMessage() != null) ? excpt.getMessage() : excpt.toString());
+			}
+			respond(exchange, status, json);
+			served.increment();
+		}
+		finally {
+			inFlight.release();
+		}
+	}
+
+	/* Answers /route (with the streets) or /distance (without) for every
+	 * pair in the request, in parallel, as one object or a list of them */
+	private String routes(HttpExchange exchange, boolean withStreets) throws IOException {
+		List<String> from = new ArrayList<String>();
+		List<String> to = new ArrayList<String>();
+		for (String[] parameter : parameters(exchange.getRequestURI().getRawQuery())) {
+			if (parameter[0].equals("from")) {
+				from.add(parameter[1]);
+			}
+			else if (parameter[0].equals("to")) {
+				to.add(parameter[1]);
+			}
+		}
+		if (exchange.getRequestMethod().equals("POST")) {
+			BufferedReader body = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+			for (String line = body.readLine(); line != null; line = body.readLine()) {
+				String[] pair = line.trim().split("\\s+");
+				if (pair.length == 2) {
+					from.add(pair[0]);
+					to.add(pair[1]);
+				}
+				else if (!line.isBlank()) {
+					throw new IllegalArgumentException("Each line must be a pair of titles: " + line);
+				}
+			}
+		}
+		if (from.isEmpty() || from.size() != to.size()) {
+			throw new IllegalArgumentException("Give each 'from' a matching 'to'.");
+		}
+		if (from.size() > MAX_BATCH) {
+			throw new IllegalArgumentException("At most " + MAX_BATCH + " pairs may be asked for at once.");
+		}
+
+		if (from.size() == 1) { // a lone pair with an unknown title is a bad request, not a list with one error
+			graph.intersectionNo(from.get(0));
+			graph.intersectionNo(to.get(0));
+		}
+
+		String[] answers = new String[from.size()];
+		IntStream.range(0, answers.length).parallel().forEach(i -> answers[i] = route(from.get(i), to.get(i), withStreets));
+		if (answers.length == 1) {
+			return answers[0];
+		}
+		StringBuilder json = new StringBuilder("{\"results\":[");
+		for (int i = 0; i < answers.length; ++i) {
+			json.append((i > 0) ? "," : "").append(answers[i]);
+		}
+		return json.append("]}").toString();
+	}
+
+	// Returns the JSON answer for one pair, with an "error" in place of the route if it has none
+	private String route(String from, String to, boolean withStreets) {
+		StringBuilder json = new StringBuilder("{\"from\":");
+		quote(json, from).append(",\"to\":");
+		quote(json, to);
+		Route route;
+		try {
+			route = cache.route(from, to);
+		}
+		catch (IllegalArgumentException excpt) {
+			return quote(json.append(",\"error\":"), excpt.getMessage()).append('}').toString();
+		}
+		if (route == null) {
+			return quote(json.append(",\"error\":"), "No path to " + to + " exists.").append('}').toString();
+		}
+		json.append(",\"distance\":").append(route.distance());
+		if (withStreets) {
+			json.append(",\"streets\":[");
+			for (int i = 0; i < route.size(); ++i) {
+				StreetEdge street = graph.edgeList[route.edge(i)];
+				quote(json.append((i > 0) ? ",{\"name\":" : "{\"name\":"), street.edgeName).append(",\"miles\":").append(street.weight).append('}');
+			}
+			json.append(']');
+		}
+		return json.append('}').toString();
+	}
+
+	// Answers /mst, finding the spanning tree the first time it is asked for
+	private String spanningTree() {
+		int[] edges;
+		double weight;
+		synchronized (this) {
+			if (treeEdges == null) {
+				treeEdges = UndirectedGraph.spanningEdges(graph);
+				for (int e : treeEdges) {
+					treeWeight += graph.edgeList[e].weight;
+				}
+			}
+			edges = treeEdges;
+			weight = treeWeight;
+		}
+		StringBuilder json = new StringBuilder(32 * edges.length + 64);
+		json.append("{\"connected\":").append(edges.length == graph.V() - 1).append(",\"distance\":").append(weight).append(",\"streets\":[");
+		for (int i = 0; i < edges.length; ++i) {
+			quote(json.append((i > 0) ? "," : ""), graph.edgeList[edges[i]].edgeName);
+		}
+		return json.append("]}").toString();
+	}
+
+	// Answers /matrix, with null for pairs that have no path
+	private String matrix(HttpExchange exchange) {
+		List<String> from = new ArrayList<String>();
+		List<String> to = new ArrayList<String>();
+		for (String[] parameter : parameters(exchange.getRequestURI().getRawQuery())) {
+			if (parameter[0].equals("from")) {
+				from.add(parameter[1]);
+			}
+			else if (parameter[0].equals("to")) {
+				to.add(parameter[1]);
+			}
+		}
+		if (from.isEmpty() || to.isEmpty()) {
+			throw new IllegalArgumentException("Give at least one 'from' and one 'to'.");
+		}
+		if ((long) from.size() * to.size() > MAX_MATRIX) {
+			throw new IllegalArgumentException("At most " + MAX_MATRIX + " distances may be asked for at once.");
+		}
+		double[] distances = matrix.compute(from.toArray(new String[0]), to.toArray(new String[0]));
+
+		StringBuilder json = new StringBuilder("{\"distances\":[");
+		int M = to.size();
+		for (int i = 0; i < from.size(); ++i) {
+			json.append((i > 0) ? ",[" : "[");
+			for (int j = 0; j < M; ++j) {
+				double distance = distances[i * M + j];
+				json.append((j > 0) ? "," : "").append((distance < Double.POSITIVE_INFINITY) ? Double.toString(distance) : "null");
+			}
+			json.append(']');
+		}
+		return json.append("]}").toString();
+	}
+
+	// Answers /stats
+	private String stats() {
+		StringBuilder json = new StringBuilder("{\"served\":").append(served()).append(",\"rejected\":").append(rejected())
+				.append(",\"inFlight\":").append(maxInFlight - inFlight.availablePermits()).append(",\"maxInFlight\":").append(maxInFlight)
+				.append(",\"cache\":");
+		return quote(json, cache.stats()).append('}').toString();
+	}
+
+	// Returns the name/value pairs of a raw query string, decoded
+	private static List<String[]> parameters(String query) {
+		List<String[]> parameters = new ArrayList<String[]>();
+		if (query == null) {
+			return parameters;
+		}
+		for (String parameter : query.split("&")) {
+			int equals = parameter.indexOf('=');
+			if (equals > 0) {
+				parameters.add(new String[] {
+					URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+					URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8)
+				});
+			}
+		}
+		return parameters;
+	}
+
+	// Returns a JSON object holding just an error message
+	private static String error(String message) {
+		return quote(new StringBuilder("{\"error\":"), message).append('}').toString();
+	}
+
+	// Appends a string to the JSON as a quoted, escaped string
+	private static StringBuilder quote(StringBuilder json, String text) {
+		json.append('"');
+		for (int i = 0; i < text.length(); ++i) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			}
+			else if (c < ' ') {
+				json.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				json.append(c);
+			}
+		}
+		return json.append('"');
+	}
+
+	// Sends the JSON with the given status and closes the exchange
+	private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		UndirectedGraph graph = new UndirectedGraph(new File(args[0]));
+		int port = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+		int maxInFlight = (args.length > 2) ? Integer.parseInt(args[2]) : 4 * Runtime.getRuntime().availableProcessors();
+		ContractionHierarchy hierarchy = (args.length > 3 && !args[3].equals("-")) ? ContractionHierarchy.load(new File(args[3]), graph) : null;
+		LandmarkTable landmarks = (args.length > 4 && !args[4].equals("-")) ? LandmarkTable.load(new File(args[4]), graph) : null;
+
+		RoutingService service = new RoutingService(graph, hierarchy, landmarks, port, maxInFlight);
+		service.start();
+		System.out.printf("Serving %s (%d intersections, %d streets) on port %d, at most %d requests in flight\n",
+				args[0], graph.V(), graph.E(), service.port(), maxInFlight);
+	}
+}
@@ -0,0 +1,62 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/* Java Flight Recorder event for one search of DijkstraShortestPath,
+ * BidirectionalDijkstra or MapMST, made by SearchMetrics.Probe when
+ * metrics are on. Its duration is the whole search, from the first
+ * title lookup to the finished path. Record with, for example,
+ * java -Dstreetmapping.metrics=true -XX:StartFlightRecording=filename=search.jfr ... */
+@Name("streetmapping.Search")
+@Label("Search")
+@Category({"Street Mapping", "Routing"})
+@Description("One shortest path or spanning tree search")
+public class SearchEvent extends jdk.jfr.Event {
+
+	@Label("Algorithm")
+	public String algorithm;	// Dijkstra, Bidirectional or MapMST
+
+	@Label("Origin")
+	@Description("Intersection number the search started from")
+	public int origin;
+
+	@Label("Destination")
+	@Description("Intersection number the search was headed for (-1 if none)")
+	public int destination;
+
+	@Label("Settled")
+	public int settled;			// intersections settled
+
+	@Label("Relaxations")
+	public int relaxations;		// edges looked at from settled intersections
+
+	@Label("Inserts")
+	public int inserts;			// priority queue inserts
+
+	@Label("Decrease Keys")
+	public int decreaseKeys;	// priority queue decreaseKeys
+
+	@Label("Delete Mins")
+	public int delMins;			// priority queue delMins
+
+	@Label("Heap Depth")
+	public int heapDepth;		// most levels the heap had
+
+	@Label("Lookup Time")
+	@Timespan
+	public long lookupNanos;	// time spent looking up intersection titles
+
+	@Label("Search Time")
+	@Timespan
+	public long searchNanos;	// time spent searching
+
+	@Label("Path Time")
+	@Timespan
+	public long pathNanos;		// time spent building the path
+}
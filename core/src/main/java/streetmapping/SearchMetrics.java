@@ -0,0 +1,200 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/* Counters and timers for the searches of DijkstraShortestPath (one
+ * shared set for every search), BidirectionalDijkstra (another) and
+ * MapMST (a third), so a slow query can be told apart from a big one:
+ *
+ * - intersections settled and edges relaxed
+ * - priority queue inserts, decreaseKeys and delMins, and the deepest
+ *   the heap got
+ * - time spent looking up the intersection titles, searching, and
+ *   building the path
+ *
+ * All of this is off unless the program is started with
+ * -Dstreetmapping.metrics=true. ENABLED is a static final constant, so
+ * when it is false the JIT compiler drops every "if (ENABLED)" block in
+ * the searches and they run exactly as before.
+ *
+ * When it is on, each search counts into its own Probe (plain fields,
+ * touched only by the thread doing the search) and adds the totals to
+ * the shared LongAdders once, when it finishes, so the searches never
+ * contend in their inner loops. Each finished search is also a
+ * SearchEvent for Java Flight Recorder, and the totals are published as
+ * JMX MXBeans named streetmapping:type=SearchMetrics,name=Dijkstra (and
+ * name=Bidirectional and name=MapMST), so jconsole or any JMX client
+ * can read them live */
+public class SearchMetrics implements SearchMetricsMXBean {
+
+	public static final boolean ENABLED = Boolean.getBoolean("streetmapping.metrics"); // true to count and time searches
+
+	public static final SearchMetrics DIJKSTRA = new SearchMetrics("Dijkstra");	// totals of DijkstraShortestPath searches
+	public static final SearchMetrics BIDIRECTIONAL = new SearchMetrics("Bidirectional");	// totals of BidirectionalDijkstra searches
+	public static final SearchMetrics PRIM = new SearchMetrics("MapMST");		// totals of MapMST searches
+
+	protected final String name;		// name of the algorithm counted
+	protected final LongAdder searches = new LongAdder();
+	protected final LongAdder settled = new LongAdder();
+	protected final LongAdder relaxations = new LongAdder();
+	protected final LongAdder inserts = new LongAdder();
+	protected final LongAdder decreaseKeys = new LongAdder();
+	protected final LongAdder delMins = new LongAdder();
+	protected final LongAccumulator maxHeapDepth = new LongAccumulator(Math::max, 0);
+	protected final LongAdder lookupNanos = new LongAdder();
+	protected final LongAdder searchNanos = new LongAdder();
+	protected final LongAdder pathNanos = new LongAdder();
+
+	// Constructor that registers the totals with the platform MBean server (only when enabled)
+	protected SearchMetrics(String name) {
+		this.name = name;
+		if (ENABLED) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("streetmapping:type=SearchMetrics,name=" + name));
+			}
+			catch (JMException excpt) {
+				System.err.println("Could not register search metrics for " + name + ": " + excpt.getMessage());
+			}
+		}
+	}
+
+	// Starts counting a search on a heap of the given arity
+	public Probe probe(int arity) {
+		return new Probe(this, arity);
+	}
+
+	// Adds the time taken to build a path after its search finished (the paths of a one-to-all search)
+	public void pathBuilt(long nanos) {
+		pathNanos.add(nanos);
+	}
+
+	@Override public String getName() { return name; }
+	@Override public long getSearches() { return searches.sum(); }
+	@Override public long getSettled() { return settled.sum(); }
+	@Override public long getRelaxations() { return relaxations.sum(); }
+	@Override public long getInserts() { return inserts.sum(); }
+	@Override public long getDecreaseKeys() { return decreaseKeys.sum(); }
+	@Override public long getDelMins() { return delMins.sum(); }
+	@Override public long getMaxHeapDepth() { return maxHeapDepth.get(); }
+	@Override public long getLookupNanos() { return lookupNanos.sum(); }
+	@Override public long getSearchNanos() { return searchNanos.sum(); }
+	@Override public long getPathNanos() { return pathNanos.sum(); }
+
+	// Returns the totals so far in one line, with the averages per search
+	@Override
+	public String toString() {
+		long n = Math.max(1, searches.sum());
+		return String.format("%s: %d searches, %.1f settled, %.1f relaxations, %.1f inserts, %.1f decreaseKeys, %.1f delMins per search,"
+				+ " heap depth up to %d; %.3f ms lookup, %.3f ms search, %.3f ms path per search",
+				name, searches.sum(), (double) settled.sum() / n, (double) relaxations.sum() / n, (double) inserts.sum() / n,
+				(double) decreaseKeys.sum() / n, (double) delMins.sum() / n, maxHeapDepth.get(),
+				lookupNanos.sum() / 1e6 / n, searchNanos.sum() / 1e6 / n, pathNanos.sum() / 1e6 / n);
+	}
+
+	// Returns a line of totals for each algorithm that has run, or an empty string if metrics are off
+	public static String summary() {
+		StringBuilder lines = new StringBuilder();
+		for (SearchMetrics metrics : new SearchMetrics[] {DIJKSTRA, BIDIRECTIONAL, PRIM}) {
+			if (ENABLED && metrics.searches.sum() > 0) {
+				lines.append('\t').append(metrics).append('\n');
+			}
+		}
+		return lines.toString();
+	}
+
+	/* The counts and phase times of one search, kept in plain fields by
+	 * the thread running it. The search calls the phase methods as each
+	 * phase ends, and finish() once at the end */
+	public static class Probe {
+		protected final SearchMetrics metrics;	// totals to add to when finished
+		protected final SearchEvent event;		// flight recorder event for the whole search
+		protected final int arity;				// arity of the search's heap
+
+		public int settled = 0;			// intersections settled
+		public int relaxations = 0;		// edges looked at from settled intersections
+		public int inserts = 0;			// priority queue inserts
+		public int decreaseKeys = 0;	// priority queue decreaseKeys
+		public int delMins = 0;			// priority queue delMins
+		public int maxQueued = 0;		// most items the queue has held at once
+
+		protected long lookupNanos = 0;	// time spent in each phase
+		protected long searchNanos = 0;
+		protected long pathNanos = 0;
+		protected long mark;			// time the current phase began
+
+		protected Probe(SearchMetrics metrics, int arity) {
+			this.metrics = metrics;
+			this.arity = arity;
+			event = new SearchEvent();
+			event.begin();
+			mark = System.nanoTime();
+		}
+
+		// Notes that an item was inserted into a queue now holding 'size' items
+		public void inserted(int size) {
+			++inserts;
+			if (size > maxQueued) {
+				maxQueued = size;
+			}
+		}
+
+		public void lookedUp() { lookupNanos += lap(); }	// Ends the lookup phase
+		public void searched() { searchNanos += lap(); }	// Ends the search phase
+		public void pathBuilt() { pathNanos += lap(); }		// Ends the path building phase
+
+		// Returns the time since the last phase ended, starting the next one
+		private long lap() {
+			long now = System.nanoTime();
+			long elapsed = now - mark;
+			mark = now;
+			return elapsed;
+		}
+
+		// Returns the number of levels a heap of this arity had at its fullest
+		public int heapDepth() {
+			int depth = 0;
+			long level = 1;
+			for (long held = 0; held < maxQueued; held += level, level *= arity) {
+				++depth;
+			}
+			return depth;
+		}
+
+		// Adds this search to the totals and commits its flight recorder event
+		public void finish(int start, int end) {
+			metrics.searches.increment();
+			metrics.settled.add(settled);
+			metrics.relaxations.add(relaxations);
+			metrics.inserts.add(inserts);
+			metrics.decreaseKeys.add(decreaseKeys);
+			metrics.delMins.add(delMins);
+			metrics.maxHeapDepth.accumulate(heapDepth());
+			metrics.lookupNanos.add(lookupNanos);
+			metrics.searchNanos.add(searchNanos);
+			metrics.pathNanos.add(pathNanos);
+
+			event.end();
+			if (event.shouldCommit()) {
+				event.algorithm = metrics.name;
+				event.origin = start;
+				event.destination = end;
+				event.settled = settled;
+				event.relaxations = relaxations;
+				event.inserts = inserts;
+				event.decreaseKeys = decreaseKeys;
+				event.delMins = delMins;
+				event.heapDepth = heapDepth();
+				event.lookupNanos = lookupNanos;
+				event.searchNanos = searchNanos;
+				event.pathNanos = pathNanos;
+				event.commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,18 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+// The totals of a SearchMetrics as seen over JMX
+public interface SearchMetricsMXBean {
+	String getName();			// name of the algorithm counted
+	long getSearches();			// searches finished
+	long getSettled();			// intersections settled
+	long getRelaxations();		// edges looked at from settled intersections
+	long getInserts();			// priority queue inserts
+	long getDecreaseKeys();		// priority queue decreaseKeys
+	long getDelMins();			// priority queue delMins
+	long getMaxHeapDepth();		// most levels the heap has had in any search
+	long getLookupNanos();		// time spent looking up intersection titles
+	long getSearchNanos();		// time spent searching
+	long getPathNanos();		// time spent building paths
+}
@@ -0,0 +1,429 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/* Uniform grid over the intersections and streets of a graph, used to
+ * snap GPS coordinates onto the map: the nearest intersection, the
+ * nearest point on any street, and all intersections within a radius or
+ * a latitude/longitude box.
+ *
+ * Coordinates are projected onto a flat plane in miles around the map's
+ * middle latitude, which is accurate to well under one percent across a
+ * city or region. The grid has about two intersections per cell; each
+ * intersection is filed under the cell it lies in and each street under
+ * every cell its bounding box touches, both packed into CSR-style arrays
+ * like UndirectedGraph's adjacency. A nearest query searches rings of
+ * cells outward from the query point and stops once the nearest thing
+ * found is closer than anything outside the rings searched could be.
+ *
+ * The index is read-only once built, so any number of threads may query
+ * it at once; the batch methods spread their queries over the common
+ * ForkJoin pool. UndirectedGraph builds one the first time a title of the
+ * form "@latitude,longitude" is looked up */
+public class SpatialIndex {
+
+	protected static final double MILES_PER_DEGREE = UndirectedGraph.R * Math.PI / 180 / 1.609;	// miles per degree of latitude, as in calcDistanceMiles()
+	protected static final int POINTS_PER_CELL = 2;	// intersections per grid cell on average
+
+	protected int V;					// number of intersections
+	protected double originLatitude;	// latitude of the grid's bottom edge
+	protected double originLongitude;	// longitude of the grid's left edge
+	protected double xMiles;			// miles per degree of longitude at the middle latitude
+	protected double[] x;				// x[v] is intersection v's distance east of the grid's left edge in miles
+	protected double[] y;				// y[v] is intersection v's distance north of the grid's bottom edge in miles
+	protected int[] edgeV;				// edgeV[e] is one intersection number of edge number e
+	protected int[] edgeW;				// edgeW[e] is the other intersection number of edge number e
+
+	protected double cellSize;			// width and height of a cell in miles
+	protected int columns;				// number of cells across
+	protected int rows;					// number of cells down
+	protected int[] vertexStart;		// intersections in cell c are cellVertices[vertexStart[c] .. vertexStart[c+1])
+	protected int[] cellVertices;
+	protected int[] edgeStart;			// streets touching cell c are cellEdges[edgeStart[c] .. edgeStart[c+1])
+	protected int[] cellEdges;
+	protected long buildMillis;			// time taken to build the index
+
+	// Constructor that indexes every intersection and street of the graph
+	public SpatialIndex(UndirectedGraph graph) {
+		long start = System.currentTimeMillis();
+		V = graph.V();
+		int E = graph.E();
+
+		double minLatitude = Double.POSITIVE_INFINITY, maxLatitude = Double.NEGATIVE_INFINITY;
+		double minLongitude = Double.POSITIVE_INFINITY, maxLongitude = Double.NEGATIVE_INFINITY;
+		for (int v = 0; v < V; ++v) {
+			Intersection inter = graph.intersection(v);
+			minLatitude = Math.min(minLatitude, inter.latitude);
+			maxLatitude = Math.max(maxLatitude, inter.latitude);
+			minLongitude = Math.min(minLongitude, inter.longitude);
+			maxLongitude = Math.max(maxLongitude, inter.longitude);
+		}
+		if (V == 0) {
+			minLatitude = maxLatitude = minLongitude = maxLongitude = 0.0;
+		}
+		originLatitude = minLatitude;
+		originLongitude = minLongitude;
+		xMiles = MILES_PER_DEGREE * Math.cos(Math.toRadians((minLatitude + maxLatitude) / 2));
+
+		x = new double[V];
+		y = new double[V];
+		for (int v = 0; v < V; ++v) {
+			Intersection inter = graph.intersection(v);
+			x[v] = (inter.longitude - originLongitude) * xMiles;
+			y[v] = (inter.latitude - originLatitude) * MILES_PER_DEGREE;
+		}
+
+		// Square cells sized for about POINTS_PER_CELL intersections each (a map that is one line or point still gets a usable size)
+		double width = (maxLongitude - minLongitude) * xMiles;
+		double height = (maxLatitude - minLatitude) * MILES_PER_DEGREE;
+		int cellsWanted = Math.max(1, V / POINTS_PER_CELL);
+		cellSize = Math.max(Math.sqrt(width * height / cellsWanted), (width + height) / cellsWanted);
+		if (!(cellSize > 0.0)) {
+			cellSize = 1.0;
+		}
+		columns = (int) (width / cellSize) + 1;
+		rows = (int) (height / cellSize) + 1;
+		int cells = columns * rows;
+
+		// File each intersection under its cell by counting sort
+		vertexStart = new int[cells + 1];
+		int[] cellOf = new int[V];
+		for (int v = 0; v < V; ++v) {
+			cellOf[v] = cell(column(x[v]), row(y[v]));
+			++vertexStart[cellOf[v] + 1];
+		}
+		for (int c = 0; c < cells; ++c) {
+			vertexStart[c + 1] += vertexStart[c];
+		}
+		cellVertices = new int[V];
+		int[] next = Arrays.copyOf(vertexStart, cells);
+		for (int v = 0; v < V; ++v) {
+			cellVertices[next[cellOf[v]]++] = v;
+		}
+
+		// File each street under every cell its bounding box touches, counting first then filling
+		edgeV = new int[E];
+		edgeW = new int[E];
+		for (int e = 0; e < E; ++e) {
+			StreetEdge street = graph.edgeList[e];
+			edgeV[e] = street.v.intersectionNo;
+			edgeW[e] = street.w.intersectionNo;
+		}
+		edgeStart = new int[cells + 1];
+		for (int e = 0; e < E; ++e) {
+			int[] box = cellBox(e);
+			for (int r = box[1]; r <= box[3]; ++r) {
+				for (int c = box[0]; c <= box[2]; ++c) {
+					++edgeStart[cell(c, r) + 1];
+				}
+			}
+		}
+		for (int c = 0; c < cells; ++c) {
+			edgeStart[c + 1] += edgeStart[c];
+		}
+		cellEdges = new int[edgeStart[cells]];
+		next = Arrays.copyOf(edgeStart, cells);
+		for (int e = 0; e < E; ++e) {
+			int[] box = cellBox(e);
+			for (int r = box[1]; r <= box[3]; ++r) {
+				for (int c = box[0]; c <= box[2]; ++c) {
+					cellEdges[next[cell(c, r)]++] = e;
+				}
+			}
+		}
+
+		buildMillis = System.currentTimeMillis() - start;
+	}
+
+	public int columns() { return columns; }				// Returns number of grid cells across
+	public int rows() { return rows; }						// Returns number of grid cells down
+	public double cellSize() { return cellSize; }			// Returns the width of a grid cell in miles
+	public long buildMillis() { return buildMillis; }		// Returns time taken to build the index
+
+	/* Returns the intersection number of the intersection nearest to the
+	 * given coordinates, or -1 if the map has no intersections */
+	public int nearest(double latitude, double longitude) {
+		double qx = toX(longitude);
+		double qy = toY(latitude);
+		int cx = column(qx);
+		int cy = row(qy);
+
+		int best = -1;
+		double bestSquared = Double.POSITIVE_INFINITY;
+		for (int r = 0; ; ++r) {
+			for (int c : ring(cx, cy, r)) {
+				for (int i = vertexStart[c]; i < vertexStart[c + 1]; ++i) {
+					int v = cellVertices[i];
+					double dx = x[v] - qx;
+					double dy = y[v] - qy;
+					double squared = dx * dx + dy * dy;
+					if (squared < bestSquared || (squared == bestSquared && v < best)) {
+						best = v;
+						bestSquared = squared;
+					}
+				}
+			}
+			if (finished(qx, qy, cx, cy, r, bestSquared)) {
+				return best;
+			}
+		}
+	}
+
+	/* Returns the point on any street nearest to the given coordinates,
+	 * or null if the map has no streets */
+	public Projection project(double latitude, double longitude) {
+		double qx = toX(longitude);
+		double qy = toY(latitude);
+		int cx = column(qx);
+		int cy = row(qy);
+
+		int best = -1;
+		double bestFraction = 0.0;
+		double bestSquared = Double.POSITIVE_INFINITY;
+		for (int r = 0; ; ++r) {
+			for (int c : ring(cx, cy, r)) {
+				for (int i = edgeStart[c]; i < edgeStart[c + 1]; ++i) {
+					int e = cellEdges[i];
+					double t = fraction(e, qx, qy);
+					double dx = x[edgeV[e]] + t * (x[edgeW[e]] - x[edgeV[e]]) - qx;
+					double dy = y[edgeV[e]] + t * (y[edgeW[e]] - y[edgeV[e]]) - qy;
+					double squared = dx * dx + dy * dy;
+					if (squared < bestSquared || (squared == bestSquared && e < best)) {
+						best = e;
+						bestFraction = t;
+						bestSquared = squared;
+					}
+				}
+			}
+			if (finished(qx, qy, cx, cy, r, bestSquared)) {
+				break;
+			}
+		}
+		if (best == -1) {
+			return null;
+		}
+
+		double px = x[edgeV[best]] + bestFraction * (x[edgeW[best]] - x[edgeV[best]]);
+		double py = y[edgeV[best]] + bestFraction * (y[edgeW[best]] - y[edgeV[best]]);
+		return new Projection(best, bestFraction, py / MILES_PER_DEGREE + originLatitude, px / xMiles + originLongitude, Math.sqrt(bestSquared));
+	}
+
+	// Returns the intersection numbers within the given number of miles of the coordinates
+	public int[] withinRadius(double latitude, double longitude, double miles) {
+		double qx = toX(longitude);
+		double qy = toY(latitude);
+		double limit = miles * miles;
+		IntList found = new IntList();
+		for (int r = row(qy - miles); r <= row(qy + miles); ++r) {
+			for (int c = column(qx - miles); c <= column(qx + miles); ++c) {
+				int cell = cell(c, r);
+				for (int i = vertexStart[cell]; i < vertexStart[cell + 1]; ++i) {
+					int v = cellVertices[i];
+					double dx = x[v] - qx;
+					double dy = y[v] - qy;
+					if (dx * dx + dy * dy <= limit) {
+						found.add(v);
+					}
+				}
+			}
+		}
+		return found.toArray();
+	}
+
+	// Returns the intersection numbers inside the latitude/longitude box
+	public int[] withinBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+		double x0 = toX(minLongitude), x1 = toX(maxLongitude);
+		double y0 = toY(minLatitude), y1 = toY(maxLatitude);
+		IntList found = new IntList();
+		for (int r = row(y0); r <= row(y1); ++r) {
+			for (int c = column(x0); c <= column(x1); ++c) {
+				int cell = cell(c, r);
+				for (int i = vertexStart[cell]; i < vertexStart[cell + 1]; ++i) {
+					int v = cellVertices[i];
+					if (x[v] >= x0 && x[v] <= x1 && y[v] >= y0 && y[v] <= y1) {
+						found.add(v);
+					}
+				}
+			}
+		}
+		return found.toArray();
+	}
+
+	/* Returns the edge numbers of the streets whose bounding boxes share a
+	 * grid cell with the latitude/longitude box, a small superset of the
+	 * streets crossing it (used to cull what is off screen). A street
+	 * filed under several of the cells is reported only from the first
+	 * one inside the box, so no street is reported twice */
+	public int[] streetsInBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+		int c0 = column(toX(minLongitude)), c1 = column(toX(maxLongitude));
+		int r0 = row(toY(minLatitude)), r1 = row(toY(maxLatitude));
+		IntList found = new IntList();
+		for (int r = r0; r <= r1; ++r) {
+			for (int c = c0; c <= c1; ++c) {
+				int cell = cell(c, r);
+				for (int i = edgeStart[cell]; i < edgeStart[cell + 1]; ++i) {
+					int e = cellEdges[i];
+					int a = edgeV[e], b = edgeW[e];
+					if (c == Math.max(column(Math.min(x[a], x[b])), c0) && r == Math.max(row(Math.min(y[a], y[b])), r0)) {
+						found.add(e);
+					}
+				}
+			}
+		}
+		return found.toArray();
+	}
+
+	// Snaps every (latitudes[i], longitudes[i]) to its nearest intersection, in parallel
+	public int[] nearest(double[] latitudes, double[] longitudes) {
+		checkLengths(latitudes, longitudes);
+		int[] snapped = new int[latitudes.length];
+		IntStream.range(0, snapped.length).parallel().forEach(i -> snapped[i] = nearest(latitudes[i], longitudes[i]));
+		return snapped;
+	}
+
+	// Projects every (latitudes[i], longitudes[i]) onto its nearest street, in parallel
+	public Projection[] project(double[] latitudes, double[] longitudes) {
+		checkLengths(latitudes, longitudes);
+		Projection[] snapped = new Projection[latitudes.length];
+		IntStream.range(0, snapped.length).parallel().forEach(i -> snapped[i] = project(latitudes[i], longitudes[i]));
+		return snapped;
+	}
+
+	/* Parses a title of the form "@latitude,longitude" into its two
+	 * numbers, throwing an exception if it is not one */
+	public static double[] parseCoordinates(String title) {
+		int comma = title.indexOf(',');
+		if (!title.startsWith("@") || comma < 0) {
+			throw new IllegalArgumentException("Coordinates must be given as @latitude,longitude but found " + title + ".");
+		}
+		try {
+			double latitude = Double.parseDouble(title.substring(1, comma).trim());
+			double longitude = Double.parseDouble(title.substring(comma + 1).trim());
+			if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+				throw new IllegalArgumentException("Coordinates " + title + " are off the globe.");
+			}
+			return new double[] {latitude, longitude};
+		}
+		catch (NumberFormatException excpt) {
+			throw new IllegalArgumentException("Coordinates must be given as @latitude,longitude but found " + title + ".");
+		}
+	}
+
+	/* Returns true once a ring search has searched every cell, or has
+	 * found something no farther than anything outside the searched
+	 * square can be: the distance from the query to the nearest side of
+	 * the square that does not lie on the edge of the grid */
+	private boolean finished(double qx, double qy, int cx, int cy, int r, double bestSquared) {
+		double bound = Double.POSITIVE_INFINITY;
+		if (cx - r > 0) {
+			bound = Math.min(bound, qx - (cx - r) * cellSize);
+		}
+		if (cx + r < columns - 1) {
+			bound = Math.min(bound, (cx + r + 1) * cellSize - qx);
+		}
+		if (cy - r > 0) {
+			bound = Math.min(bound, qy - (cy - r) * cellSize);
+		}
+		if (cy + r < rows - 1) {
+			bound = Math.min(bound, (cy + r + 1) * cellSize - qy);
+		}
+		if (bound == Double.POSITIVE_INFINITY) {
+			return true;
+		}
+		bound = Math.max(0.0, bound);
+		return bestSquared <= bound * bound;
+	}
+
+	// Returns the cells at ring distance r around cell (cx, cy) that lie inside the grid
+	private int[] ring(int cx, int cy, int r) {
+		if (r == 0) {
+			return new int[] {cell(cx, cy)};
+		}
+		IntList cells = new IntList();
+		for (int c = cx - r; c <= cx + r; ++c) {
+			if (c >= 0 && c < columns) {
+				if (cy - r >= 0) cells.add(cell(c, cy - r));
+				if (cy + r < rows) cells.add(cell(c, cy + r));
+			}
+		}
+		for (int row = cy - r + 1; row <= cy + r - 1; ++row) {
+			if (row >= 0 && row < rows) {
+				if (cx - r >= 0) cells.add(cell(cx - r, row));
+				if (cx + r < columns) cells.add(cell(cx + r, row));
+			}
+		}
+		return cells.toArray();
+	}
+
+	// Returns how far along edge e (0 at edgeV, 1 at edgeW) the point nearest to (qx, qy) is
+	private double fraction(int e, double qx, double qy) {
+		double ax = x[edgeV[e]], ay = y[edgeV[e]];
+		double dx = x[edgeW[e]] - ax, dy = y[edgeW[e]] - ay;
+		double length = dx * dx + dy * dy;
+		if (length == 0.0) {
+			return 0.0;
+		}
+		return Math.max(0.0, Math.min(1.0, ((qx - ax) * dx + (qy - ay) * dy) / length));
+	}
+
+	// Returns the column, row range {c0, r0, c1, r1} of edge e's bounding box
+	private int[] cellBox(int e) {
+		int a = edgeV[e], b = edgeW[e];
+		return new int[] {column(Math.min(x[a], x[b])), row(Math.min(y[a], y[b])), column(Math.max(x[a], x[b])), row(Math.max(y[a], y[b]))};
+	}
+
+	private double toX(double longitude) { return (longitude - originLongitude) * xMiles; }
+	private double toY(double latitude) { return (latitude - originLatitude) * MILES_PER_DEGREE; }
+	private int column(double px) { return (int) Math.max(0, Math.min(columns - 1, Math.floor(px / cellSize))); }	// clamped onto the grid
+	private int row(double py) { return (int) Math.max(0, Math.min(rows - 1, Math.floor(py / cellSize))); }		// clamped onto the grid
+	private int cell(int column, int row) { return row * columns + column; }
+
+	private static void checkLengths(double[] latitudes, double[] longitudes) {
+		if (latitudes.length != longitudes.length) {
+			throw new IllegalArgumentException("Got " + latitudes.length + " latitudes but " + longitudes.length + " longitudes.");
+		}
+	}
+
+	/* The point on a street nearest to some coordinates: which street,
+	 * how far along it from its first intersection (v) to its second (w),
+	 * where that point is, and how far the coordinates are from it */
+	public static class Projection {
+		private final int edgeNo;			// edge number of the street
+		private final double fraction;		// 0 at the street's v intersection, 1 at its w intersection
+		private final double latitude;		// latitude of the point on the street
+		private final double longitude;		// longitude of the point on the street
+		private final double distance;		// miles from the coordinates to the point
+
+		public Projection(int edgeNo, double fraction, double latitude, double longitude, double distance) {
+			this.edgeNo = edgeNo;
+			this.fraction = fraction;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.distance = distance;
+		}
+
+		public int edgeNo() { return edgeNo; }				// Returns edge number of the street
+		public double fraction() { return fraction; }		// Returns how far along the street the point is (0 to 1)
+		public double latitude() { return latitude; }		// Returns latitude of the point
+		public double longitude() { return longitude; }		// Returns longitude of the point
+		public double distance() { return distance; }		// Returns miles from the coordinates to the point
+	}
+
+	// Growable list of ints for query results
+	private static class IntList {
+		int[] items = new int[8];
+		int size = 0;
+
+		void add(int item) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, 2 * size);
+			}
+			items[size++] = item;
+		}
+
+		int[] toArray() { return Arrays.copyOf(items, size); }
+	}
+}
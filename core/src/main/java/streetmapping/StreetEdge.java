@@ -1,6 +1,6 @@
 /* Code & Commentary by Grayson Westfall */
 
-import java.awt.Color;
+package streetmapping;
 
 /* StreetEdge class used as edges in the UndirectedGraph class */
 public class StreetEdge implements Comparable<StreetEdge> {
@@ -9,14 +9,15 @@ public class StreetEdge implements Comparable<StreetEdge> {
 	protected Intersection v;				// 1st intersection incident to the edge
 	protected Intersection w;				// 2nd intersection incident to the edge
 	protected double weight;				// the edge's weight (distance between the vertices)
-	protected Color color = Color.BLACK;    // the edge's color (used when displaying map)
+	protected int edgeNo;					// the integer number associated with the edge
 	
-	// Constructor to initialize edgeName, v, w, and weight
-	public StreetEdge(String edgeName, Intersection v, Intersection w, double weight) {
+	// Constructor to initialize edgeName, v, w, weight, and edgeNo
+	public StreetEdge(String edgeName, Intersection v, Intersection w, double weight, int edgeNo) {
 		this.edgeName = edgeName;
 		this.v = v;
 		this.w = w;
 		this.weight = weight;
+		this.edgeNo = edgeNo;
 	}
 	
 	public double weight() { return weight; }   // method to return weight 
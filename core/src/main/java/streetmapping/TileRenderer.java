@@ -0,0 +1,403 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import javax.imageio.ImageIO;
+import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/* Headless renderer that draws the map as square PNG tiles in the usual
+ * web map layout, zoom/x/y.png, for a web front end to show without a
+ * JFrame. It uses MapFrame's Mercator projection: at zoom z the whole
+ * world is 2^z tiles across and down, with tile (0, 0) at the top left.
+ *
+ * Each tile fetches only the streets near it through the graph's
+ * SpatialIndex grid. Streets that shrink to a single pixel at the tile's
+ * zoom are filled in as that one pixel (once) instead of being drawn as
+ * lines, so zoomed out tiles of a big map do not redraw each pixel many
+ * times over. A tile is either the network in black with the highlighted
+ * streets (a route or a tree) in red on top, or just the highlighted
+ * streets on a transparent background, as an overlay for tiles that are
+ * already being served.
+ *
+ * The renderer is read-only once built, so renderTiles() draws many
+ * tiles at once on a pool of worker threads, each tile into its own
+ * image. Tiles with nothing on them are not written.
+ *
+ * Usage: java TileRenderer map_file output_dir [min_zoom] [max_zoom] [threads] [start end]
+ * (with a start and end intersection, only the route between them is
+ * drawn, as overlay tiles) */
+public class TileRenderer {
+
+	public static final int TILE_SIZE = 256;	// width and height of a tile in pixels
+	public static final int MAX_ZOOM = 22;		// deepest zoom level tiles can be drawn at
+
+	protected static final Color BACKGROUND = Color.WHITE;	// color of a tile where there are no streets
+	protected static final Color STREET = Color.BLACK;		// color of the street network
+	protected static final Color HIGHLIGHT = Color.RED;		// color of the highlighted streets
+
+	protected UndirectedGraph graph;		// graph being drawn, for its spatial index
+
+	/* coordinates[4e .. 4e+3] are {x1, y1, x2, y2} of edge number e on the
+	 * zoom 0 world, from 0 to 1 left to right and top to bottom (NaN for
+	 * streets not drawn) */
+	protected double[] coordinates;
+	protected int[] highlightedStreets;		// edge numbers to draw in red
+	protected boolean[] isHighlighted;		// isHighlighted[e] is true if edge number e is in highlightedStreets
+	protected double[] bounds;				// {minX, minY, maxX, maxY} of every street drawn
+	protected double[] highlightBounds;		// the same for just the highlighted streets
+
+	// Constructor for a renderer that draws the map with nothing highlighted
+	public TileRenderer(UndirectedGraph graph) {
+		this(graph, new int[0]);
+	}
+
+	// Constructor that projects every street, drawing the given edge numbers (a route or an MST) in red
+	public TileRenderer(UndirectedGraph graph, int[] highlightedEdges) {
+		this.graph = graph;
+		coordinates = new double[4 * graph.E()];
+		for (StreetEdge street : graph.edgeList) {
+			int i = 4 * street.edgeNo;
+
+			// Omits double edge mistake in input for ur.txt, as MapFrame does
+			if (street.edgeName.equals("r15")) {
+				Arrays.fill(coordinates, i, i + 4, Double.NaN);
+				continue;
+			}
+			coordinates[i] = worldX(street.v.longitude);
+			coordinates[i + 1] = worldY(street.v.latitude);
+			coordinates[i + 2] = worldX(street.w.longitude);
+			coordinates[i + 3] = worldY(street.w.latitude);
+		}
+
+		highlightedStreets = highlightedEdges.clone();
+		isHighlighted = new boolean[graph.E()];
+		for (int e : highlightedStreets) {
+			if (e < 0 || e >= graph.E()) {
+				throw new IllegalArgumentException("No edge number " + e + " in this map.");
+			}
+			isHighlighted[e] = true;
+		}
+
+		bounds = boundsOf(null);
+		highlightBounds = boundsOf(highlightedStreets);
+	}
+
+	/* Returns tile (x, y) at the given zoom with the network in black and
+	 * the highlighted streets in red, or null if no street crosses it */
+	public BufferedImage renderTile(int zoom, int x, int y) {
+		checkTile(zoom, x, y);
+		int[] nearby = streetsNear(zoom, x, y);
+		BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = tile.createGraphics();
+		g.setColor(BACKGROUND);
+		g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+
+		boolean drawn = drawStreets(g, tile, STREET, zoom, x, y, nearby);
+		if (highlightedStreets.length > 0) {
+			drawn |= drawStreets(g, tile, HIGHLIGHT, zoom, x, y, highlightsNear(nearby, zoom, x, y));
+		}
+		g.dispose();
+		return drawn ? tile : null;
+	}
+
+	/* Returns tile (x, y) at the given zoom with only the highlighted
+	 * streets, in red on a transparent background, or null if none of them
+	 * crosses it */
+	public BufferedImage renderOverlay(int zoom, int x, int y) {
+		checkTile(zoom, x, y);
+		if (highlightedStreets.length == 0) {
+			return null;
+		}
+		BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = tile.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		boolean drawn = drawStreets(g, tile, HIGHLIGHT, zoom, x, y, highlightsNear(null, zoom, x, y));
+		g.dispose();
+		return drawn ? tile : null;
+	}
+
+	/* Returns {minX, minY, maxX, maxY}, the tiles at the given zoom that
+	 * the map (or just its highlighted streets) covers, or null if there
+	 * is nothing to draw */
+	public int[] tileRange(int zoom, boolean overlayOnly) {
+		double[] box = overlayOnly ? highlightBounds : bounds;
+		if (box == null) {
+			return null;
+		}
+		int last = (1 << zoom) - 1;
+		double tiles = 1 << zoom;
+		return new int[] {
+			Math.min(last, (int) (box[0] * tiles)), Math.min(last, (int) (box[1] * tiles)),
+			Math.min(last, (int) (box[2] * tiles)), Math.min(last, (int) (box[3] * tiles))
+		};
+	}
+
+	// Returns the deepest zoom at which the whole map fits on a single tile
+	public int fitZoom() {
+		if (bounds == null) {
+			return 0;
+		}
+		int zoom = 0;
+		while (zoom < MAX_ZOOM) {
+			int[] range = tileRange(zoom + 1, false);
+			if (range[0] != range[2] || range[1] != range[3]) {
+				break;
+			}
+			++zoom;
+		}
+		return zoom;
+	}
+
+	/* Draws every tile the map covers from minZoom to maxZoom into
+	 * directory/zoom/x/y.png, spreading the tiles over the given number
+	 * of worker threads. With overlayOnly, only the highlighted streets
+	 * are drawn, and only the tiles they cross are written */
+	public Batch renderTiles(File directory, int minZoom, int maxZoom, boolean overlayOnly, int threads) throws IOException {
+		if (minZoom < 0 || maxZoom > MAX_ZOOM || minZoom > maxZoom) {
+			throw new IllegalArgumentException("Zoom levels must run from 0 to " + MAX_ZOOM + ", low to high.");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed to draw tiles.");
+		}
+
+		long start = System.nanoTime();
+		AtomicInteger written = new AtomicInteger();
+		int tiles = 0;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (int zoom = minZoom; zoom <= maxZoom; ++zoom) {
+				int[] range = tileRange(zoom, overlayOnly);
+				if (range == null) {
+					break;
+				}
+				int z = zoom;
+				int columns = range[2] - range[0] + 1;
+				int count = columns * (range[3] - range[1] + 1);
+				tiles += count;
+
+				// Make the x folders first so the workers never race to create them
+				for (int x = range[0]; x <= range[2]; ++x) {
+					File folder = new File(directory, z + File.separator + x);
+					if (!folder.isDirectory() && !folder.mkdirs()) {
+						throw new IOException("Could not create " + folder.getPath());
+					}
+				}
+
+				pool.submit(() -> IntStream.range(0, count).parallel().forEach(i -> {
+					int x = range[0] + i % columns;
+					int y = range[1] + i / columns;
+					BufferedImage tile = overlayOnly ? renderOverlay(z, x, y) : renderTile(z, x, y);
+					if (tile != null) {
+						try {
+							ImageIO.write(tile, "png", new File(directory, z + File.separator + x + File.separator + y + ".png"));
+						}
+						catch (IOException excpt) {
+							throw new UncheckedIOException(excpt);
+						}
+						written.incrementAndGet();
+					}
+				})).get();
+			}
+		}
+		catch (ExecutionException excpt) {
+			if (excpt.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) excpt.getCause()).getCause();
+			}
+			throw new RuntimeException(excpt.getCause());
+		}
+		catch (InterruptedException excpt) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while drawing tiles");
+		}
+		finally {
+			pool.shutdown();
+		}
+		return new Batch(tiles, written.get(), threads, System.nanoTime() - start);
+	}
+
+	/* Returns the edge numbers of the streets near tile (x, y), looked up
+	 * in the spatial index with a pixel of margin for lines on the edge */
+	protected int[] streetsNear(int zoom, int x, int y) {
+		double tiles = 1 << zoom;
+		double margin = 1.0 / TILE_SIZE;
+		double west = longitude((x - margin) / tiles);
+		double east = longitude((x + 1 + margin) / tiles);
+		double north = latitude((y - margin) / tiles);
+		double south = latitude((y + 1 + margin) / tiles);
+		return graph.spatialIndex().streetsInBox(south, west, north, east);
+	}
+
+	/* Returns the highlighted streets to try drawing on tile (x, y): the
+	 * nearby ones when there are fewer of those than highlighted streets,
+	 * otherwise all of them, left for drawStreets() to cull */
+	protected int[] highlightsNear(int[] nearby, int zoom, int x, int y) {
+		if (nearby == null && highlightedStreets.length > 64) {
+			nearby = streetsNear(zoom, x, y);
+		}
+		if (nearby == null || nearby.length >= highlightedStreets.length) {
+			return highlightedStreets;
+		}
+		int count = 0;
+		int[] found = new int[nearby.length];
+		for (int e : nearby) {
+			if (isHighlighted[e]) {
+				found[count++] = e;
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	/* Draws the given streets onto tile (x, y) in one color, skipping
+	 * those entirely off the tile and filling in just the pixel of those
+	 * that shrink to one. Returns true if anything was drawn */
+	protected boolean drawStreets(Graphics2D g, BufferedImage tile, Color color, int zoom, int x, int y, int[] streets) {
+		double size = (double) TILE_SIZE * (1L << zoom);
+		double left = (double) x * TILE_SIZE;
+		double top = (double) y * TILE_SIZE;
+		int rgb = color.getRGB();
+		g.setColor(color);
+		boolean[] filled = new boolean[TILE_SIZE * TILE_SIZE];	// pixels already filled in for streets that shrink to one
+
+		boolean drawn = false;
+		for (int e : streets) {
+			int i = 4 * e;
+			if (Double.isNaN(coordinates[i])) {
+				continue;
+			}
+			int x1 = (int) Math.floor(coordinates[i] * size - left);
+			int y1 = (int) Math.floor(coordinates[i + 1] * size - top);
+			int x2 = (int) Math.floor(coordinates[i + 2] * size - left);
+			int y2 = (int) Math.floor(coordinates[i + 3] * size - top);
+			if ((x1 < 0 && x2 < 0) || (x1 >= TILE_SIZE && x2 >= TILE_SIZE)
+					|| (y1 < 0 && y2 < 0) || (y1 >= TILE_SIZE && y2 >= TILE_SIZE)) {
+				continue;
+			}
+			if (x1 == x2 && y1 == y2) {
+				int pixel = y1 * TILE_SIZE + x1;
+				if (!filled[pixel]) {
+					filled[pixel] = true;
+					tile.setRGB(x1, y1, rgb);
+				}
+			}
+			else {
+				g.drawLine(x1, y1, x2, y2);
+			}
+			drawn = true;
+		}
+		return drawn;
+	}
+
+	// Returns {minX, minY, maxX, maxY} of the given streets (all of them if null), or null if there are none
+	private double[] boundsOf(int[] streets) {
+		double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+		int total = (streets == null) ? graph.E() : streets.length;
+		for (int k = 0; k < total; ++k) {
+			int i = 4 * ((streets == null) ? k : streets[k]);
+			if (Double.isNaN(coordinates[i])) {
+				continue;
+			}
+			for (int end = i; end <= i + 2; end += 2) {
+				box[0] = Math.min(box[0], coordinates[end]);
+				box[1] = Math.min(box[1], coordinates[end + 1]);
+				box[2] = Math.max(box[2], coordinates[end]);
+				box[3] = Math.max(box[3], coordinates[end + 1]);
+			}
+		}
+		return (box[0] <= box[2]) ? box : null;
+	}
+
+	// Throws an exception if (x, y) is not a tile at the given zoom
+	private static void checkTile(int zoom, int x, int y) {
+		if (zoom < 0 || zoom > MAX_ZOOM || x < 0 || y < 0 || x >= (1 << zoom) || y >= (1 << zoom)) {
+			throw new IllegalArgumentException("No tile " + zoom + "/" + x + "/" + y + ".");
+		}
+	}
+
+	// Convert a longitude in degrees to the zoom 0 world, 0 at the left to 1 at the right
+	protected static double worldX(double longitude) {
+		return (MapFrame.longitudeConvert(longitude) + Math.PI) / (2 * Math.PI);
+	}
+
+	// Convert a latitude in degrees to the zoom 0 world, 0 at the top to 1 at the bottom
+	protected static double worldY(double latitude) {
+		return (Math.PI - MapFrame.latitudeConvert(latitude)) / (2 * Math.PI);
+	}
+
+	// Convert a zoom 0 world x back to a longitude in degrees
+	protected static double longitude(double worldX) {
+		return worldX * 360 - 180;
+	}
+
+	// Convert a zoom 0 world y back to a latitude in degrees
+	protected static double latitude(double worldY) {
+		return MapFrame.latitudeRevert(Math.PI - worldY * 2 * Math.PI);
+	}
+
+	// Class that records how a call to renderTiles() went
+	public static class Batch {
+		private final int tiles;		// number of tiles covered
+		private final int written;		// number of those with something on them, written out
+		private final int threads;		// number of worker threads used
+		private final long nanos;		// time taken to draw and write them all
+
+		public Batch(int tiles, int written, int threads, long nanos) {
+			this.tiles = tiles;
+			this.written = written;
+			this.threads = threads;
+			this.nanos = nanos;
+		}
+
+		public int tiles() { return tiles; }				// Returns number of tiles covered
+		public int written() { return written; }			// Returns number of tiles written
+		public int threads() { return threads; }			// Returns number of worker threads used
+		public double millis() { return nanos / 1e6; }		// Returns time taken in milliseconds
+
+		// Returns tiles drawn per second per core in use (threads beyond the machine's cores do not count)
+		public double tilesPerSecondPerCore() {
+			int cores = Math.min(threads, Runtime.getRuntime().availableProcessors());
+			return tiles / (nanos / 1e9) / cores;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+
+		UndirectedGraph graph = new UndirectedGraph(new File(args[0]));
+		File directory = new File(args[1]);
+		TileRenderer plain = new TileRenderer(graph);
+		int minZoom = (args.length > 2) ? Integer.parseInt(args[2]) : plain.fitZoom();
+		int maxZoom = (args.length > 3) ? Integer.parseInt(args[3]) : Math.min(MAX_ZOOM, minZoom + 4);
+		int threads = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+		TileRenderer renderer = plain;
+		boolean overlayOnly = false;
+		if (args.length > 6) {
+			BidirectionalDijkstra shortestPath = new BidirectionalDijkstra(graph, args[5], args[6]);
+			Route route = shortestPath.route();
+			if (route == null) {
+				System.out.println("No path to " + args[6] + " exists.");
+				return;
+			}
+			renderer = new TileRenderer(graph, route.edgeNumbers());
+			overlayOnly = true;
+			System.out.printf("Route of %d streets, %.4f miles\n", route.size(), route.distance());
+		}
+
+		// Build the spatial index up front so it is not counted as drawing time
+		graph.spatialIndex();
+		Batch batch = renderer.renderTiles(directory, minZoom, maxZoom, overlayOnly, threads);
+		System.out.printf("%s tiles for zooms %d to %d: %d covered, %d written to %s\n", overlayOnly ? "Overlay" : "Map",
+				minZoom, maxZoom, batch.tiles(), batch.written(), directory.getPath());
+		System.out.printf("\t%.1f ms on %d threads, %.1f tiles/sec, %.1f tiles/sec per core\n", batch.millis(), batch.threads(),
+				batch.tiles() / (batch.millis() / 1e3), batch.tilesPerSecondPerCore());
+	}
+}
@@ -0,0 +1,181 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.nio.charset.StandardCharsets;
+
+/* Open-addressing hash table from intersection title to intersectionNo.
+ * Slots are probed linearly and each slot keeps the title's full hash
+ * next to it, so most mismatches are rejected without touching the
+ * String; the table doubles whenever it becomes more than half full */
+public class TitleIndex {
+
+	protected String[] titles;	// titles[s] is the title stored in slot s (null if empty)
+	protected int[] hashes;		// hashes[s] is the full hash of titles[s]
+	protected int[] values;		// values[s] is the intersectionNo stored in slot s
+	protected int mask;			// table length minus one (lengths are powers of two)
+	protected int N = 0;		// number of titles in the table
+
+	// Constructor that sizes the table for the expected number of titles
+	public TitleIndex(int expected) {
+		int capacity = 16;
+		while (capacity < 2 * expected) {
+			capacity *= 2;
+		}
+		allocate(capacity);
+	}
+
+	// Instantiates empty arrays of the given power-of-two length
+	private void allocate(int capacity) {
+		titles = new String[capacity];
+		hashes = new int[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	public int size() { return N; } // Returns number of titles in the table
+
+	// Returns the full hash the table uses for title
+	public static int hash(String title) {
+		return mix(title.hashCode());
+	}
+
+	/* Spreads the bits of a String-style hash so that
+	 * similar titles do not probe neighboring slots */
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	// Maps title to value, replacing any value it already had
+	public void put(String title, int value) {
+		if (2 * (N + 1) > titles.length) {
+			resize(2 * titles.length);
+		}
+
+		int hash = mix(title.hashCode());
+		int slot = hash & mask;
+		while (titles[slot] != null) {
+			if (hashes[slot] == hash && titles[slot].equals(title)) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		titles[slot] = title;
+		hashes[slot] = hash;
+		values[slot] = value;
+		++N;
+	}
+
+	// Returns the value stored for title, or -1 if it is not in the table
+	public int get(String title) {
+		int hash = mix(title.hashCode());
+		int slot = hash & mask;
+		while (titles[slot] != null) {
+			if (hashes[slot] == hash && titles[slot].equals(title)) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	// Returns an independent copy of the table
+	public TitleIndex copy() {
+		TitleIndex copy = new TitleIndex(0);
+		copy.titles = titles.clone();
+		copy.hashes = hashes.clone();
+		copy.values = values.clone();
+		copy.mask = mask;
+		copy.N = N;
+		return copy;
+	}
+
+	/* Removes title from the table if present. Later entries of the same
+	 * probe run are shifted back into the gap, so no lookup ever stops
+	 * early at the emptied slot */
+	public void remove(String title) {
+		int hash = mix(title.hashCode());
+		int slot = hash & mask;
+		while (titles[slot] != null && !(hashes[slot] == hash && titles[slot].equals(title))) {
+			slot = (slot + 1) & mask;
+		}
+		if (titles[slot] == null) {
+			return;
+		}
+		titles[slot] = null;
+		--N;
+
+		for (int next = (slot + 1) & mask; titles[next] != null; next = (next + 1) & mask) {
+
+			// An entry may fill the gap unless its home slot lies after the gap, up to where it sits now
+			int home = hashes[next] & mask;
+			boolean homeAfterGap = (slot <= next) ? (slot < home && home <= next) : (slot < home || home <= next);
+			if (!homeAfterGap) {
+				titles[slot] = titles[next];
+				hashes[slot] = hashes[next];
+				values[slot] = values[next];
+				titles[next] = null;
+				slot = next;
+			}
+		}
+	}
+
+	/* Looks up a title given as raw bytes[from, to) without creating a
+	 * String; titles that are not plain ASCII are decoded and looked up
+	 * normally, since only ASCII bytes hash the same as their chars */
+	public int get(byte[] bytes, int from, int to) {
+		int hash = 0;
+		for (int i = from; i < to; ++i) {
+			if (bytes[i] < 0) {
+				return get(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+			}
+			hash = 31 * hash + bytes[i];
+		}
+		hash = mix(hash);
+
+		int slot = hash & mask;
+		while (titles[slot] != null) {
+			if (hashes[slot] == hash && sameChars(titles[slot], bytes, from, to)) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	// Returns true if the ASCII bytes[from, to) spell out title exactly
+	private static boolean sameChars(String title, byte[] bytes, int from, int to) {
+		if (title.length() != to - from) {
+			return false;
+		}
+		for (int i = 0; i < title.length(); ++i) {
+			if (title.charAt(i) != bytes[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Rehashes every entry into a table of the new capacity,
+	 * reusing the stored hashes instead of recomputing them */
+	private void resize(int capacity) {
+		String[] oldTitles = titles;
+		int[] oldHashes = hashes;
+		int[] oldValues = values;
+		allocate(capacity);
+
+		for (int s = 0; s < oldTitles.length; ++s) {
+			if (oldTitles[s] != null) {
+				int slot = oldHashes[s] & mask;
+				while (titles[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				titles[slot] = oldTitles[s];
+				hashes[slot] = oldHashes[s];
+				values[slot] = oldValues[s];
+			}
+		}
+	}
+}
@@ -0,0 +1,576 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import java.io.*; 
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
+
+public class UndirectedGraph {
+
+	protected static final int R = 6371; // approximation of Earth's radius in km (for distance calculation)
+	protected static final int PARALLEL_MST_THRESHOLD = 100000; // intersections from which [-meridianmap] uses BoruvkaMST instead of MapMST
+	
+	protected int V = 0; 													   // number of intersections: vertices
+	protected int E = 0; 													   // number of streets:       edges
+	protected Intersection[] vertices = new Intersection[16];				   // vertices[i] is the intersection with intersection number i
+	protected TitleIndex titles = new TitleIndex(16);						   // Hash table from intersection title to intersection number
+	protected Bag<StreetEdge> edges = new Bag<StreetEdge>();				   // Bag collecting the edges while the map is read (dropped once edgeList is built)
+	protected StreetEdge[] edgeList;										   // edgeList[i] is the edge with edge number i
+	protected MapFrame mapFrame;											   // Frame used to display map
+	protected long linesLoaded;												   // number of lines read from the map file
+	protected double linesPerSecond;										   // rate at which the map file was read
+	protected long version = 0;												   // number of LiveGraph edits published before this graph (0 if loaded)
+	protected volatile SpatialIndex spatialIndex;							   // grid for snapping coordinates, built on first use
+	
+	/* Compressed sparse row (CSR) adjacency, keyed by intersectionNo:
+	 * the edges incident to intersection v occupy the slice
+	 * [offsets[v], offsets[v+1]) of targets[], weights[] and edgeIds[] */
+	protected int[] offsets;    // offsets[v] is where the slice for intersection v begins
+	protected int[] targets;    // targets[k] is the intersectionNo on the other end of slot k
+	protected double[] weights; // weights[k] is the weight of the edge in slot k
+	protected int[] edgeIds;    // edgeIds[k] is the edge number of the edge in slot k
+	
+	// Constructor that creates the graph structure by streaming the map file through a MapFileReader
+	public UndirectedGraph(File file) throws IOException {
+		
+		try (MapFileReader in = new MapFileReader(file)) {
+			
+			// Continue reading each record until end of file
+			while (in.next()) {
+				
+				// Every record has a type and exactly three values
+				if (in.tokens() != 4) {
+					throw in.malformed("expected 4 fields but found " + in.tokens());
+				}
+				
+				// If line is an intersection
+				if (in.tokenIs(0, 'i')) {
+					addIntersection(in.string(1), in.number(2), in.number(3));
+				}
+				
+				// If line is a road
+				else if (in.tokenIs(0, 'r')) {
+					
+					// Resolve both intersections straight from the record's bytes
+					int interNo1 = in.lookup(2, titles);
+					int interNo2 = in.lookup(3, titles);
+					if (interNo1 < 0 || interNo2 < 0) {
+						throw in.malformed("road " + in.string(1) + " names an unknown intersection");
+					}
+					addStreet(in.string(1), vertices[interNo1], vertices[interNo2]);
+				}
+				
+				else {
+					throw in.malformed("unknown record type \"" + in.string(0) + "\"");
+				}
+			}
+			
+			linesLoaded = in.lineNumber();
+			linesPerSecond = in.linesPerSecond();
+		}
+		
+		buildAdjacency(); // Pack the finished graph into its CSR arrays
+	}
+	
+	// Constructor that creates the graph structure from any reader
+	public UndirectedGraph(BufferedReader in) throws IOException {
+		
+		String nextLine; // Read next line of input file
+		
+		// Continue reading each line until end of file
+		while ((nextLine = in.readLine()) != null) {
+
+			Scanner lineScan = new Scanner(nextLine); // Prepare to scan elements of line
+			String type = lineScan.next();            // type is either (i)ntersection or (r)oad
+			
+			// If line is an intersection
+			if (type.equals("i")) {
+				
+				// Take values of intersection
+				String title     = lineScan.next();
+				double latitude  = Double.parseDouble(lineScan.next());
+				double longitude = Double.parseDouble(lineScan.next());
+				
+				addIntersection(title, latitude, longitude);
+			}
+			
+			// If line is a road
+			else if (type.equals("r")) {
+				
+				// Read edge and intersection names from line
+				String edgeName = lineScan.next();
+				String interName1 = lineScan.next();
+				String interName2 = lineScan.next();
+				
+				int interNo1 = titles.get(interName1);
+				int interNo2 = titles.get(interName2);
+				if (interNo1 < 0 || interNo2 < 0) {
+					System.out.println("Problem occurred creating street edge.");
+				}
+				else {
+					addStreet(edgeName, vertices[interNo1], vertices[interNo2]);
+				}
+			}
+			
+			++linesLoaded;
+		}
+		
+		buildAdjacency(); // Pack the finished graph into its CSR arrays
+	}
+	
+	// Constructor that creates an empty graph, to be filled in through a LiveGraph
+	public UndirectedGraph() {
+		buildAdjacency();
+	}
+	
+	/* Adds the new intersection to the vertex table and the title index;
+	 * current value of V is used to assign intersection numbers */
+	private void addIntersection(String title, double latitude, double longitude) {
+		if (V == vertices.length) {
+			vertices = Arrays.copyOf(vertices, 2 * V);
+		}
+		vertices[V] = new Intersection(title, latitude, longitude, V);
+		titles.put(title, V);
+		++V; // increment number of vertices
+	}
+	
+	// Creates the edge between the two intersections
+	private void addStreet(String edgeName, Intersection inter1, Intersection inter2) {
+		
+		// Compute the edge's weight using the longitude and latitude values of the intersections
+		double edgeWeight = calcDistanceMiles(inter1.latitude, inter1.longitude, inter2.latitude, inter2.longitude);
+		
+		StreetEdge newEdge = new StreetEdge(edgeName, inter1, inter2, edgeWeight, E); // construct the new edge
+		
+		edges.add(newEdge); // add the edge to the graph's Bag of edges
+		++E;                // increment number of edges
+	}
+	
+	/* Builds the CSR adjacency arrays once all edges are known, so the
+	 * search algorithms can walk neighbors as primitive array slices
+	 * instead of chasing Bag nodes and calling StreetEdge.other() */
+	private void buildAdjacency() {
+		
+		vertices = Arrays.copyOf(vertices, V); // Trim the vertex table to its final size
+		
+		// Place every edge at the index of its edge number
+		edgeList = new StreetEdge[E];
+		for (StreetEdge e : edges) {
+			edgeList[e.edgeNo] = e;
+		}
+		edges = null;
+		
+		packAdjacency();
+	}
+	
+	/* Packs edgeList into the CSR arrays; also used by LiveGraph to lay
+	 * out the adjacency of every new version */
+	protected void packAdjacency() {
+		
+		// Count the degree of each intersection one slot past its own
+		offsets = new int[V + 1];
+		for (StreetEdge e : edgeList) {
+			++offsets[e.v.intersectionNo + 1];
+			++offsets[e.w.intersectionNo + 1];
+		}
+		
+		// Prefix sums turn the degrees into slice starting points
+		for (int v = 0; v < V; ++v) {
+			offsets[v + 1] += offsets[v];
+		}
+		
+		targets = new int[2 * E];
+		weights = new double[2 * E];
+		edgeIds = new int[2 * E];
+		
+		/* Fill each edge into the slices of both of its intersections, working
+		 * backwards from the end of every slice (next[] tracks the last free
+		 * slot) so neighbors keep the newest-first order the Bags gave them */
+		int[] next = new int[V];
+		System.arraycopy(offsets, 1, next, 0, V);
+		for (StreetEdge e : edgeList) {
+			int v = e.v.intersectionNo;
+			int w = e.w.intersectionNo;
+			
+			int k = --next[v];
+			targets[k] = w;
+			weights[k] = e.weight;
+			edgeIds[k] = e.edgeNo;
+			
+			k = --next[w];
+			targets[k] = v;
+			weights[k] = e.weight;
+			edgeIds[k] = e.edgeNo;
+		}
+	}
+	
+	public int V() { return V; } // Method to return number of vertices
+	public int E() { return E; } // Method to return number of edges
+	public long version() { return version; } // Method to return how many edits this graph has been through
+	
+	// Returns the intersection with the given intersection number
+	public Intersection intersection(int intersectionNo) { return vertices[intersectionNo]; }
+	
+	/* Returns the intersection number of the intersection with the
+	 * given title, throwing an exception if no such intersection exists.
+	 * A title of the form "@latitude,longitude" that is not a real title
+	 * names the intersection nearest to those coordinates, so every
+	 * search can be given GPS positions in place of titles */
+	public int intersectionNo(String title) {
+		int intersectionNo = titles.get(title);
+		if (intersectionNo < 0 && title.startsWith("@") && V > 0) {
+			double[] point = SpatialIndex.parseCoordinates(title);
+			return spatialIndex().nearest(point[0], point[1]);
+		}
+		if (intersectionNo < 0) {
+			throw new IllegalArgumentException("No intersection named " + title + ".");
+		}
+		return intersectionNo;
+	}
+	
+	public double linesPerSecond() { return linesPerSecond; } // Method to return how fast the map file loaded
+	
+	// Returns the graph's spatial index, building it the first time it is needed
+	public SpatialIndex spatialIndex() {
+		SpatialIndex index = spatialIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = spatialIndex;
+				if (index == null) {
+					index = new SpatialIndex(this);
+					spatialIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+	
+	// Helper method to calculate distance in miles using latitude and longitude values
+	protected static double calcDistanceMiles(double lat1, double lon1, double lat2, double lon2) {
+		double latDif = Math.toRadians(lat2 - lat1);
+		double lonDif = Math.toRadians(lon2 - lon1);
+		
+		lat1 = Math.toRadians(lat1);
+		lat2 = Math.toRadians(lat2);
+		
+		// First step in Haversine formula
+		double a = Math.pow(Math.sin(latDif/2), 2) + Math.pow(Math.sin(lonDif/2), 2) * Math.cos(lat1) * Math.cos(lat2);
+		
+		// Next step in Haversine formula
+		double c = 2 * Math.asin(Math.sqrt(a));
+		
+		// Return c times the Earth's radius
+		double distKMS = R * c;
+		
+		// Convert to miles and return
+		double distMiles = distKMS / 1.609;
+		return distMiles;
+	}
+	
+	/* Answers the [-directions start end] command against a
+	 * mapped snapshot, printing the same output as a text map */
+	private static void snapshotDirections(File file, String[] args) throws IOException {
+		if (!args[1].equals("[-directions")) {
+			System.out.println("Snapshots only support [-directions name_of_start_intersection name_of_end_intersection].");
+			return;
+		}
+		String startIntersectionTitle = args[2];
+		String endIntersectionTitle = args[3].substring(0, args[3].indexOf("]")); // omit ending bracket
+		
+		try (MappedGraph snapshot = MappedGraph.open(file)) {
+			int[] path = snapshot.route(snapshot.intersectionNo(startIntersectionTitle), snapshot.intersectionNo(endIntersectionTitle));
+			if (path == null) {
+				System.out.println("No path to " + endIntersectionTitle + " exists.");
+				return;
+			}
+			
+			// Collects the lines first so a long route is printed in one write
+			StringBuilder directions = new StringBuilder("Shortest path to ").append(endIntersectionTitle).append(":\n");
+			for (int e : path) {
+				BatchRouter.appendMiles(directions.append('\t').append(snapshot.edgeName(e)).append(": "), snapshot.edgeWeight(e)).append(" miles\n");
+			}
+			BatchRouter.appendMiles(directions.append("\tTotal distance: "), snapshot.distance(path)).append(" miles\n");
+			System.out.print(directions);
+		}
+		catch (IllegalArgumentException excpt) {
+			System.out.println(excpt.getMessage());
+		}
+		catch (IOException excpt) {
+			System.out.println("Could not load map: " + excpt.getMessage());
+		}
+	}
+	
+	/* Answers the [-meridianmap] command: prints the minimum spanning tree
+	 * (Prim's algorithm on one core for small maps, Boruvka's algorithm on
+	 * all cores for large ones), or, if the map is not connected, the
+	 * minimum spanning forest with the total of each part. Returns the
+	 * edge numbers printed so they can be highlighted */
+	private static int[] meridianMap(UndirectedGraph graph) {
+		if (graph.V() < PARALLEL_MST_THRESHOLD) {
+			try {
+				MapMST mst = new MapMST(graph);
+				Iterable<StreetEdge> mstEdges = mst.edges();
+				
+				// Prints out edges in the graph's MST
+				System.out.println("MINIMUM SPANNING TREE:"); 
+				for (StreetEdge e : mstEdges) {
+					System.out.printf("\t" + e.edgeName + ": %.4f miles\n", e.weight());
+				}
+				return mst.edgeNumbers();
+			}
+			catch (RuntimeException excpt) {
+				// The graph is not connected, so fall through to the forest
+			}
+		}
+		
+		BoruvkaMST msf = new BoruvkaMST(graph);
+		if (msf.components() == 1) {
+			System.out.println("MINIMUM SPANNING TREE:");
+		}
+		else {
+			System.out.println("No minimum spanning tree exists for this graph; MINIMUM SPANNING FOREST of " + msf.components() + " parts:");
+		}
+		for (StreetEdge e : msf.edges(graph)) {
+			System.out.printf("\t" + e.edgeName + ": %.4f miles\n", e.weight());
+		}
+		
+		// Totals for every part with at least one street
+		if (msf.components() > 1) {
+			int isolated = 0;
+			for (int c = 0; c < msf.components(); ++c) {
+				if (msf.componentSize(c) == 1) {
+					++isolated;
+				}
+				else {
+					System.out.printf("\tPart %d: %d intersections, %.4f miles\n", c, msf.componentSize(c), msf.componentWeight(c));
+				}
+			}
+			if (isolated > 0) {
+				System.out.println("\t(plus " + isolated + " intersections with no streets)");
+			}
+		}
+		System.out.printf("\tTotal distance: %.4f miles\n", msf.weight());
+		return msf.edgeNumbers();
+	}
+	
+	/* Returns the edge numbers of the minimum spanning tree (or forest)
+	 * without printing it, choosing the algorithm as [-meridianmap] does:
+	 * Prim's algorithm for small maps, falling back on Boruvka's algorithm
+	 * for big or unconnected ones */
+	protected static int[] spanningEdges(UndirectedGraph graph) {
+		if (graph.V() < PARALLEL_MST_THRESHOLD) {
+			try {
+				return new MapMST(graph).edgeNumbers();
+			}
+			catch (RuntimeException excpt) {
+				// The graph is not connected, so fall through to the forest
+			}
+		}
+		return new BoruvkaMST(graph).edgeNumbers();
+	}
+	
+	/* Returns the shortest route between the two titled intersections, or
+	 * null if none exists, searching over the contraction hierarchy if one
+	 * is given, otherwise by A* with the landmark tables if given, and
+	 * otherwise from both ends with BidirectionalDijkstra. All three find
+	 * the same distance; the structures only make the search smaller */
+	protected static Route findRoute(UndirectedGraph graph, ContractionHierarchy hierarchy, LandmarkTable landmarks,
+			String startInterTitle, String endInterTitle) {
+		if (hierarchy != null) {
+			return new HierarchyShortestPath(hierarchy, graph, startInterTitle, endInterTitle).route();
+		}
+		if (landmarks != null) {
+			return new AStarShortestPath(graph, landmarks, startInterTitle, endInterTitle).route();
+		}
+		return new BidirectionalDijkstra(graph, startInterTitle, endInterTitle).route();
+	}
+	
+	/* Returns the shortest route between two intersection numbers, as
+	 * above; callers that already hold numbers (such as a snapped
+	 * SpatialIndex.nearest() result) use this so a title shared by
+	 * several intersections cannot send the search elsewhere */
+	protected static Route findRoute(UndirectedGraph graph, ContractionHierarchy hierarchy, LandmarkTable landmarks,
+			int start, int end) {
+		if (hierarchy != null) {
+			return new HierarchyShortestPath(hierarchy, graph, start, end).route();
+		}
+		if (landmarks != null) {
+			return new AStarShortestPath(graph, landmarks, start, end).route();
+		}
+		return new BidirectionalDijkstra(graph, start, end).route();
+	}
+	
+	/* Loads the contraction hierarchy named by a [-hierarchy file]
+	 * argument at or after args[first], or returns null if there is none */
+	private static ContractionHierarchy hierarchyArgument(UndirectedGraph graph, String[] args, int first) throws IOException {
+		String name = optionArgument(args, first, "[-hierarchy");
+		return (name == null) ? null : ContractionHierarchy.load(new File(name), graph);
+	}
+	
+	/* Loads the landmark tables named by a [-landmarks file]
+	 * argument at or after args[first], or returns null if there is none */
+	private static LandmarkTable landmarksArgument(UndirectedGraph graph, String[] args, int first) throws IOException {
+		String name = optionArgument(args, first, "[-landmarks");
+		return (name == null) ? null : LandmarkTable.load(new File(name), graph);
+	}
+	
+	// Returns the file name following an option at or after args[first], without its ending bracket, or null
+	private static String optionArgument(String[] args, int first, String option) {
+		for (int i = first; i + 1 < args.length; ++i) {
+			if (args[i].equals(option)) {
+				return args[i + 1].substring(0, args[i + 1].indexOf("]")); // omit ending bracket
+			}
+		}
+		return null;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		
+		File file = new File(args[0]);
+		
+		/* A compiled snapshot is mapped rather than parsed,
+		 * and answers directions straight from the mapping */
+		if (MappedGraph.isSnapshot(file)) {
+			snapshotDirections(file, args);
+			return;
+		}
+		
+		UndirectedGraph graphMap;
+		try {
+			graphMap = new UndirectedGraph(file);
+		}
+		catch (IOException excpt) {
+			System.out.println("Could not load map: " + excpt.getMessage());
+			return;
+		}
+		System.err.printf("Loaded %d lines from %s (%.0f lines/sec)\n", graphMap.linesLoaded, file.getName(), graphMap.linesPerSecond);
+		
+		// If the map should be compiled into a binary snapshot
+		if (args[1].equals("[-compile")) {
+			File snapshotFile = new File(args[2].substring(0, args[2].indexOf("]"))); // omit ending bracket
+			MappedGraph.write(graphMap, snapshotFile);
+			System.out.println("Compiled snapshot " + snapshotFile.getName() + " (" + graphMap.V() + " intersections, " + graphMap.E() + " streets)");
+			return;
+		}
+
+		// If a contraction hierarchy should be built and saved for later queries
+		if (args[1].equals("[-contract")) {
+			File hierarchyFile = new File(args[2].substring(0, args[2].indexOf("]"))); // omit ending bracket
+			ContractionHierarchy ch = ContractionHierarchy.build(graphMap);
+			ch.save(hierarchyFile);
+			System.out.println("Contracted " + hierarchyFile.getName() + " (" + ch.shortcuts() + " shortcuts in " + ch.preprocessingMillis() + " ms)");
+			return;
+		}
+
+		// If landmark distance tables should be computed and saved for later queries
+		if (args[1].equals("[-landmarks")) {
+			File landmarkFile = new File(args[2].substring(0, args[2].indexOf("]"))); // omit ending bracket
+			LandmarkTable landmarks = LandmarkTable.build(graphMap, LandmarkTable.DEFAULT_LANDMARKS);
+			landmarks.save(landmarkFile);
+			System.out.printf("Saved %d landmarks to %s (%.1f KB in %d ms)\n", landmarks.landmarks(), landmarkFile.getName(),
+					landmarks.memoryBytes() / 1024.0, landmarks.preprocessingMillis());
+			return;
+		}
+		
+		/* If the map needs to be shown */
+		if (args[1].equals("[-show]")) {
+			
+			// If only the map needs to be shown
+			if (args.length == 2) {
+				
+				// Creates visual portion
+				graphMap.mapFrame = new MapFrame(graphMap);
+				graphMap.mapFrame.setVisible(true);
+				
+			}
+			
+			/* Determine whether command line asks
+			 * for the shortest paths or the MST */
+			else if (args[2].equals("[-directions")) {
+				String startIntersectionTitle = args[3];
+				String endIntersectionTitle = args[4].substring(0, args[4].indexOf("]")); // omit ending bracket
+				ContractionHierarchy hierarchy = hierarchyArgument(graphMap, args, 5);
+				LandmarkTable landmarks = landmarksArgument(graphMap, args, 5);
+				
+				/* Attempts to find path from first intersection
+				 * to the other and throws an exception if none exists */
+				try {
+					Route shortestPath = findRoute(graphMap, hierarchy, landmarks, startIntersectionTitle, endIntersectionTitle);
+					EdgeStack shortestPathTo = shortestPath.toStack(graphMap);
+
+					// Prints out path from start intersection to end
+					System.out.println("Shortest path to " + endIntersectionTitle + " from " + startIntersectionTitle + ":");
+					while (!shortestPathTo.isEmpty()) {
+						StreetEdge curEdge = shortestPathTo.pop();
+						System.out.printf("\t" + curEdge.edgeName + ": %.4f miles\n", curEdge.weight);
+					}
+					System.out.printf("\tTotal distance: %.4f miles\n", shortestPath.distance());
+					
+					// Creates visual portion with the path highlighted
+					graphMap.mapFrame = new MapFrame(graphMap, shortestPath.edgeNumbers());
+					graphMap.mapFrame.setVisible(true);
+					
+				}
+				catch(Exception excpt) {
+					System.out.println("No path to " + endIntersectionTitle + " exists.");
+				}
+			}
+			
+			else if (args[2].equals("[-meridianmap]")) {
+				int[] treeEdges = meridianMap(graphMap);
+				
+				// Creates visual portion with the tree (or forest) highlighted
+				graphMap.mapFrame = new MapFrame(graphMap, treeEdges);
+				graphMap.mapFrame.setVisible(true);
+			}
+		}
+		
+		/* If map does not need to be shown,
+		 * performs the same functions as above
+		 * but just without the visual portion  */
+		else if (args[1].equals("[-directions")) {
+			String startIntersectionTitle = args[2];
+			String endIntersectionTitle = args[3].substring(0, args[3].indexOf("]")); // omit ending bracket
+			ContractionHierarchy hierarchy = hierarchyArgument(graphMap, args, 4);
+			LandmarkTable landmarks = landmarksArgument(graphMap, args, 4);
+			
+			try {
+				Route shortestPath = findRoute(graphMap, hierarchy, landmarks, startIntersectionTitle, endIntersectionTitle);
+				EdgeStack shortestPathTo = shortestPath.toStack(graphMap);
+			
+				// Collects the lines first so a long route is printed in one write
+				StringBuilder directions = new StringBuilder("Shortest path to ").append(endIntersectionTitle).append(":\n");
+				while (!shortestPathTo.isEmpty()) {
+					StreetEdge curEdge = shortestPathTo.pop();
+					BatchRouter.appendMiles(directions.append('\t').append(curEdge.edgeName).append(": "), curEdge.weight).append(" miles\n");
+				}
+				BatchRouter.appendMiles(directions.append("\tTotal distance: "), shortestPath.distance()).append(" miles\n");
+				System.out.print(directions);
+				
+			}
+			catch(Exception excpt) {
+				System.out.println("No path to " + endIntersectionTitle + " exists.");
+			}
+		}
+		else if (args[1].equals("[-meridianmap]")) {
+			meridianMap(graphMap);
+		}
+		
+		// If a file of start and end pairs should all be answered, in order, as [-directions] would print them
+		else if (args[1].equals("[-batch")) {
+			String pairsFile = args[2].substring(0, args[2].indexOf("]")); // omit ending bracket
+			BatchRouter batch = new BatchRouter(graphMap, hierarchyArgument(graphMap, args, 3), landmarksArgument(graphMap, args, 3),
+					BatchRouter.TEXT, true, Runtime.getRuntime().availableProcessors());
+			try (Reader in = pairsFile.equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+					: new InputStreamReader(new FileInputStream(pairsFile), StandardCharsets.UTF_8)) {
+				batch.run(in, System.out);
+			}
+			System.err.printf("Answered %d pairs (%d with no path)\n", batch.pairs(), batch.unreachable());
+		}
+		
+	}
+}
@@ -0,0 +1,281 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/* Runs one stream of pairs through BatchRouter in every output format,
+ * in order and as completed, on one thread and on four, and checks each
+ * result against a full Dijkstra search: the same pairs, the same
+ * streets and the same distances whatever the mode */
+class BatchRouterTest {
+
+	private static final int PAIRS = 1500;	// pairs in the stream, more than one thread's window
+
+	private static UndirectedGraph graph;
+	private static String input;			// the stream of pairs, one per line
+	private static String[][] titles;		// titles[p] is the {from, to} of pair p
+	private static double[] expected;		// expected[p] is the length of the shortest path of pair p (infinite if none)
+
+	/* Most pairs are random intersections, some repeat a few busy origins,
+	 * some name a point as @latitude,longitude, some have no path (the
+	 * unreachable town or a title the map does not have), and the lines
+	 * are separated by spaces, tabs or commas with blank lines between */
+	@BeforeAll
+	static void buildStream() throws IOException {
+		graph = TestMaps.city(71);
+		Random random = new Random(72);
+		int[] busy = random.ints(5, 0, graph.V()).toArray();
+		titles = new String[PAIRS][];
+		expected = new double[PAIRS];
+		StringBuilder text = new StringBuilder();
+		for (int p = 0; p < PAIRS; ++p) {
+			int start = (random.nextInt(3) == 0) ? busy[random.nextInt(busy.length)] : random.nextInt(graph.V());
+			int end = random.nextInt(graph.V());
+			String from = TestMaps.title(graph, start);
+			String to = TestMaps.title(graph, end);
+			if (p % 50 == 7) {
+				Intersection inter = graph.intersection(end);
+				to = "@" + (inter.latitude + 0.00001) + "," + (inter.longitude - 0.00001);
+				end = graph.intersectionNo(to);
+			}
+			if (p % 100 == 13) {
+				from = "nowhere-" + p;
+			}
+			titles[p] = new String[] {from, to};
+			expected[p] = from.startsWith("nowhere") ? Double.POSITIVE_INFINITY : new DijkstraShortestPath(graph, start).distanceTo[end];
+
+			switch (p % 3) {
+				case 0: text.append(from).append(' ').append(to).append('\n'); break;
+				case 1: text.append('\t').append(from).append("\t\t").append(to).append(" \n"); break;
+				default: text.append(from).append(',').append(to).append('\n'); break;
+			}
+			if (p % 40 == 0) {
+				text.append("\n   \n");
+			}
+		}
+		input = text.toString();
+	}
+
+	@Test
+	void csvMatchesDijkstraInEveryMode() throws IOException {
+		for (boolean ordered : new boolean[] {true, false}) {
+			for (int threads : new int[] {1, 4}) {
+				String mode = (ordered ? "ordered" : "completed") + " on " + threads + " threads";
+				BatchRouter router = new BatchRouter(graph, BatchRouter.CSV, ordered, threads);
+				String[] lines = new String(run(router), StandardCharsets.UTF_8).split("\n");
+				assertEquals("pair,from,to,distance,streets", lines[0], mode);
+				assertEquals(PAIRS + 1, lines.length, mode);
+
+				boolean[] seen = new boolean[PAIRS];
+				for (int i = 1; i < lines.length; ++i) {
+					String[] fields = csv(lines[i]);
+					int p = Integer.parseInt(fields[0]);
+					if (ordered) {
+						assertEquals(i - 1, p, "pairs out of order " + mode);
+					}
+					assertFalse(seen[p], "pair " + p + " written twice " + mode);
+					seen[p] = true;
+					assertEquals(titles[p][0], fields[1], "from of pair " + p + " " + mode);
+					assertEquals(titles[p][1], fields[2], "to of pair " + p + " " + mode);
+					if (Double.isInfinite(expected[p])) {
+						assertEquals("", fields[3], "pair " + p + " has no path " + mode);
+						assertEquals("", fields[4]);
+						continue;
+					}
+					TestMaps.assertDistance(expected[p], Double.parseDouble(fields[3]), "pair " + p + " " + mode);
+
+					// The street names add up to the distance
+					double total = 0.0;
+					for (String name : fields[4].isEmpty() ? new String[0] : fields[4].split(";")) {
+						total += streetNamed(name).weight;
+					}
+					TestMaps.assertDistance(expected[p], total, "streets of pair " + p + " " + mode);
+				}
+				assertEquals(PAIRS, router.pairs(), mode);
+				assertEquals(unreachable(), router.unreachable(), mode);
+			}
+		}
+	}
+
+	@Test
+	void binaryMatchesDijkstraInEveryMode() throws IOException {
+		for (boolean ordered : new boolean[] {true, false}) {
+			for (int threads : new int[] {1, 4}) {
+				String mode = (ordered ? "ordered" : "completed") + " on " + threads + " threads";
+				BatchRouter router = new BatchRouter(graph, BatchRouter.BINARY, ordered, threads);
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(run(router)));
+				assertEquals(BatchRouter.MAGIC, in.readInt());
+				assertEquals(BatchRouter.VERSION, in.readInt());
+
+				boolean[] seen = new boolean[PAIRS];
+				for (int i = 0; i < PAIRS; ++i) {
+					long pair = in.readLong();
+					int p = (int) pair;
+					if (ordered) {
+						assertEquals(i, pair, "pairs out of order " + mode);
+					}
+					assertFalse(seen[p], "pair " + p + " written twice " + mode);
+					seen[p] = true;
+					double distance = in.readDouble();
+					int count = in.readInt();
+					if (Double.isInfinite(expected[p])) {
+						assertTrue(Double.isNaN(distance), "pair " + p + " has no path " + mode);
+						assertEquals(-1, count);
+						continue;
+					}
+					TestMaps.assertDistance(expected[p], distance, "pair " + p + " " + mode);
+					int[] edges = new int[count];
+					for (int k = 0; k < count; ++k) {
+						edges[k] = in.readInt();
+					}
+					int start = graph.intersectionNo(titles[p][0]);
+					int end = graph.intersectionNo(titles[p][1]);
+					TestMaps.assertWalkable(graph, new Route(start, end, distance, edges), start, end);
+				}
+				assertEquals(-1, in.read(), "bytes after the last record " + mode);
+			}
+		}
+	}
+
+	@Test
+	void textMatchesDijkstraInOrder() throws IOException {
+		String[] lines = new String(run(new BatchRouter(graph, BatchRouter.TEXT, true, 4)), StandardCharsets.UTF_8).split("\n");
+		int line = 0;
+		for (int p = 0; p < PAIRS; ++p) {
+			if (Double.isInfinite(expected[p])) {
+				assertEquals("No path to " + titles[p][1] + " exists.", lines[line++], "pair " + p);
+				continue;
+			}
+			assertEquals("Shortest path to " + titles[p][1] + " from " + titles[p][0] + ":", lines[line++], "pair " + p);
+			while (!lines[line].startsWith("\tTotal distance: ")) {
+				assertTrue(lines[line++].startsWith("\t"), "pair " + p);
+			}
+			String total = BatchRouter.appendMiles(new StringBuilder("\tTotal distance: "), expected[p]).append(" miles").toString();
+			assertEquals(total, lines[line++], "pair " + p);
+		}
+		assertEquals(lines.length, line);
+	}
+
+	@Test
+	void hierarchyAndLandmarksGiveSameRoutes() throws IOException {
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+		LandmarkTable landmarks = LandmarkTable.build(graph, 8);
+		String plain = new String(run(new BatchRouter(graph, BatchRouter.CSV, true, 2)), StandardCharsets.UTF_8);
+		for (BatchRouter router : new BatchRouter[] {new BatchRouter(graph, hierarchy, null, BatchRouter.CSV, true, 2),
+				new BatchRouter(graph, null, landmarks, BatchRouter.CSV, true, 2)}) {
+			String[] expectedLines = plain.split("\n");
+			String[] lines = new String(run(router), StandardCharsets.UTF_8).split("\n");
+			assertEquals(expectedLines.length, lines.length);
+			for (int i = 1; i < lines.length; ++i) {
+				String[] a = csv(expectedLines[i]), b = csv(lines[i]);
+				assertEquals(Arrays.asList(a[0], a[1], a[2], a[4]), Arrays.asList(b[0], b[1], b[2], b[4]), "row " + i);
+				if (!a[3].isEmpty()) {
+					TestMaps.assertDistance(Double.parseDouble(a[3]), Double.parseDouble(b[3]), "row " + i);
+				}
+			}
+		}
+	}
+
+	@Test
+	void failuresStopTheBatch() {
+		IOException malformed = assertThrows(IOException.class,
+				() -> run(new BatchRouter(graph, BatchRouter.CSV, true, 2), "a b\nc d e\n"));
+		assertTrue(malformed.getMessage().startsWith("Line 2 "), malformed.getMessage());
+
+		// A worker failing with anything but an unknown title stops the run with that cause
+		BatchRouter router = new BatchRouter(graph, BatchRouter.CSV, false, 4);
+		router.cache = new RouteCache(graph, 0, 0) {
+			@Override
+			public Route route(String startInterTitle, String endInterTitle) {
+				if (startInterTitle.equals(titles[900][0]) && endInterTitle.equals(titles[900][1])) {
+					throw new IllegalStateException("broken cache");
+				}
+				return super.route(startInterTitle, endInterTitle);
+			}
+		};
+		IOException failure = assertThrows(IOException.class, () -> run(router));
+		assertTrue(failure.getMessage().contains("could not be routed"), failure.getMessage());
+		assertInstanceOf(IllegalStateException.class, failure.getCause());
+	}
+
+	@Test
+	void appendMilesMatchesFormat() {
+		Random random = new Random(73);
+		List<Double> values = new ArrayList<Double>(Arrays.asList(0.0, 0.00005, 0.00004999, 0.99995, 1.0, 12.3456, 999.99995, 0.1234499999));
+		for (int i = 0; i < 20000; ++i) {
+			values.add(random.nextDouble() * Math.pow(10, random.nextInt(6) - 2));
+			values.add(random.nextInt(1000000) / 10000.0);
+		}
+		for (double miles : values) {
+			assertEquals(String.format("%.4f", miles), BatchRouter.appendMiles(new StringBuilder(), miles).toString(), "miles " + miles);
+		}
+	}
+
+	// Runs the whole stream through the router, returning what it wrote
+	private static byte[] run(BatchRouter router) throws IOException {
+		return run(router, input);
+	}
+
+	// Runs the given pairs through the router, returning what it wrote
+	private static byte[] run(BatchRouter router, String pairs) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		router.run(new StringReader(pairs), out);
+		return out.toByteArray();
+	}
+
+	// Returns the number of pairs in the stream with no path
+	private static long unreachable() {
+		return Arrays.stream(expected).filter(Double::isInfinite).count();
+	}
+
+	// Returns the street with the given name
+	private static StreetEdge streetNamed(String name) {
+		for (StreetEdge edge : graph.edgeList) {
+			if (edge.edgeName.equals(name)) {
+				return edge;
+			}
+		}
+		throw new AssertionError("no street named " + name);
+	}
+
+	// Splits a CSV row into its five fields, unquoting quoted ones
+	private static String[] csv(String row) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < row.length(); ++i) {
+			char c = row.charAt(i);
+			if (quoted && c == '"' && i + 1 < row.length() && row.charAt(i + 1) == '"') {
+				field.append('"');
+				++i;
+			}
+			else if (c == '"') {
+				quoted = !quoted;
+			}
+			else if (c == ',' && !quoted) {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		assertEquals(5, fields.size(), row);
+		return fields.toArray(new String[0]);
+	}
+}
@@ -0,0 +1,151 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.*;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/* Checks the parallel BoruvkaMST against MapMST (Prim's algorithm) on
+ * connected maps and against a plain Kruskal's algorithm on every map,
+ * including one with an unreachable town and one where most streets
+ * tie in length */
+class BoruvkaMSTTest {
+
+	@Test
+	void matchesPrimOnConnectedMap() throws IOException {
+		UndirectedGraph graph = TestMaps.connectedCity(21);
+		BoruvkaMST boruvka = new BoruvkaMST(graph);
+		MapMST prim = new MapMST(graph);
+
+		double primWeight = 0.0;
+		for (StreetEdge edge : prim.edges()) {
+			primWeight += edge.weight;
+		}
+		TestMaps.assertDistance(primWeight, boruvka.weight(), "total weight");
+		assertEquals(1, boruvka.components());
+		assertEquals(graph.V(), boruvka.componentSize(0));
+		TestMaps.assertDistance(primWeight, boruvka.componentWeight(0), "weight of the only part");
+
+		// The generated streets all differ in length, so the tree itself is unique
+		assertArrayEquals(sorted(prim.edgeNumbers()), sorted(boruvka.edgeNumbers()), "tree edges");
+		assertArrayEquals(kruskal(graph), sorted(boruvka.edgeNumbers()), "tree edges");
+	}
+
+	@Test
+	void matchesKruskalOnDisconnectedMap() throws IOException {
+		UndirectedGraph graph = TestMaps.city(22);
+		assertThrows(RuntimeException.class, () -> new MapMST(graph).edges());
+		assertForest(graph, new BoruvkaMST(graph));
+	}
+
+	@Test
+	void matchesKruskalWithTiedWeights() throws IOException {
+
+		// An exact grid, where every block of a row is as long as the next
+		StringBuilder text = new StringBuilder();
+		int rows = 60, columns = 70;
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < columns; ++c) {
+				text.append("i\tt").append(r).append('_').append(c).append('\t').append(43.0 + r * 0.001).append('\t').append(-77.0 + c * 0.001).append('\n');
+			}
+		}
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < columns; ++c) {
+				if (c + 1 < columns) {
+					text.append("r\ta").append(r).append('_').append(c).append("\tt").append(r).append('_').append(c).append("\tt").append(r).append('_').append(c + 1).append('\n');
+				}
+				if (r + 1 < rows) {
+					text.append("r\td").append(r).append('_').append(c).append("\tt").append(r).append('_').append(c).append("\tt").append(r + 1).append('_').append(c).append('\n');
+				}
+			}
+		}
+		UndirectedGraph graph = TestMaps.load(text.toString());
+		BoruvkaMST boruvka = assertForest(graph, new BoruvkaMST(graph));
+
+		double primWeight = 0.0;
+		for (StreetEdge edge : new MapMST(graph).edges()) {
+			primWeight += edge.weight;
+		}
+		TestMaps.assertDistance(primWeight, boruvka.weight(), "total weight");
+	}
+
+	@Test
+	void matchesKruskalOnLargeMap() throws IOException {
+		StringWriter text = new StringWriter();
+		MapGenerator generator = new MapGenerator(text, 23);
+		generator.grid("g", 220, 220, MapGenerator.LATITUDE, MapGenerator.LONGITUDE);
+		generator.grid("t", 30, 30, MapGenerator.LATITUDE - 0.4, MapGenerator.LONGITUDE);
+		UndirectedGraph graph = TestMaps.load(text.toString());
+		BoruvkaMST boruvka = assertForest(graph, new BoruvkaMST(graph));
+		assertTrue(boruvka.rounds() <= 32 - Integer.numberOfLeadingZeros(graph.V()), boruvka.rounds() + " rounds");
+	}
+
+	/* Asserts that the Boruvka forest has exactly Kruskal's edges and that
+	 * its parts, their sizes and their weights match the parts Kruskal's
+	 * forest joins, returning the forest */
+	private static BoruvkaMST assertForest(UndirectedGraph graph, BoruvkaMST boruvka) {
+		int[] forest = kruskal(graph);
+		assertArrayEquals(forest, sorted(boruvka.edgeNumbers()), "forest edges");
+		assertEquals(graph.V() - forest.length, boruvka.components(), "parts");
+
+		// Two intersections share a part exactly when Kruskal's forest joins them
+		int[] parent = new int[graph.V()];
+		for (int v = 0; v < graph.V(); ++v) {
+			parent[v] = v;
+		}
+		for (int e : forest) {
+			parent[TestMaps.root(parent, graph.edgeList[e].v.intersectionNo)] = TestMaps.root(parent, graph.edgeList[e].w.intersectionNo);
+		}
+		int[] partOfRoot = new int[graph.V()];
+		Arrays.fill(partOfRoot, -1);
+		int[] size = new int[boruvka.components()];
+		for (int v = 0; v < graph.V(); ++v) {
+			int root = TestMaps.root(parent, v);
+			if (partOfRoot[root] == -1) {
+				partOfRoot[root] = boruvka.component(v);
+			}
+			assertEquals(partOfRoot[root], boruvka.component(v), "part of intersection " + v);
+			++size[boruvka.component(v)];
+		}
+		double[] weight = new double[boruvka.components()];
+		for (int e : forest) {
+			weight[boruvka.component(graph.edgeList[e].v.intersectionNo)] += graph.edgeList[e].weight;
+		}
+		double total = 0.0;
+		for (int c = 0; c < boruvka.components(); ++c) {
+			assertEquals(size[c], boruvka.componentSize(c), "size of part " + c);
+			TestMaps.assertDistance(weight[c], boruvka.componentWeight(c), "weight of part " + c);
+			total += weight[c];
+		}
+		TestMaps.assertDistance(total, boruvka.weight(), "total weight");
+		return boruvka;
+	}
+
+	// Returns Kruskal's minimum spanning forest of the whole graph
+	private static int[] kruskal(UndirectedGraph graph) {
+		int[] edgeV = new int[graph.E()];
+		int[] edgeW = new int[graph.E()];
+		double[] weight = new double[graph.E()];
+		int[] edges = new int[graph.E()];
+		for (int e = 0; e < graph.E(); ++e) {
+			edgeV[e] = graph.edgeList[e].v.intersectionNo;
+			edgeW[e] = graph.edgeList[e].w.intersectionNo;
+			weight[e] = graph.edgeList[e].weight;
+			edges[e] = e;
+		}
+		return TestMaps.kruskal(graph.V(), edges, edgeV, edgeW, weight);
+	}
+
+	// Returns a sorted copy of edge numbers
+	private static int[] sorted(int[] numbers) {
+		int[] copy = numbers.clone();
+		Arrays.sort(copy);
+		return copy;
+	}
+}
@@ -0,0 +1,194 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/* Applies long random runs of road insertions, closures and weight
+ * changes to a DynamicSpanningForest, and after every few of them checks
+ * it against a minimum spanning forest recomputed from scratch (Kruskal's
+ * algorithm over the same edges) */
+class DynamicSpanningForestTest {
+
+	private static final int OPERATIONS = 4000;	// random updates applied by each run
+	private static final int CHECK_EVERY = 20;	// updates between comparisons with a full recomputation
+
+	@Test
+	void startsAsMinimumSpanningForest() throws IOException {
+		UndirectedGraph graph = TestMaps.city(31);
+		DynamicSpanningForest forest = new DynamicSpanningForest(graph);
+		BoruvkaMST boruvka = new BoruvkaMST(graph);
+		assertEquals(boruvka.components(), forest.components());
+		TestMaps.assertDistance(boruvka.weight(), forest.weight(), "starting weight");
+		int[] expected = boruvka.edgeNumbers();
+		Arrays.sort(expected);
+		assertArrayEquals(expected, forest.edgeNumbers());
+	}
+
+	@Test
+	void randomUpdatesMatchRecomputation() throws IOException {
+		for (int run = 0; run < 3; ++run) {
+			Random random = new Random(40 + run);
+			UndirectedGraph graph = TestMaps.city(32 + run);
+			Mirror map = new Mirror(graph);
+			DynamicSpanningForest forest = new DynamicSpanningForest(graph);
+
+			for (int i = 1; i <= OPERATIONS; ++i) {
+				int choice = random.nextInt(3);
+				if (choice == 0 || map.count == 0) {
+					int v = random.nextInt(graph.V());
+					int w = random.nextInt(graph.V() - 1);
+					w += (w >= v) ? 1 : 0;
+					double weight = randomWeight(random, map);
+					int e = map.insert(v, w, weight);
+					forest.insert(e, v, w, weight);
+				}
+				else {
+
+					// Tree edges half the time, since only they make the forest change shape
+					int[] tree = forest.edgeNumbers();
+					int e = (random.nextBoolean() && tree.length > 0) ? tree[random.nextInt(tree.length)] : map.randomEdge(random);
+					if (choice == 1) {
+						map.delete(e);
+						forest.delete(e);
+					}
+					else {
+						double weight = randomWeight(random, map);
+						map.weight[e] = weight;
+						forest.reweight(e, weight);
+					}
+				}
+				if (i % CHECK_EVERY == 0) {
+					assertSameForest(map, forest, "after update " + i + " of run " + run);
+				}
+			}
+		}
+	}
+
+	@Test
+	void rejectsUnknownEdges() throws IOException {
+		UndirectedGraph graph = TestMaps.city(35);
+		DynamicSpanningForest forest = new DynamicSpanningForest(graph);
+		assertThrows(IllegalArgumentException.class, () -> forest.insert(0, 1, 2, 1.0));
+		assertThrows(IllegalArgumentException.class, () -> forest.insert(graph.E(), 0, graph.V(), 1.0));
+		assertThrows(IllegalArgumentException.class, () -> forest.delete(graph.E()));
+		assertThrows(IllegalArgumentException.class, () -> forest.reweight(-1, 1.0));
+		forest.delete(3);
+		assertThrows(IllegalArgumentException.class, () -> forest.delete(3));
+		assertFalse(forest.contains(3));
+	}
+
+	/* Returns a weight for an inserted or reweighted road: usually a random
+	 * street length, sometimes exactly the weight of another road so that
+	 * ties come up, and sometimes far longer or shorter than any street */
+	private static double randomWeight(Random random, Mirror map) {
+		switch (random.nextInt(5)) {
+			case 0: return map.weight[map.randomEdge(random)];
+			case 1: return random.nextDouble() * 0.001;
+			case 2: return 1.0 + random.nextDouble() * 5;
+			default: return random.nextDouble() * 0.15;
+		}
+	}
+
+	/* Asserts that the forest has the weight and number of trees of the
+	 * minimum spanning forest recomputed from the mirror, and that its
+	 * edges are present roads that form a forest of the weight it claims */
+	private static void assertSameForest(Mirror map, DynamicSpanningForest forest, String when) {
+		int[] present = map.presentEdges();
+		int[] expected = TestMaps.kruskal(map.V, present, map.edgeV, map.edgeW, map.weight);
+		double expectedWeight = 0.0;
+		for (int e : expected) {
+			expectedWeight += map.weight[e];
+		}
+		TestMaps.assertDistance(expectedWeight, forest.weight(), "weight " + when);
+		assertEquals(map.V - expected.length, forest.components(), "trees " + when);
+		assertEquals(expected.length, forest.size(), "edges " + when);
+
+		int[] tree = forest.edgeNumbers();
+		int[] parent = new int[map.V];
+		for (int v = 0; v < map.V; ++v) {
+			parent[v] = v;
+		}
+		double total = 0.0;
+		for (int e : tree) {
+			assertTrue(map.present[e], "closed road " + e + " is in the forest " + when);
+			assertTrue(forest.contains(e));
+			int a = TestMaps.root(parent, map.edgeV[e]), b = TestMaps.root(parent, map.edgeW[e]);
+			assertNotEquals(a, b, "road " + e + " closes a cycle in the forest " + when);
+			parent[a] = b;
+			total += map.weight[e];
+		}
+		TestMaps.assertDistance(total, forest.weight(), "weight of the listed edges " + when);
+	}
+
+	/* Plain record of the roads the forest should be spanning: every edge id
+	 * ever used, its ends and weight, and whether it is still open */
+	private static class Mirror {
+
+		int V;				// number of intersections
+		int[] edgeV;		// edgeV[e] is one intersection of edge id e
+		int[] edgeW;		// edgeW[e] is the other intersection of edge id e
+		double[] weight;	// weight[e] is the current weight of edge id e
+		boolean[] present;	// present[e] is true while edge id e is open
+		int ids;			// edge ids used so far
+		int count;			// roads still open
+
+		Mirror(UndirectedGraph graph) {
+			V = graph.V();
+			edgeV = new int[graph.E() + OPERATIONS];
+			edgeW = new int[edgeV.length];
+			weight = new double[edgeV.length];
+			present = new boolean[edgeV.length];
+			for (StreetEdge edge : graph.edgeList) {
+				insert(edge.v.intersectionNo, edge.w.intersectionNo, edge.weight);
+			}
+		}
+
+		// Opens a road under the next unused id, returning the id
+		int insert(int v, int w, double edgeWeight) {
+			edgeV[ids] = v;
+			edgeW[ids] = w;
+			weight[ids] = edgeWeight;
+			present[ids] = true;
+			++count;
+			return ids++;
+		}
+
+		// Closes road e
+		void delete(int e) {
+			present[e] = false;
+			--count;
+		}
+
+		// Returns the id of a random open road
+		int randomEdge(Random random) {
+			int e;
+			do {
+				e = random.nextInt(ids);
+			} while (!present[e]);
+			return e;
+		}
+
+		// Returns the ids of all open roads
+		int[] presentEdges() {
+			int[] edges = new int[count];
+			int n = 0;
+			for (int e = 0; e < ids; ++e) {
+				if (present[e]) {
+					edges[n++] = e;
+				}
+			}
+			return edges;
+		}
+	}
+}
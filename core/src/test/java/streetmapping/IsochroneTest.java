@@ -0,0 +1,106 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/* Checks the bounded searches of Isochrone against full Dijkstra
+ * searches from the same origins, and that every intersection a ring
+ * reaches lies inside one of the ring's polygons */
+class IsochroneTest {
+
+	private static final double[] RADII = {0.25, 0.6, 1.5};	// radii of the rings tried, in miles
+	private static final int ORIGINS = 15;						// random origins tried
+
+	private static UndirectedGraph graph;
+
+	@BeforeAll
+	static void buildMap() throws IOException {
+		graph = TestMaps.city(13);
+	}
+
+	@Test
+	void ringsMatchFullSearch() {
+		Random random = new Random(6);
+		for (int o = 0; o < ORIGINS; ++o) {
+			int origin = random.nextInt(graph.V());
+			Isochrone isochrone = new Isochrone(graph, origin, RADII);
+			DijkstraShortestPath full = new DijkstraShortestPath(graph, TestMaps.title(graph, origin));
+			for (int ring = 0; ring < RADII.length; ++ring) {
+				int[] reachable = isochrone.reachable(ring);
+				double[] distances = isochrone.distances(ring);
+				for (int i = 0; i < reachable.length; ++i) {
+					TestMaps.assertDistance(full.distanceTo[reachable[i]], distances[i], "distance from " + origin + " to " + reachable[i]);
+					assertTrue(distances[i] <= RADII[ring], "intersection " + reachable[i] + " is past the ring");
+					assertTrue(i == 0 || distances[i - 1] <= distances[i], "ring is not in order of distance");
+				}
+
+				// Everything the full search puts inside the radius, and nothing else
+				int[] expected = new int[graph.V()];
+				int count = 0;
+				for (int v = 0; v < graph.V(); ++v) {
+					if (full.distanceTo[v] <= RADII[ring]) {
+						expected[count++] = v;
+					}
+				}
+				int[] found = reachable.clone();
+				Arrays.sort(found);
+				assertArrayEquals(Arrays.copyOf(expected, count), found, "ring " + ring + " around " + origin);
+				assertEquals(count, isochrone.size(ring));
+			}
+		}
+	}
+
+	@Test
+	void polygonsCoverReachedIntersections() {
+		Random random = new Random(7);
+		for (int o = 0; o < ORIGINS; ++o) {
+			Isochrone isochrone = new Isochrone(graph, random.nextInt(graph.V()), RADII);
+			for (int ring = 0; ring < RADII.length; ++ring) {
+				List<double[]> polygons = isochrone.polygons(ring, 0.02);
+				assertFalse(polygons.isEmpty());
+				for (int v : isochrone.reachable(ring)) {
+					Intersection inter = graph.intersection(v);
+					boolean covered = false;
+					for (double[] polygon : polygons) {
+						covered |= inside(polygon, inter.latitude, inter.longitude);
+					}
+					assertTrue(covered, "intersection " + v + " of ring " + ring + " is outside every polygon");
+				}
+			}
+		}
+	}
+
+	@Test
+	void rejectsBadRadii() {
+		assertThrows(IllegalArgumentException.class, () -> new Isochrone(graph, 0));
+		assertThrows(IllegalArgumentException.class, () -> new Isochrone(graph, 0, -0.5, 1.0));
+		assertThrows(IllegalArgumentException.class, () -> new Isochrone(graph, 0, 1.0, Double.NaN));
+		assertThrows(IllegalArgumentException.class, () -> new Isochrone(graph, 0, Double.POSITIVE_INFINITY));
+	}
+
+	// Returns true if the point is inside the polygon of {latitude, longitude} corners (even-odd rule)
+	private static boolean inside(double[] polygon, double latitude, double longitude) {
+		boolean in = false;
+		int n = polygon.length / 2;
+		for (int i = 0, j = n - 1; i < n; j = i++) {
+			double yi = polygon[2 * i], xi = polygon[2 * i + 1];
+			double yj = polygon[2 * j], xj = polygon[2 * j + 1];
+			if ((yi > latitude) != (yj > latitude) && longitude < (xj - xi) * (latitude - yi) / (yj - yi) + xi) {
+				in = !in;
+			}
+		}
+		return in;
+	}
+}
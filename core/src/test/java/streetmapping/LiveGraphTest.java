@@ -0,0 +1,315 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/* Publishes random batches of edits to a LiveGraph and checks every new
+ * version against the same edits applied to a plain list of intersections
+ * and streets and loaded from scratch, and every earlier version against
+ * what it held before the edit was published */
+class LiveGraphTest {
+
+	private static final int PUBLISHES = 60;	// edits published by each random run
+
+	@Test
+	void structuralEditsMatchReload() throws IOException {
+		runEdits(new Random(50), TestMaps.city(51), false);
+	}
+
+	@Test
+	void weightEditsMatchModel() throws IOException {
+		runEdits(new Random(52), TestMaps.city(53), true);
+	}
+
+	@Test
+	void readersKeepTheirSnapshot() throws Exception {
+		LiveGraph live = new LiveGraph(TestMaps.city(54));
+		UndirectedGraph kept = live.snapshot();
+		double[] expected = new DijkstraShortestPath(kept, 0).distanceTo.clone();
+
+		// The reader searches its snapshot over and over while the writer edits the map
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread reader = new Thread(() -> {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					assertArrayEquals(expected, new DijkstraShortestPath(kept, 0).distanceTo, "snapshot changed under a reader");
+				}
+			}
+			catch (Throwable excpt) {
+				failure.set(excpt);
+			}
+		});
+		reader.start();
+		Random random = new Random(55);
+		for (int p = 0; p < 40; ++p) {
+			UndirectedGraph current = live.snapshot();
+			LiveGraph.Edit edit = live.edit();
+			int[] streets = random.ints(0, current.E()).distinct().limit(20).toArray();
+			for (int i = 0; i < streets.length; ++i) {
+				StreetEdge street = current.edgeList[streets[i]];
+				if (i % 2 == 0) {
+					edit.setWeight(street, street.weight * 3);
+				}
+				else {
+					edit.removeStreet(street);
+				}
+			}
+			edit.addIntersection("new-" + p, 43.1, -77.6);
+			edit.addStreet("new-road-" + p, "new-" + p, current.intersection(p).title);
+			edit.publish();
+		}
+		reader.interrupt();
+		reader.join();
+		assertNull(failure.get());
+		assertArrayEquals(expected, new DijkstraShortestPath(kept, 0).distanceTo);
+	}
+
+	@Test
+	void failedEditsApplyNothing() throws IOException {
+		LiveGraph live = new LiveGraph(TestMaps.city(56));
+		UndirectedGraph first = live.snapshot();
+		StreetEdge street = first.edgeList[7];
+		StreetEdge other = first.edgeList[8];
+
+		LiveGraph.Edit remove = live.edit();
+		remove.removeStreet(street);
+		UndirectedGraph second = remove.publish();
+		assertEquals(1, live.version());
+
+		// A street that was removed since it was read
+		LiveGraph.Edit stale = live.edit();
+		stale.addIntersection("new-corner", 43.1, -77.6);
+		stale.removeStreet(street);
+		assertThrows(ConcurrentModificationException.class, stale::publish);
+		assertUnchanged(live, second, "new-corner");
+
+		// The same street changed twice through two different snapshots
+		LiveGraph.Edit heavier = live.edit();
+		heavier.setWeight(other, other.weight * 2);
+		UndirectedGraph third = heavier.publish();
+		LiveGraph.Edit again = live.edit();
+		again.addIntersection("new-corner", 43.1, -77.6);
+		again.setWeight(other, other.weight * 3);
+		assertThrows(ConcurrentModificationException.class, again::publish);
+		assertUnchanged(live, third, "new-corner");
+
+		// Shorter than the straight line between its intersections
+		StreetEdge current = third.edgeList[9];
+		LiveGraph.Edit shorter = live.edit();
+		shorter.addIntersection("new-corner", 43.1, -77.6);
+		shorter.setWeight(current, current.weight * 0.5);
+		assertThrows(IllegalArgumentException.class, shorter::publish);
+		assertUnchanged(live, third, "new-corner");
+
+		// A title that is taken or unknown
+		LiveGraph.Edit taken = live.edit();
+		taken.addIntersection("new-corner", 43.1, -77.6);
+		taken.addIntersection(third.intersection(0).title, 43.1, -77.6);
+		assertThrows(IllegalArgumentException.class, taken::publish);
+		assertUnchanged(live, third, "new-corner");
+		LiveGraph.Edit unknown = live.edit();
+		unknown.addIntersection("new-corner", 43.1, -77.6);
+		unknown.addStreet("nowhere-road", "new-corner", "nowhere");
+		assertThrows(IllegalArgumentException.class, unknown::publish);
+		assertUnchanged(live, third, "new-corner");
+
+		// Weights that can never be valid are refused before they join the batch
+		LiveGraph.Edit bad = live.edit();
+		assertThrows(IllegalArgumentException.class, () -> bad.setWeight(current, Double.NaN));
+		assertThrows(IllegalArgumentException.class, () -> bad.setWeight(current, -1.0));
+		assertThrows(IllegalArgumentException.class, () -> bad.setWeight(current, Double.POSITIVE_INFINITY));
+		assertEquals(0, bad.size());
+	}
+
+	// Asserts that the live graph still serves the given version, without the title an edit tried to add
+	private static void assertUnchanged(LiveGraph live, UndirectedGraph version, String title) {
+		assertSame(version, live.snapshot(), "a failed edit was published");
+		assertEquals(version.version(), live.version());
+		assertThrows(IllegalArgumentException.class, () -> version.intersectionNo(title));
+	}
+
+	/* Publishes random batches of edits, checking after each one that the
+	 * new version matches the model and that the version before it did not
+	 * change. With weights, streets are also lengthened */
+	private static void runEdits(Random random, UndirectedGraph graph, boolean weights) throws IOException {
+		LiveGraph live = new LiveGraph(graph);
+		Model model = new Model(graph);
+		int added = 0;
+		for (int p = 1; p <= PUBLISHES; ++p) {
+			UndirectedGraph before = live.snapshot();
+			String beforeText = TestMaps.text(before);
+			double[] beforeWeights = edgeWeights(before);
+			String[] beforeSlots = TestMaps.adjacency(before);
+			List<Street> atStart = new ArrayList<Street>(model.streets);
+
+			/* Streets read from the snapshot come first, each at most once,
+			 * then additions, then at most one intersection removal, so that
+			 * no change names a street an earlier one removed */
+			LiveGraph.Edit edit = live.edit();
+			Set<Integer> used = new HashSet<Integer>();
+			int changes = 1 + random.nextInt(12);
+			for (int c = 0; c < changes; ++c) {
+				int e = random.nextInt(before.E());
+				if (!used.add(e)) {
+					continue;
+				}
+				StreetEdge street = before.edgeList[e];
+				if (weights && random.nextBoolean()) {
+					double weight = street.weight * (1 + random.nextInt(3) * random.nextDouble());
+					edit.setWeight(street, weight);
+					atStart.get(e).weight = weight;
+				}
+				else if (random.nextInt(3) == 0) {
+					edit.removeStreet(street);
+					model.removeStreet(atStart.get(e));
+				}
+			}
+			for (int c = random.nextInt(4); c > 0; --c) {
+				String title = "new-" + added++;
+				double latitude = 43.1 + random.nextDouble() * 0.1, longitude = -77.6 + random.nextDouble() * 0.1;
+				edit.addIntersection(title, latitude, longitude);
+				model.addIntersection(title, latitude, longitude);
+			}
+			for (int c = random.nextInt(6); c > 0; --c) {
+				String a = model.titles.get(random.nextInt(model.titles.size()));
+				String b = model.titles.get(random.nextInt(model.titles.size()));
+				edit.addStreet("added-" + p + "-" + c, a, b);
+				model.addStreet("added-" + p + "-" + c, a, b);
+			}
+			if (random.nextInt(4) == 0) {
+				String title = model.titles.get(random.nextInt(model.titles.size()));
+				edit.removeIntersection(title);
+				model.removeIntersection(title);
+			}
+
+			UndirectedGraph next = edit.publish();
+			assertSame(next, live.snapshot());
+			assertEquals(p, live.version(), "version");
+			assertEquals(p - 1, before.version(), "version of the earlier snapshot");
+
+			// The earlier version is exactly what it was
+			assertEquals(beforeText, TestMaps.text(before), "earlier snapshot changed by publish " + p);
+			assertArrayEquals(beforeWeights, edgeWeights(before), "earlier weights changed by publish " + p);
+			assertArrayEquals(beforeSlots, TestMaps.adjacency(before), "earlier adjacency changed by publish " + p);
+			for (int v = 0; v < before.V(); ++v) {
+				assertEquals(v, before.intersectionNo(before.intersection(v).title), "earlier lookup changed by publish " + p);
+			}
+
+			// The new version is the model's map, loaded from scratch, with the model's weights
+			UndirectedGraph expected = TestMaps.load(model.text());
+			if (weights) {
+				assertEquals(model.streets.size(), next.E());
+				for (int e = 0; e < next.E(); ++e) {
+					assertEquals(model.streets.get(e).weight, next.edgeList[e].weight, "weight of " + next.edgeList[e].edgeName);
+					expected.edgeList[e].weight = model.streets.get(e).weight;
+				}
+				expected.packAdjacency();
+			}
+			TestMaps.assertSameGraph(expected, next);
+		}
+	}
+
+	// Returns the weight of every street of a graph by street number
+	private static double[] edgeWeights(UndirectedGraph graph) {
+		double[] weights = new double[graph.E()];
+		for (int e = 0; e < graph.E(); ++e) {
+			weights[e] = graph.edgeList[e].weight;
+		}
+		return weights;
+	}
+
+	// A street of the model: its name, the titles it joins and its weight
+	private static class Street {
+
+		String name;
+		String title1;
+		String title2;
+		double weight;
+
+		Street(String name, String title1, String title2, double weight) {
+			this.name = name;
+			this.title1 = title1;
+			this.title2 = title2;
+			this.weight = weight;
+		}
+	}
+
+	/* Plain lists of the intersections and streets the live graph should
+	 * hold, numbered the way LiveGraph numbers them: removing one moves
+	 * the last one into its number */
+	private static class Model {
+
+		List<String> titles = new ArrayList<String>();
+		List<double[]> points = new ArrayList<double[]>();
+		List<Street> streets = new ArrayList<Street>();
+
+		Model(UndirectedGraph graph) {
+			for (int v = 0; v < graph.V(); ++v) {
+				Intersection inter = graph.intersection(v);
+				addIntersection(inter.title, inter.latitude, inter.longitude);
+			}
+			for (int e = 0; e < graph.E(); ++e) {
+				StreetEdge edge = graph.edgeList[e];
+				streets.add(new Street(edge.edgeName, edge.v.title, edge.w.title, edge.weight));
+			}
+		}
+
+		void addIntersection(String title, double latitude, double longitude) {
+			titles.add(title);
+			points.add(new double[] {latitude, longitude});
+		}
+
+		void addStreet(String name, String title1, String title2) {
+			double[] a = points.get(titles.indexOf(title1)), b = points.get(titles.indexOf(title2));
+			streets.add(new Street(name, title1, title2, UndirectedGraph.calcDistanceMiles(a[0], a[1], b[0], b[1])));
+		}
+
+		void removeStreet(Street street) {
+			int e = streets.indexOf(street);
+			streets.set(e, streets.get(streets.size() - 1));
+			streets.remove(streets.size() - 1);
+		}
+
+		// Removes the intersection after every street touching it, from the last street back
+		void removeIntersection(String title) {
+			for (int e = streets.size() - 1; e >= 0; --e) {
+				if (streets.get(e).title1.equals(title) || streets.get(e).title2.equals(title)) {
+					removeStreet(streets.get(e));
+				}
+			}
+			int x = titles.indexOf(title);
+			int last = titles.size() - 1;
+			titles.set(x, titles.get(last));
+			points.set(x, points.get(last));
+			titles.remove(last);
+			points.remove(last);
+		}
+
+		// Returns the map file text of the model
+		String text() {
+			StringBuilder text = new StringBuilder();
+			for (int v = 0; v < titles.size(); ++v) {
+				text.append("i\t").append(titles.get(v)).append('\t').append(points.get(v)[0]).append('\t').append(points.get(v)[1]).append('\n');
+			}
+			for (Street street : streets) {
+				text.append("r\t").append(street.name).append('\t').append(street.title1).append('\t').append(street.title2).append('\n');
+			}
+			return text.toString();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/* Checks that loading a map through MapFileReader (new UndirectedGraph(File))
+ * builds exactly the graph the original line-by-line Scanner loader
+ * (new UndirectedGraph(BufferedReader)) builds from the same text, down to
+ * the last bit of every coordinate */
+class MapFileReaderTest {
+
+	@Test
+	void generatedMapMatchesLegacyReader() throws IOException {
+		String text = TestMaps.cityText(3, true);
+		TestMaps.assertSameGraph(legacy(text), TestMaps.load(text));
+	}
+
+	@Test
+	void numbersMatchParseDouble() throws IOException {
+		Random random = new Random(9);
+		List<String> numbers = new ArrayList<String>();
+		String[] fixed = {"0", "-0", "+43.5", "-77", ".25", "43.", "4.3e1", "4.3E+1", "-7.763e-1", "1e-30", "1e22", "1e23",
+			"123456789012345678901234", "0.000000000000000000000000123", "43.130137000000000000001", "9007199254740993",
+			"2.2250738585072014E-308", "4.9e-324", "0.1", "0.30000000000000004", "-77.629890"};
+		for (String number : fixed) {
+			numbers.add(number);
+		}
+		for (int i = 0; i < 400; ++i) {
+			double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 6);
+			switch (i % 4) {
+				case 0: numbers.add(Double.toString(value)); break;
+				case 1: numbers.add(String.format("%.17g", value)); break;
+				case 2: numbers.add(String.format("%.6f", value)); break;
+				default: numbers.add(String.format("%.15e", value)); break;
+			}
+		}
+
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i + 1 < numbers.size(); i += 2) {
+			text.append("i\tn").append(i).append('\t').append(numbers.get(i)).append('\t').append(numbers.get(i + 1)).append('\n');
+		}
+		UndirectedGraph graph = TestMaps.load(text.toString());
+		for (int i = 0; i + 1 < numbers.size(); i += 2) {
+			Intersection inter = graph.intersection(graph.intersectionNo("n" + i));
+			assertEquals(Double.parseDouble(numbers.get(i)), inter.latitude, numbers.get(i));
+			assertEquals(Double.parseDouble(numbers.get(i + 1)), inter.longitude, numbers.get(i + 1));
+		}
+		TestMaps.assertSameGraph(legacy(text.toString()), graph);
+	}
+
+	@Test
+	void layoutQuirksMatchLegacyReader() throws IOException {
+		StringBuilder longTitle = new StringBuilder("far");
+		while (longTitle.length() < 100000) {
+			longTitle.append("-away");
+		}
+		String[] titles = {"plain", "caf\u00e9-corner", "\u65e5\u672c\u6a4b", "\u00fcber"};
+
+		/* Windows line endings, spaces for tabs, runs of separators and
+		 * trailing ones, enough lines that records straddle the read buffer,
+		 * a title longer than the buffer and no final newline */
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < titles.length; ++i) {
+			text.append("i ").append(titles[i]).append("  \t").append(43 + i * 0.001).append(' ').append(-77 - i * 0.001).append(" \r\n");
+		}
+		text.append("i\t").append(longTitle).append("\t43.2\t-77.7\n");
+		for (int i = 0; i < 4000; ++i) {
+			text.append("i\tx").append(i).append('\t').append(43.1 + i * 1e-5).append('\t').append(-77.6).append('\n');
+		}
+		for (int i = 0; i < 4000; ++i) {
+			String a = titles[i % titles.length], b = (i % 3 == 0) ? titles[(i + 1) % titles.length] : "x" + i;
+			text.append("r\t\u00e9tude-").append(i).append('\t').append(a).append('\t').append(b).append((i % 2 == 0) ? "\r\n" : "\n");
+		}
+		text.append("r\tlong-way\t").append(longTitle).append("\tplain\n");
+		text.append("r\tlong-way-back\tx7\t").append(longTitle).append('\n');
+		text.append("r\tlast\tplain\tx1");
+		String legacyText = text.toString();
+
+		// MapFileReader also skips blank lines, which the legacy loader cannot
+		String quirky = legacyText.replace("r\tlast", "\n\r\n  \t\nr\tlast").replace("i\tx100\t", "\n\ni\tx100\t");
+		TestMaps.assertSameGraph(legacy(legacyText), TestMaps.load(quirky));
+	}
+
+	@Test
+	void malformedRecordsNameTheirLine() {
+		assertMalformed("i\ta\t43.1\t-77.6\ni\tb\t43.1\n", 2);
+		assertMalformed("i\ta\t43.1\t-77.6\nx\tb\t43.1\t-77.6\n", 2);
+		assertMalformed("i\ta\t43.1\t-77.6\n\ni\tb\t43.1x\t-77.6\n", 3);
+		assertMalformed("i\ta\t43.1\t-77.6\ni\tb\t--1\t-77.6\n", 2);
+		assertMalformed("i\ta\t43.1\t-77.6\ni\tb\t1e\t-77.6\n", 2);
+		assertMalformed("i\ta\t43.1\t-77.6\nr\ts\ta\tnowhere\n", 2);
+		assertMalformed("i\ta\t43.1\t-77.6\t1\t2\t3\t4\t5\n", 1);
+	}
+
+	// Asserts that loading the text fails with an error naming the given line
+	private static void assertMalformed(String text, int line) {
+		IOException excpt = assertThrows(IOException.class, () -> TestMaps.load(text));
+		assertTrue(excpt.getMessage().contains("line " + line + ":"), excpt.getMessage());
+	}
+
+	// Loads the text through the original BufferedReader constructor
+	private static UndirectedGraph legacy(String text) throws IOException {
+		return new UndirectedGraph(new BufferedReader(new StringReader(text)));
+	}
+}
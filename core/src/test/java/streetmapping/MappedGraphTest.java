@@ -0,0 +1,154 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.*;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/* Writes a loaded map to a snapshot with MappedGraph.write(), maps it
+ * back with open() and checks every section against the UndirectedGraph
+ * it came from, then checks the snapshot's own routes against Dijkstra
+ * searches of that graph */
+class MappedGraphTest {
+
+	private static final int PAIRS = 200;	// random routes tried
+
+	private static UndirectedGraph graph;
+	private static File file;
+	private static MappedGraph snapshot;
+
+	/* The map repeats two titles, so that title lookups have to
+	 * resolve them the same way (the later intersection wins) */
+	@BeforeAll
+	static void writeSnapshot() throws IOException {
+		String text = TestMaps.cityText(17, true);
+		String first = text.substring(2, text.indexOf('\t', 2));
+		text = "i\tdup\t43.001\t-77.001\ni\tcaf\u00e9\t43.002\t-77.002\ni\tdup\t43.003\t-77.003\n" + text
+				+ "i\tcaf\u00e9\t43.004\t-77.004\nr\tspur\tdup\t" + first + "\nr\t\u00e9tude\tcaf\u00e9\tdup\n";
+		graph = TestMaps.load(text);
+		file = TestMaps.temporary(".smap");
+		MappedGraph.write(graph, file);
+		snapshot = MappedGraph.open(file);
+	}
+
+	@AfterAll
+	static void closeSnapshot() throws IOException {
+		snapshot.close();
+	}
+
+	@Test
+	void sectionsMatchGraph() {
+		assertEquals(graph.V(), snapshot.V(), "intersections");
+		assertEquals(graph.E(), snapshot.E(), "streets");
+		for (int v = 0; v < graph.V(); ++v) {
+			Intersection inter = graph.intersection(v);
+			assertEquals(inter.title, snapshot.title(v), "title of " + v);
+			assertEquals(inter.latitude, snapshot.latitude(v), "latitude of " + inter.title);
+			assertEquals(inter.longitude, snapshot.longitude(v), "longitude of " + inter.title);
+		}
+		for (int e = 0; e < graph.E(); ++e) {
+			StreetEdge edge = graph.edgeList[e];
+			assertEquals(edge.edgeName, snapshot.edgeName(e), "name of street " + e);
+			assertEquals(edge.weight, snapshot.edgeWeight(e), "weight of " + edge.edgeName);
+			assertEquals(edge.v.intersectionNo, snapshot.edgeV.get(e), "first end of " + edge.edgeName);
+			assertEquals(edge.w.intersectionNo, snapshot.edgeW.get(e), "second end of " + edge.edgeName);
+			assertEquals(edge.w.intersectionNo, snapshot.other(e, edge.v.intersectionNo));
+			assertEquals(edge.v.intersectionNo, snapshot.other(e, edge.w.intersectionNo));
+		}
+		assertArrayEquals(graph.offsets, ints(snapshot.offsets), "offsets");
+		assertArrayEquals(graph.targets, ints(snapshot.targets), "targets");
+		assertArrayEquals(graph.edgeIds, ints(snapshot.edgeIds), "edge ids");
+		assertArrayEquals(graph.weights, doubles(snapshot.weights), "slot weights");
+	}
+
+	@Test
+	void titlesResolveLikeGraph() {
+		for (int v = 0; v < graph.V(); ++v) {
+			String title = graph.intersection(v).title;
+			assertEquals(graph.intersectionNo(title), snapshot.intersectionNo(title), "lookup of " + title);
+		}
+		assertEquals(2, snapshot.intersectionNo("dup"), "a repeated title names its last intersection");
+		assertEquals(graph.V() - 1, snapshot.intersectionNo("caf\u00e9"));
+
+		// Coordinates of an intersection name that intersection in both
+		Random random = new Random(18);
+		for (int i = 0; i < 50; ++i) {
+			int v = 3 + random.nextInt(graph.V() - 4);
+			String point = "@" + graph.intersection(v).latitude + "," + graph.intersection(v).longitude;
+			assertEquals(v, snapshot.intersectionNo(point), point);
+			assertEquals(graph.intersectionNo(point), snapshot.intersectionNo(point), point);
+		}
+		assertThrows(IllegalArgumentException.class, () -> snapshot.intersectionNo("nowhere"));
+		assertThrows(IllegalArgumentException.class, () -> graph.intersectionNo("nowhere"));
+	}
+
+	@Test
+	void routesMatchDijkstra() {
+		Random random = new Random(19);
+		for (int p = 0; p < PAIRS; ++p) {
+			int start = random.nextInt(graph.V());
+			int end = random.nextInt(graph.V());
+			double expected = new DijkstraShortestPath(graph, start).distanceTo[end];
+			int[] path = snapshot.route(start, end);
+			if (Double.isInfinite(expected)) {
+				assertNull(path, "route from " + start + " to " + end + " to an unreachable intersection");
+				continue;
+			}
+			TestMaps.assertDistance(expected, snapshot.distance(path), "route from " + start + " to " + end);
+
+			// The edges join up from start to end
+			int at = start;
+			for (int e : path) {
+				assertTrue(snapshot.edgeV.get(e) == at || snapshot.edgeW.get(e) == at, "edge " + e + " does not leave " + at);
+				at = snapshot.other(e, at);
+			}
+			assertEquals(end, at, "route from " + start + " does not arrive");
+		}
+	}
+
+	@Test
+	void rejectsOtherFiles() throws IOException {
+		assertTrue(MappedGraph.isSnapshot(file));
+		File text = TestMaps.write(TestMaps.text(graph));
+		assertFalse(MappedGraph.isSnapshot(text));
+		IOException excpt = assertThrows(IOException.class, () -> MappedGraph.open(text));
+		assertTrue(excpt.getMessage().contains("is not a graph snapshot"), excpt.getMessage());
+
+		// A snapshot cut short anywhere past its header is refused
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		for (int cut : new int[] {bytes.length - 1, bytes.length - 8, bytes.length / 2, MappedGraph.HEADER_BYTES}) {
+			File truncated = TestMaps.temporary(".smap");
+			Files.write(truncated.toPath(), Arrays.copyOf(bytes, cut));
+			excpt = assertThrows(IOException.class, () -> MappedGraph.open(truncated));
+			assertTrue(excpt.getMessage().contains("is truncated or corrupt"), excpt.getMessage());
+		}
+	}
+
+	// Copies a mapped int section into an array
+	private static int[] ints(IntBuffer buffer) {
+		int[] values = new int[buffer.limit()];
+		buffer.get(0, values);
+		return values;
+	}
+
+	// Copies a mapped double section into an array
+	private static double[] doubles(DoubleBuffer buffer) {
+		double[] values = new double[buffer.limit()];
+		buffer.get(0, values);
+		return values;
+	}
+}
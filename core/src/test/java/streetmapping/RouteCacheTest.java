@@ -0,0 +1,176 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/* Runs skewed streams of queries (a few hot sources and pairs among many
+ * one-off ones, some with no path) through RouteCache under budgets from
+ * roomy to tiny, and checks every answer, whether it came from a tree, a
+ * cached route or a search, against a full Dijkstra search */
+class RouteCacheTest {
+
+	private static final int QUERIES = 3000;	// queries in each stream
+
+	private static UndirectedGraph graph;
+	private static long treeBytes;								// bytes the cache charges for one tree
+	private static Map<Integer, double[]> distances = new HashMap<Integer, double[]>();	// full Dijkstra distances by source
+
+	@BeforeAll
+	static void buildMap() throws IOException {
+		graph = TestMaps.city(61);
+		treeBytes = 64 + 12L * graph.V();
+	}
+
+	@Test
+	void roomyCacheMatchesDijkstra() {
+		RouteCache cache = new RouteCache(graph, 64 * treeBytes, 1L << 24);
+		runQueries(cache, new Random(62));
+		assertTrue(cache.treeHits() > 0, cache.stats());
+		assertTrue(cache.routeHits() > 0, cache.stats());
+		assertTrue(cache.misses() > 0, cache.stats());
+		assertTrue(cache.treesBuilt() > 0, cache.stats());
+		assertEquals(0, cache.treeEvictions() + cache.routeEvictions(), cache.stats());
+		assertEquals(QUERIES, cache.treeHits() + cache.routeHits() + cache.misses());
+		assertTrue(cache.stats().startsWith(QUERIES + " queries: "), cache.stats());
+	}
+
+	@Test
+	void tinyCacheMatchesDijkstra() {
+		RouteCache cache = new RouteCache(graph, 2 * treeBytes + 100, 40 * 64);
+		runQueries(cache, new Random(63));
+		assertTrue(cache.treeEvictions() > 0, cache.stats());
+		assertTrue(cache.routeEvictions() > 0, cache.stats());
+		assertTrue(cache.treeBytes() <= 2 * treeBytes + 100, cache.stats());
+		assertTrue(cache.routeBytes() <= 40 * 64, cache.stats());
+		assertEquals(QUERIES, cache.treeHits() + cache.routeHits() + cache.misses());
+	}
+
+	@Test
+	void routeTierAloneMatchesDijkstra() {
+		RouteCache cache = new RouteCache(graph, 0, 1L << 20);
+		runQueries(cache, new Random(64));
+		assertEquals(0, cache.treesBuilt() + cache.treeHits(), cache.stats());
+		assertTrue(cache.routeHits() > 0, cache.stats());
+	}
+
+	@Test
+	void hierarchyBackedCacheMatchesDijkstra() {
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+		LandmarkTable landmarks = LandmarkTable.build(graph, 8);
+		runQueries(new RouteCache(graph, hierarchy, null, 8 * treeBytes, 1L << 20), new Random(65));
+		runQueries(new RouteCache(graph, null, landmarks, 8 * treeBytes, 1L << 20), new Random(66));
+	}
+
+	@Test
+	void sharedCacheMatchesDijkstra() throws Exception {
+		RouteCache cache = new RouteCache(graph, 4 * treeBytes, 200 * 64);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> streams = new ArrayList<Future<?>>();
+			for (int t = 0; t < 4; ++t) {
+				long seed = 67 + t;
+				streams.add(pool.submit(() -> runQueries(cache, new Random(seed))));
+			}
+			for (Future<?> stream : streams) {
+				stream.get();
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+		assertEquals(4 * QUERIES, cache.treeHits() + cache.routeHits() + cache.misses());
+	}
+
+	/* When two intersections share a title, roads can only reach the later
+	 * one, but routing by number must still start from the one given, not
+	 * from whichever one the title resolves to */
+	@Test
+	void numbersWinOverRepeatedTitles() throws IOException {
+		String text = TestMaps.cityText(68, false);
+		String first = text.substring(2, text.indexOf('\t', 2));
+		UndirectedGraph repeated = TestMaps.load("i\tdup\t43.001\t-77.001\ni\tdup\t43.003\t-77.003\n"
+				+ text + "r\tspur\tdup\t" + first + "\n");
+		int far = repeated.V() - 1;
+		for (long treeBudget : new long[] {0, 1L << 24}) {
+			RouteCache cache = new RouteCache(repeated, treeBudget, 1L << 20);
+			for (int i = 0; i < 8; ++i) {
+				assertNull(cache.route(0, far), "the first dup has no roads");
+				TestMaps.assertWalkable(repeated, cache.route(0, 0), 0, 0);
+				TestMaps.assertWalkable(repeated, cache.route(1, far), 1, far);
+				TestMaps.assertWalkable(repeated, cache.route("dup", TestMaps.title(repeated, far)), 1, far);
+			}
+		}
+	}
+
+	/* Sends a skewed stream of queries through the cache: half from a few
+	 * hot sources, a quarter repeating a few hot pairs, the rest random,
+	 * and one in twenty of them to or from the unreachable town */
+	private static void runQueries(RouteCache cache, Random random) {
+		int[] hotSources = random.ints(6, 0, graph.V()).toArray();
+		int[][] hotPairs = new int[10][];
+		for (int i = 0; i < hotPairs.length; ++i) {
+			hotPairs[i] = new int[] {random.nextInt(graph.V()), random.nextInt(graph.V())};
+		}
+		int[] island = islandIntersections();
+
+		for (int q = 0; q < QUERIES; ++q) {
+			int start, end;
+			int kind = random.nextInt(20);
+			if (kind == 0) {
+				start = island[random.nextInt(island.length)];
+				end = random.nextInt(graph.V());
+			}
+			else if (kind < 10) {
+				start = hotSources[random.nextInt(hotSources.length)];
+				end = random.nextInt(graph.V());
+			}
+			else if (kind < 15) {
+				int[] pair = hotPairs[random.nextInt(hotPairs.length)];
+				start = pair[0];
+				end = pair[1];
+			}
+			else {
+				start = random.nextInt(graph.V());
+				end = random.nextInt(graph.V());
+			}
+
+			double expected = distances(start)[end];
+			Route route = (q % 2 == 0) ? cache.route(start, end) : cache.route(TestMaps.title(graph, start), TestMaps.title(graph, end));
+			if (Double.isInfinite(expected)) {
+				assertNull(route, "route from " + start + " to unreachable " + end);
+			}
+			else {
+				TestMaps.assertWalkable(graph, route, start, end);
+				TestMaps.assertDistance(expected, route.distance(), "distance from " + start + " to " + end);
+			}
+		}
+	}
+
+	// Returns the full Dijkstra distances from a source, computing them once
+	private static double[] distances(int source) {
+		synchronized (distances) {
+			return distances.computeIfAbsent(source, s -> new DijkstraShortestPath(graph, s).distanceTo);
+		}
+	}
+
+	// Returns the intersections of the unreachable town
+	private static int[] islandIntersections() {
+		return IntStream.range(0, graph.V()).filter(v -> TestMaps.title(graph, v).startsWith("t")).toArray();
+	}
+}
@@ -0,0 +1,98 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/* Checks every point-to-point engine against a full Dijkstra search from
+ * the same start: the same distance, or no route when Dijkstra finds no
+ * path, and a route that really walks from start to end */
+class ShortestPathEquivalenceTest {
+
+	private static final int STARTS = 12;			// starting intersections tried
+	private static final int ENDS_PER_START = 12;	// ending intersections tried from each
+
+	private static UndirectedGraph graph;
+	private static ContractionHierarchy hierarchy;
+	private static LandmarkTable landmarks;
+
+	@BeforeAll
+	static void buildMap() throws IOException {
+		graph = TestMaps.city(7);
+		hierarchy = ContractionHierarchy.build(graph);
+		landmarks = LandmarkTable.build(graph, 8);
+	}
+
+	// Something that routes between two titled intersections
+	private interface Engine {
+		Route route(String start, String end);
+	}
+
+	@Test
+	void bidirectionalMatchesDijkstra() {
+		assertMatchesDijkstra((a, b) -> new BidirectionalDijkstra(graph, a, b).route());
+	}
+
+	@Test
+	void aStarMatchesDijkstra() {
+		assertMatchesDijkstra((a, b) -> new AStarShortestPath(graph, a, b).route());
+	}
+
+	@Test
+	void landmarksMatchDijkstra() {
+		assertMatchesDijkstra((a, b) -> new AStarShortestPath(graph, landmarks, a, b).route());
+	}
+
+	@Test
+	void hierarchyMatchesDijkstra() {
+		assertMatchesDijkstra((a, b) -> new HierarchyShortestPath(hierarchy, graph, a, b).route());
+	}
+
+	@Test
+	void pointToPointDijkstraMatchesFullSearch() {
+		assertMatchesDijkstra((a, b) -> new DijkstraShortestPath(graph, a, b).routeTo(graph, b));
+	}
+
+	@Test
+	void savedHierarchyAndLandmarksMatchDijkstra(@TempDir Path directory) throws IOException {
+		File chFile = directory.resolve("city.ch").toFile();
+		File lmFile = directory.resolve("city.lm").toFile();
+		hierarchy.save(chFile);
+		landmarks.save(lmFile);
+		ContractionHierarchy loadedHierarchy = ContractionHierarchy.load(chFile, graph);
+		LandmarkTable loadedLandmarks = LandmarkTable.load(lmFile, graph);
+
+		assertMatchesDijkstra((a, b) -> new HierarchyShortestPath(loadedHierarchy, graph, a, b).route());
+		assertMatchesDijkstra((a, b) -> new AStarShortestPath(graph, loadedLandmarks, a, b).route());
+		assertMatchesDijkstra((a, b) -> UndirectedGraph.findRoute(graph, loadedHierarchy, loadedLandmarks, a, b));
+	}
+
+	/* Routes between random pairs (and from each start to itself) with the
+	 * engine, comparing each answer with a full search from the start */
+	private static void assertMatchesDijkstra(Engine engine) {
+		Random random = new Random(42);
+		for (int s = 0; s < STARTS; ++s) {
+			int start = random.nextInt(graph.V());
+			DijkstraShortestPath full = new DijkstraShortestPath(graph, TestMaps.title(graph, start));
+			for (int t = 0; t <= ENDS_PER_START; ++t) {
+				int end = (t == 0) ? start : random.nextInt(graph.V());
+				Route route = engine.route(TestMaps.title(graph, start), TestMaps.title(graph, end));
+				double expected = full.distanceTo[end];
+				if (Double.isInfinite(expected)) {
+					assertNull(route, "found a route from " + start + " to " + end + " where there is none");
+					continue;
+				}
+				TestMaps.assertWalkable(graph, route, start, end);
+				TestMaps.assertDistance(expected, route.distance(), "distance from " + start + " to " + end);
+			}
+		}
+	}
+}
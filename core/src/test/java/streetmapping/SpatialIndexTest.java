@@ -0,0 +1,169 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/* Checks the grid lookups of SpatialIndex against linear scans of every
+ * intersection or street, measured in the index's own flat coordinates,
+ * for points spread over the map and some well off its edges */
+class SpatialIndexTest {
+
+	private static final int QUERIES = 300;	// random points tried by each test
+
+	private static UndirectedGraph graph;
+	private static SpatialIndex index;
+	private static double minLatitude, maxLatitude, minLongitude, maxLongitude;	// bounds of the map
+
+	@BeforeAll
+	static void buildIndex() throws IOException {
+		graph = TestMaps.city(11);
+		index = new SpatialIndex(graph);
+		minLatitude = minLongitude = Double.POSITIVE_INFINITY;
+		maxLatitude = maxLongitude = Double.NEGATIVE_INFINITY;
+		for (int v = 0; v < graph.V(); ++v) {
+			Intersection inter = graph.intersection(v);
+			minLatitude = Math.min(minLatitude, inter.latitude);
+			maxLatitude = Math.max(maxLatitude, inter.latitude);
+			minLongitude = Math.min(minLongitude, inter.longitude);
+			maxLongitude = Math.max(maxLongitude, inter.longitude);
+		}
+	}
+
+	@Test
+	void nearestMatchesLinearScan() {
+		Random random = new Random(1);
+		for (int q = 0; q < QUERIES; ++q) {
+			double[] point = randomPoint(random);
+			assertEquals(scanNearest(point[0], point[1]), index.nearest(point[0], point[1]), "nearest to " + Arrays.toString(point));
+		}
+	}
+
+	@Test
+	void batchNearestMatchesOneAtATime() {
+		Random random = new Random(2);
+		double[] latitudes = new double[QUERIES];
+		double[] longitudes = new double[QUERIES];
+		int[] expected = new int[QUERIES];
+		for (int q = 0; q < QUERIES; ++q) {
+			double[] point = randomPoint(random);
+			latitudes[q] = point[0];
+			longitudes[q] = point[1];
+			expected[q] = index.nearest(point[0], point[1]);
+		}
+		assertArrayEquals(expected, index.nearest(latitudes, longitudes));
+	}
+
+	@Test
+	void projectMatchesLinearScan() {
+		Random random = new Random(3);
+		for (int q = 0; q < QUERIES; ++q) {
+			double[] point = randomPoint(random);
+			SpatialIndex.Projection projection = index.project(point[0], point[1]);
+			double expected = scanProjection(point[0], point[1]);
+			assertEquals(expected, projection.distance(), TestMaps.TOLERANCE * Math.max(1.0, expected), "projection of " + Arrays.toString(point));
+			assertEquals(projection.distance(), segmentDistance(projection.edgeNo(), x(point[1]), y(point[0])),
+					TestMaps.TOLERANCE * Math.max(1.0, expected), "projection is not on the street it names");
+		}
+	}
+
+	@Test
+	void withinRadiusMatchesLinearScan() {
+		Random random = new Random(4);
+		for (int q = 0; q < QUERIES; ++q) {
+			double[] point = randomPoint(random);
+			double miles = 0.05 + random.nextDouble();
+			double qx = x(point[1]), qy = y(point[0]);
+			int[] expected = scan(v -> square(index.x[v] - qx) + square(index.y[v] - qy) <= miles * miles);
+			int[] found = index.withinRadius(point[0], point[1], miles);
+			Arrays.sort(found);
+			assertArrayEquals(expected, found, miles + " miles of " + Arrays.toString(point));
+		}
+	}
+
+	@Test
+	void withinBoxMatchesLinearScan() {
+		Random random = new Random(5);
+		for (int q = 0; q < QUERIES; ++q) {
+			double[] a = randomPoint(random);
+			double[] b = randomPoint(random);
+			double x0 = x(Math.min(a[1], b[1])), x1 = x(Math.max(a[1], b[1]));
+			double y0 = y(Math.min(a[0], b[0])), y1 = y(Math.max(a[0], b[0]));
+			int[] expected = scan(v -> index.x[v] >= x0 && index.x[v] <= x1 && index.y[v] >= y0 && index.y[v] <= y1);
+			int[] found = index.withinBox(Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.max(a[0], b[0]), Math.max(a[1], b[1]));
+			Arrays.sort(found);
+			assertArrayEquals(expected, found, "box from " + Arrays.toString(a) + " to " + Arrays.toString(b));
+		}
+	}
+
+	// Returns a random point on the map, or one time in ten somewhere around it
+	private static double[] randomPoint(Random random) {
+		double margin = (random.nextInt(10) == 0) ? 0.5 : 0.0;
+		double height = maxLatitude - minLatitude, width = maxLongitude - minLongitude;
+		return new double[] {
+			minLatitude - margin * height + random.nextDouble() * (1 + 2 * margin) * height,
+			minLongitude - margin * width + random.nextDouble() * (1 + 2 * margin) * width
+		};
+	}
+
+	// Something that picks intersections by number
+	private interface Filter {
+		boolean keep(int v);
+	}
+
+	// Returns the intersection numbers kept by the filter, in increasing order
+	private static int[] scan(Filter filter) {
+		int[] kept = new int[graph.V()];
+		int count = 0;
+		for (int v = 0; v < graph.V(); ++v) {
+			if (filter.keep(v)) {
+				kept[count++] = v;
+			}
+		}
+		return Arrays.copyOf(kept, count);
+	}
+
+	// Returns the intersection nearest the point, the lowest numbered of any tied
+	private static int scanNearest(double latitude, double longitude) {
+		double qx = x(longitude), qy = y(latitude);
+		int best = -1;
+		double bestSquared = Double.POSITIVE_INFINITY;
+		for (int v = 0; v < graph.V(); ++v) {
+			double squared = square(index.x[v] - qx) + square(index.y[v] - qy);
+			if (squared < bestSquared) {
+				best = v;
+				bestSquared = squared;
+			}
+		}
+		return best;
+	}
+
+	// Returns the distance from the point to the nearest point on any street
+	private static double scanProjection(double latitude, double longitude) {
+		double best = Double.POSITIVE_INFINITY;
+		for (int e = 0; e < graph.E(); ++e) {
+			best = Math.min(best, segmentDistance(e, x(longitude), y(latitude)));
+		}
+		return best;
+	}
+
+	// Returns the distance from (qx, qy) to the nearest point of street e
+	private static double segmentDistance(int e, double qx, double qy) {
+		double ax = index.x[index.edgeV[e]], ay = index.y[index.edgeV[e]];
+		double bx = index.x[index.edgeW[e]], by = index.y[index.edgeW[e]];
+		double length = square(bx - ax) + square(by - ay);
+		double t = (length == 0) ? 0.0 : Math.max(0.0, Math.min(1.0, ((qx - ax) * (bx - ax) + (qy - ay) * (by - ay)) / length));
+		return Math.hypot(ax + t * (bx - ax) - qx, ay + t * (by - ay) - qy);
+	}
+
+	private static double x(double longitude) { return (longitude - index.originLongitude) * index.xMiles; }
+	private static double y(double latitude) { return (latitude - index.originLatitude) * SpatialIndex.MILES_PER_DEGREE; }
+	private static double square(double d) { return d * d; }
+}
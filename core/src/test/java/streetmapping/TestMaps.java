@@ -0,0 +1,203 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/* Small generated maps for the tests, and checks shared between them */
+final class TestMaps {
+
+	static final double TOLERANCE = 1e-9;	// relative difference allowed between two sums of the same path lengths
+
+	private TestMaps() {
+	}
+
+	/* Returns a map of a grid city joined by a highway to a radial city,
+	 * plus a small grid town no street reaches, so that some pairs of
+	 * intersections have no path between them. It is loaded from a file
+	 * the way the program loads maps */
+	static UndirectedGraph city(long seed) throws IOException {
+		return load(cityText(seed, true));
+	}
+
+	// Returns the map of city() without the unreachable town, so it has a spanning tree
+	static UndirectedGraph connectedCity(long seed) throws IOException {
+		return load(cityText(seed, false));
+	}
+
+	// Returns the map file text of city(), with or without its unreachable town
+	static String cityText(long seed, boolean island) throws IOException {
+		StringWriter text = new StringWriter();
+		MapGenerator generator = new MapGenerator(text, seed);
+		double latitude = MapGenerator.LATITUDE;
+		double longitude = MapGenerator.LONGITUDE;
+		String downtown = generator.grid("g", 24, 24, latitude, longitude);
+		String suburb = generator.radial("c", 6, 36, latitude + 0.06, longitude + 0.04);
+		generator.highway("h", downtown, latitude + 12 * MapGenerator.BLOCK, longitude + 12 * MapGenerator.BLOCK,
+				suburb, latitude + 0.06, longitude + 0.04);
+		if (island) {
+			generator.grid("t", 3, 4, latitude - 0.08, longitude - 0.08);
+		}
+		return text.toString();
+	}
+
+	// Loads map file text through a temporary file with new UndirectedGraph(File)
+	static UndirectedGraph load(String text) throws IOException {
+		return new UndirectedGraph(write(text));
+	}
+
+	// Writes text to a temporary file (UTF-8) that is deleted when the tests end
+	static File write(String text) throws IOException {
+		File file = temporary(".txt");
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	// Returns a temporary file name that is deleted when the tests end
+	static File temporary(String suffix) throws IOException {
+		File file = File.createTempFile("streetmapping", suffix);
+		file.deleteOnExit();
+		return file;
+	}
+
+	// Returns the map file text of a graph, so it can be loaded again from scratch
+	static String text(UndirectedGraph graph) {
+		StringBuilder text = new StringBuilder();
+		for (int v = 0; v < graph.V(); ++v) {
+			Intersection inter = graph.intersection(v);
+			text.append("i\t").append(inter.title).append('\t').append(inter.latitude).append('\t').append(inter.longitude).append('\n');
+		}
+		for (int e = 0; e < graph.E(); ++e) {
+			StreetEdge edge = graph.edgeList[e];
+			text.append("r\t").append(edge.edgeName).append('\t').append(edge.v.title).append('\t').append(edge.w.title).append('\n');
+		}
+		return text.toString();
+	}
+
+	/* Asserts that two graphs have the same intersections and streets
+	 * under the same numbers, and that each one's adjacency slices hold
+	 * exactly the streets touching each intersection (in any order) */
+	static void assertSameGraph(UndirectedGraph expected, UndirectedGraph actual) {
+		assertEquals(expected.V(), actual.V(), "intersections");
+		assertEquals(expected.E(), actual.E(), "streets");
+		for (int v = 0; v < expected.V(); ++v) {
+			Intersection a = expected.intersection(v), b = actual.intersection(v);
+			assertEquals(a.title, b.title, "title of intersection " + v);
+			assertEquals(a.latitude, b.latitude, "latitude of " + a.title);
+			assertEquals(a.longitude, b.longitude, "longitude of " + a.title);
+			assertEquals(v, b.intersectionNo);
+			assertEquals(expected.intersectionNo(a.title), actual.intersectionNo(a.title), "lookup of " + a.title);
+		}
+		for (int e = 0; e < expected.E(); ++e) {
+			StreetEdge a = expected.edgeList[e], b = actual.edgeList[e];
+			assertEquals(a.edgeName, b.edgeName, "name of street " + e);
+			assertEquals(a.v.intersectionNo, b.v.intersectionNo, "first end of " + a.edgeName);
+			assertEquals(a.w.intersectionNo, b.w.intersectionNo, "second end of " + a.edgeName);
+			assertEquals(a.weight, b.weight, "weight of " + a.edgeName);
+			assertEquals(e, b.edgeNo);
+		}
+		assertArrayEquals(adjacency(expected), adjacency(actual), "adjacency");
+	}
+
+	/* Returns "v:e>w@weight" for every adjacency slot of the graph, sorted,
+	 * after checking each slot against the street it names */
+	static String[] adjacency(UndirectedGraph graph) {
+		assertEquals(graph.V() + 1, graph.offsets.length);
+		String[] slots = new String[graph.offsets[graph.V()]];
+		assertEquals(2 * graph.E(), slots.length, "every street appears once from each end");
+		for (int v = 0; v < graph.V(); ++v) {
+			for (int k = graph.offsets[v]; k < graph.offsets[v + 1]; ++k) {
+				StreetEdge edge = graph.edgeList[graph.edgeIds[k]];
+				int other = (edge.v.intersectionNo == v) ? edge.w.intersectionNo : edge.v.intersectionNo;
+				assertEquals(other, graph.targets[k], "slot " + k + " of intersection " + v);
+				assertEquals(edge.weight, graph.weights[k], "weight in slot " + k);
+				slots[k] = v + ":" + edge.edgeNo + ">" + other + "@" + edge.weight;
+			}
+		}
+		Arrays.sort(slots);
+		return slots;
+	}
+
+	/* Returns the edge numbers, in increasing order, of the minimum spanning
+	 * forest over V intersections of the given edges, found by Kruskal's
+	 * algorithm with ties broken by edge number (the same strict order
+	 * BoruvkaMST uses, so both must pick exactly the same edges) */
+	static int[] kruskal(int V, int[] edges, int[] edgeV, int[] edgeW, double[] weight) {
+		Integer[] order = new Integer[edges.length];
+		for (int i = 0; i < edges.length; ++i) {
+			order[i] = edges[i];
+		}
+		Arrays.sort(order, (a, b) -> (weight[a] != weight[b]) ? Double.compare(weight[a], weight[b]) : Integer.compare(a, b));
+
+		int[] parent = new int[V];
+		for (int v = 0; v < V; ++v) {
+			parent[v] = v;
+		}
+		int[] forest = new int[Math.max(0, V - 1)];
+		int count = 0;
+		for (int e : order) {
+			int a = root(parent, edgeV[e]), b = root(parent, edgeW[e]);
+			if (a != b) {
+				parent[a] = b;
+				forest[count++] = e;
+			}
+		}
+		forest = Arrays.copyOf(forest, count);
+		Arrays.sort(forest);
+		return forest;
+	}
+
+	// Returns the root of v in a union-find parent array, halving the path to it
+	static int root(int[] parent, int v) {
+		while (parent[v] != v) {
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+
+	// Returns the title of intersection number v
+	static String title(UndirectedGraph graph, int v) {
+		return graph.intersection(v).title;
+	}
+
+	// Asserts that two path lengths agree to within rounding
+	static void assertDistance(double expected, double actual, String message) {
+		if (Double.isInfinite(expected)) {
+			assertEquals(expected, actual, message);
+		}
+		else {
+			assertEquals(expected, actual, TOLERANCE * Math.max(1.0, expected), message);
+		}
+	}
+
+	/* Asserts that a route leads from start to end over connected streets
+	 * and that its streets add up to the length it claims */
+	static void assertWalkable(UndirectedGraph graph, Route route, int start, int end) {
+		assertNotNull(route, "no route from " + start + " to " + end);
+		assertEquals(start, route.start());
+		assertEquals(end, route.end());
+		int at = start;
+		double total = 0.0;
+		for (int i = 0; i < route.size(); ++i) {
+			StreetEdge edge = graph.edgeList[route.edge(i)];
+			if (edge.v.intersectionNo == at) {
+				at = edge.w.intersectionNo;
+			}
+			else {
+				assertEquals(at, edge.w.intersectionNo, "edge " + i + " of the route does not leave intersection " + at);
+				at = edge.v.intersectionNo;
+			}
+			total += edge.weight;
+		}
+		assertEquals(end, at, "route does not arrive at its end");
+		assertDistance(route.distance(), total, "route length is not the sum of its streets");
+	}
+}
@@ -0,0 +1,154 @@
+/* Code & Commentary by Grayson Westfall */
+
+package streetmapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/* Checks TitleIndex against a HashMap through long random runs of puts,
+ * replacements and removals, starting from a small table so that it
+ * resizes many times and builds long probe runs for removals to repair */
+class TitleIndexTest {
+
+	private static final int OPERATIONS = 40000;	// random operations tried by each run
+
+	@Test
+	void randomEditsMatchHashMap() {
+		for (int run = 0; run < 4; ++run) {
+			Random random = new Random(run);
+			List<String> pool = titles(random, 600 * (run + 1));
+			TitleIndex index = new TitleIndex(run);
+			Map<String, Integer> expected = new HashMap<String, Integer>();
+			for (int i = 0; i < OPERATIONS; ++i) {
+				String title = pool.get(random.nextInt(pool.size()));
+				int choice = random.nextInt(10);
+				if (choice < 5) {
+					index.put(title, i);
+					expected.put(title, i);
+				}
+				else if (choice < 8) {
+					index.remove(title);
+					expected.remove(title);
+				}
+				else {
+					assertEquals(expected.getOrDefault(title, -1), index.get(title), "lookup of " + title);
+				}
+				if (i % 1000 == 0) {
+					assertSameEntries(expected, pool, index);
+				}
+			}
+			assertSameEntries(expected, pool, index);
+
+			// Emptying the table leaves nothing behind
+			for (String title : pool) {
+				index.remove(title);
+			}
+			assertSameEntries(new HashMap<String, Integer>(), pool, index);
+		}
+	}
+
+	@Test
+	void bytesLookupMatchesStringLookup() {
+		Random random = new Random(11);
+		List<String> pool = titles(random, 3000);
+		TitleIndex index = new TitleIndex(16);
+		for (int i = 0; i < pool.size(); i += 2) {
+			index.put(pool.get(i), i);
+		}
+
+		// Every title sits between other bytes, the way it does in a map file
+		for (String title : pool) {
+			byte[] bytes = ("i\t" + title + "\t43.1").getBytes(StandardCharsets.UTF_8);
+			int to = bytes.length - "\t43.1".length();
+			assertEquals(index.get(title), index.get(bytes, 2, to), "lookup of " + title + " as bytes");
+		}
+	}
+
+	@Test
+	void copyIsIndependent() {
+		Random random = new Random(12);
+		List<String> pool = titles(random, 500);
+		TitleIndex index = new TitleIndex(0);
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		for (int i = 0; i < pool.size(); ++i) {
+			index.put(pool.get(i), i);
+			expected.put(pool.get(i), i);
+		}
+
+		TitleIndex copy = index.copy();
+		Map<String, Integer> copied = new HashMap<String, Integer>(expected);
+		for (int i = 0; i < pool.size(); i += 3) {
+			copy.remove(pool.get(i));
+			copied.remove(pool.get(i));
+			index.put(pool.get((i + 1) % pool.size()), -7);
+			expected.put(pool.get((i + 1) % pool.size()), -7);
+		}
+		for (int i = 0; i < 2000; ++i) {
+			copy.put("new-" + i, i);
+			copied.put("new-" + i, i);
+		}
+		assertSameEntries(expected, pool, index);
+		assertSameEntries(copied, pool, copy);
+		assertEquals(-1, index.get("new-5"));
+	}
+
+	/* Returns distinct titles: ordinary street names, titles that are not
+	 * plain ASCII, and groups whose String hashes are all equal (built from
+	 * "Aa" and "BB"), so that full hash matches still need equals() */
+	private static List<String> titles(Random random, int count) {
+		Set<String> titles = new LinkedHashSet<String>();
+		String[] pair = {"Aa", "BB"};
+		for (int i = 0; titles.size() < count; ++i) {
+			switch (i % 4) {
+				case 0: titles.add("i" + random.nextInt(1000000)); break;
+				case 1: titles.add("caf\u00e9-" + i); break;
+				case 2: titles.add("\u65e5" + i + "\u00fc"); break;
+				default:
+					StringBuilder title = new StringBuilder();
+					for (int bits = i / 4; title.length() < 12; bits >>>= 1) {
+						title.append(pair[bits & 1]);
+					}
+					titles.add(title.toString());
+					break;
+			}
+		}
+		return new ArrayList<String>(titles);
+	}
+
+	/* Asserts that the index holds exactly the expected entries, and that
+	 * every entry can be reached from its home slot without crossing an
+	 * empty slot (the invariant removal has to keep) */
+	private static void assertSameEntries(Map<String, Integer> expected, List<String> pool, TitleIndex index) {
+		assertEquals(expected.size(), index.size(), "size");
+		for (String title : pool) {
+			assertEquals(expected.getOrDefault(title, -1), index.get(title), "lookup of " + title);
+		}
+		for (String title : expected.keySet()) {
+			assertEquals(expected.get(title), index.get(title), "lookup of " + title);
+		}
+
+		int stored = 0;
+		for (int s = 0; s <= index.mask; ++s) {
+			if (index.titles[s] != null) {
+				++stored;
+				assertEquals(TitleIndex.hash(index.titles[s]), index.hashes[s], "stored hash of " + index.titles[s]);
+				for (int slot = index.hashes[s] & index.mask; slot != s; slot = (slot + 1) & index.mask) {
+					assertNotNull(index.titles[slot], "empty slot " + slot + " cuts " + index.titles[s] + " off from its home");
+				}
+			}
+		}
+		assertEquals(expected.size(), stored, "occupied slots");
+		assertTrue(2 * index.size() <= index.mask + 1, "table is more than half full");
+	}
+}